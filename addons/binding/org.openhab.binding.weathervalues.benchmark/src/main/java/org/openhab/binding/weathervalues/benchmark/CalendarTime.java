@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.benchmark;
+
+import java.time.Month;
+import java.util.Calendar;
+
+import org.openhab.binding.weathervalues.internal.Time;
+
+/**
+ * The {@link CalendarTime} is a copy of the {@link Time} of the binding before it was rebuilt on epoch arithmetic,
+ * which creates a {@link Calendar} for every field. It is only kept as the baseline of the {@link TimeBenchmark}.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+class CalendarTime {
+    private long timeInMilliseconds;
+
+    CalendarTime(long timeInMilliseconds) {
+        this.timeInMilliseconds = timeInMilliseconds;
+    }
+
+    CalendarTime(String dateAndTime) {
+        StringBuilder temp = new StringBuilder();
+        temp.append(dateAndTime);
+        while (temp.indexOf("\"") >= 0) {
+            temp.delete(temp.indexOf("\""), temp.indexOf("\"") + 1);
+        }
+
+        String[] temp1 = temp.toString().split(" ");
+        String[] dateString = temp1[0].split("-");
+        String[] timeString = temp1[1].split(":");
+
+        int year = Integer.parseInt(dateString[0]);
+        int month = Integer.parseInt(dateString[1]) - 1;
+        int day = Integer.parseInt(dateString[2]);
+        int hour = Integer.parseInt(timeString[0]);
+        int min = Integer.parseInt(timeString[1]);
+        int sec = Integer.parseInt(timeString[2]);
+
+        Calendar date = Calendar.getInstance();
+        date.set(year, month, day, hour, min, sec);
+        this.timeInMilliseconds = date.getTimeInMillis();
+    }
+
+    CalendarTime(int year, int month, int day, int hour, int min, int sec) {
+        month = month - 1;
+
+        Calendar date = Calendar.getInstance();
+        date.set(year, month, day, hour, min, sec);
+        this.timeInMilliseconds = date.getTimeInMillis();
+    }
+
+    int getYear() {
+        Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(this.timeInMilliseconds);
+        return date.get(Calendar.YEAR);
+    }
+
+    Month getMonth() {
+        Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(this.timeInMilliseconds);
+        return Month.of(date.get(Calendar.MONTH) + 1);
+    }
+
+    int getDay() {
+        Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(this.timeInMilliseconds);
+        return date.get(Calendar.DAY_OF_MONTH);
+    }
+
+    int getHour() {
+        Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(this.timeInMilliseconds);
+        return date.get(Calendar.HOUR_OF_DAY);
+    }
+
+    int getMinute() {
+        Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(this.timeInMilliseconds);
+        return date.get(Calendar.MINUTE);
+    }
+
+    int getSecond() {
+        Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(this.timeInMilliseconds);
+        return date.get(Calendar.SECOND);
+    }
+
+    int getDayOfWeek() {
+        Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(this.timeInMilliseconds);
+        int day = date.get(Calendar.DAY_OF_WEEK) - 1;
+        if (day == 0) {
+            day = 7;
+        }
+        return day;
+    }
+
+    long getTimeInMillis() {
+        return this.timeInMilliseconds;
+    }
+
+    CalendarTime getStartOfWeek() {
+        Calendar date = Calendar.getInstance();
+        date.setTimeInMillis(this.timeInMilliseconds);
+        date.set(Calendar.HOUR_OF_DAY, 0);
+        date.set(Calendar.MINUTE, 0);
+        date.set(Calendar.SECOND, 0);
+        date.set(Calendar.MILLISECOND, 0);
+        date.add(Calendar.DAY_OF_MONTH, 1 - getDayOfWeek());
+        return new CalendarTime(date.getTimeInMillis());
+    }
+
+    static CalendarTime getStartOfMonth(int year, int month) {
+        Calendar date = Calendar.getInstance();
+        date.clear();
+        date.set(year, month - 1, 1);
+        return new CalendarTime(date.getTimeInMillis());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+
+        buffer.append("\"");
+
+        buffer.append(getYear());
+        buffer.append("-");
+
+        if (getMonth().getValue() < 10) {
+            buffer.append("0");
+        }
+        buffer.append(getMonth().getValue());
+
+        buffer.append("-");
+
+        if (getDay() < 10) {
+            buffer.append("0");
+        }
+        buffer.append(getDay());
+
+        buffer.append(" ");
+
+        if (getHour() < 10) {
+            buffer.append("0");
+        }
+        buffer.append(getHour());
+
+        buffer.append(":");
+
+        if (getMinute() < 10) {
+            buffer.append("0");
+        }
+        buffer.append(getMinute());
+
+        buffer.append(":");
+
+        if (getSecond() < 10) {
+            buffer.append("0");
+        }
+        buffer.append(getSecond());
+
+        buffer.append("\"");
+
+        return buffer.toString();
+    }
+}
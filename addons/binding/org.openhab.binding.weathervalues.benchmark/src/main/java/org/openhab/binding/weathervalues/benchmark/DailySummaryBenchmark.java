@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.weathervalues.internal.Time;
+import org.openhab.binding.weathervalues.internal.data.DailySummary;
+import org.openhab.binding.weathervalues.internal.data.Rain;
+import org.openhab.binding.weathervalues.internal.mapping.DaySummaryColumn;
+import org.openhab.binding.weathervalues.internal.mapping.UnitGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DailySummaryBenchmark} measures the range queries of a {@link DailySummary} with one row per day over 1,
+ * 5, 10 and 20 years. The sums are answered from prefix sums with two binary searches, so their time hardly grows
+ * with the number of rows, while the minimum and the maximum scan the rows of their range.
+ *
+ * {@link #rain()} builds all rain states of a refresh from the summary. {@link #load()} fills a new summary with all
+ * columns of every day like the first refresh of a reader, so its allocation is the footprint of the summary together
+ * with the arrays it outgrew.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DailySummaryBenchmark {
+
+    private static final int RANGES = 1024;
+
+    @Param({ "1", "5", "10", "20" })
+    public int years;
+
+    private final DailySummary dailyRain = new DailySummary("rain", UnitGroup.RAIN);
+    private final long[] from = new long[RANGES];
+    private final long[] to = new long[RANGES];
+    private Time now;
+    private long yearAgo;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        now = new Time();
+        Random random = new Random(42);
+        long today = Time.startOfDay(now.getTimeInMillis() / 1000);
+        for (long day = Time.startOfDay(today, -365 * years); day <= today; day = Time.startOfDay(day, 1)) {
+            dailyRain.setValue(DailySummary.SUM, dailyRain.appendRow(day), random.nextInt(4) == 0 ? 0 : random
+                    .nextDouble() * 20);
+        }
+        // ranges from a day up to the whole history
+        for (int i = 0; i < RANGES; i++) {
+            int first = random.nextInt(dailyRain.size());
+            int last = first + random.nextInt(dailyRain.size() - first);
+            from[i] = dailyRain.getKey(first);
+            to[i] = last + 1 < dailyRain.size() ? dailyRain.getKey(last + 1) : Long.MAX_VALUE;
+        }
+        yearAgo = Time.startOfDay(today, -365);
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (RANGES - 1);
+        return next;
+    }
+
+    @Benchmark
+    public double rangeSum() {
+        int index = nextIndex();
+        return dailyRain.sum(DailySummary.SUM, from[index], to[index]);
+    }
+
+    @Benchmark
+    public double rolling12Months() {
+        return dailyRain.sum(DailySummary.SUM, yearAgo, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public double rangeMaximum() {
+        int index = nextIndex();
+        return dailyRain.max(DailySummary.SUM, from[index], to[index]);
+    }
+
+    @Benchmark
+    public Rain rain() {
+        return new Rain(0, dailyRain, now);
+    }
+
+    @Benchmark
+    public DailySummary load() {
+        DailySummary summary = new DailySummary("rain", UnitGroup.RAIN);
+        double[] row = new double[DaySummaryColumn.values().length];
+        for (int i = 0; i < dailyRain.size(); i++) {
+            for (int column = 0; column < row.length; column++) {
+                row[column] = dailyRain.getValue(DailySummary.SUM, i) + column;
+            }
+            summary.setRow(summary.appendRow(dailyRain.getKey(i)), row);
+        }
+        // the first sum allocates the prefix sums of its column
+        summary.sum(DailySummary.SUM, Long.MIN_VALUE, Long.MAX_VALUE);
+        return summary;
+    }
+}
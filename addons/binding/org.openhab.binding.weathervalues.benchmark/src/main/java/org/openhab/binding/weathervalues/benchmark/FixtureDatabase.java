@@ -0,0 +1,308 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.weathervalues.internal.SQLiteReader;
+import org.openhab.binding.weathervalues.internal.data.DailySummary;
+import org.openhab.binding.weathervalues.internal.mapping.UnitSystem;
+
+/**
+ * The {@link FixtureDatabase} generates a weewx database with the archive table and the daily summary tables the
+ * binding reads, filled with a record every five minutes in the US unit system for a number of years up to now. The
+ * values follow the seasons and the days with some noise, so the daily summaries have realistic minimums, maximums
+ * and rain sums. The random part of the values only depends on the number of years.
+ *
+ * A database is generated once and reused by all benchmarks, until it is older than a day. Then it is generated again,
+ * so its latest record is as recent as in a live database.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class FixtureDatabase {
+
+    /**
+     * The directory of the databases, target/fixtures unless set by this system property
+     */
+    public static final String DIRECTORY_PROPERTY = "weathervalues.fixtures";
+
+    private static final int INTERVAL = 300;
+    private static final int BATCH_SIZE = 1000;
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+    private static final String[] OBSERVATIONS = { "barometer", "outTemp", "outHumidity", "inTemp", "inHumidity",
+            "extraTemp1", "extraHumid1", "dewpoint", "windSpeed", "windDir", "windGust", "windGustDir", "rainRate",
+            "rain" };
+
+    private static final int BAROMETER = 0;
+    private static final int OUT_TEMP = 1;
+    private static final int OUT_HUMIDITY = 2;
+    private static final int IN_TEMP = 3;
+    private static final int IN_HUMIDITY = 4;
+    private static final int EXTRA_TEMP_1 = 5;
+    private static final int EXTRA_HUMID_1 = 6;
+    private static final int DEWPOINT = 7;
+    private static final int WIND_SPEED = 8;
+    private static final int WIND_DIR = 9;
+    private static final int WIND_GUST = 10;
+    private static final int WIND_GUST_DIR = 11;
+    private static final int RAIN_RATE = 12;
+    private static final int RAIN = 13;
+
+    private FixtureDatabase() {
+    }
+
+    /**
+     * Returns the database of a number of years, generating it if needed
+     *
+     * @param years the number of years of records
+     * @return the file of the database
+     * @throws IOException if the database could not be generated
+     */
+    public static synchronized File get(int years) throws IOException {
+        File directory = new File(System.getProperty(DIRECTORY_PROPERTY, "target/fixtures"));
+        File file = new File(directory, "weewx-" + years + "y.sdb");
+        if (file.isFile() && System.currentTimeMillis() - file.lastModified() < MAX_AGE) {
+            return file;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Directory " + directory.getPath() + " could not be created");
+        }
+        // generated next to the database and renamed when complete, so an interrupted run is not reused
+        File generated = new File(directory, file.getName() + ".tmp");
+        if (generated.exists() && !generated.delete()) {
+            throw new IOException("File " + generated.getPath() + " could not be deleted");
+        }
+        try {
+            Class.forName("org.sqlite.JDBC");
+            generate(generated, years);
+        } catch (ClassNotFoundException | SQLException e) {
+            throw new IOException("Error during generating " + generated.getPath() + ": " + e.getMessage(), e);
+        }
+        if ((file.exists() && !file.delete()) || !generated.renameTo(file)) {
+            throw new IOException("Database " + file.getPath() + " could not be replaced");
+        }
+        return file;
+    }
+
+    private static void generate(File file, int years) throws SQLException {
+        ZoneId zone = ZoneId.systemDefault();
+        long end = System.currentTimeMillis() / 1000 / INTERVAL * INTERVAL;
+        long start = Instant.ofEpochSecond(end).atZone(zone).minusYears(years).toEpochSecond() / INTERVAL * INTERVAL;
+        List<String> summaries = getSummaryObservations();
+        Random random = new Random(years);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath())) {
+            try (Statement statement = connection.createStatement()) {
+                // only the durability of the generation is lost, the database is the same
+                statement.execute("PRAGMA journal_mode = OFF");
+                statement.execute("PRAGMA synchronous = OFF");
+                createTables(statement, summaries);
+            }
+            connection.setAutoCommit(false);
+
+            StringBuilder parameters = new StringBuilder("?, ?, ?");
+            for (int i = 0; i < OBSERVATIONS.length; i++) {
+                parameters.append(", ?");
+            }
+            List<PreparedStatement> insertDays = new ArrayList<>();
+            try (PreparedStatement insertRecord = connection
+                    .prepareStatement("INSERT INTO archive VALUES (" + parameters + ")")) {
+                for (String observation : summaries) {
+                    insertDays.add(connection.prepareStatement("INSERT INTO "
+                            + DailySummary.getTableName(observation) + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"));
+                }
+                DaySummary[] days = new DaySummary[summaries.size()];
+                for (int i = 0; i < days.length; i++) {
+                    days[i] = new DaySummary(indexOf(summaries.get(i)));
+                }
+
+                double[] values = new double[OBSERVATIONS.length];
+                long day = startOfDay(start, zone);
+                long nextDay = startOfDay(day + 36 * 3600, zone);
+                int records = 0;
+                for (long dateTime = start; dateTime <= end; dateTime += INTERVAL) {
+                    if (dateTime >= nextDay) {
+                        for (int i = 0; i < days.length; i++) {
+                            days[i].insert(insertDays.get(i), day);
+                        }
+                        day = nextDay;
+                        nextDay = startOfDay(day + 36 * 3600, zone);
+                    }
+                    createRecord(dateTime, random, values);
+                    insertRecord.setLong(1, dateTime);
+                    insertRecord.setInt(2, UnitSystem.US.getCode());
+                    insertRecord.setInt(3, INTERVAL / 60);
+                    for (int i = 0; i < values.length; i++) {
+                        insertRecord.setDouble(4 + i, values[i]);
+                    }
+                    insertRecord.addBatch();
+                    for (DaySummary summary : days) {
+                        summary.add(dateTime, values);
+                    }
+                    if (++records % BATCH_SIZE == 0) {
+                        insertRecord.executeBatch();
+                    }
+                }
+                insertRecord.executeBatch();
+                // the summary of the current day, as weewx keeps it up to date with every record
+                for (int i = 0; i < days.length; i++) {
+                    days[i].insert(insertDays.get(i), day);
+                }
+            } finally {
+                for (PreparedStatement insertDay : insertDays) {
+                    insertDay.close();
+                }
+            }
+            connection.commit();
+        }
+    }
+
+    /**
+     * Returns the observations of all daily summary tables the binding reads
+     */
+    private static List<String> getSummaryObservations() {
+        Set<String> observations = new LinkedHashSet<>();
+        String prefix = DailySummary.getTableName("");
+        for (String table : SQLiteReader.getDailySummaryTables()) {
+            observations.add(table.substring(prefix.length()));
+        }
+        return new ArrayList<>(observations);
+    }
+
+    private static void createTables(Statement statement, List<String> summaries) throws SQLException {
+        StringBuilder columns = new StringBuilder();
+        for (String observation : OBSERVATIONS) {
+            columns.append(", `").append(observation).append("` REAL");
+        }
+        statement.execute("CREATE TABLE archive (`dateTime` INTEGER NOT NULL UNIQUE PRIMARY KEY, "
+                + "`usUnits` INTEGER NOT NULL, `interval` INTEGER NOT NULL" + columns + ")");
+        for (String observation : summaries) {
+            statement.execute("CREATE TABLE " + DailySummary.getTableName(observation)
+                    + " (dateTime INTEGER NOT NULL UNIQUE PRIMARY KEY, min REAL, mintime INTEGER, max REAL, "
+                    + "maxtime INTEGER, sum REAL, count INTEGER, wsum REAL, sumtime INTEGER)");
+        }
+        statement.execute("CREATE TABLE archive_day__metadata (name CHAR(20) NOT NULL UNIQUE PRIMARY KEY, value TEXT)");
+    }
+
+    /**
+     * Fills the values of a record in US units
+     */
+    private static void createRecord(long dateTime, Random random, double[] values) {
+        double season = Math.cos(2 * Math.PI * (dateTime % 31556952) / 31556952.0);
+        double daytime = -Math.cos(2 * Math.PI * (dateTime % 86400) / 86400.0);
+
+        values[OUT_TEMP] = 52 - 20 * season + 9 * daytime + random.nextGaussian() * 2;
+        values[OUT_HUMIDITY] = clamp(70 - 15 * daytime + random.nextGaussian() * 5, 5, 100);
+        values[EXTRA_TEMP_1] = values[OUT_TEMP] + random.nextGaussian();
+        values[EXTRA_HUMID_1] = clamp(values[OUT_HUMIDITY] + random.nextGaussian() * 3, 5, 100);
+        values[DEWPOINT] = values[OUT_TEMP] - (100 - values[OUT_HUMIDITY]) * 0.36;
+        values[IN_TEMP] = 70 + random.nextGaussian();
+        values[IN_HUMIDITY] = clamp(45 + random.nextGaussian() * 3, 5, 100);
+        values[BAROMETER] = 29.92 + 0.3 * Math.sin(2 * Math.PI * (dateTime % 432000) / 432000.0)
+                + random.nextGaussian() * 0.01;
+        values[WIND_SPEED] = Math.max(0, 6 + 3 * daytime + random.nextGaussian() * 3);
+        values[WIND_DIR] = (270 + random.nextGaussian() * 40 + 360) % 360;
+        values[WIND_GUST] = values[WIND_SPEED] + Math.abs(random.nextGaussian() * 4);
+        values[WIND_GUST_DIR] = (values[WIND_DIR] + random.nextGaussian() * 10 + 360) % 360;
+        // it rains in about one record out of sixty, which gives about 25 inches a year
+        boolean raining = random.nextInt(60) == 0;
+        values[RAIN] = raining ? Math.round(random.nextDouble() * 3) / 100.0 : 0;
+        values[RAIN_RATE] = values[RAIN] * 3600 / INTERVAL;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static int indexOf(String observation) {
+        for (int i = 0; i < OBSERVATIONS.length; i++) {
+            if (OBSERVATIONS[i].equals(observation)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Observation " + observation + " is not generated");
+    }
+
+    private static long startOfDay(long epochSecond, ZoneId zone) {
+        ZonedDateTime dateTime = Instant.ofEpochSecond(epochSecond).atZone(zone).truncatedTo(ChronoUnit.DAYS);
+        return dateTime.toEpochSecond();
+    }
+
+    /**
+     * The {@link DaySummary} accumulates the row of a daily summary table of one day the way weewx does.
+     */
+    private static class DaySummary {
+        private final int observation;
+        private double min;
+        private long minTime;
+        private double max;
+        private long maxTime;
+        private double sum;
+        private int count;
+
+        private DaySummary(int observation) {
+            this.observation = observation;
+            reset();
+        }
+
+        private void add(long dateTime, double[] values) {
+            double value = values[observation];
+            if (value < min) {
+                min = value;
+                minTime = dateTime;
+            }
+            if (value > max) {
+                max = value;
+                maxTime = dateTime;
+            }
+            sum += value;
+            count++;
+        }
+
+        private void insert(PreparedStatement statement, long day) throws SQLException {
+            statement.setLong(1, day);
+            statement.setDouble(2, min);
+            statement.setLong(3, minTime);
+            statement.setDouble(4, max);
+            statement.setLong(5, maxTime);
+            statement.setDouble(6, sum);
+            statement.setInt(7, count);
+            statement.setDouble(8, sum * INTERVAL);
+            statement.setLong(9, (long) count * INTERVAL);
+            statement.executeUpdate();
+            reset();
+        }
+
+        private void reset() {
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+            minTime = 0;
+            maxTime = 0;
+            sum = 0;
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.benchmark;
+
+import static org.openhab.binding.weathervalues.WeatherValuesBindingConstants.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.thing.Thing;
+import org.eclipse.smarthome.core.thing.binding.ThingHandlerCallback;
+import org.eclipse.smarthome.core.thing.binding.builder.ThingBuilder;
+import org.openhab.binding.weathervalues.handler.WeatherValuesHandler;
+import org.openhab.binding.weathervalues.internal.BackfillServices;
+import org.openhab.binding.weathervalues.internal.SQLReaderListener;
+import org.openhab.binding.weathervalues.internal.SQLiteReader;
+import org.openhab.binding.weathervalues.internal.SQLiteReaderRegistry;
+import org.openhab.binding.weathervalues.internal.WeatherSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link HandlerBenchmark} measures how a {@link WeatherValuesHandler} publishes a snapshot to its channels, and
+ * the whole refresh of an unchanged database from the extraction to the publication. The handler reads a fixture
+ * database of 1, 5 and 20 years in the local file system through the {@link SQLiteReaderRegistry}, like a Thing in
+ * file mode. The state updates go to a callback which only counts them.
+ *
+ * With a maximum age of 0 every value is published on every refresh, otherwise only the changed ones.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerBenchmark {
+
+    private static final long REFRESH_INTERVAL = 60;
+    private static final long FIRST_REFRESH_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    @Param({ "1", "5", "20" })
+    public int years;
+
+    @Param({ "0", "30" })
+    public int publishMaxAge;
+
+    private final AtomicLong stateUpdates = new AtomicLong();
+    private final SQLReaderListener firstRefresh = snapshot -> {
+        synchronized (this) {
+            notifyAll();
+        }
+    };
+
+    private ScheduledExecutorService scheduler;
+    private SQLiteReaderRegistry readerRegistry;
+    private SQLiteReader reader;
+    private WeatherValuesHandler handler;
+    private WeatherSnapshot snapshot;
+
+    @Setup
+    public void setUp() throws IOException, ClassNotFoundException, InterruptedException {
+        File file = FixtureDatabase.get(years);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        readerRegistry = new SQLiteReaderRegistry();
+
+        // the handler shares the reader, which has read the database then
+        reader = readerRegistry.acquire(file.getParent(), file.getName(), DEVICE_MODE_FILE, firstRefresh,
+                REFRESH_INTERVAL * 60, false, scheduler);
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + FIRST_REFRESH_TIMEOUT;
+            while (reader.getSnapshot() == null && System.currentTimeMillis() < deadline) {
+                wait(1000);
+            }
+        }
+        snapshot = reader.getSnapshot();
+        if (snapshot == null) {
+            throw new IllegalStateException("Database " + file + " could not be read");
+        }
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(DEVICE_PARAMETER_HOST, file.getParent());
+        properties.put(DEVICE_PARAMETER_DB_NAME, file.getName());
+        properties.put(DEVICE_PARAMETER_MODE, DEVICE_MODE_FILE);
+        properties.put(DEVICE_PARAMETER_REFRESH, BigDecimal.valueOf(REFRESH_INTERVAL));
+        properties.put(DEVICE_PARAMETER_ADAPTIVE_POLLING, Boolean.FALSE);
+        properties.put(DEVICE_PARAMETER_PUBLISH_MAX_AGE, BigDecimal.valueOf(publishMaxAge));
+        Thing thing = ThingBuilder.create(THING_TYPE_DEVICE, "benchmark")
+                .withConfiguration(new Configuration(properties)).build();
+        handler = new WeatherValuesHandler(thing, readerRegistry, new BackfillServices());
+        handler.setCallback(createCallback());
+        handler.initialize();
+        readerRegistry.release(firstRefresh);
+    }
+
+    /**
+     * Creates a callback which counts the state updates and ignores everything else
+     */
+    private ThingHandlerCallback createCallback() {
+        return (ThingHandlerCallback) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ThingHandlerCallback.class }, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "stateUpdated":
+                            stateUpdates.incrementAndGet();
+                            return null;
+                        case "equals":
+                            return proxy == arguments[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "BenchmarkCallback";
+                        default:
+                            return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                    }
+                });
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.dispose();
+        readerRegistry.dispose();
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public long refreshValues() {
+        handler.refreshValues(snapshot);
+        return stateUpdates.get();
+    }
+
+    @Benchmark
+    public long extractAndPublish() {
+        WeatherSnapshot current = reader.extract();
+        if (current != null) {
+            reader.publish(current);
+        }
+        return stateUpdates.get();
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Month;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.weathervalues.internal.LatestRecord;
+import org.openhab.binding.weathervalues.internal.SQLiteReader;
+import org.openhab.binding.weathervalues.internal.Time;
+import org.openhab.binding.weathervalues.internal.WeatherSnapshot;
+import org.openhab.binding.weathervalues.internal.data.DailySummary;
+import org.openhab.binding.weathervalues.internal.data.OutdoorClimate;
+import org.openhab.binding.weathervalues.internal.data.Rain;
+import org.openhab.binding.weathervalues.internal.data.Wind;
+import org.openhab.binding.weathervalues.internal.mapping.ArchiveColumn;
+import org.openhab.binding.weathervalues.internal.mapping.DaySummaryColumn;
+import org.openhab.binding.weathervalues.internal.mapping.MappingPlan;
+import org.openhab.binding.weathervalues.internal.mapping.UnitGroup;
+import org.openhab.binding.weathervalues.internal.mapping.UnitSystem;
+import org.openhab.binding.weathervalues.internal.source.LocalDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The {@link ReaderBenchmark} measures the stages of a refresh of the {@link SQLiteReader} against a fixture database
+ * of 1, 5 and 20 years in the local file system.
+ *
+ * The values which were pulled with a query each by pullOutdoorClimate, pullWind and pullRain are read with the single
+ * query of the {@link LatestRecord} now, which is measured by {@link #latestRecord()}. The data classes built from it
+ * are measured separately. {@link #extract()} is a whole refresh of an unchanged database, as it runs after every
+ * archive record, and {@link #firstRefresh()} is the first refresh of a reader, which reads all daily summaries.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReaderBenchmark {
+
+    @Param({ "1", "5", "20" })
+    public int years;
+
+    private File file;
+    private SQLiteReader reader;
+    private MappingPlan archivePlan;
+    private final LatestRecord record = new LatestRecord();
+    private final DailySummary dailyTemperature = new DailySummary("outTemp", UnitGroup.TEMPERATURE);
+    private final DailySummary dailyRain = new DailySummary("rain", UnitGroup.RAIN);
+
+    @Setup
+    public void setUp() throws IOException, ClassNotFoundException, SQLException {
+        file = FixtureDatabase.get(years);
+        reader = new SQLiteReader(new LocalDatabase(file));
+        reader.download();
+        if (reader.extract() == null) {
+            throw new IllegalStateException("Database " + file + " could not be read");
+        }
+        // the connection of the reader stays open after the refresh
+        archivePlan = ArchiveColumn.createPlan(MappingPlan.getColumns(reader, ArchiveColumn.TABLE_NAME));
+        record.read(reader, archivePlan, UnitSystem.US);
+        readDailySummary(dailyTemperature);
+        readDailySummary(dailyRain);
+    }
+
+    private void readDailySummary(DailySummary summary) throws SQLException {
+        MappingPlan plan = DaySummaryColumn.createPlan(summary.getTableName(), summary.getUnitGroup(),
+                MappingPlan.getColumns(reader, summary.getTableName()));
+        double[] row = new double[plan.getNumberOfColumns()];
+        PreparedStatement statement = reader.prepareStatement(plan.getSelect() + " ORDER BY dateTime");
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                long key = plan.read(resultSet, row, UnitSystem.US);
+                summary.setRow(summary.appendRow(key), row);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        reader.dispose();
+    }
+
+    @Benchmark
+    public LatestRecord latestRecord() {
+        record.read(reader, archivePlan, UnitSystem.US);
+        return record;
+    }
+
+    @Benchmark
+    public void outdoorClimate(Blackhole blackhole) {
+        OutdoorClimate outdoorClimate = record.getOutdoorClimate(dailyTemperature);
+        blackhole.consume(outdoorClimate.getBarometer());
+        blackhole.consume(outdoorClimate.getTemperature());
+        blackhole.consume(outdoorClimate.getTemperatureMinimum());
+        blackhole.consume(outdoorClimate.getTemperatureMinimumTime());
+        blackhole.consume(outdoorClimate.getTemperatureMaximum());
+        blackhole.consume(outdoorClimate.getTemperatureMaximumTime());
+        blackhole.consume(outdoorClimate.getHumidity());
+    }
+
+    @Benchmark
+    public void wind(Blackhole blackhole) {
+        Wind wind = record.getWind();
+        blackhole.consume(wind.getSpeed());
+        blackhole.consume(wind.getDirection());
+    }
+
+    @Benchmark
+    public void rain(Blackhole blackhole) {
+        Rain rain = new Rain(record.getRainRate(), dailyRain, new Time());
+        blackhole.consume(rain.getRainRateCurrent());
+        blackhole.consume(rain.getRainCurrentDay());
+        blackhole.consume(rain.getRainCurrentWeek());
+        blackhole.consume(rain.getRainCurrentMonth());
+        blackhole.consume(rain.getRainCurrentYear());
+        blackhole.consume(rain.getRainPreviousYear());
+        blackhole.consume(rain.getRainRolling12Months());
+        blackhole.consume(rain.getRainRolling30Days());
+        blackhole.consume(rain.getRainSeasonToDate());
+        for (Month month : Month.values()) {
+            blackhole.consume(rain.getRainMonth(month));
+        }
+    }
+
+    @Benchmark
+    public WeatherSnapshot extract() {
+        return reader.extract();
+    }
+
+    @Benchmark
+    public WeatherSnapshot firstRefresh() throws ClassNotFoundException {
+        SQLiteReader firstReader = new SQLiteReader(new LocalDatabase(file));
+        try {
+            firstReader.download();
+            return firstReader.extract();
+        } finally {
+            firstReader.dispose();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.weathervalues.internal.Time;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The {@link TimeBenchmark} compares the {@link Time} of the binding, which calculates the fields with arithmetic on
+ * the epoch day and caches the offset of the time zone between two transitions, with the {@link CalendarTime} it
+ * replaced. Every benchmark runs in pairs, prefixed with calendar for the baseline and epoch for the current one.
+ *
+ * The times are spread over two years at an odd interval, so the offsets of the time zone change between summer and
+ * winter time like they do for the records of a weewx database.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeBenchmark {
+
+    private static final int TIMES = 1024;
+    private static final long START = 1483228800000L;
+    // a little more than 17 hours, so the times fall on all hours of the day
+    private static final long STEP = 61717000L;
+
+    private final long[] times = new long[TIMES];
+    private final String[] texts = new String[TIMES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < TIMES; i++) {
+            times[i] = START + i * STEP;
+            texts[i] = new Time(times[i]).toString();
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (TIMES - 1);
+        return next;
+    }
+
+    @Benchmark
+    public void calendarFields(Blackhole blackhole) {
+        CalendarTime time = new CalendarTime(times[nextIndex()]);
+        blackhole.consume(time.getYear());
+        blackhole.consume(time.getMonth());
+        blackhole.consume(time.getDay());
+        blackhole.consume(time.getHour());
+        blackhole.consume(time.getDayOfWeek());
+    }
+
+    @Benchmark
+    public void epochFields(Blackhole blackhole) {
+        Time time = new Time(times[nextIndex()]);
+        blackhole.consume(time.getYear());
+        blackhole.consume(time.getMonth());
+        blackhole.consume(time.getDay());
+        blackhole.consume(time.getHour());
+        blackhole.consume(time.getDayOfWeek());
+    }
+
+    @Benchmark
+    public long calendarFromFields() {
+        int index = nextIndex();
+        return new CalendarTime(2017 + index / 512, 1 + index % 12, 1 + index % 28, index % 24, index % 60, 0)
+                .getTimeInMillis();
+    }
+
+    @Benchmark
+    public long epochFromFields() {
+        int index = nextIndex();
+        return new Time(2017 + index / 512, 1 + index % 12, 1 + index % 28, index % 24, index % 60, 0)
+                .getTimeInMillis();
+    }
+
+    @Benchmark
+    public long calendarStartOfWeek() {
+        return new CalendarTime(times[nextIndex()]).getStartOfWeek().getTimeInMillis();
+    }
+
+    @Benchmark
+    public long epochStartOfWeek() {
+        return new Time(times[nextIndex()]).getStartOfWeek().getTimeInMillis();
+    }
+
+    @Benchmark
+    public long calendarStartOfMonth() {
+        int index = nextIndex();
+        return CalendarTime.getStartOfMonth(2017 + index / 512, 1 + index % 12).getTimeInMillis();
+    }
+
+    @Benchmark
+    public long epochStartOfMonth() {
+        int index = nextIndex();
+        return Time.getStartOfMonth(2017 + index / 512, 1 + index % 12).getTimeInMillis();
+    }
+
+    @Benchmark
+    public long calendarParse() {
+        return new CalendarTime(texts[nextIndex()]).getTimeInMillis();
+    }
+
+    @Benchmark
+    public long epochParse() {
+        return new Time(texts[nextIndex()]).getTimeInMillis();
+    }
+
+    @Benchmark
+    public String calendarToString() {
+        return new CalendarTime(times[nextIndex()]).toString();
+    }
+
+    @Benchmark
+    public String epochToString() {
+        return new Time(times[nextIndex()]).toString();
+    }
+}
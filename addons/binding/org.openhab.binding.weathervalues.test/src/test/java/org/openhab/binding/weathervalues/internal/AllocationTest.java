@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.time.Month;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.binding.weathervalues.internal.data.DailySummary;
+import org.openhab.binding.weathervalues.internal.data.Rain;
+import org.openhab.binding.weathervalues.internal.mapping.RollingStatistic;
+import org.openhab.binding.weathervalues.internal.mapping.RollingWindow;
+import org.openhab.binding.weathervalues.internal.mapping.SummaryStatistic;
+import org.openhab.binding.weathervalues.internal.mapping.UnitGroup;
+import org.openhab.binding.weathervalues.internal.source.LocalDatabase;
+
+/**
+ * Tests the allocation budget of the channel states, measured with the allocated bytes of the {@link ThreadMXBean}.
+ * The states of a snapshot are built once, so reading them for every Thing allocates nothing, and the rain totals
+ * cost the same for any length of the history.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class AllocationTest {
+
+    private static final int INTERVAL = 300;
+    private static final long START = 1483228800L;
+    private static final int WARMUP_RUNS = 2000;
+    private static final int MEASURED_RUNS = 20;
+    // states of the rain channels, with their numbers
+    private static final long RAIN_BUDGET = 4096;
+    // larger totals have more digits, a copy of the prefix sums of 20 years would be 58 KB
+    private static final long RAIN_HISTORY_TOLERANCE = 512;
+
+    private static final Month[] MONTHS = Month.values();
+    private static final SummaryStatistic[] SUMMARY_STATISTICS = SummaryStatistic.values();
+    private static final RollingWindow[] ROLLING_WINDOWS = RollingWindow.values();
+    private static final RollingStatistic[] ROLLING_STATISTICS = RollingStatistic.values();
+
+    private static ThreadMXBean threadBean;
+    private static Method allocatedBytes;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WeewxDatabase database;
+    private SQLiteReader reader;
+    private final Object[] states = new Object[256];
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        threadBean = ManagementFactory.getThreadMXBean();
+        // the extension of HotSpot is not part of the execution environment
+        try {
+            Class<?> extension = Class.forName("com.sun.management.ThreadMXBean");
+            if (extension.isInstance(threadBean)
+                    && (Boolean) extension.getMethod("isThreadAllocatedMemoryEnabled").invoke(threadBean)) {
+                allocatedBytes = extension.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        } catch (ClassNotFoundException e) {
+            allocatedBytes = null;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        assumeThat("allocated bytes are not measured by this JVM", allocatedBytes, is(notNullValue()));
+        Class.forName("org.sqlite.JDBC");
+        database = new WeewxDatabase(folder.newFile(), WeewxDatabase.METRIC);
+        database.addRecords(START, 288, INTERVAL, true);
+        reader = new SQLiteReader(new LocalDatabase(database.getFile()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (reader != null) {
+            reader.dispose();
+            database.close();
+        }
+    }
+
+    private static long getAllocatedBytes() throws Exception {
+        return (Long) allocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the bytes allocated by a task, less the bytes allocated by the measurement itself. The task is warmed up
+     * first and the lowest of several measurements is taken, so class loading and compilation are not counted.
+     */
+    private static long measure(Runnable task) throws Exception {
+        long overhead = Long.MAX_VALUE;
+        long allocated = Long.MAX_VALUE;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            task.run();
+        }
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = getAllocatedBytes();
+            overhead = Math.min(overhead, getAllocatedBytes() - start);
+
+            start = getAllocatedBytes();
+            task.run();
+            allocated = Math.min(allocated, getAllocatedBytes() - start);
+        }
+        return Math.max(allocated - overhead, 0);
+    }
+
+    private void readStates(WeatherSnapshot snapshot) {
+        int i = 0;
+        states[i++] = snapshot.getOutdoorClimate().getTemperature();
+        states[i++] = snapshot.getOutdoorClimate().getHumidity();
+        states[i++] = snapshot.getOutdoorClimate().getBarometer();
+        states[i++] = snapshot.getOutdoorClimate().getTemperatureMinimum();
+        states[i++] = snapshot.getOutdoorClimate().getTemperatureMinimumTime();
+        states[i++] = snapshot.getOutdoorClimate().getTemperatureMaximum();
+        states[i++] = snapshot.getOutdoorClimate().getTemperatureMaximumTime();
+        states[i++] = snapshot.getWind().getSpeed();
+        states[i++] = snapshot.getWind().getDirection();
+        Rain rain = snapshot.getRain();
+        states[i++] = rain.getRainRateCurrent();
+        states[i++] = rain.getRainCurrentDay();
+        states[i++] = rain.getRainCurrentWeek();
+        states[i++] = rain.getRainCurrentMonth();
+        states[i++] = rain.getRainCurrentYear();
+        states[i++] = rain.getRainPreviousYear();
+        states[i++] = rain.getRainRolling12Months();
+        states[i++] = rain.getRainRolling30Days();
+        states[i++] = rain.getRainSeasonToDate();
+        for (Month month : MONTHS) {
+            states[i++] = rain.getRainMonth(month);
+        }
+        for (SummaryStatistic statistic : SUMMARY_STATISTICS) {
+            states[i++] = snapshot.getSummaryValues().getValue(statistic);
+        }
+        for (RollingWindow window : ROLLING_WINDOWS) {
+            states[i++] = snapshot.getWindAverages().getSpeed(window);
+            states[i++] = snapshot.getWindAverages().getDirection(window);
+            states[i++] = snapshot.getWindAverages().getCompassPoint(window);
+            states[i++] = snapshot.getWindAverages().getDirectionVariability(window);
+            states[i++] = snapshot.getWindAverages().getMaximumGust(window);
+        }
+        for (RollingStatistic statistic : ROLLING_STATISTICS) {
+            states[i++] = snapshot.getRollingValues().getValue(statistic);
+        }
+        states[i++] = snapshot.getRollingValues().getPressureTendency();
+        states[i++] = snapshot.getRollingValues().getPressureTendencyDescription();
+    }
+
+    @Test
+    public void readingTheStatesOfASnapshotAllocatesNothing() throws Exception {
+        WeatherSnapshot snapshot = reader.extract();
+        assertThat(snapshot, is(notNullValue()));
+
+        assertThat(measure(() -> readStates(snapshot)), is(0L));
+        assertThat(states[0], is(notNullValue()));
+    }
+
+    @Test
+    public void rainTotalsDoNotDependOnTheLengthOfTheHistory() throws Exception {
+        Time now = new Time(2017, 4, 15, 12, 0, 0);
+        long[] allocated = new long[2];
+        int[] years = { 1, 20 };
+        for (int i = 0; i < years.length; i++) {
+            DailySummary dailyRain = new DailySummary("rain", UnitGroup.RAIN);
+            long last = Time.startOfDay(now.getTimeInMillis() / 1000);
+            for (long day = Time.startOfDay(last, -365 * years[i]); day <= last; day = Time.startOfDay(day, 1)) {
+                dailyRain.setValue(DailySummary.SUM, dailyRain.appendRow(day), 0.5);
+            }
+            allocated[i] = measure(() -> states[0] = new Rain(0.1, dailyRain, now));
+        }
+
+        assertTrue("Rain allocates " + allocated[0] + " bytes", allocated[0] <= RAIN_BUDGET);
+        assertTrue("Rain allocates " + allocated[1] + " bytes for 20 years",
+                Math.abs(allocated[1] - allocated[0]) <= RAIN_HISTORY_TOLERANCE);
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests how the {@link ArchiveCadence} predicts the next archive record and backs off while it is late.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class ArchiveCadenceTest {
+
+    private static final long DEFAULT_DELAY = 60;
+    private static final long INTERVAL = 300;
+    // a record at the end of an interval, weewx aligns the records to multiples of the interval
+    private static final long RECORD = 1483228800L;
+
+    private ArchiveCadence cadence;
+
+    @Before
+    public void setUp() {
+        cadence = new ArchiveCadence();
+    }
+
+    @Test
+    public void defaultDelayIsUsedUntilTheIntervalIsKnown() {
+        assertThat(cadence.getNextDelay(RECORD, DEFAULT_DELAY), is(DEFAULT_DELAY));
+
+        // a single record without the interval column does not tell the interval
+        cadence.update(RECORD, Double.NaN, RECORD + 5);
+        assertThat(cadence.getInterval(), is(0L));
+        assertThat(cadence.getNextDelay(RECORD + 5, DEFAULT_DELAY), is(DEFAULT_DELAY));
+    }
+
+    @Test
+    public void nextFetchFollowsThePredictedRecord() {
+        cadence.update(RECORD, INTERVAL / 60.0, RECORD + 5);
+        assertThat(cadence.getInterval(), is(INTERVAL));
+        assertThat(cadence.getNextDelay(RECORD + 5, DEFAULT_DELAY), is(INTERVAL + 10));
+
+        // the next record appears in time
+        cadence.update(RECORD + INTERVAL, INTERVAL / 60.0, RECORD + INTERVAL + 15);
+        assertThat(cadence.getNextDelay(RECORD + INTERVAL + 15, DEFAULT_DELAY), is(INTERVAL));
+    }
+
+    @Test
+    public void intervalIsLearnedFromTheSpacingOfTheRecords() {
+        cadence.update(RECORD, Double.NaN, RECORD + 5);
+        cadence.update(RECORD + INTERVAL, Double.NaN, RECORD + INTERVAL + 5);
+        assertThat(cadence.getInterval(), is(INTERVAL));
+
+        // a gap of missed records does not stretch the interval
+        cadence.update(RECORD + 3 * INTERVAL, Double.NaN, RECORD + 3 * INTERVAL + 5);
+        assertThat(cadence.getInterval(), is(INTERVAL));
+        assertThat(cadence.getNextDelay(RECORD + 3 * INTERVAL + 5, DEFAULT_DELAY), is(INTERVAL + 10));
+    }
+
+    @Test
+    public void fetchesBeforeTheExpectedRecordAreNoMisses() {
+        cadence.update(RECORD, INTERVAL / 60.0, RECORD + 5);
+        cadence.noNewRecord(RECORD + 100);
+        cadence.update(RECORD, INTERVAL / 60.0, RECORD + 200);
+        assertThat(cadence.getNextDelay(RECORD + 200, DEFAULT_DELAY), is(INTERVAL + 15 - 200));
+
+        // shortly before the expected record the delay does not drop below the minimum
+        assertThat(cadence.getNextDelay(RECORD + INTERVAL + 14, DEFAULT_DELAY), is(5L));
+    }
+
+    @Test
+    public void lateRecordIsRetriedWithExponentialBackoff() {
+        cadence.update(RECORD, INTERVAL / 60.0, RECORD + 5);
+
+        long now = RECORD + INTERVAL + 15;
+        long[] expectedDelays = { 10, 20, 40, 80, 160 };
+        for (long expectedDelay : expectedDelays) {
+            cadence.noNewRecord(now);
+            long delay = cadence.getNextDelay(now, DEFAULT_DELAY);
+            assertThat(delay, is(expectedDelay));
+            now += delay;
+        }
+
+        // the next backoff would exceed the interval, so the fetch is aligned to the record of the next interval
+        cadence.noNewRecord(now);
+        assertThat(now, is(RECORD + INTERVAL + 325));
+        long delay = cadence.getNextDelay(now, DEFAULT_DELAY);
+        assertThat(now + delay, is(RECORD + 3 * INTERVAL + 15));
+
+        // and stays aligned while the station is offline
+        now += delay;
+        cadence.noNewRecord(now);
+        assertThat(now + cadence.getNextDelay(now, DEFAULT_DELAY), is(RECORD + 4 * INTERVAL + 15));
+    }
+
+    @Test
+    public void newRecordEndsTheBackoff() {
+        cadence.update(RECORD, INTERVAL / 60.0, RECORD + 5);
+        long now = RECORD + INTERVAL + 15;
+        for (int i = 0; i < 4; i++) {
+            cadence.noNewRecord(now);
+            now += cadence.getNextDelay(now, DEFAULT_DELAY);
+        }
+
+        cadence.update(RECORD + INTERVAL, INTERVAL / 60.0, now);
+        assertThat(cadence.getNextDelay(now, DEFAULT_DELAY), is(RECORD + 2 * INTERVAL + 15 - now));
+    }
+
+    @Test
+    public void olderRecordCountsAsMiss() {
+        cadence.update(RECORD, INTERVAL / 60.0, RECORD + 5);
+        long now = RECORD + INTERVAL + 15;
+        // e.g. a database which has been replaced by an older copy
+        cadence.update(RECORD - INTERVAL, INTERVAL / 60.0, now);
+        assertThat(cadence.getNextDelay(now, DEFAULT_DELAY), is(10L));
+    }
+}
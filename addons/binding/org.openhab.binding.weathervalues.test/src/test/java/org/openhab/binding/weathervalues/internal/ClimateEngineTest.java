@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.weathervalues.internal.data.RollingValues;
+import org.openhab.binding.weathervalues.internal.mapping.ArchiveColumn;
+import org.openhab.binding.weathervalues.internal.mapping.RollingStatistic;
+
+/**
+ * Tests the rolling statistics and the pressure tendency of the {@link ClimateEngine} against a brute force
+ * recomputation over the samples of each window.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class ClimateEngineTest {
+
+    // the capacity of the ring buffer of the engine
+    private static final int CAPACITY = 2048;
+    // the states are rounded to two digits
+    private static final double DELTA = 0.0051;
+    private static final long START = 1483228800L;
+    private static final long THREE_HOURS = 3 * 60 * 60;
+
+    private static final RollingStatistic[] STATISTICS = RollingStatistic.values();
+
+    private ClimateEngine engine;
+    private final List<Long> times = new ArrayList<>();
+    private final List<double[]> rows = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        engine = new ClimateEngine();
+        times.clear();
+        rows.clear();
+    }
+
+    private void add(long time, double temperature, double humidity, double barometer) {
+        double[] row = new double[ArchiveColumn.values().length];
+        Arrays.fill(row, Double.NaN);
+        row[ArchiveColumn.OUT_TEMP.ordinal()] = temperature;
+        row[ArchiveColumn.OUT_HUMIDITY.ordinal()] = humidity;
+        row[ArchiveColumn.BAROMETER.ordinal()] = barometer;
+        engine.add(time, row);
+        times.add(time);
+        rows.add(row);
+    }
+
+    private static double toDouble(State state) {
+        return state == UnDefType.NULL ? Double.NaN : ((DecimalType) state).doubleValue();
+    }
+
+    private static void assertValue(String message, double expected, State actual) {
+        if (Double.isNaN(expected)) {
+            assertThat(message, actual, is((State) UnDefType.NULL));
+        } else {
+            assertEquals(message, expected, toDouble(actual), DELTA);
+        }
+    }
+
+    /**
+     * Returns a statistic recomputed from the samples of its window
+     */
+    private double compute(RollingStatistic statistic) {
+        int column = statistic.getColumn().ordinal();
+        long latest = times.get(times.size() - 1);
+        double minimum = Double.NaN;
+        double maximum = Double.NaN;
+        double sum = 0;
+        int count = 0;
+        // the window ends with the latest sample and holds at most the samples of the ring buffer
+        for (int i = times.size() - 1; i >= Math.max(0, times.size() - CAPACITY); i--) {
+            if (times.get(i) <= latest - statistic.getWindow().getSeconds()) {
+                break;
+            }
+            double value = rows.get(i)[column];
+            if (!Double.isNaN(value)) {
+                minimum = count == 0 ? value : Math.min(minimum, value);
+                maximum = count == 0 ? value : Math.max(maximum, value);
+                sum += value;
+                count++;
+            }
+        }
+        switch (statistic.getFunction()) {
+            case MINIMUM:
+                return minimum;
+            case MAXIMUM:
+                return maximum;
+            default:
+                return count > 0 ? sum / count : Double.NaN;
+        }
+    }
+
+    /**
+     * Returns the pressure tendency recomputed from the samples next to 3 hours before the latest one, which are the
+     * last sample at or before that time and the first one after it
+     */
+    private double computePressureTendency() {
+        int column = ArchiveColumn.BAROMETER.ordinal();
+        int latest = times.size() - 1;
+        long target = times.get(latest) - THREE_HOURS;
+        int after = latest;
+        while (after > Math.max(0, times.size() - CAPACITY) && times.get(after - 1) > target) {
+            after--;
+        }
+        double reference = Double.NaN;
+        long distance = 15 * 60;
+        for (int i = Math.max(after - 1, times.size() - CAPACITY); i <= after; i++) {
+            if (i >= 0 && !Double.isNaN(rows.get(i)[column]) && Math.abs(times.get(i) - target) <= distance) {
+                reference = rows.get(i)[column];
+                distance = Math.abs(times.get(i) - target);
+            }
+        }
+        return rows.get(latest)[column] - reference;
+    }
+
+    private void assertValues(String message) {
+        RollingValues values = engine.getValues();
+        for (RollingStatistic statistic : STATISTICS) {
+            assertValue(message + " " + statistic, compute(statistic), values.getValue(statistic));
+        }
+        double pressureTendency = computePressureTendency();
+        assertValue(message + " pressure tendency", pressureTendency, values.getPressureTendency());
+        assertThat(message, values.getPressureTendencyDescription(),
+                is(RollingValues.getPressureTendencyDescription(pressureTendency)));
+    }
+
+    @Test
+    public void statisticsMatchTheSamplesOfRandomSequences() {
+        // the archive interval of weewx, a shorter one, random intervals with gaps
+        int[] intervals = { 300, 60, 0 };
+        for (int seed = 0; seed < intervals.length; seed++) {
+            Random random = new Random(seed);
+            setUp();
+            long time = START;
+            for (int i = 0; i < 3000; i++) {
+                if (intervals[seed] > 0) {
+                    time += intervals[seed];
+                } else {
+                    time += random.nextInt(50) == 0 ? random.nextInt(30000) + 1 : 30 + random.nextInt(300);
+                }
+                add(time, random.nextInt(10) == 0 ? Double.NaN : random.nextGaussian() * 10,
+                        random.nextInt(10) == 0 ? Double.NaN : random.nextDouble() * 100,
+                        random.nextInt(10) == 0 ? Double.NaN : 1013 + random.nextGaussian() * 5);
+                assertValues("seed " + seed + " sample " + i);
+            }
+        }
+    }
+
+    @Test
+    public void queuesGrowWithMonotonicSeries() {
+        // a rising and a falling day with a sample every 30 seconds, the day holds more samples than the ring buffer
+        for (int i = 0; i < 5760; i++) {
+            double value = i < 2880 ? i : 5760 - i;
+            add(START + 30 * i, value, -value, 1000 + value / 100);
+            if (i % 97 == 0 || i == 2879) {
+                assertValues("sample " + i);
+            }
+        }
+        RollingValues values = engine.getValues();
+        // the oldest sample in the ring buffer is the highest one of the falling day
+        assertValue("maximum", CAPACITY, values.getValue(RollingStatistic.OUTSIDE_TEMP_MAX_24_HOURS));
+        assertValue("minimum", 1, values.getValue(RollingStatistic.OUTSIDE_TEMP_MIN_24_HOURS));
+        assertValue("minimum", -CAPACITY, values.getValue(RollingStatistic.OUTSIDE_HUMIDITY_MIN_24_HOURS));
+        assertValues("end");
+    }
+
+    @Test
+    public void pressureTendencyUsesTheSampleNearestToThreeHoursBefore() {
+        add(START, 20, 50, 1000);
+        add(START + 1200, 20, 50, 1001);
+        add(START + THREE_HOURS + 500, 20, 50, 1010);
+        assertValue("earlier sample", 10, engine.getValues().getPressureTendency());
+
+        setUp();
+        add(START, 20, 50, 1000);
+        add(START + 1200, 20, 50, 1001);
+        add(START + THREE_HOURS + 700, 20, 50, 1010);
+        assertValue("later sample", 9, engine.getValues().getPressureTendency());
+    }
+
+    @Test
+    public void pressureTendencyNeedsASampleWithinFifteenMinutes() {
+        add(START, 20, 50, 1000);
+        add(START + THREE_HOURS + 900, 20, 50, 1004);
+        assertValue("15 minutes", 4, engine.getValues().getPressureTendency());
+        assertThat(engine.getValues().getPressureTendencyDescription().toString(), is("RisingQuickly"));
+
+        add(START + THREE_HOURS + 901, 20, 50, 1004);
+        assertThat(engine.getValues().getPressureTendency(), is((State) UnDefType.NULL));
+        assertThat(engine.getValues().getPressureTendencyDescription(), is((State) UnDefType.NULL));
+
+        // a sample 15 minutes after the target
+        setUp();
+        add(START, 20, 50, 1000);
+        add(START + 2700, 20, 50, 1001);
+        add(START + 2700 + THREE_HOURS - 900, 20, 50, 999);
+        assertValue("15 minutes after", -2, engine.getValues().getPressureTendency());
+    }
+
+    @Test
+    public void pressureTendencyKeepsItsReferenceWhenTheRingBufferIsFull() {
+        // the ring buffer holds 2048 samples, which are more than 3 hours with 6 seconds, but not with 2 seconds
+        for (int i = 0; i < 2100; i++) {
+            add(START + 6 * i, 20, 50, 1000 + i / 1000.0);
+        }
+        assertValue("6 seconds", THREE_HOURS / 6 / 1000.0, engine.getValues().getPressureTendency());
+
+        setUp();
+        for (int i = 0; i < 6000; i++) {
+            add(START + 2 * i, 20, 50, 1000);
+        }
+        assertThat(engine.getValues().getPressureTendency(), is((State) UnDefType.NULL));
+        assertValues("2 seconds");
+    }
+
+    @Test
+    public void recordsWhichAreNotNewerAreIgnored() {
+        add(START, 10, 50, 1000);
+        add(START + 300, 20, 60, 1001);
+        double[] row = new double[ArchiveColumn.values().length];
+        Arrays.fill(row, 100);
+        engine.add(START + 300, row);
+        engine.add(START, row);
+
+        assertThat(engine.getLastDateTime(), is(START + 300));
+        assertValues("ignored");
+    }
+
+    @Test
+    public void clearRemovesAllSamples() {
+        add(START, 10, 50, 1000);
+        engine.clear();
+        assertThat(engine.getLastDateTime(), is(Long.MIN_VALUE));
+        assertThat(engine.getValues().getValue(RollingStatistic.OUTSIDE_TEMP_AVERAGE_24_HOURS),
+                is((State) UnDefType.NULL));
+        assertThat(engine.getValues().getPressureTendency(), is((State) UnDefType.NULL));
+
+        times.clear();
+        rows.clear();
+        add(START + THREE_HOURS, 20, 60, 1002);
+        assertValues("cleared");
+        assertThat(engine.getValues().getPressureTendency(), is((State) UnDefType.NULL));
+    }
+}
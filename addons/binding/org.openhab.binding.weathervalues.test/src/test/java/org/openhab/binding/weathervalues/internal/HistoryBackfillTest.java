@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.persistence.ModifiablePersistenceService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.binding.weathervalues.internal.source.LocalDatabase;
+
+/**
+ * Tests the batches of the {@link HistoryBackfill} and its checkpoint with a stub of a persistence service, which
+ * records the values it is asked to store.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class HistoryBackfillTest {
+
+    private static final int INTERVAL = 300;
+    private static final long START = 1483228800L;
+    // two full batches and a partial one
+    private static final int RECORDS = 1234;
+    private static final int BATCH_SIZE = 500;
+    private static final long TIMEOUT = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WeewxDatabase database;
+    private SQLiteReader reader;
+    private File checkpoint;
+    private final Map<String, List<Item>> items = new HashMap<>();
+
+    // the values stored by the service as item@time
+    private final List<String> values = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> progress = Collections.synchronizedList(new ArrayList<>());
+    private volatile CountDownLatch blocked;
+    private final CountDownLatch storing = new CountDownLatch(1);
+    private CountDownLatch ended;
+    private ModifiablePersistenceService service;
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        database = new WeewxDatabase(folder.newFile(), WeewxDatabase.METRIC);
+        database.addRecords(START, RECORDS, INTERVAL, true);
+        reader = new SQLiteReader(new LocalDatabase(database.getFile()));
+        assertThat(reader.extract(), is(notNullValue()));
+        checkpoint = new File(folder.getRoot(), "backfill.properties");
+
+        for (String channelId : HistoryBackfill.CHANNELS) {
+            items.put(channelId, Collections.singletonList(createItem(channelId)));
+        }
+        service = (ModifiablePersistenceService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ModifiablePersistenceService.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("store") && args.length == 3) {
+                        CountDownLatch latch = blocked;
+                        if (latch != null) {
+                            storing.countDown();
+                            latch.await();
+                        }
+                        values.add(((Item) args[0]).getName() + "@" + ((Date) args[1]).getTime() / 1000);
+                        return null;
+                    }
+                    return method.getName().equals("getId") ? "stub" : null;
+                });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.dispose();
+        database.close();
+    }
+
+    private static Item createItem(String name) {
+        return (Item) Proxy.newProxyInstance(HistoryBackfillTest.class.getClassLoader(),
+                new Class<?>[] { Item.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "getName":
+                        case "toString":
+                            return name;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private HistoryBackfill createBackfill(HistoryBackfill.ProgressListener listener) {
+        ended = new CountDownLatch(1);
+        return new HistoryBackfill(reader, service, items, checkpoint, (text, running) -> {
+            progress.add(text);
+            listener.backfillProgress(text, running);
+            if (!running) {
+                ended.countDown();
+            }
+        });
+    }
+
+    private HistoryBackfill createBackfill() {
+        return createBackfill((text, running) -> {
+        });
+    }
+
+    private void awaitEnd(HistoryBackfill backfill) throws InterruptedException {
+        assertTrue("backfill has not ended", ended.await(TIMEOUT, TimeUnit.SECONDS));
+        assertTrue("last batch has not been saved", backfill.awaitTermination(TimeUnit.SECONDS.toMillis(TIMEOUT)));
+        assertThat(backfill.isRunning(), is(false));
+    }
+
+    /**
+     * Asserts that every value of the given number of records has been stored once, in the order of the records
+     */
+    private void assertStored(int records) {
+        assertThat(values.size(), is(records * HistoryBackfill.CHANNELS.size()));
+        assertThat(new HashSet<>(values).size(), is(values.size()));
+        Map<String, Long> lastTimes = new HashMap<>();
+        for (String value : values) {
+            String[] parts = value.split("@");
+            long time = Long.parseLong(parts[1]);
+            Long lastTime = lastTimes.put(parts[0], time);
+            assertThat(value, time, is(lastTime == null ? START : lastTime + INTERVAL));
+        }
+        assertThat(lastTimes.keySet(), is((Set<String>) new HashSet<>(HistoryBackfill.CHANNELS)));
+    }
+
+    @Test
+    public void archiveIsStoredInBatches() throws Exception {
+        HistoryBackfill backfill = createBackfill();
+        assertThat(backfill.start(), is(true));
+        awaitEnd(backfill);
+
+        assertStored(RECORDS);
+        // a progress after each full batch and the completion
+        assertThat(progress.size(), is(RECORDS / BATCH_SIZE + 1));
+        assertThat(progress.get(0), startsWith(BATCH_SIZE + " of " + RECORDS + " records"));
+        assertThat(progress.get(progress.size() - 1), endsWith(", completed"));
+        assertThat(HistoryBackfill.isComplete(checkpoint), is(true));
+    }
+
+    @Test
+    public void cancelledBackfillIsResumedFromItsCheckpoint() throws Exception {
+        HistoryBackfill[] first = new HistoryBackfill[1];
+        first[0] = createBackfill((text, running) -> first[0].cancel());
+        assertThat(first[0].start(), is(true));
+        awaitEnd(first[0]);
+        assertStored(BATCH_SIZE);
+        assertThat(progress.get(progress.size() - 1), endsWith(", cancelled"));
+        assertThat(HistoryBackfill.isComplete(checkpoint), is(false));
+        assertThat(first[0].start(), is(false));
+
+        HistoryBackfill second = createBackfill();
+        assertThat(second.start(), is(true));
+        awaitEnd(second);
+        assertStored(RECORDS);
+        assertThat(HistoryBackfill.isComplete(checkpoint), is(true));
+    }
+
+    @Test
+    public void completedBackfillIsNotStartedAgain() throws Exception {
+        HistoryBackfill backfill = createBackfill();
+        assertThat(backfill.start(), is(true));
+        awaitEnd(backfill);
+
+        // the later records are persisted as they are published
+        database.addRecords(START + RECORDS * INTERVAL, 10, INTERVAL);
+        assertThat(reader.extract(), is(notNullValue()));
+        assertThat(createBackfill().start(), is(false));
+        assertStored(RECORDS);
+    }
+
+    @Test
+    public void cancelDoesNotWaitForTheBatch() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        blocked = latch;
+        HistoryBackfill backfill = createBackfill();
+        assertThat(backfill.start(), is(true));
+        assertTrue(storing.await(TIMEOUT, TimeUnit.SECONDS));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(backfill::cancel).get(TIMEOUT, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(backfill.isRunning(), is(false));
+        assertThat(backfill.awaitTermination(100), is(false));
+
+        // the batch which was running is stored completely and saved in the checkpoint
+        blocked = null;
+        latch.countDown();
+        awaitEnd(backfill);
+        assertStored(BATCH_SIZE);
+
+        HistoryBackfill resumed = createBackfill();
+        assertThat(resumed.start(), is(true));
+        awaitEnd(resumed);
+        assertStored(RECORDS);
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * The {@link HttpStandIn} serves the files of a directory like the web server next to weewx does: it supports Range
+ * requests and answers a request with a matching If-None-Match header with 304 Not Modified. The ETag is derived from
+ * the content of a file, so every modification of a database changes it. The query of a request does not select the
+ * file, it is only recorded.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class HttpStandIn implements AutoCloseable {
+
+    private final File directory;
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile boolean rangeSupported = true;
+    private volatile String lastQuery;
+
+    /**
+     * Starts serving a directory on a free port of the loopback interface
+     */
+    public HttpStandIn(File directory) throws IOException {
+        this.directory = directory;
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        thread = new Thread(this::serve, "HttpStandIn");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the host and port to pass as host of a database source
+     */
+    public String getHost() {
+        return "127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of body bytes sent since the last call, and resets it
+     */
+    public long takeSentBytes() {
+        return sentBytes.getAndSet(0);
+    }
+
+    /**
+     * Returns the number of requests answered since the last call, and resets it
+     */
+    public long takeRequests() {
+        return requests.getAndSet(0);
+    }
+
+    /**
+     * Returns the query of the last request, null if it had none
+     */
+    public String getLastQuery() {
+        return lastQuery;
+    }
+
+    /**
+     * Ignores Range headers and always responds with the whole file, like a server without Range support
+     */
+    public void setRangeSupported(boolean rangeSupported) {
+        this.rangeSupported = rangeSupported;
+    }
+
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                handle(socket);
+            } catch (SocketException e) {
+                // closed
+            } catch (IOException e) {
+                // the client went away, wait for the next one
+            }
+        }
+    }
+
+    private void handle(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        String requestLine = in.readLine();
+        if (requestLine == null) {
+            return;
+        }
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty()) {
+            int index = line.indexOf(':');
+            if (index > 0) {
+                headers.put(line.substring(0, index).trim().toLowerCase(), line.substring(index + 1).trim());
+            }
+        }
+        requests.incrementAndGet();
+
+        String[] request = requestLine.split(" ");
+        int queryIndex = request[1].indexOf('?');
+        lastQuery = queryIndex >= 0 ? request[1].substring(queryIndex + 1) : null;
+        File requested = new File(directory,
+                request[1].substring(1, queryIndex >= 0 ? queryIndex : request[1].length()));
+        OutputStream out = socket.getOutputStream();
+        if (!requested.isFile()) {
+            respond(out, "404 Not Found", "", new byte[0], 0, 0);
+            return;
+        }
+        byte[] content = Files.readAllBytes(requested.toPath());
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        String eTag = "\"" + Long.toHexString(crc.getValue()) + "-" + content.length + "\"";
+        String headerLines = "ETag: " + eTag + "\r\n";
+
+        if (eTag.equals(headers.get("if-none-match"))) {
+            respond(out, "304 Not Modified", headerLines, content, 0, 0);
+            return;
+        }
+        String range = headers.get("range");
+        if (range != null && rangeSupported && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+            if (start >= content.length) {
+                respond(out, "416 Range Not Satisfiable", "Content-Range: bytes */" + content.length + "\r\n",
+                        content, 0, 0);
+                return;
+            }
+            respond(out, "206 Partial Content",
+                    headerLines + "Content-Range: bytes " + start + "-" + end + "/" + content.length + "\r\n",
+                    content, start, end - start + 1);
+            return;
+        }
+        respond(out, "200 OK", headerLines, content, 0, content.length);
+    }
+
+    private void respond(OutputStream out, String status, String headerLines, byte[] content, int offset, int length)
+            throws IOException {
+        String head = "HTTP/1.1 " + status + "\r\n" + headerLines + "Content-Length: " + length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.US_ASCII));
+        out.write(content, offset, length);
+        out.flush();
+        sentBytes.addAndGet(length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.binding.weathervalues.internal.mapping.ArchiveColumn;
+import org.openhab.binding.weathervalues.internal.mapping.MappingPlan;
+import org.openhab.binding.weathervalues.internal.mapping.UnitSystem;
+import org.openhab.binding.weathervalues.internal.source.LocalDatabase;
+
+/**
+ * Tests that the {@link LatestRecord} reads all values of the latest archive record with a single query.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class LatestRecordTest {
+
+    private static final int INTERVAL = 300;
+    private static final long START = 1483228800L;
+    private static final double DELTA = 1e-9;
+
+    /**
+     * The {@link CountingReader} passes the queries to a {@link SQLiteReader} and counts them.
+     */
+    private static class CountingReader implements SQLReader {
+        private final SQLReader reader;
+        private int queries;
+
+        private CountingReader(SQLReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public ResultSet getResultSet(String sql) throws SQLException {
+            queries++;
+            return reader.getResultSet(sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            queries++;
+            return reader.prepareStatement(sql);
+        }
+
+        @Override
+        public void removeListener(SQLReaderListener listener) {
+        }
+
+        @Override
+        public void addListener(SQLReaderListener listener) {
+        }
+
+        @Override
+        public void callAllListener() {
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WeewxDatabase database;
+    private SQLiteReader reader;
+    private CountingReader countingReader;
+    private MappingPlan plan;
+    private long dateTime = START;
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        database = new WeewxDatabase(folder.newFile(), WeewxDatabase.METRIC);
+        dateTime = database.addRecords(dateTime, 288, INTERVAL, true);
+        reader = new SQLiteReader(new LocalDatabase(database.getFile()));
+        // the connection of the reader stays open after the refresh
+        assertThat(reader.extract(), is(notNullValue()));
+        countingReader = new CountingReader(reader);
+        plan = ArchiveColumn.createPlan(MappingPlan.getColumns(reader, ArchiveColumn.TABLE_NAME));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.dispose();
+        database.close();
+    }
+
+    @Test
+    public void latestRecordIsReadWithOneQuery() throws SQLException {
+        LatestRecord record = new LatestRecord();
+        record.read(countingReader, plan, UnitSystem.METRIC);
+
+        assertThat(countingReader.queries, is(1));
+        assertThat(record.getDateTime(), is(dateTime - INTERVAL));
+        // the records are metric, so only the rain rate is converted from cm per hour
+        try (ResultSet resultSet = reader.getResultSet("SELECT barometer, outTemp, outHumidity, windSpeed, windDir, "
+                + "rainRate FROM archive ORDER BY dateTime DESC LIMIT 1")) {
+            assertTrue(resultSet.next());
+            assertEquals(resultSet.getDouble(1), record.getValue(ArchiveColumn.BAROMETER), DELTA);
+            assertEquals(resultSet.getDouble(2), record.getValue(ArchiveColumn.OUT_TEMP), DELTA);
+            assertEquals(resultSet.getDouble(3), record.getValue(ArchiveColumn.OUT_HUMIDITY), DELTA);
+            assertEquals(resultSet.getDouble(4), record.getValue(ArchiveColumn.WIND_SPEED), DELTA);
+            assertEquals(resultSet.getDouble(5), record.getValue(ArchiveColumn.WIND_DIR), DELTA);
+            assertEquals(resultSet.getDouble(6) * 10, record.getRainRate(), DELTA);
+        }
+    }
+
+    @Test
+    public void recordIsReusedWithoutKeepingOldValues() throws SQLException {
+        LatestRecord record = new LatestRecord();
+        record.read(countingReader, plan, UnitSystem.METRIC);
+        assertFalse(Double.isNaN(record.getValue(ArchiveColumn.OUT_TEMP)));
+        PreparedStatement statement = reader.prepareStatement(plan.getSelect() + " ORDER BY dateTime DESC LIMIT 1");
+
+        // a record without the outside sensors, e.g. while its battery is empty
+        database.execute("INSERT INTO archive (dateTime, usUnits, interval, barometer) VALUES (" + dateTime + ", "
+                + WeewxDatabase.METRIC + ", " + INTERVAL / 60 + ", 1013.25)");
+        record.read(countingReader, plan, UnitSystem.METRIC);
+
+        assertThat(countingReader.queries, is(2));
+        assertThat(reader.prepareStatement(plan.getSelect() + " ORDER BY dateTime DESC LIMIT 1"),
+                is(sameInstance(statement)));
+        assertThat(record.getDateTime(), is(dateTime));
+        assertEquals(1013.25, record.getValue(ArchiveColumn.BAROMETER), DELTA);
+        assertTrue(Double.isNaN(record.getValue(ArchiveColumn.OUT_TEMP)));
+        assertTrue(Double.isNaN(record.getValue(ArchiveColumn.OUT_HUMIDITY)));
+        assertTrue(Double.isNaN(record.getValue(ArchiveColumn.WIND_SPEED)));
+    }
+
+    @Test
+    public void emptyArchiveLeavesAllValuesMissing() throws SQLException {
+        LatestRecord record = new LatestRecord();
+        record.read(countingReader, plan, UnitSystem.METRIC);
+        database.execute("DELETE FROM archive");
+        record.read(countingReader, plan, UnitSystem.METRIC);
+
+        assertThat(record.getDateTime(), is(Long.MIN_VALUE));
+        for (ArchiveColumn column : ArchiveColumn.values()) {
+            assertTrue(column.name(), Double.isNaN(record.getValue(column)));
+        }
+    }
+}
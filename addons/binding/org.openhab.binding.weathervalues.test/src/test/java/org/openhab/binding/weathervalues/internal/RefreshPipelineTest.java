@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.binding.weathervalues.internal.source.DatabaseSource;
+
+/**
+ * Tests the stages of the {@link RefreshPipeline} with a source whose download blocks until it is released, with the
+ * deadlines of the stages counted in milliseconds.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class RefreshPipelineTest {
+
+    private static final int INTERVAL = 300;
+    private static final long START = 1483228800L;
+    private static final long TIMEOUT = 10;
+
+    /**
+     * The {@link BlockingSource} provides a local file, and its sync blocks until it is released or aborted. While
+     * transferring, the bytes transferred grow as long as it blocks.
+     */
+    private static class BlockingSource implements DatabaseSource {
+        private final File file;
+        private final Semaphore releases = new Semaphore(0);
+        private final AtomicInteger syncs = new AtomicInteger();
+        private final AtomicInteger aborts = new AtomicInteger();
+        private volatile CountDownLatch entered = new CountDownLatch(1);
+        private volatile boolean transferring;
+        private volatile boolean aborted;
+        private volatile long transferredBytes;
+
+        BlockingSource(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public boolean sync() throws IOException {
+            syncs.incrementAndGet();
+            aborted = false;
+            entered.countDown();
+            try {
+                while (!releases.tryAcquire(5, TimeUnit.MILLISECONDS)) {
+                    if (aborted) {
+                        throw new IOException("aborted");
+                    }
+                    if (transferring) {
+                        transferredBytes += 1024;
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("interrupted");
+            }
+            return true;
+        }
+
+        @Override
+        public File getFile() {
+            return file;
+        }
+
+        @Override
+        public long getGeneration() {
+            return 0;
+        }
+
+        @Override
+        public long getLastTransferredBytes() {
+            return transferredBytes;
+        }
+
+        @Override
+        public long getTransferredBytes() {
+            return transferredBytes;
+        }
+
+        @Override
+        public void invalidate() {
+        }
+
+        @Override
+        public void abort() {
+            aborts.incrementAndGet();
+            aborted = true;
+        }
+
+        void awaitSync() throws InterruptedException {
+            assertTrue("download has not started", entered.await(TIMEOUT, TimeUnit.SECONDS));
+            entered = new CountDownLatch(1);
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WeewxDatabase database;
+    private BlockingSource source;
+    private SQLiteReader reader;
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+    private final AtomicInteger publications = new AtomicInteger();
+    private final Semaphore done = new Semaphore(0);
+
+    @Before
+    public void setUp() throws Exception {
+        database = new WeewxDatabase(folder.newFile(), WeewxDatabase.METRIC);
+        database.addRecords(START, 100, INTERVAL);
+        source = new BlockingSource(database.getFile());
+        reader = new SQLiteReader(source);
+        // the first extraction reads all daily summaries, which may take longer than the deadline in milliseconds
+        assertThat(reader.extract(), is(notNullValue()));
+        reader.addListener(snapshot -> publications.incrementAndGet());
+        executor = RefreshPipeline.createExecutor();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+        reader.dispose();
+        database.close();
+    }
+
+    private RefreshPipeline createPipeline() {
+        return new RefreshPipeline(reader, executor, scheduler, done::release, TimeUnit.MILLISECONDS);
+    }
+
+    private void awaitDone() throws InterruptedException {
+        assertTrue("refresh has not finished", done.tryAcquire(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void refreshRunsAllStages() throws Exception {
+        RefreshPipeline pipeline = createPipeline();
+        source.releases.release();
+        assertThat(pipeline.start(), is(true));
+        awaitDone();
+        assertThat(source.syncs.get(), is(1));
+        assertThat(publications.get(), is(1));
+        assertThat(source.aborts.get(), is(0));
+    }
+
+    @Test
+    public void stalledDownloadIsAborted() throws Exception {
+        RefreshPipeline pipeline = createPipeline();
+        assertThat(pipeline.start(), is(true));
+        source.awaitSync();
+
+        // aborted after the stall timeout of the download, so nothing is extracted or published
+        awaitDone();
+        assertThat(source.aborts.get(), is(1));
+        assertThat(publications.get(), is(0));
+
+        // the next refresh is not affected by the abort or the interrupt of the previous one
+        source.releases.release();
+        assertThat(pipeline.start(), is(true));
+        awaitDone();
+        assertThat(publications.get(), is(1));
+    }
+
+    @Test
+    public void progressingDownloadIsNotAborted() throws Exception {
+        RefreshPipeline pipeline = createPipeline();
+        source.transferring = true;
+        assertThat(pipeline.start(), is(true));
+        source.awaitSync();
+
+        // several times the stall timeout of the download
+        Thread.sleep(5 * 120);
+        assertThat(source.aborts.get(), is(0));
+        assertThat(done.availablePermits(), is(0));
+        source.releases.release();
+        awaitDone();
+        assertThat(publications.get(), is(1));
+    }
+
+    @Test
+    public void refreshIsSkippedWhileRunning() throws Exception {
+        RefreshPipeline pipeline = createPipeline();
+        source.transferring = true;
+        assertThat(pipeline.start(), is(true));
+        source.awaitSync();
+        assertThat(pipeline.start(), is(false));
+        assertThat(pipeline.start(), is(false));
+
+        source.releases.release();
+        awaitDone();
+        assertThat(source.syncs.get(), is(1));
+        assertThat(publications.get(), is(1));
+    }
+
+    @Test
+    public void triggerWhileRunningRefreshesOnceMore() throws Exception {
+        RefreshPipeline pipeline = createPipeline();
+        source.transferring = true;
+        pipeline.trigger();
+        source.awaitSync();
+
+        // any number of triggers during a refresh run a single refresh after it
+        pipeline.trigger();
+        pipeline.trigger();
+        source.releases.release();
+        source.awaitSync();
+        source.releases.release();
+        awaitDone();
+        assertThat(source.syncs.get(), is(2));
+        assertThat(publications.get(), is(2));
+
+        // both refreshes ran in the same task
+        assertThat(done.tryAcquire(200, TimeUnit.MILLISECONDS), is(false));
+        assertThat(pipeline.start(), is(true));
+        source.awaitSync();
+        source.releases.release();
+        awaitDone();
+    }
+
+    @Test
+    public void cancelAbortsTheRunningRefresh() throws Exception {
+        RefreshPipeline pipeline = createPipeline();
+        source.transferring = true;
+        assertThat(pipeline.start(), is(true));
+        source.awaitSync();
+
+        pipeline.cancel();
+        assertTrue(source.aborts.get() > 0);
+        assertThat(pipeline.start(), is(false));
+        pipeline.trigger();
+
+        // a cancelled refresh is not reported as done
+        assertThat(done.tryAcquire(500, TimeUnit.MILLISECONDS), is(false));
+        assertThat(source.syncs.get(), is(1));
+        assertThat(publications.get(), is(0));
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.sql.PreparedStatement;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.binding.weathervalues.WeatherValuesBindingConstants;
+
+/**
+ * Tests how the {@link SQLiteReaderRegistry} shares the reader of a local database between its listeners, and stops
+ * its job, its watcher and its connection once the last listener is released.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class SQLiteReaderRegistryTest {
+
+    private static final int INTERVAL = 300;
+    private static final long START = 1483228800L;
+    // long enough that only the first job and the changes of the database refresh the readers
+    private static final long REFRESH_INTERVAL = 3600;
+    private static final long TIMEOUT = 10;
+    private static final String MODE = WeatherValuesBindingConstants.DEVICE_MODE_FILE;
+
+    /**
+     * The {@link CountingListener} counts the refreshes it receives.
+     */
+    private static class CountingListener implements SQLReaderListener {
+        private final Semaphore refreshes = new Semaphore(0);
+
+        @Override
+        public void refreshValues(WeatherSnapshot snapshot) {
+            refreshes.release();
+        }
+
+        void awaitRefresh() throws InterruptedException {
+            assertTrue("listener has not been refreshed", refreshes.tryAcquire(TIMEOUT, TimeUnit.SECONDS));
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WeewxDatabase database;
+    private WeewxDatabase otherDatabase;
+    private long dateTime = START;
+    private String host;
+    private ScheduledThreadPoolExecutor scheduler;
+    private SQLiteReaderRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        database = new WeewxDatabase(folder.newFile("weewx.sdb"), WeewxDatabase.METRIC);
+        dateTime = database.addRecords(dateTime, 288, INTERVAL, true);
+        otherDatabase = new WeewxDatabase(folder.newFile("other.sdb"), WeewxDatabase.METRIC);
+        otherDatabase.addRecords(START, 288, INTERVAL, true);
+        host = folder.getRoot().getPath();
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        // so the queue of the scheduler only holds the jobs which are still pending
+        scheduler.setRemoveOnCancelPolicy(true);
+        registry = new SQLiteReaderRegistry();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        registry.dispose();
+        scheduler.shutdownNow();
+        database.close();
+        otherDatabase.close();
+    }
+
+    private SQLiteReader acquire(String dbName, SQLReaderListener listener) throws ClassNotFoundException {
+        return registry.acquire(host, dbName, MODE, listener, REFRESH_INTERVAL, false, scheduler);
+    }
+
+    /**
+     * Returns a statement of the open connection of a reader, which is closed when the reader is disposed
+     */
+    private static PreparedStatement getStatement(SQLiteReader reader) throws Exception {
+        synchronized (reader) {
+            return reader.prepareStatement("PRAGMA schema_version");
+        }
+    }
+
+    private static boolean isWatched(String fileName) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("weathervalues-watcher-" + fileName) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void awaitCondition(String message, BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+        while (!condition.getAsBoolean()) {
+            assertTrue(message, System.currentTimeMillis() < end);
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitStopped(String fileName, PreparedStatement statement) throws InterruptedException {
+        awaitCondition("reader has not been disposed", () -> {
+            try {
+                return statement.isClosed();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        awaitCondition("watcher has not been stopped", () -> !isWatched(fileName));
+    }
+
+    @Test
+    public void listenersOfADatabaseShareOneReader() throws Exception {
+        CountingListener first = new CountingListener();
+        CountingListener second = new CountingListener();
+        SQLiteReader reader = acquire("weewx.sdb", first);
+        assertThat(acquire("weewx.sdb", second), is(sameInstance(reader)));
+        assertThat(acquire("other.sdb", new CountingListener()), is(not(sameInstance(reader))));
+
+        // the first job refreshes both listeners
+        first.awaitRefresh();
+        second.awaitRefresh();
+        assertThat(isWatched("weewx.sdb"), is(true));
+    }
+
+    @Test
+    public void lastReleaseStopsTheReader() throws Exception {
+        CountingListener first = new CountingListener();
+        CountingListener second = new CountingListener();
+        SQLiteReader reader = acquire("weewx.sdb", first);
+        acquire("weewx.sdb", second);
+        first.awaitRefresh();
+        second.awaitRefresh();
+        PreparedStatement statement = getStatement(reader);
+
+        // the reader keeps refreshing the remaining listener on changes of the database
+        registry.release(first);
+        dateTime = database.addRecords(dateTime, 1, INTERVAL);
+        second.awaitRefresh();
+        assertThat(first.refreshes.availablePermits(), is(0));
+        assertThat(statement.isClosed(), is(false));
+        assertThat(isWatched("weewx.sdb"), is(true));
+
+        registry.release(second);
+        awaitStopped("weewx.sdb", statement);
+        assertThat(scheduler.getQueue().isEmpty(), is(true));
+
+        // a change after the release refreshes nobody
+        database.addRecords(dateTime, 1, INTERVAL);
+        assertThat(second.refreshes.tryAcquire(1, TimeUnit.SECONDS), is(false));
+        assertThat(scheduler.getQueue().isEmpty(), is(true));
+
+        // releasing it again changes nothing
+        registry.release(second);
+    }
+
+    @Test
+    public void disposeStopsAllReaders() throws Exception {
+        CountingListener first = new CountingListener();
+        CountingListener other = new CountingListener();
+        SQLiteReader reader = acquire("weewx.sdb", first);
+        SQLiteReader otherReader = acquire("other.sdb", other);
+        first.awaitRefresh();
+        other.awaitRefresh();
+        PreparedStatement statement = getStatement(reader);
+        PreparedStatement otherStatement = getStatement(otherReader);
+
+        registry.dispose();
+        awaitStopped("weewx.sdb", statement);
+        awaitStopped("other.sdb", otherStatement);
+        assertThat(scheduler.getQueue().isEmpty(), is(true));
+    }
+
+    @Test
+    public void readerIsCreatedAgainAfterItsRelease() throws Exception {
+        CountingListener listener = new CountingListener();
+        SQLiteReader reader = acquire("weewx.sdb", listener);
+        listener.awaitRefresh();
+        registry.release(listener);
+
+        SQLiteReader newReader = acquire("weewx.sdb", listener);
+        assertThat(newReader, is(not(sameInstance(reader))));
+        listener.awaitRefresh();
+    }
+}
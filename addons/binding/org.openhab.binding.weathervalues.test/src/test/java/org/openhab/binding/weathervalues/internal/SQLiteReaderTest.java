@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.sql.PreparedStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.binding.weathervalues.internal.source.DatabaseSource;
+
+/**
+ * Tests how the {@link SQLiteReader} keeps its connection and statements across refreshes and recovers from errors.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class SQLiteReaderTest {
+
+    private static final int INTERVAL = 300;
+    private static final long START = 1483228800L;
+
+    /**
+     * The {@link TestSource} provides a local file and counts how often it was invalidated.
+     */
+    private static class TestSource implements DatabaseSource {
+        private File file;
+        private long generation;
+        private int failingOpens;
+        private int invalidations;
+
+        @Override
+        public boolean sync() {
+            return true;
+        }
+
+        @Override
+        public File getFile() {
+            if (failingOpens > 0) {
+                failingOpens--;
+                return new File(file.getPath() + ".missing");
+            }
+            return file;
+        }
+
+        @Override
+        public long getGeneration() {
+            return generation;
+        }
+
+        @Override
+        public long getLastTransferredBytes() {
+            return 0;
+        }
+
+        @Override
+        public long getTransferredBytes() {
+            return 0;
+        }
+
+        @Override
+        public void invalidate() {
+            invalidations++;
+        }
+
+        @Override
+        public void abort() {
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WeewxDatabase database;
+    private TestSource source;
+    private SQLiteReader reader;
+    private long dateTime = START;
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        database = new WeewxDatabase(folder.newFile(), WeewxDatabase.METRIC);
+        dateTime = database.addRecords(dateTime, 288, INTERVAL, true);
+        source = new TestSource();
+        source.file = database.getFile();
+        reader = new SQLiteReader(source);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.dispose();
+        database.close();
+    }
+
+    @Test
+    public void statementsAreReusedByEveryRefresh() throws Exception {
+        assertThat(reader.extract(), is(notNullValue()));
+        PreparedStatement statement = reader.prepareStatement("PRAGMA schema_version");
+
+        dateTime = database.addRecords(dateTime, 1, INTERVAL);
+        WeatherSnapshot snapshot = reader.extract();
+        assertThat(snapshot.getDateTime(), is(dateTime - INTERVAL));
+        assertThat(reader.prepareStatement("PRAGMA schema_version"), is(sameInstance(statement)));
+    }
+
+    @Test
+    public void statementsArePreparedAgainForAReplacedFile() throws Exception {
+        assertThat(reader.extract(), is(notNullValue()));
+        PreparedStatement statement = reader.prepareStatement("PRAGMA schema_version");
+
+        source.generation++;
+        assertThat(reader.extract(), is(notNullValue()));
+        assertThat(reader.prepareStatement("PRAGMA schema_version"), is(not(sameInstance(statement))));
+        assertThat(statement.isClosed(), is(true));
+    }
+
+    @Test
+    public void failedOpenIsRetriedWithoutInvalidatingTheDatabase() throws Exception {
+        assertThat(reader.extract(), is(notNullValue()));
+
+        source.failingOpens = 1;
+        source.generation++;
+        assertThat(reader.extract(), is(notNullValue()));
+        assertThat(source.invalidations, is(0));
+
+        source.failingOpens = 2;
+        source.generation++;
+        assertThat(reader.extract(), is(nullValue()));
+        assertThat(source.invalidations, is(0));
+        assertThat(reader.extract(), is(notNullValue()));
+    }
+
+    @Test
+    public void corruptDatabaseIsInvalidated() throws Exception {
+        assertThat(reader.extract(), is(notNullValue()));
+
+        File corrupt = folder.newFile();
+        try (RandomAccessFile file = new RandomAccessFile(corrupt, "rw")) {
+            file.write(new byte[4096]);
+        }
+        source.file = corrupt;
+        source.generation++;
+        assertThat(reader.extract(), is(nullValue()));
+        assertThat(source.invalidations, is(1));
+    }
+}
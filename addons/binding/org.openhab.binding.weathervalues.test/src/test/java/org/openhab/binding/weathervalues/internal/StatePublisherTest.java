@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests which updates the {@link StatePublisher} suppresses and when it publishes an unchanged state again.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class StatePublisherTest {
+
+    private static final long MAX_AGE = 1800000;
+    private static final long NOW = 1483228800000L;
+    private static final String TEMPERATURE = "outTemp";
+    private static final String DESCRIPTION = "pressureTendencyDescription";
+
+    // the published updates as channel=state
+    private final List<String> updates = new ArrayList<>();
+    private StatePublisher publisher;
+
+    @Before
+    public void setUp() {
+        publisher = createPublisher(MAX_AGE);
+    }
+
+    private StatePublisher createPublisher(long maxAge) {
+        return new StatePublisher((channelId, state) -> updates.add(channelId + "=" + state), maxAge);
+    }
+
+    private void assertCounts(long published, long suppressed) {
+        assertThat(publisher.getPublishedCount(), is(published));
+        assertThat(publisher.getSuppressedCount(), is(suppressed));
+        assertThat(updates.size(), is((int) published));
+    }
+
+    @Test
+    public void unchangedStatesAreSuppressed() {
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(21.5), NOW), is(true));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(21.5), NOW + 1000), is(false));
+        assertThat(publisher.publish(DESCRIPTION, new StringType("Steady"), NOW), is(true));
+        assertThat(publisher.publish(DESCRIPTION, new StringType("Steady"), NOW + 1000), is(false));
+        assertThat(publisher.publish(DESCRIPTION, UnDefType.NULL, NOW + 2000), is(true));
+        assertThat(publisher.publish(DESCRIPTION, UnDefType.NULL, NOW + 3000), is(false));
+        assertCounts(3, 3);
+
+        // the first state of a channel is published, even if another channel has the same
+        assertThat(publisher.publish("dewpoint", new DecimalType(21.5), NOW + 4000), is(true));
+        assertCounts(4, 3);
+    }
+
+    @Test
+    public void changedStatesArePublished() {
+        publisher.publish(TEMPERATURE, new DecimalType(21.5), NOW);
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(21.6), NOW + 1000), is(true));
+        assertThat(publisher.publish(TEMPERATURE, UnDefType.NULL, NOW + 2000), is(true));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(21.6), NOW + 3000), is(true));
+        assertCounts(4, 0);
+        assertThat(updates.get(2), is(TEMPERATURE + "=" + UnDefType.NULL));
+    }
+
+    @Test
+    public void valuesWithinTheDeadbandAreSuppressed() {
+        publisher.setDeadband(TEMPERATURE, 0.2);
+        publisher.publish(TEMPERATURE, new DecimalType(20), NOW);
+
+        // the difference is taken to the last published value, not to the last suppressed one
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.1), NOW + 1000), is(false));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(19.8), NOW + 2000), is(false));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.2), NOW + 3000), is(false));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.3), NOW + 4000), is(true));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.1), NOW + 5000), is(false));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.05), NOW + 6000), is(true));
+        assertCounts(3, 4);
+        assertThat(updates.get(1), is(TEMPERATURE + "=" + new DecimalType(20.3)));
+    }
+
+    @Test
+    public void deadbandAppliesOnlyToItsChannel() {
+        publisher.setDeadband(TEMPERATURE, 0.5);
+        publisher.publish(TEMPERATURE, new DecimalType(20), NOW);
+        publisher.publish("dewpoint", new DecimalType(20), NOW);
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.1), NOW + 1000), is(false));
+        assertThat(publisher.publish("dewpoint", new DecimalType(20.1), NOW + 1000), is(true));
+
+        // a missing value is never within the deadband
+        assertThat(publisher.publish(TEMPERATURE, UnDefType.NULL, NOW + 2000), is(true));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20), NOW + 3000), is(true));
+
+        // without the deadband only equal values are suppressed
+        publisher.setDeadband(TEMPERATURE, 0);
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.1), NOW + 4000), is(true));
+        assertCounts(6, 1);
+    }
+
+    @Test
+    public void unchangedStatesArePublishedAfterTheMaximumAge() {
+        publisher.setDeadband(TEMPERATURE, 0.2);
+        publisher.publish(TEMPERATURE, new DecimalType(20), NOW);
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.1), NOW + MAX_AGE - 1), is(false));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.1), NOW + MAX_AGE), is(true));
+
+        // the age counts from the last publication
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.1), NOW + 2 * MAX_AGE - 1), is(false));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.1), NOW + 2 * MAX_AGE), is(true));
+        assertCounts(3, 2);
+    }
+
+    @Test
+    public void maximumAgeOfZeroPublishesEveryUpdate() {
+        publisher = createPublisher(0);
+        publisher.setDeadband(TEMPERATURE, 0.2);
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20), NOW), is(true));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20), NOW), is(true));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20.1), NOW + 1), is(true));
+        assertThat(publisher.publish(DESCRIPTION, new StringType("Steady"), NOW + 1), is(true));
+        assertThat(publisher.publish(DESCRIPTION, new StringType("Steady"), NOW + 1), is(true));
+        assertCounts(5, 0);
+    }
+
+    @Test
+    public void invalidatedStatesArePublishedAgain() {
+        publisher.publish(TEMPERATURE, new DecimalType(20), NOW);
+        publisher.publish(DESCRIPTION, new StringType("Steady"), NOW);
+
+        publisher.invalidate(TEMPERATURE);
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20), NOW + 1000), is(true));
+        assertThat(publisher.publish(DESCRIPTION, new StringType("Steady"), NOW + 1000), is(false));
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20), NOW + 2000), is(false));
+
+        publisher.invalidateAll();
+        assertThat(publisher.publish(TEMPERATURE, new DecimalType(20), NOW + 3000), is(true));
+        assertThat(publisher.publish(DESCRIPTION, new StringType("Steady"), NOW + 3000), is(true));
+        assertCounts(5, 2);
+    }
+
+    @Test
+    public void publishUsesTheCurrentTime() {
+        State state = new DecimalType(20);
+        assertThat(publisher.publish(TEMPERATURE, state), is(true));
+        assertThat(publisher.publish(TEMPERATURE, state), is(false));
+
+        // a publication long ago has exceeded the maximum age
+        publisher.invalidate(TEMPERATURE);
+        publisher.publish(TEMPERATURE, state, System.currentTimeMillis() - MAX_AGE);
+        assertThat(publisher.publish(TEMPERATURE, state), is(true));
+        assertCounts(3, 1);
+    }
+}
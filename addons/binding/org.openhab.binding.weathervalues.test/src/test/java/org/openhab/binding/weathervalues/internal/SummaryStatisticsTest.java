@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.openhab.binding.weathervalues.internal.mapping.SummaryStatistic.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.binding.weathervalues.internal.data.SummaryValues;
+import org.openhab.binding.weathervalues.internal.mapping.SummaryStatistic;
+import org.openhab.binding.weathervalues.internal.mapping.UnitSystem;
+
+/**
+ * Tests the aggregates of the {@link SummaryStatistics} against values computed by hand from a few daily summary
+ * rows of a fixture database, and the query plans which they are computed with.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class SummaryStatisticsTest {
+
+    private static final double DELTA = 0.0051;
+    // Wednesday, the week started on Monday the 13th
+    private static final long NOW = Time.toEpochSecond(2017, 3, 15, 12, 0, 0);
+
+    /**
+     * The {@link ConnectionReader} is a reader of a plain connection to the database.
+     */
+    private static class ConnectionReader implements SQLReader {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        ConnectionReader(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public ResultSet getResultSet(String sql) throws SQLException {
+            Statement statement = connection.createStatement();
+            statement.closeOnCompletion();
+            return statement.executeQuery(sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        @Override
+        public void removeListener(SQLReaderListener listener) {
+        }
+
+        @Override
+        public void addListener(SQLReaderListener listener) {
+        }
+
+        @Override
+        public void callAllListener() {
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WeewxDatabase database;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        database = new WeewxDatabase(folder.newFile(), WeewxDatabase.METRIC);
+        // the rows of the 31st of December and the 16th of March are outside of every window
+        insertDays("outTemp", //
+                day(2016, 12, 31, -20, 5), //
+                day(2017, 1, 10, -15, 2), //
+                day(2017, 2, 28, -8, 30), //
+                day(2017, 3, 1, -3, 12), //
+                day(2017, 3, 15, 4, 18), //
+                day(2017, 3, 16, -30, 40));
+        insertDays("outHumidity", //
+                day(2017, 3, 14, 10, 99), //
+                day(2017, 3, 15, 35, 90));
+        insertDays("barometer", //
+                day(2017, 2, 28, 990, 1040), //
+                day(2017, 3, 1, 1005, 1020), //
+                day(2017, 3, 13, 998, 1030));
+        insertDays("windGust", //
+                day(2017, 2, 28, 0, 95), //
+                day(2017, 3, 1, 0, 60), //
+                day(2017, 3, 12, 0, 80), //
+                day(2017, 3, 13, 0, 50), //
+                day(2017, 3, 15, 0, 35));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        database.close();
+    }
+
+    private static String day(int year, int month, int day, double min, double max) {
+        long dateTime = Time.toEpochSecond(year, month, day, 0, 0, 0);
+        return "(" + dateTime + ", " + min + ", " + (dateTime + 3600) + ", " + max + ", " + (dateTime + 7200)
+                + ", 0, 0, 0, 0)";
+    }
+
+    private void insertDays(String observation, String... rows) throws SQLException {
+        database.execute("INSERT INTO archive_day_" + observation + " VALUES " + String.join(", ", rows));
+    }
+
+    private SQLReader openReader() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite:" + database.getFile().getPath());
+        return new ConnectionReader(connection);
+    }
+
+    private SummaryValues read(UnitSystem unitSystem) throws SQLException {
+        SQLReader reader = openReader();
+        SummaryStatistics statistics = new SummaryStatistics();
+        statistics.prepare(reader);
+        return statistics.read(reader, NOW, unitSystem);
+    }
+
+    private static void assertValue(SummaryValues values, SummaryStatistic statistic, double expected) {
+        State state = values.getValue(statistic);
+        assertThat(statistic.toString(), state, is(instanceOf(DecimalType.class)));
+        assertEquals(statistic.toString(), expected, ((DecimalType) state).doubleValue(), DELTA);
+    }
+
+    @Test
+    public void aggregatesCoverTheirWindows() throws Exception {
+        SummaryValues values = read(UnitSystem.METRIC);
+        assertValue(values, OUTSIDE_HUMIDITY_DAY_MIN, 35);
+        assertValue(values, OUTSIDE_HUMIDITY_DAY_MAX, 90);
+        assertValue(values, OUTSIDE_TEMP_MONTH_MIN, -3);
+        assertValue(values, OUTSIDE_TEMP_MONTH_MAX, 18);
+        assertValue(values, OUTSIDE_TEMP_YEAR_MIN, -15);
+        assertValue(values, OUTSIDE_TEMP_YEAR_MAX, 30);
+        assertValue(values, BAROMETER_MONTH_MIN, 998);
+        assertValue(values, BAROMETER_MONTH_MAX, 1030);
+        assertValue(values, WIND_GUST_DAY_MAX, 35);
+        assertValue(values, WIND_GUST_WEEK_MAX, 50);
+        assertValue(values, WIND_GUST_MONTH_MAX, 80);
+    }
+
+    @Test
+    public void aggregatesAreConvertedFromTheUnitsOfTheDatabase() throws Exception {
+        SummaryValues values = read(UnitSystem.US);
+        assertValue(values, OUTSIDE_TEMP_MONTH_MAX, (18 - 32) / 1.8);
+        assertValue(values, WIND_GUST_DAY_MAX, 35 * 1.609344);
+        assertValue(values, OUTSIDE_HUMIDITY_DAY_MAX, 90);
+    }
+
+    @Test
+    public void emptyWindowIsUndefined() throws Exception {
+        database.execute("DELETE FROM archive_day_windGust WHERE dateTime >= " + Time.toEpochSecond(2017, 3, 13, 0, 0,
+                0));
+        SummaryValues values = read(UnitSystem.METRIC);
+        assertThat(values.getValue(WIND_GUST_DAY_MAX), is((State) UnDefType.NULL));
+        assertThat(values.getValue(WIND_GUST_WEEK_MAX), is((State) UnDefType.NULL));
+        assertValue(values, WIND_GUST_MONTH_MAX, 80);
+    }
+
+    @Test
+    public void missingTableIsLeftOut() throws Exception {
+        database.execute("DROP TABLE archive_day_barometer");
+        SummaryValues values = read(UnitSystem.METRIC);
+        assertThat(values.getValue(BAROMETER_MONTH_MIN), is((State) UnDefType.NULL));
+        assertThat(values.getValue(BAROMETER_MONTH_MAX), is((State) UnDefType.NULL));
+        assertValue(values, OUTSIDE_TEMP_MONTH_MAX, 18);
+    }
+
+    @Test
+    public void queriesSearchTheDateTimeIndex() throws Exception {
+        SQLReader reader = openReader();
+        for (SummaryStatistic statistic : SummaryStatistic.values()) {
+            String plan = SummaryStatistics.getQueryPlan(reader, statistic);
+            assertThat(statistic + ": " + plan, SummaryStatistics.usesIndex(plan), is(true));
+            assertThat(plan, containsString("SEARCH TABLE " + statistic.getTableName()));
+        }
+    }
+
+    @Test
+    public void tableWithoutIndexIsScanned() throws Exception {
+        // a table of another tool, without the primary key of weewx
+        database.execute("DROP TABLE archive_day_windGust",
+                "CREATE TABLE archive_day_windGust (dateTime INTEGER, min REAL, mintime INTEGER, max REAL, "
+                        + "maxtime INTEGER, sum REAL, count INTEGER, wsum REAL, sumtime INTEGER)");
+        String plan = SummaryStatistics.getQueryPlan(openReader(), WIND_GUST_DAY_MAX);
+        assertThat(plan, SummaryStatistics.usesIndex(plan), is(false));
+        assertThat(plan, not(containsString("USING")));
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/**
+ * Tests that the epoch arithmetic and the cached zone offsets of {@link Time} give the same results as
+ * {@link Calendar} in the default time zone, above all around the transitions of daylight saving time. The build runs
+ * the tests in a time zone with daylight saving time.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class TimeTest {
+
+    private static final ZoneRules RULES = ZoneId.systemDefault().getRules();
+    private static final long START = 946684800L;
+    private static final long END = 2208988800L;
+    private static final int HOUR = 3600;
+
+    private static List<ZoneOffsetTransition> getTransitions() {
+        List<ZoneOffsetTransition> transitions = new ArrayList<>();
+        ZoneOffsetTransition transition = RULES.nextTransition(Instant.ofEpochSecond(START));
+        while (transition != null && transition.toEpochSecond() < END) {
+            transitions.add(transition);
+            transition = RULES.nextTransition(transition.getInstant());
+        }
+        return transitions;
+    }
+
+    private static Calendar getCalendar(long epochSecond) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(epochSecond * 1000);
+        return calendar;
+    }
+
+    private static void assertFields(long epochSecond) {
+        Calendar calendar = getCalendar(epochSecond);
+        Time time = new Time(epochSecond * 1000);
+        String message = calendar.getTime().toString();
+        assertEquals(message, calendar.get(Calendar.YEAR), time.getYear());
+        assertEquals(message, calendar.get(Calendar.MONTH) + 1, time.getMonth().getValue());
+        assertEquals(message, calendar.get(Calendar.DAY_OF_MONTH), time.getDay());
+        assertEquals(message, calendar.get(Calendar.HOUR_OF_DAY), time.getHour());
+        assertEquals(message, calendar.get(Calendar.MINUTE), time.getMinute());
+        assertEquals(message, calendar.get(Calendar.SECOND), time.getSecond());
+        // Calendar counts from Sunday, Time from Monday
+        assertEquals(message, (calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7 + 1, time.getDayOfWeek());
+    }
+
+    private static long toEpochSecondWithCalendar(int year, int month, int day, int hour, int min, int sec) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, min, sec);
+        return calendar.getTimeInMillis() / 1000;
+    }
+
+    @Test
+    public void fieldsMatchCalendar() {
+        // one sample a little more than every 11 days, so every time of day and day of week is met
+        for (long epochSecond = START; epochSecond < END; epochSecond += 977777) {
+            assertFields(epochSecond);
+        }
+        // before the epoch, but after the local mean times of the zone rules
+        assertFields(-1);
+        assertFields(-86400L * 365 * 50);
+    }
+
+    @Test
+    public void fieldsMatchCalendarAroundTransitions() {
+        List<ZoneOffsetTransition> transitions = getTransitions();
+        assumeFalse("the default time zone has no transitions", transitions.isEmpty());
+
+        for (ZoneOffsetTransition transition : transitions) {
+            long epochSecond = transition.toEpochSecond();
+            for (long second = epochSecond - 3 * HOUR; second <= epochSecond + 3 * HOUR; second += 900) {
+                assertFields(second);
+            }
+            assertFields(epochSecond - 1);
+            assertFields(epochSecond + 1);
+        }
+    }
+
+    @Test
+    public void cachedOffsetsFollowJumpsBetweenYears() {
+        List<ZoneOffsetTransition> transitions = getTransitions();
+        assumeFalse("the default time zone has no transitions", transitions.isEmpty());
+
+        // alternate between the first and the last years, so the cached windows are replaced on every call
+        for (int i = 0; i < transitions.size(); i++) {
+            assertFields(transitions.get(i).toEpochSecond() - 1);
+            assertFields(transitions.get(transitions.size() - 1 - i).toEpochSecond());
+        }
+    }
+
+    @Test
+    public void localTimesResolveLikeCalendar() {
+        List<ZoneOffsetTransition> transitions = getTransitions();
+        assumeFalse("the default time zone has no transitions", transitions.isEmpty());
+
+        for (ZoneOffsetTransition transition : transitions) {
+            // local times before, in and after the gap or the overlap
+            long localSecond = transition.getDateTimeBefore().toEpochSecond(transition.getOffsetBefore())
+                    + transition.getOffsetBefore().getTotalSeconds();
+            for (long local = localSecond - 2 * HOUR; local <= localSecond + 2 * HOUR; local += 600) {
+                Calendar fields = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+                fields.setTimeInMillis(local * 1000);
+                int year = fields.get(Calendar.YEAR);
+                int month = fields.get(Calendar.MONTH) + 1;
+                int day = fields.get(Calendar.DAY_OF_MONTH);
+                int hour = fields.get(Calendar.HOUR_OF_DAY);
+                int min = fields.get(Calendar.MINUTE);
+                assertEquals(fields.getTime().toString(), toEpochSecondWithCalendar(year, month, day, hour, min, 0),
+                        Time.toEpochSecond(year, month, day, hour, min, 0));
+            }
+        }
+    }
+
+    @Test
+    public void daysStartAtLocalMidnightOnTransitionDays() {
+        List<ZoneOffsetTransition> transitions = getTransitions();
+        assumeFalse("the default time zone has no transitions", transitions.isEmpty());
+
+        for (ZoneOffsetTransition transition : transitions) {
+            long epochSecond = transition.toEpochSecond();
+            Calendar calendar = getCalendar(epochSecond);
+            int year = calendar.get(Calendar.YEAR);
+            int month = calendar.get(Calendar.MONTH) + 1;
+            int day = calendar.get(Calendar.DAY_OF_MONTH);
+            // midnight of a day starting in a gap is moved to the end of the gap
+            long startOfDay = toEpochSecondWithCalendar(year, month, day, 0, 0, 0);
+            long startOfNextDay = toEpochSecondWithCalendar(year, month, day + 1, 0, 0, 0);
+
+            assertEquals(startOfDay, Time.startOfDay(epochSecond));
+            assertEquals(startOfNextDay, Time.startOfDay(epochSecond, 1));
+            assertEquals(startOfDay, Time.startOfDay(startOfNextDay, -1));
+            // the day is shorter or longer by the change of the offset, unless the zone skipped a whole day
+            if (Math.abs(transition.getDuration().getSeconds()) < 86400) {
+                assertEquals(86400 - transition.getDuration().getSeconds(), startOfNextDay - startOfDay);
+            }
+        }
+    }
+
+    @Test
+    public void parsedTimesMatchTheirFields() {
+        Time time = new Time("\"2017-03-26 02:30:00\"");
+        assertEquals(toEpochSecondWithCalendar(2017, 3, 26, 2, 30, 0) * 1000, time.getTimeInMillis());
+
+        time = new Time("2016-10-30 02:30:15");
+        assertEquals(toEpochSecondWithCalendar(2016, 10, 30, 2, 30, 15) * 1000, time.getTimeInMillis());
+        assertEquals(new Time(2016, 10, 30, 2, 30, 15).getTimeInMillis(), time.getTimeInMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void incompleteTimesAreRejected() {
+        new Time("2017-03-26 02:30");
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.sql.ResultSet;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.binding.weathervalues.internal.data.Rain;
+import org.openhab.binding.weathervalues.internal.data.Utility;
+import org.openhab.binding.weathervalues.internal.data.Wind;
+import org.openhab.binding.weathervalues.internal.mapping.RollingStatistic;
+import org.openhab.binding.weathervalues.internal.mapping.RollingWindow;
+import org.openhab.binding.weathervalues.internal.mapping.SummaryStatistic;
+import org.openhab.binding.weathervalues.internal.source.LocalDatabase;
+
+/**
+ * Tests that a {@link WeatherSnapshot} is not changed by later refreshes and that threads reading the snapshots while
+ * the reader refreshes only see the values of whole refreshes.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class WeatherSnapshotTest {
+
+    private static final int INTERVAL = 300;
+    private static final long START = 1483228800L;
+    private static final int REFRESHES = 200;
+    private static final int READERS = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WeewxDatabase database;
+    private SQLiteReader reader;
+    private long dateTime = START;
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        database = new WeewxDatabase(folder.newFile(), WeewxDatabase.METRIC);
+        dateTime = database.addRecords(dateTime, 288, INTERVAL, true);
+        reader = new SQLiteReader(new LocalDatabase(database.getFile()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.dispose();
+        database.close();
+    }
+
+    /**
+     * Returns all states of a snapshot as text
+     */
+    private static String describe(WeatherSnapshot snapshot) {
+        List<Object> states = new ArrayList<>();
+        states.add(snapshot.getDateTime());
+        states.add(snapshot.getOutdoorClimate().getTemperature());
+        states.add(snapshot.getOutdoorClimate().getHumidity());
+        states.add(snapshot.getOutdoorClimate().getBarometer());
+        states.add(snapshot.getOutdoorClimate().getTemperatureMinimum());
+        states.add(snapshot.getOutdoorClimate().getTemperatureMinimumTime());
+        states.add(snapshot.getOutdoorClimate().getTemperatureMaximum());
+        states.add(snapshot.getOutdoorClimate().getTemperatureMaximumTime());
+        states.add(snapshot.getWind().getSpeed());
+        states.add(snapshot.getWind().getDirection());
+        Rain rain = snapshot.getRain();
+        states.add(rain.getRainRateCurrent());
+        states.add(rain.getRainCurrentDay());
+        states.add(rain.getRainCurrentWeek());
+        states.add(rain.getRainCurrentMonth());
+        states.add(rain.getRainCurrentYear());
+        states.add(rain.getRainPreviousYear());
+        states.add(rain.getRainRolling12Months());
+        states.add(rain.getRainRolling30Days());
+        states.add(rain.getRainSeasonToDate());
+        for (Month month : Month.values()) {
+            states.add(rain.getRainMonth(month));
+        }
+        for (SummaryStatistic statistic : SummaryStatistic.values()) {
+            states.add(snapshot.getSummaryValues().getValue(statistic));
+        }
+        for (RollingWindow window : RollingWindow.values()) {
+            states.add(snapshot.getWindAverages().getSpeed(window));
+            states.add(snapshot.getWindAverages().getDirection(window));
+            states.add(snapshot.getWindAverages().getMaximumGust(window));
+        }
+        for (RollingStatistic statistic : RollingStatistic.values()) {
+            states.add(snapshot.getRollingValues().getValue(statistic));
+        }
+        states.add(snapshot.getRollingValues().getPressureTendency());
+        return states.toString();
+    }
+
+    @Test
+    public void snapshotIsNotChangedByLaterRefreshes() throws Exception {
+        WeatherSnapshot first = reader.extract();
+        String description = describe(first);
+
+        // the next day, which adds a row to the daily summaries
+        dateTime = database.addRecords(dateTime, 12, INTERVAL);
+        WeatherSnapshot second = reader.extract();
+
+        assertThat(reader.getSnapshot(), is(sameInstance(second)));
+        assertThat(second.getDateTime(), is(dateTime - INTERVAL));
+        assertThat(describe(first), is(description));
+        assertThat(describe(second), is(not(description)));
+    }
+
+    @Test
+    public void concurrentReadersSeeWholeRefreshes() throws Exception {
+        assertThat(reader.extract(), is(notNullValue()));
+        AtomicBoolean refreshing = new AtomicBoolean(true);
+        Map<WeatherSnapshot, String> seen = new ConcurrentHashMap<>();
+        List<Callable<Integer>> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            readers.add(() -> {
+                long lastDateTime = Long.MIN_VALUE;
+                int snapshots = 0;
+                while (refreshing.get()) {
+                    WeatherSnapshot snapshot = reader.getSnapshot();
+                    assertTrue(snapshot.getDateTime() >= lastDateTime);
+                    lastDateTime = snapshot.getDateTime();
+                    String description = describe(snapshot);
+                    String previous = seen.putIfAbsent(snapshot, description);
+                    assertThat(previous, is(anyOf(nullValue(), equalTo(description))));
+                    snapshots++;
+                }
+                return snapshots;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(READERS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (Callable<Integer> callable : readers) {
+                results.add(executor.submit(callable));
+            }
+            for (int i = 0; i < REFRESHES; i++) {
+                dateTime = database.addRecords(dateTime, 1, INTERVAL);
+                WeatherSnapshot snapshot = reader.extract();
+                assertThat(snapshot.getDateTime(), is(dateTime - INTERVAL));
+            }
+            refreshing.set(false);
+            for (Future<Integer> result : results) {
+                assertThat(result.get(1, TimeUnit.MINUTES), is(not(0)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // every snapshot still holds the values it was published with, and they are the ones of its record
+        assertThat(seen.size(), is(not(0)));
+        for (Map.Entry<WeatherSnapshot, String> entry : seen.entrySet()) {
+            WeatherSnapshot snapshot = entry.getKey();
+            assertThat(describe(snapshot), is(entry.getValue()));
+            try (ResultSet resultSet = reader
+                    .getResultSet("SELECT outTemp, windDir, windSpeed FROM archive WHERE dateTime = "
+                            + snapshot.getDateTime())) {
+                assertTrue(resultSet.next());
+                assertThat(snapshot.getOutdoorClimate().getTemperature(),
+                        is(Utility.toState(resultSet.getDouble(1))));
+                assertThat(snapshot.getWind().getSpeed(),
+                        is(new Wind(resultSet.getDouble(2), resultSet.getDouble(3)).getSpeed()));
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * The {@link WeewxDatabase} creates a SQLite database with the schema of weewx and adds archive records the way weewx
+ * does: every record is inserted together with the update of the daily summaries in one transaction.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class WeewxDatabase implements AutoCloseable {
+
+    public static final int US = 0x01;
+    public static final int METRIC = 0x10;
+    public static final int METRICWX = 0x11;
+
+    private static final String[] OBSERVATIONS = { "barometer", "outTemp", "outHumidity", "extraTemp1", "extraHumid1",
+            "windSpeed", "windDir", "windGust", "windGustDir", "rainRate", "rain", "inTemp", "dewpoint" };
+    private static final String[] DAY_SUMMARIES = { "barometer", "outTemp", "outHumidity", "rain", "windSpeed",
+            "windGust", "windDir", "inTemp", "dewpoint" };
+
+    private final File file;
+    private final Connection connection;
+    private final Random random = new Random(42);
+    private final int usUnits;
+
+    private PreparedStatement insertRecord;
+    private PreparedStatement[] insertDay;
+    private PreparedStatement[] updateDay;
+    private PreparedStatement updateMetadata;
+
+    /**
+     * Creates an empty database
+     *
+     * @param file the file of the database, which must not exist
+     * @param usUnits the unit system of the records
+     */
+    public WeewxDatabase(File file, int usUnits) throws SQLException {
+        this.file = file;
+        this.usUnits = usUnits;
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        try (Statement statement = connection.createStatement()) {
+            // only the durability is lost, the pages are written the same way
+            statement.execute("PRAGMA synchronous = OFF");
+            StringBuilder columns = new StringBuilder();
+            for (String observation : OBSERVATIONS) {
+                columns.append(", `").append(observation).append("` REAL");
+            }
+            statement.execute("CREATE TABLE archive (`dateTime` INTEGER NOT NULL UNIQUE PRIMARY KEY, "
+                    + "`usUnits` INTEGER NOT NULL, `interval` INTEGER NOT NULL" + columns + ")");
+            for (String observation : DAY_SUMMARIES) {
+                statement.execute("CREATE TABLE archive_day_" + observation
+                        + " (dateTime INTEGER NOT NULL UNIQUE PRIMARY KEY, min REAL, mintime INTEGER, max REAL, "
+                        + "maxtime INTEGER, sum REAL, count INTEGER, wsum REAL, sumtime INTEGER)");
+            }
+            statement.execute(
+                    "CREATE TABLE archive_day__metadata (name CHAR(20) NOT NULL UNIQUE PRIMARY KEY, value TEXT)");
+            statement.execute("INSERT INTO archive_day__metadata VALUES ('lastUpdate', '0')");
+        }
+        prepare();
+    }
+
+    private void prepare() throws SQLException {
+        StringBuilder parameters = new StringBuilder("?, ?, ?");
+        for (int i = 0; i < OBSERVATIONS.length; i++) {
+            parameters.append(", ?");
+        }
+        insertRecord = connection.prepareStatement("INSERT INTO archive VALUES (" + parameters + ")");
+        insertDay = new PreparedStatement[DAY_SUMMARIES.length];
+        updateDay = new PreparedStatement[DAY_SUMMARIES.length];
+        for (int i = 0; i < DAY_SUMMARIES.length; i++) {
+            String table = "archive_day_" + DAY_SUMMARIES[i];
+            insertDay[i] = connection.prepareStatement(
+                    "INSERT OR IGNORE INTO " + table + " VALUES (?, ?, ?, ?, ?, 0, 0, 0, 0)");
+            updateDay[i] = connection.prepareStatement("UPDATE " + table
+                    + " SET min = MIN(min, ?), max = MAX(max, ?), sum = sum + ?, count = count + 1, "
+                    + "wsum = wsum + ?, sumtime = sumtime + ? WHERE dateTime = ?");
+        }
+        updateMetadata = connection
+                .prepareStatement("UPDATE archive_day__metadata SET value = ? WHERE name = 'lastUpdate'");
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Adds archive records with random values, each in its own transaction
+     *
+     * @param dateTime the time of the first record in seconds
+     * @param count the number of records
+     * @param interval the interval between the records in seconds
+     * @return the time of the record after the last one
+     */
+    public long addRecords(long dateTime, int count, int interval) throws SQLException {
+        return addRecords(dateTime, count, interval, false);
+    }
+
+    /**
+     * Adds archive records with random values
+     *
+     * @param dateTime the time of the first record in seconds
+     * @param count the number of records
+     * @param interval the interval between the records in seconds
+     * @param bulk true to add all records in one transaction, e.g. to create a long history quickly
+     * @return the time of the record after the last one
+     */
+    public long addRecords(long dateTime, int count, int interval, boolean bulk) throws SQLException {
+        if (bulk) {
+            connection.setAutoCommit(false);
+        }
+        for (int i = 0; i < count; i++) {
+            if (!bulk) {
+                connection.setAutoCommit(false);
+            }
+            insertRecord(dateTime, interval);
+            if (!bulk) {
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+            dateTime += interval;
+        }
+        if (bulk) {
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+        return dateTime;
+    }
+
+    /**
+     * Adds an archive record with random values and executes further statements in the same transaction
+     *
+     * @param dateTime the time of the record in seconds
+     * @param interval the interval of the record in seconds
+     * @param sqls the further statements
+     */
+    public void addRecord(long dateTime, int interval, String... sqls) throws SQLException {
+        connection.setAutoCommit(false);
+        insertRecord(dateTime, interval);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : sqls) {
+                statement.execute(sql);
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    private void insertRecord(long dateTime, int interval) throws SQLException {
+        insertRecord.setLong(1, dateTime);
+        insertRecord.setInt(2, usUnits);
+        insertRecord.setInt(3, interval / 60);
+        for (int i = 0; i < OBSERVATIONS.length; i++) {
+            insertRecord.setDouble(4 + i,
+                    OBSERVATIONS[i].endsWith("Dir") ? random.nextDouble() * 360 : random.nextDouble() * 100);
+        }
+        insertRecord.executeUpdate();
+
+        long day = dateTime - Math.floorMod(dateTime, 86400);
+        for (int i = 0; i < DAY_SUMMARIES.length; i++) {
+            double value = random.nextDouble() * 0.1;
+            insertDay[i].setLong(1, day);
+            insertDay[i].setDouble(2, value);
+            insertDay[i].setLong(3, dateTime);
+            insertDay[i].setDouble(4, value);
+            insertDay[i].setLong(5, dateTime);
+            insertDay[i].executeUpdate();
+            updateDay[i].setDouble(1, value);
+            updateDay[i].setDouble(2, value);
+            updateDay[i].setDouble(3, value);
+            updateDay[i].setDouble(4, value * interval);
+            updateDay[i].setLong(5, interval);
+            updateDay[i].setLong(6, day);
+            updateDay[i].executeUpdate();
+        }
+        updateMetadata.setString(1, String.valueOf(dateTime));
+        updateMetadata.executeUpdate();
+    }
+
+    /**
+     * Executes statements in one transaction, e.g. to change older rows the way a rebuild of the daily summaries does
+     */
+    public void execute(String... sqls) throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : sqls) {
+                statement.execute(sql);
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        connection.close();
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.weathervalues.internal.data.WindAverages;
+import org.openhab.binding.weathervalues.internal.mapping.ArchiveColumn;
+import org.openhab.binding.weathervalues.internal.mapping.RollingWindow;
+
+/**
+ * Tests the running averages of the {@link WindEngine} against a naive recomputation over the samples of each window.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class WindEngineTest {
+
+    private static final RollingWindow[] WINDOWS = { RollingWindow.TEN_MINUTES, RollingWindow.ONE_HOUR };
+    // the capacity of the ring buffer of the engine
+    private static final int CAPACITY = 256;
+    // the states are rounded to two digits
+    private static final double DELTA = 0.0051;
+    private static final long START = 1483228800L;
+
+    /**
+     * The {@link Sample} is the wind of one archive record.
+     */
+    private static class Sample {
+        private final long time;
+        private final double speed;
+        private final double direction;
+        private final double gust;
+
+        private Sample(long time, double speed, double direction, double gust) {
+            this.time = time;
+            this.speed = speed;
+            this.direction = direction;
+            this.gust = gust;
+        }
+    }
+
+    private WindEngine engine;
+    private final List<Sample> samples = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        engine = new WindEngine();
+    }
+
+    private void add(long time, double speed, double direction, double gust) {
+        double[] row = new double[ArchiveColumn.values().length];
+        Arrays.fill(row, Double.NaN);
+        row[ArchiveColumn.WIND_SPEED.ordinal()] = speed;
+        row[ArchiveColumn.WIND_DIR.ordinal()] = direction;
+        row[ArchiveColumn.WIND_GUST.ordinal()] = gust;
+        engine.add(time, row);
+        samples.add(new Sample(time, speed, direction, gust));
+    }
+
+    private static double toDouble(State state) {
+        return state == UnDefType.NULL ? Double.NaN : ((DecimalType) state).doubleValue();
+    }
+
+    private static void assertValue(String message, double expected, State actual) {
+        if (Double.isNaN(expected)) {
+            assertThat(message, actual, is((State) UnDefType.NULL));
+        } else {
+            assertEquals(message, expected, toDouble(actual), DELTA);
+        }
+    }
+
+    /**
+     * Recomputes the averages of a window from the samples in it and compares them with the engine
+     */
+    private void assertWindow(RollingWindow window, String message) {
+        long latest = samples.get(samples.size() - 1).time;
+        double speedSum = 0;
+        int speedCount = 0;
+        double sineSum = 0;
+        double cosineSum = 0;
+        double vectorSine = 0;
+        double vectorCosine = 0;
+        int directionCount = 0;
+        double maximumGust = Double.NaN;
+        // the window ends with the latest sample and holds at most the samples of the ring buffer
+        for (int i = samples.size() - 1; i >= Math.max(0, samples.size() - CAPACITY); i--) {
+            Sample sample = samples.get(i);
+            if (sample.time <= latest - window.getSeconds()) {
+                break;
+            }
+            if (!Double.isNaN(sample.speed)) {
+                speedSum += sample.speed;
+                speedCount++;
+            }
+            if (sample.speed > 0 && !Double.isNaN(sample.direction)) {
+                double radians = Math.toRadians(sample.direction);
+                sineSum += Math.sin(radians);
+                cosineSum += Math.cos(radians);
+                vectorSine += sample.speed * Math.sin(radians);
+                vectorCosine += sample.speed * Math.cos(radians);
+                directionCount++;
+            }
+            if (!Double.isNaN(sample.gust) && !(sample.gust <= maximumGust)) {
+                maximumGust = sample.gust;
+            }
+        }
+
+        WindAverages averages = engine.getAverages();
+        message += " " + window;
+        assertValue(message + " speed", speedCount > 0 ? speedSum / speedCount : Double.NaN,
+                averages.getSpeed(window));
+        assertValue(message + " gust", maximumGust, averages.getMaximumGust(window));
+
+        if (directionCount == 0) {
+            assertThat(message, averages.getDirection(window), is((State) UnDefType.NULL));
+            assertThat(message, averages.getDirectionVariability(window), is((State) UnDefType.NULL));
+            return;
+        }
+        double sine = sineSum / directionCount;
+        double cosine = cosineSum / directionCount;
+        double epsilon = Math.sqrt(Math.max(0, 1 - (sine * sine + cosine * cosine)));
+        double sigma = Math.asin(epsilon) * (1 + (2 / Math.sqrt(3) - 1) * Math.pow(epsilon, 3));
+        assertValue(message + " variability", Math.toDegrees(sigma), averages.getDirectionVariability(window));
+
+        // the direction of a vector sum close to zero is not defined by a few rounding errors
+        if (Math.hypot(vectorSine, vectorCosine) > 1e-6 * speedSum) {
+            double direction = Math.toDegrees(Math.atan2(vectorSine, vectorCosine));
+            double difference = Math.abs(toDouble(averages.getDirection(window)) - (direction + 360) % 360);
+            assertTrue(message + " direction " + direction, Math.min(difference, 360 - difference) <= DELTA);
+        }
+    }
+
+    private void assertWindows(String message) {
+        for (RollingWindow window : WINDOWS) {
+            assertWindow(window, message);
+        }
+    }
+
+    @Test
+    public void averagesMatchTheSamplesOfRandomSequences() {
+        for (int seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+            setUp();
+            samples.clear();
+            long time = START;
+            for (int i = 0; i < 2000; i++) {
+                // archive intervals from 10 seconds to 10 minutes and gaps of up to two hours
+                time += random.nextInt(20) == 0 ? random.nextInt(7200) + 1 : new int[] { 10, 60, 300, 600 }[seed % 4];
+                double speed = random.nextInt(10) == 0 ? Double.NaN
+                        : random.nextInt(5) == 0 ? 0 : random.nextDouble() * 50;
+                double direction = random.nextInt(10) == 0 ? Double.NaN : random.nextDouble() * 360;
+                double gust = random.nextInt(10) == 0 ? Double.NaN : random.nextDouble() * 80;
+                add(time, speed, direction, gust);
+                assertWindows("seed " + seed + " sample " + i);
+            }
+        }
+    }
+
+    @Test
+    public void samplesExpireAtTheWindowBoundary() {
+        add(START, 10, 90, 50);
+        add(START + 300, 20, 90, 30);
+        add(START + 599, 30, 90, 20);
+        assertValue("ten minutes", 20, engine.getAverages().getSpeed(RollingWindow.TEN_MINUTES));
+        assertValue("ten minutes", 50, engine.getAverages().getMaximumGust(RollingWindow.TEN_MINUTES));
+
+        // the first sample is exactly ten minutes old now
+        add(START + 600, 40, 90, 10);
+        assertValue("ten minutes", 30, engine.getAverages().getSpeed(RollingWindow.TEN_MINUTES));
+        assertValue("ten minutes", 30, engine.getAverages().getMaximumGust(RollingWindow.TEN_MINUTES));
+        assertValue("one hour", 25, engine.getAverages().getSpeed(RollingWindow.ONE_HOUR));
+        assertValue("one hour", 50, engine.getAverages().getMaximumGust(RollingWindow.ONE_HOUR));
+
+        // only the latest sample is left after a gap
+        add(START + 4200, 5, 270, 7);
+        assertValue("one hour", 5, engine.getAverages().getSpeed(RollingWindow.ONE_HOUR));
+        assertValue("one hour", 7, engine.getAverages().getMaximumGust(RollingWindow.ONE_HOUR));
+        assertValue("one hour", 270, engine.getAverages().getDirection(RollingWindow.ONE_HOUR));
+        assertValue("one hour", 0, engine.getAverages().getDirectionVariability(RollingWindow.ONE_HOUR));
+        assertWindows("gap");
+    }
+
+    @Test
+    public void calmSamplesHaveNoDirection() {
+        add(START, 0, 90, 0);
+        add(START + 60, 0, 180, 0);
+        WindAverages averages = engine.getAverages();
+        assertValue("calm", 0, averages.getSpeed(RollingWindow.TEN_MINUTES));
+        assertThat(averages.getDirection(RollingWindow.TEN_MINUTES), is((State) UnDefType.NULL));
+        assertThat(averages.getDirectionVariability(RollingWindow.TEN_MINUTES), is((State) UnDefType.NULL));
+
+        // the calm samples count for the speed, but not for the direction
+        add(START + 120, 9, 45, 12);
+        averages = engine.getAverages();
+        assertValue("wind", 3, averages.getSpeed(RollingWindow.TEN_MINUTES));
+        assertValue("wind", 45, averages.getDirection(RollingWindow.TEN_MINUTES));
+        assertValue("wind", 0, averages.getDirectionVariability(RollingWindow.TEN_MINUTES));
+        assertWindows("calm");
+    }
+
+    @Test
+    public void missingValuesAreSkipped() {
+        add(START, Double.NaN, Double.NaN, Double.NaN);
+        WindAverages averages = engine.getAverages();
+        for (RollingWindow window : WINDOWS) {
+            assertThat(averages.getSpeed(window), is((State) UnDefType.NULL));
+            assertThat(averages.getDirection(window), is((State) UnDefType.NULL));
+            assertThat(averages.getDirectionVariability(window), is((State) UnDefType.NULL));
+            assertThat(averages.getMaximumGust(window), is((State) UnDefType.NULL));
+        }
+
+        add(START + 60, 10, Double.NaN, 20);
+        add(START + 120, 20, 0, Double.NaN);
+        averages = engine.getAverages();
+        assertValue("speed", 15, averages.getSpeed(RollingWindow.TEN_MINUTES));
+        assertValue("gust", 20, averages.getMaximumGust(RollingWindow.TEN_MINUTES));
+        assertValue("direction", 0, averages.getDirection(RollingWindow.TEN_MINUTES));
+        assertWindows("missing");
+
+        // the windows without any wind are missing for the engine
+        assertThat(averages.getSpeed(RollingWindow.ONE_DAY), is((State) UnDefType.NULL));
+    }
+
+    @Test
+    public void oldestSamplesAreDroppedWhenTheBufferIsFull() {
+        // a sample every 10 seconds, so an hour holds more samples than the buffer
+        for (int i = 0; i < 400; i++) {
+            add(START + 10 * i, i, 0, i == 100 ? 1000 : 1);
+        }
+        WindAverages averages = engine.getAverages();
+        assertValue("speed", (144 + 399) / 2.0, averages.getSpeed(RollingWindow.ONE_HOUR));
+        // the highest gust is still within the hour, but no longer in the buffer
+        assertValue("gust", 1, averages.getMaximumGust(RollingWindow.ONE_HOUR));
+        assertValue("speed", (340 + 399) / 2.0, averages.getSpeed(RollingWindow.TEN_MINUTES));
+        assertWindows("full");
+    }
+
+    @Test
+    public void recordsWhichAreNotNewerAreIgnored() {
+        add(START, 10, 90, 10);
+        add(START + 60, 20, 90, 20);
+        double[] row = new double[ArchiveColumn.values().length];
+        Arrays.fill(row, 100);
+        engine.add(START + 60, row);
+        engine.add(START, row);
+
+        assertThat(engine.getLastDateTime(), is(START + 60));
+        assertValue("speed", 15, engine.getAverages().getSpeed(RollingWindow.TEN_MINUTES));
+        assertValue("gust", 20, engine.getAverages().getMaximumGust(RollingWindow.TEN_MINUTES));
+    }
+
+    @Test
+    public void clearRemovesAllSamples() {
+        add(START, 10, 90, 10);
+        engine.clear();
+        assertThat(engine.getLastDateTime(), is(Long.MIN_VALUE));
+        assertThat(engine.getAverages().getSpeed(RollingWindow.ONE_HOUR), is((State) UnDefType.NULL));
+
+        samples.clear();
+        add(START + 60, 20, 180, 30);
+        assertWindows("cleared");
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.data;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the ranges of the {@link ColumnStore} and the prefix sums behind its sums.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class ColumnStoreTest {
+
+    private static final long DAY = 86400;
+    private static final double DELTA = 1e-9;
+
+    private ColumnStore store;
+
+    @Before
+    public void setUp() {
+        store = new ColumnStore(2);
+        // days 0 to 9 with the values 0 to 9, the second column is missing on odd days
+        for (int day = 0; day < 10; day++) {
+            int index = store.appendRow(day * DAY);
+            store.setValue(0, index, day);
+            store.setValue(1, index, day % 2 == 0 ? -day : Double.NaN);
+        }
+    }
+
+    @Test
+    public void emptyStoreHasNoValues() {
+        ColumnStore empty = new ColumnStore(1);
+        assertThat(empty.isEmpty(), is(true));
+        assertThat(empty.getLastKey(), is(Long.MIN_VALUE));
+        assertTrue(Double.isNaN(empty.getLastValue(0)));
+        assertThat(empty.indexOf(0), is(0));
+        assertEquals(0, empty.sum(0, Long.MIN_VALUE, Long.MAX_VALUE), DELTA);
+        assertTrue(Double.isNaN(empty.min(0, Long.MIN_VALUE, Long.MAX_VALUE)));
+        assertTrue(Double.isNaN(empty.max(0, Long.MIN_VALUE, Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void indexOfReturnsTheFirstKeyNotLower() {
+        assertThat(store.indexOf(Long.MIN_VALUE), is(0));
+        assertThat(store.indexOf(0), is(0));
+        assertThat(store.indexOf(1), is(1));
+        assertThat(store.indexOf(3 * DAY), is(3));
+        assertThat(store.indexOf(9 * DAY), is(9));
+        assertThat(store.indexOf(9 * DAY + 1), is(10));
+    }
+
+    @Test
+    public void rangesIncludeTheStartAndExcludeTheEnd() {
+        assertEquals(2 + 3 + 4, store.sum(0, 2 * DAY, 5 * DAY), DELTA);
+        assertEquals(2, store.min(0, 2 * DAY, 5 * DAY), DELTA);
+        assertEquals(4, store.max(0, 2 * DAY, 5 * DAY), DELTA);
+
+        // keys between the rows
+        assertEquals(3 + 4, store.sum(0, 2 * DAY + 1, 5 * DAY - 1), DELTA);
+        assertEquals(3, store.min(0, 2 * DAY + 1, 5 * DAY - 1), DELTA);
+        assertEquals(4, store.max(0, 2 * DAY + 1, 5 * DAY - 1), DELTA);
+
+        // ranges beyond the rows
+        assertEquals(45, store.sum(0, -DAY, 20 * DAY), DELTA);
+        assertEquals(0, store.min(0, -DAY, 20 * DAY), DELTA);
+        assertEquals(9, store.max(0, -DAY, 20 * DAY), DELTA);
+    }
+
+    @Test
+    public void emptyRangesHaveNoValues() {
+        assertEquals(0, store.sum(0, 3 * DAY, 3 * DAY), DELTA);
+        assertTrue(Double.isNaN(store.min(0, 3 * DAY, 3 * DAY)));
+        assertTrue(Double.isNaN(store.max(0, 3 * DAY, 3 * DAY)));
+
+        assertEquals(0, store.sum(0, 5 * DAY, 2 * DAY), DELTA);
+        assertTrue(Double.isNaN(store.min(0, 20 * DAY, 30 * DAY)));
+        assertTrue(Double.isNaN(store.max(0, -30 * DAY, -20 * DAY)));
+    }
+
+    @Test
+    public void missingValuesAreSkipped() {
+        assertEquals(-(2 + 4), store.sum(1, DAY, 5 * DAY), DELTA);
+        assertEquals(-4, store.min(1, DAY, 5 * DAY), DELTA);
+        assertEquals(-2, store.max(1, DAY, 5 * DAY), DELTA);
+
+        // a range of missing values only
+        assertEquals(0, store.sum(1, 3 * DAY, 4 * DAY), DELTA);
+        assertTrue(Double.isNaN(store.min(1, 3 * DAY, 4 * DAY)));
+        assertTrue(Double.isNaN(store.max(1, 3 * DAY, 4 * DAY)));
+    }
+
+    @Test
+    public void appendingTheLastKeyAgainClearsTheLastRow() {
+        int index = store.appendRow(9 * DAY);
+        assertThat(index, is(9));
+        assertThat(store.size(), is(10));
+        assertTrue(Double.isNaN(store.getLastValue(0)));
+
+        store.setRow(index, new double[] { 19, -19 });
+        assertEquals(19, store.getLastValue(0), DELTA);
+        assertEquals(19, store.max(0, 0, 10 * DAY), DELTA);
+        assertEquals(-19, store.min(1, 0, 10 * DAY), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendingALowerKeyFails() {
+        store.appendRow(8 * DAY);
+    }
+
+    @Test
+    public void rangesSpanTheGrownArrays() {
+        for (int day = 10; day < 2000; day++) {
+            store.setValue(0, store.appendRow(day * DAY), day);
+        }
+        assertThat(store.size(), is(2000));
+        assertThat(store.getLastKey(), is(1999 * DAY));
+        assertEquals(1999L * 2000 / 2, store.sum(0, 0, 2000 * DAY), DELTA);
+        assertEquals(500, store.min(0, 500 * DAY, 1500 * DAY), DELTA);
+        assertEquals(1499, store.max(0, 500 * DAY, 1500 * DAY), DELTA);
+
+        store.clear();
+        assertThat(store.isEmpty(), is(true));
+        assertEquals(0, store.sum(0, 0, 2000 * DAY), DELTA);
+    }
+
+    /**
+     * Returns the sum of a column over a range of rows, summed row by row
+     */
+    private static double sumOfRows(ColumnStore store, int column, int start, int end) {
+        double sum = 0;
+        for (int i = start; i < end; i++) {
+            double value = store.getValue(column, i);
+            if (!Double.isNaN(value)) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    @Test
+    public void sumsFollowUpdatesOfTheLastRow() {
+        assertEquals(45, store.sum(0, 0, 10 * DAY), DELTA);
+
+        // weewx updates the summary of the current day with every record
+        store.setValue(0, 9, 20);
+        assertEquals(56, store.sum(0, 0, 10 * DAY), DELTA);
+        store.setValue(0, store.appendRow(10 * DAY), 1);
+        assertEquals(57, store.sum(0, 0, 11 * DAY), DELTA);
+        assertEquals(21, store.sum(0, 9 * DAY, Long.MAX_VALUE), DELTA);
+    }
+
+    @Test
+    public void sumsFollowUpdatesOfOlderRows() {
+        assertEquals(45, store.sum(0, 0, 10 * DAY), DELTA);
+        assertEquals(-20, store.sum(1, 0, 10 * DAY), DELTA);
+
+        // e.g. a rebuild of the daily summaries by weewx
+        store.setValue(0, 2, 12);
+        store.setRow(5, new double[] { Double.NaN, -5 });
+        assertEquals(45 + 10 - 5, store.sum(0, 0, 10 * DAY), DELTA);
+        assertEquals(1 + 12, store.sum(0, DAY, 3 * DAY), DELTA);
+        assertEquals(-20 - 5, store.sum(1, 0, 10 * DAY), DELTA);
+
+        store.clear();
+        store.setValue(0, store.appendRow(0), 7);
+        assertEquals(7, store.sum(0, 0, DAY), DELTA);
+    }
+
+    @Test
+    public void sumsMatchTheRowsAfterRandomChanges() {
+        Random random = new Random(42);
+        long key = 10 * DAY;
+        for (int step = 0; step < 5000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 4) {
+                store.setValue(0, store.appendRow(key), random.nextInt(100));
+                key += DAY;
+            } else if (operation < 8) {
+                store.setValue(0, store.size() - 1, random.nextBoolean() ? random.nextInt(100) : Double.NaN);
+            } else {
+                store.setValue(0, random.nextInt(store.size()), random.nextInt(100));
+            }
+
+            int start = random.nextInt(store.size() + 1);
+            int end = start + random.nextInt(store.size() + 1 - start);
+            long from = start < store.size() ? store.getKey(start) : Long.MAX_VALUE;
+            long to = end < store.size() ? store.getKey(end) : Long.MAX_VALUE;
+            assertEquals("step " + step, sumOfRows(store, 0, start, end), store.sum(0, from, to), DELTA);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.data;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.time.Month;
+
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.weathervalues.internal.Time;
+import org.openhab.binding.weathervalues.internal.mapping.UnitGroup;
+
+/**
+ * Tests the range totals of {@link Rain}. The daily summary has one millimeter of rain on every day, so every total
+ * is the number of days in its range.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class RainTest {
+
+    private DailySummary dailyRain;
+
+    @Before
+    public void setUp() {
+        dailyRain = new DailySummary("rain", UnitGroup.RAIN);
+    }
+
+    /**
+     * Adds a row with one millimeter for every day from the first day up to the last day, both included
+     */
+    private void addDays(int year, int month, int day, int lastYear, int lastMonth, int lastDay) {
+        long last = Time.toEpochSecond(lastYear, lastMonth, lastDay, 0, 0, 0);
+        for (long start = Time.toEpochSecond(year, month, day, 0, 0, 0); start <= last; start = Time
+                .startOfDay(start, 1)) {
+            dailyRain.setValue(DailySummary.SUM, dailyRain.appendRow(start), 1);
+        }
+    }
+
+    private static void assertRain(double expected, State actual) {
+        assertThat(actual, is(Utility.toState(expected)));
+    }
+
+    @Test
+    public void totalsCountTheDaysOfTheirRanges() {
+        addDays(2015, 1, 1, 2017, 4, 15);
+        // a Saturday in spring
+        Rain rain = new Rain(0.5, dailyRain, new Time(2017, 4, 15, 12, 0, 0));
+
+        assertRain(0.5, rain.getRainRateCurrent());
+        assertRain(1, rain.getRainCurrentDay());
+        // since Monday
+        assertRain(6, rain.getRainCurrentWeek());
+        assertRain(15, rain.getRainCurrentMonth());
+        assertRain(31 + 28 + 31 + 15, rain.getRainCurrentYear());
+        assertRain(31, rain.getRainMonth(Month.JANUARY));
+        assertRain(28, rain.getRainMonth(Month.FEBRUARY));
+        assertThat(rain.getRainMonth(Month.MAY), is(UnDefType.NULL));
+        // 2016 is a leap year
+        assertRain(366, rain.getRainPreviousYear());
+        // from 2016-04-16, as the same day of the previous year is excluded
+        assertRain(365, rain.getRainRolling12Months());
+        assertRain(30, rain.getRainRolling30Days());
+        // the spring starts on the first of March
+        assertRain(31 + 15, rain.getRainSeasonToDate());
+    }
+
+    @Test
+    public void rolling12MonthsOfALeapDay() {
+        addDays(2018, 1, 1, 2020, 2, 29);
+        Rain rain = new Rain(0, dailyRain, new Time(2020, 2, 29, 12, 0, 0));
+
+        // from 2019-03-01, as the 28th of February stands in for the same day of the previous year
+        assertRain(366, rain.getRainRolling12Months());
+        assertRain(29, rain.getRainCurrentMonth());
+        assertRain(31 + 29, rain.getRainCurrentYear());
+        assertRain(31 + 31 + 29, rain.getRainSeasonToDate());
+
+        dailyRain.clear();
+        addDays(2018, 1, 1, 2020, 3, 1);
+        rain = new Rain(0, dailyRain, new Time(2020, 3, 1, 12, 0, 0));
+        // from 2019-03-02
+        assertRain(366, rain.getRainRolling12Months());
+
+        dailyRain.clear();
+        addDays(2018, 1, 1, 2021, 2, 28);
+        rain = new Rain(0, dailyRain, new Time(2021, 2, 28, 12, 0, 0));
+        // from 2020-02-29
+        assertRain(366, rain.getRainRolling12Months());
+    }
+
+    @Test
+    public void winterStartsInThePreviousYear() {
+        addDays(2016, 1, 1, 2017, 1, 20);
+        Rain rain = new Rain(Double.NaN, dailyRain, new Time(2017, 1, 20, 8, 0, 0));
+
+        assertRain(31 + 20, rain.getRainSeasonToDate());
+        assertRain(20, rain.getRainCurrentYear());
+        assertRain(366, rain.getRainPreviousYear());
+        assertRain(30, rain.getRainRolling30Days());
+        assertThat(rain.getRainRateCurrent(), is(UnDefType.NULL));
+    }
+
+    @Test
+    public void seasonsStartOnTheFirstOfTheirMonth() {
+        int[][] seasons = { { 3, 31 + 30 + 31 }, { 6, 30 + 31 + 31 }, { 9, 30 + 31 + 30 } };
+        for (int[] season : seasons) {
+            // up to the last day of the season
+            int lastMonth = season[0] + 2;
+            int lastDay = Month.of(lastMonth).length(true);
+            dailyRain.clear();
+            addDays(2016, 1, 1, 2016, lastMonth, lastDay);
+            Rain rain = new Rain(0, dailyRain, new Time(2016, lastMonth, lastDay, 12, 0, 0));
+            assertRain(season[1], rain.getRainSeasonToDate());
+        }
+    }
+
+    @Test
+    public void missingDaysAreSkipped() {
+        addDays(2017, 3, 1, 2017, 3, 31);
+        // no rain gauge on the last ten days
+        for (int i = 21; i < 31; i++) {
+            dailyRain.setValue(DailySummary.SUM, i, Double.NaN);
+        }
+        Rain rain = new Rain(0, dailyRain, new Time(2017, 3, 31, 12, 0, 0));
+
+        assertRain(21, rain.getRainCurrentMonth());
+        // from the second of March
+        assertRain(20, rain.getRainRolling30Days());
+        assertThat(rain.getRainCurrentDay(), is(UnDefType.NULL));
+    }
+
+    @Test
+    public void emptySummaryHasNoTotals() {
+        Rain rain = new Rain(0, dailyRain, new Time(2017, 4, 15, 12, 0, 0));
+
+        assertRain(0, rain.getRainRateCurrent());
+        assertThat(rain.getRainCurrentDay(), is(UnDefType.NULL));
+        assertThat(rain.getRainCurrentWeek(), is(UnDefType.NULL));
+        assertThat(rain.getRainCurrentYear(), is(UnDefType.NULL));
+        assertThat(rain.getRainPreviousYear(), is(UnDefType.NULL));
+        assertThat(rain.getRainRolling12Months(), is(UnDefType.NULL));
+        assertThat(rain.getRainRolling30Days(), is(UnDefType.NULL));
+        assertThat(rain.getRainSeasonToDate(), is(UnDefType.NULL));
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.data;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.junit.Test;
+
+/**
+ * Tests the description of the pressure tendency of {@link RollingValues} at the edges of its bands.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class RollingValuesTest {
+
+    // the change in mbar and its description when rising, the band edges apply after rounding to 0.1 mbar
+    private static final Object[][] DESCRIPTIONS = { //
+            { 0.0, "Steady" }, //
+            { 0.04, "Steady" }, //
+            { 0.06, "Slowly" }, //
+            { 0.1, "Slowly" }, //
+            { 1.5, "Slowly" }, //
+            { 1.54, "Slowly" }, //
+            { 1.56, "" }, //
+            { 3.5, "" }, //
+            { 3.54, "" }, //
+            { 3.56, "Quickly" }, //
+            { 6.0, "Quickly" }, //
+            { 6.04, "Quickly" }, //
+            { 6.06, "VeryRapidly" }, //
+            { 50.0, "VeryRapidly" } };
+
+    private static State getExpected(String direction, String speed) {
+        return new StringType("Steady".equals(speed) ? speed : direction + speed);
+    }
+
+    @Test
+    public void descriptionsFollowTheBands() {
+        for (Object[] description : DESCRIPTIONS) {
+            double change = (Double) description[0];
+            String speed = (String) description[1];
+            assertThat("rising by " + change, RollingValues.getPressureTendencyDescription(change),
+                    is(getExpected("Rising", speed)));
+            assertThat("falling by " + change, RollingValues.getPressureTendencyDescription(-change),
+                    is(getExpected("Falling", speed)));
+        }
+    }
+
+    @Test
+    public void missingTendencyHasNoDescription() {
+        assertThat(RollingValues.getPressureTendencyDescription(Double.NaN), is((State) UnDefType.NULL));
+        assertThat(new RollingValues(new double[0], Double.NaN).getPressureTendencyDescription(),
+                is((State) UnDefType.NULL));
+    }
+
+    @Test
+    public void valuesHoldTheDescriptionOfTheirTendency() {
+        RollingValues values = new RollingValues(new double[0], -2.345);
+        assertThat(values.getPressureTendency(), is(Utility.toState(-2.345)));
+        assertThat(values.getPressureTendencyDescription(), is((State) new StringType("Falling")));
+    }
+}
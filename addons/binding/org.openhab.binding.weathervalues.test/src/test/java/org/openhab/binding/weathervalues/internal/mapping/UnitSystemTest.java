@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.mapping;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that archive rows of the same weather in each {@link UnitSystem} are read as the same values in the units of
+ * the channels.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class UnitSystemTest {
+
+    private static final double DELTA = 1e-6;
+
+    private Connection connection;
+    private MappingPlan plan;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE archive (dateTime INTEGER NOT NULL UNIQUE PRIMARY KEY, "
+                    + "usUnits INTEGER NOT NULL, interval INTEGER NOT NULL, barometer REAL, outTemp REAL, "
+                    + "windSpeed REAL, windGust REAL, rainRate REAL)");
+            // 1013.25 mbar, 20 degree Celsius, 36 km/h, 54 km/h and 2.54 mm per hour
+            statement.execute("INSERT INTO archive VALUES (1, " + UnitSystem.US.getCode()
+                    + ", 5, 29.9212524, 68, 22.3693629, 33.5540444, 0.1)");
+            statement.execute("INSERT INTO archive VALUES (2, " + UnitSystem.METRIC.getCode()
+                    + ", 5, 1013.25, 20, 36, 54, 0.254)");
+            statement.execute("INSERT INTO archive VALUES (3, " + UnitSystem.METRICWX.getCode()
+                    + ", 5, 1013.25, 20, 10, 15, 2.54)");
+        }
+        plan = ArchiveColumn.createPlan(new HashSet<>(Arrays.asList("dateTime", "usUnits", "interval", "barometer",
+                "outTemp", "windSpeed", "windGust", "rainRate")));
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void rowsOfEveryUnitSystemAreReadInTheSameUnits() throws SQLException {
+        double[][] records = new double[3][plan.getNumberOfColumns()];
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(plan.getSelect() + " ORDER BY dateTime")) {
+            for (double[] record : records) {
+                assertTrue(resultSet.next());
+                // the unit system of the database must not matter, every row has its own
+                plan.read(resultSet, record, UnitSystem.METRICWX);
+            }
+        }
+
+        for (double[] record : records) {
+            assertEquals(36, record[ArchiveColumn.WIND_SPEED.ordinal()], DELTA);
+            assertEquals(54, record[ArchiveColumn.WIND_GUST.ordinal()], DELTA);
+            assertEquals(20, record[ArchiveColumn.OUT_TEMP.ordinal()], DELTA);
+            assertEquals(1013.25, record[ArchiveColumn.BAROMETER.ordinal()], 1e-3);
+            assertEquals(2.54, record[ArchiveColumn.RAIN_RATE.ordinal()], DELTA);
+            assertTrue(Double.isNaN(record[ArchiveColumn.OUT_HUMIDITY.ordinal()]));
+        }
+    }
+
+    @Test
+    public void speedsAreConvertedToKilometersPerHour() {
+        assertEquals(1.609344, UnitGroup.SPEED.convert(1, UnitSystem.US), DELTA);
+        assertEquals(1, UnitGroup.SPEED.convert(1, UnitSystem.METRIC), DELTA);
+        assertEquals(3.6, UnitGroup.SPEED.convert(1, UnitSystem.METRICWX), DELTA);
+    }
+}
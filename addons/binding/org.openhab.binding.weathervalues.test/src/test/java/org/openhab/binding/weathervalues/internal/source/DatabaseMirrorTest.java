@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.source;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.binding.weathervalues.internal.HttpStandIn;
+import org.openhab.binding.weathervalues.internal.WeewxDatabase;
+
+/**
+ * Tests the synchronization of the {@link DatabaseMirror} against a database written the way weewx writes it.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class DatabaseMirrorTest {
+
+    private static final String DB_NAME = "weewx.sdb";
+    private static final int INTERVAL = 300;
+    private static final int RECORDS_PER_DAY = 86400 / INTERVAL;
+    private static final long START = 1483228800L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WeewxDatabase database;
+    private HttpStandIn server;
+    private DatabaseMirror mirror;
+    private long dateTime = START;
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        File www = folder.newFolder("www");
+        database = new WeewxDatabase(new File(www, DB_NAME), WeewxDatabase.US);
+        dateTime = database.addRecords(dateTime, RECORDS_PER_DAY, INTERVAL, true);
+        server = new HttpStandIn(www);
+        mirror = newMirror();
+
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+        server.takeSentBytes();
+        server.takeRequests();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+        database.close();
+    }
+
+    @Test
+    public void unchangedDatabaseCostsNoTransfer() throws Exception {
+        assertThat(mirror.sync(), is(false));
+        assertThat(server.takeSentBytes(), is(0L));
+        assertThat(server.takeRequests(), is(1L));
+    }
+
+    @Test
+    public void transferOfARecordDoesNotGrowWithTheDatabase() throws Exception {
+        long firstTransfer = syncRecord();
+
+        long transfer = 0;
+        for (int month = 0; month < 6; month++) {
+            dateTime = database.addRecords(dateTime, 30 * RECORDS_PER_DAY, INTERVAL, true);
+            assertThat(mirror.sync(), is(true));
+            assertMirrored();
+            server.takeSentBytes();
+
+            // the right-most path of each b-tree
+            transfer = syncRecord();
+            assertTrue(transfer < 2 * firstTransfer);
+        }
+        assertTrue(transfer < database.getFile().length() / 50);
+    }
+
+    @Test
+    public void appendedPagesAreSynchronized() throws Exception {
+        for (int i = 0; i < 3 * RECORDS_PER_DAY; i++) {
+            dateTime = database.addRecords(dateTime, 1, INTERVAL);
+            if (i % 37 == 0) {
+                assertThat(mirror.sync(), is(true));
+                assertMirrored();
+            }
+        }
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+    }
+
+    @Test
+    public void rowUpdatedInPlaceIsSynchronized() throws Exception {
+        dateTime = database.addRecords(dateTime, 10 * RECORDS_PER_DAY, INTERVAL, true);
+        assertThat(mirror.sync(), is(true));
+
+        // a leaf in the middle of the b-tree changes, its parent does not
+        database.execute("UPDATE archive_day_outTemp SET max = 99.5 WHERE dateTime = " + (START + 86400));
+        database.execute("UPDATE archive SET outTemp = -12.5 WHERE dateTime = " + (START + 3 * 86400));
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+
+        // the next record is synchronized page by page again
+        server.takeSentBytes();
+        dateTime = database.addRecords(dateTime, 1, INTERVAL);
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+        assertTrue(server.takeSentBytes() < database.getFile().length() / 2);
+    }
+
+    @Test
+    public void rowInsertedBeforeTheLatestRecordIsSynchronized() throws Exception {
+        dateTime = database.addRecords(dateTime, 10 * RECORDS_PER_DAY, INTERVAL, true);
+        assertThat(mirror.sync(), is(true));
+
+        database.execute("INSERT INTO archive (dateTime, usUnits, interval, outTemp) VALUES (" + (START + 86400 + 1)
+                + ", 1, 5, 20.0)");
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+    }
+
+    @Test
+    public void balancedPagesAreSynchronized() throws Exception {
+        dateTime = database.addRecords(dateTime, 10 * RECORDS_PER_DAY, INTERVAL, true);
+        assertThat(mirror.sync(), is(true));
+
+        // deleting older rows together with the new record redistributes the cells between the leaves
+        database.addRecord(dateTime, INTERVAL,
+                "DELETE FROM archive WHERE dateTime BETWEEN " + (dateTime - 200 * INTERVAL) + " AND "
+                        + (dateTime - 2 * INTERVAL));
+        dateTime += INTERVAL;
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+    }
+
+    @Test
+    public void overflowPagesAreSynchronized() throws Exception {
+        database.addRecord(dateTime, INTERVAL,
+                "INSERT INTO archive_day__metadata VALUES ('note', '" + repeat('a', 20000) + "')");
+        dateTime += INTERVAL;
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+
+        database.addRecord(dateTime, INTERVAL,
+                "UPDATE archive_day__metadata SET value = '" + repeat('b', 30000) + "' WHERE name = 'note'");
+        dateTime += INTERVAL;
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+    }
+
+    @Test
+    public void serverWithoutRangeSupportIsDownloaded() throws Exception {
+        server.setRangeSupported(false);
+        dateTime = database.addRecords(dateTime, 1, INTERVAL);
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+
+        dateTime = database.addRecords(dateTime, 1, INTERVAL);
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+        assertThat(mirror.sync(), is(false));
+    }
+
+    @Test
+    public void unchangedCompressedCopyDoesNotStopADownload() throws Exception {
+        writeCompressedCopy();
+        mirror = newMirror();
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+
+        database.execute("UPDATE archive SET outTemp = -12.5 WHERE dateTime = " + START);
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+    }
+
+    @Test
+    public void laggingCompressedCopyIsNotDownloadedAgain() throws Exception {
+        writeCompressedCopy();
+        mirror = newMirror();
+        assertThat(mirror.sync(), is(true));
+        dateTime = database.addRecords(dateTime, 1, INTERVAL);
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+
+        // the compressed copy is modified, but lags behind the database
+        database.execute("UPDATE archive SET outTemp = -12.5 WHERE dateTime = " + START);
+        writeCompressedCopy();
+        database.execute("UPDATE archive SET outTemp = -13.5 WHERE dateTime = " + START);
+        assertThat(mirror.sync(), is(true));
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+        assertThat(mirror.sync(), is(false));
+    }
+
+    @Test
+    public void compressedCopyIsNotUsedForConditionalDownloads() throws Exception {
+        server.setRangeSupported(false);
+        writeCompressedCopy();
+        dateTime = database.addRecords(dateTime, 1, INTERVAL);
+        mirror = newMirror();
+        assertThat(mirror.sync(), is(true));
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+        assertThat(mirror.sync(), is(false));
+
+        dateTime = database.addRecords(dateTime, 1, INTERVAL);
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+    }
+
+    private DatabaseMirror newMirror() throws IOException {
+        return new DatabaseMirror(server.getHost(), DB_NAME, folder.newFolder());
+    }
+
+    private void writeCompressedCopy() throws IOException {
+        File copy = new File(database.getFile().getPath() + ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(copy.toPath()))) {
+            Files.copy(database.getFile().toPath(), out);
+        }
+    }
+
+    private long syncRecord() throws Exception {
+        server.takeSentBytes();
+        dateTime = database.addRecords(dateTime, 1, INTERVAL);
+        assertThat(mirror.sync(), is(true));
+        assertMirrored();
+        return server.takeSentBytes();
+    }
+
+    private void assertMirrored() throws IOException {
+        assertArrayEquals(Files.readAllBytes(database.getFile().toPath()),
+                Files.readAllBytes(mirror.getFile().toPath()));
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.source;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests how the {@link DatabaseWatcher} coalesces the changes of a database in a temporary directory into
+ * notifications.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class DatabaseWatcherTest {
+
+    private static final String DB_NAME = "weewx.sdb";
+    private static final long TIMEOUT = 10;
+    // longer than the debounce delay, so a notification would have been sent
+    private static final long QUIET_TIME = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private ScheduledExecutorService scheduler;
+    private final Semaphore notifications = new Semaphore(0);
+    private DatabaseWatcher watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder("weewx");
+        append(DB_NAME);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        watcher = new DatabaseWatcher(new File(directory, DB_NAME), scheduler, notifications::release);
+        watcher.start();
+    }
+
+    @After
+    public void tearDown() {
+        watcher.stop();
+        scheduler.shutdownNow();
+    }
+
+    private void append(String fileName) throws IOException {
+        try (OutputStream stream = new FileOutputStream(new File(directory, fileName), true)) {
+            stream.write(new byte[1024]);
+        }
+    }
+
+    private void assertNotified() throws InterruptedException {
+        assertTrue("listener has not been notified", notifications.tryAcquire(TIMEOUT, TimeUnit.SECONDS));
+        // and only once
+        assertThat(notifications.tryAcquire(QUIET_TIME, TimeUnit.MILLISECONDS), is(false));
+    }
+
+    private void assertNotNotified() throws InterruptedException {
+        assertThat(notifications.tryAcquire(QUIET_TIME, TimeUnit.MILLISECONDS), is(false));
+    }
+
+    @Test
+    public void burstOfChangesIsNotifiedOnce() throws Exception {
+        // a commit writes the log, the journal and the database within a few milliseconds of each other
+        for (int i = 0; i < 10; i++) {
+            append(DB_NAME + "-wal");
+            append(DB_NAME + "-journal");
+            append(DB_NAME);
+            Thread.sleep(20);
+        }
+        assertNotified();
+
+        // the next commit is notified again
+        append(DB_NAME);
+        assertNotified();
+    }
+
+    @Test
+    public void logAndJournalAreWatched() throws Exception {
+        append(DB_NAME + "-wal");
+        assertNotified();
+        append(DB_NAME + "-journal");
+        assertNotified();
+    }
+
+    @Test
+    public void otherFilesAreIgnored() throws Exception {
+        // the shared memory file of the log is written by every reader as well
+        append(DB_NAME + "-shm");
+        append("other.sdb");
+        append("other.sdb-wal");
+        append("weewx.sdb.bak");
+        assertNotNotified();
+    }
+
+    @Test
+    public void stopCancelsThePendingNotification() throws Exception {
+        append(DB_NAME);
+        // seen by the watcher, but shorter than the debounce delay
+        Thread.sleep(50);
+        watcher.stop();
+        assertNotNotified();
+
+        append(DB_NAME);
+        assertNotNotified();
+    }
+
+    @Test
+    public void watcherCanBeStartedAgain() throws Exception {
+        watcher.stop();
+        watcher.stop();
+        watcher.start();
+        watcher.start();
+        append(DB_NAME);
+        assertNotified();
+    }
+}
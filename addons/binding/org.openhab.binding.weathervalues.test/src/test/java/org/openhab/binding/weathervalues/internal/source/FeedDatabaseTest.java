@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.source;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openhab.binding.weathervalues.internal.HttpStandIn;
+
+/**
+ * Tests which rows the {@link FeedDatabase} requests from the feed of the weewx-feed exporter.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class FeedDatabaseTest {
+
+    private static final String TEMPERATURE_TABLE = "archive_day_outTemp";
+    private static final String RAIN_TABLE = "archive_day_rain";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File www;
+    private HttpStandIn server;
+    private FeedDatabase feed;
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        www = folder.newFolder("www");
+        server = new HttpStandIn(www);
+        feed = new FeedDatabase(server.getHost(), "weewx.sdb", folder.newFolder("replica"),
+                Arrays.asList(TEMPERATURE_TABLE, RAIN_TABLE));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void emptyReplicaRequestsEveryTableFromItsStart() throws Exception {
+        writeFeed("{\"table\":\"archive\",\"columns\":[\"dateTime\",\"usUnits\",\"interval\",\"outTemp\"]}",
+                "[1500000000,1,5,68.2]");
+
+        assertThat(feed.sync(), is(true));
+        assertThat(getLastQuery(), containsString("since=0&"));
+        assertThat(getLastQuery(), containsString("tables=" + TEMPERATURE_TABLE + ":0," + RAIN_TABLE + ":0"));
+    }
+
+    @Test
+    public void tableMissingInTheReplicaDoesNotRestartTheOtherTables() throws Exception {
+        // the rain table is empty in weewx, so the feed has no rows of it
+        writeFeed("{\"table\":\"archive\",\"columns\":[\"dateTime\",\"usUnits\",\"interval\",\"outTemp\"]}",
+                "[1500000000,1,5,68.2]", "[1500000300,1,5,68.4]",
+                "{\"table\":\"" + TEMPERATURE_TABLE + "\",\"columns\":[\"dateTime\",\"min\",\"max\"]}",
+                "[1499904000,59.0,71.5]", "[1499990400,60.1,70.2]");
+        assertThat(feed.sync(), is(true));
+
+        writeFeed("{\"table\":\"archive\",\"columns\":[\"dateTime\",\"usUnits\",\"interval\",\"outTemp\"]}",
+                "[1500000600,1,5,68.6]",
+                "{\"table\":\"" + TEMPERATURE_TABLE + "\",\"columns\":[\"dateTime\",\"min\",\"max\"]}",
+                "[1499990400,60.1,70.2]");
+        assertThat(feed.sync(), is(true));
+        assertThat(getLastQuery(), containsString("since=1500000300&"));
+        assertThat(getLastQuery(), containsString("tables=" + TEMPERATURE_TABLE + ":1499990400," + RAIN_TABLE + ":0"));
+
+        assertThat(feed.sync(), is(true));
+        assertThat(getLastQuery(), containsString("since=1500000600&"));
+        assertThat(getLastQuery(), containsString("tables=" + TEMPERATURE_TABLE + ":1499990400," + RAIN_TABLE + ":0"));
+    }
+
+    private void writeFeed(String... lines) throws IOException {
+        Files.write(new File(www, "feed").toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private String getLastQuery() throws IOException {
+        return URLDecoder.decode(server.getLastQuery(), StandardCharsets.UTF_8.name());
+    }
+}
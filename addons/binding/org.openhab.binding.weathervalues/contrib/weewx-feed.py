@@ -0,0 +1,184 @@
+#!/usr/bin/env python
+#
+# Copyright (c) 2010-2017 by the respective copyright holders.
+#
+# All rights reserved. This program and the accompanying materials
+# are made available under the terms of the Eclipse Public License v1.0
+# which accompanies this distribution, and is available at
+# http://www.eclipse.org/legal/epl-v10.html
+#
+"""Row feed exporter of a weewx SQLite database for the WeatherValues binding.
+
+Runs next to weewx and answers GET /feed with the rows which are newer than the
+last rows the binding has already read, so a refresh transfers a few hundred
+bytes instead of the whole database.
+
+Query parameters:
+  since      archive rows with a dateTime greater than this are returned
+  tables     comma separated archive_day_* tables to return, each followed by
+             a colon and the last dateTime the binding has of it. Rows with a
+             dateTime greater than or equal to this are returned, as the
+             summary of the current day is updated. A table without a
+             dateTime is returned from its start.
+  limit      maximum number of archive rows, the newest ones are returned
+
+The answer is 204 No Content if since is set and there is no newer archive
+record. Otherwise it is newline delimited JSON, a header object per table
+followed by one array of values per row:
+
+  {"table":"archive","columns":["dateTime","usUnits","interval","outTemp"]}
+  [1500000300,1,5,68.2]
+
+Usage: weewx-feed.py --database /var/lib/weewx/weewx.sdb [--bind 127.0.0.1] [--port 8090]
+
+The exporter listens on the loopback interface by default. The feed has no
+authentication, so only bind it to another address, e.g. --bind 0.0.0.0, if
+the network in between is trusted.
+
+Works with Python 2.7 and Python 3. The database is opened read-only with
+Python 3. The sqlite3 module of Python 2 can not open a file read-only, so the
+file is opened for reading and writing there, but the connection is made query
+only, which rejects any statement that would change the database.
+"""
+
+import argparse
+import json
+import os
+import re
+import sqlite3
+import sys
+
+try:
+    from BaseHTTPServer import BaseHTTPRequestHandler, HTTPServer
+    from urllib import pathname2url
+    from urlparse import parse_qs, urlparse
+except ImportError:
+    from http.server import BaseHTTPRequestHandler, HTTPServer
+    from urllib.parse import parse_qs, urlparse
+    from urllib.request import pathname2url
+
+DAILY_TABLE = re.compile(r"^archive_day_[A-Za-z0-9_]+$")
+DEFAULT_LIMIT = 2000
+
+
+def connect(database):
+    if sys.version_info[0] >= 3:
+        return sqlite3.connect("file:%s?mode=ro" % pathname2url(os.path.abspath(database)), uri=True)
+    connection = sqlite3.connect(database)
+    connection.execute("PRAGMA query_only = ON")
+    return connection
+
+
+def existing_tables(connection):
+    cursor = connection.execute("SELECT name FROM sqlite_master WHERE type = 'table'")
+    return set(row[0] for row in cursor)
+
+
+def write_table(out, cursor, table):
+    columns = [description[0] for description in cursor.description]
+    header = True
+    for row in cursor:
+        if header:
+            out.append(json.dumps({"table": table, "columns": columns}, separators=(",", ":")))
+            header = False
+        out.append(json.dumps(list(row), separators=(",", ":")))
+
+
+def create_feed(connection, since, tables, limit):
+    """Returns the lines of the feed, or None if there is no newer archive record.
+
+    The daily summaries are written with every archive record, so they have no
+    newer rows either then. A table the binding has not received yet, e.g. as
+    it was empty, is sent with the next archive record.
+    """
+    out = []
+    cursor = connection.execute(
+        "SELECT * FROM (SELECT * FROM archive WHERE dateTime > ? ORDER BY dateTime DESC LIMIT ?) "
+        "ORDER BY dateTime", (since, limit))
+    write_table(out, cursor, "archive")
+    if not out and since > 0:
+        return None
+    existing = existing_tables(connection)
+    for table, day_since in tables:
+        if DAILY_TABLE.match(table) and table in existing:
+            cursor = connection.execute(
+                "SELECT * FROM %s WHERE dateTime >= ? ORDER BY dateTime" % table, (day_since,))
+            write_table(out, cursor, table)
+    return out
+
+
+def parse_tables(values):
+    """Returns the requested tables as pairs of the name and the dateTime to start from."""
+    tables = []
+    for value in values:
+        for entry in value.split(","):
+            if entry:
+                table, _, day_since = entry.partition(":")
+                tables.append((table, int(day_since or "0")))
+    return tables
+
+
+class FeedHandler(BaseHTTPRequestHandler):
+
+    database = None
+
+    def do_GET(self):
+        url = urlparse(self.path)
+        if url.path != "/feed":
+            self.send_error(404)
+            return
+        query = parse_qs(url.query)
+        try:
+            since = int(query.get("since", ["0"])[0])
+            limit = int(query.get("limit", [str(DEFAULT_LIMIT)])[0])
+            tables = parse_tables(query.get("tables", []))
+        except ValueError:
+            self.send_error(400)
+            return
+
+        try:
+            connection = connect(self.database)
+        except sqlite3.Error as e:
+            self.send_error(500, str(e))
+            return
+        try:
+            lines = create_feed(connection, since, tables, limit)
+        except sqlite3.Error as e:
+            self.send_error(500, str(e))
+            return
+        finally:
+            connection.close()
+
+        if lines is None:
+            self.send_response(204)
+            self.end_headers()
+            return
+        body = ("\n".join(lines) + "\n").encode("utf-8") if lines else b""
+        self.send_response(200)
+        self.send_header("Content-Type", "application/x-ndjson")
+        self.send_header("Content-Length", str(len(body)))
+        self.end_headers()
+        self.wfile.write(body)
+
+    def log_message(self, format, *args):
+        pass
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Row feed exporter of a weewx database")
+    parser.add_argument("--database", required=True, help="path of the weewx SQLite database")
+    parser.add_argument("--bind", default="127.0.0.1", help="address to listen on, the loopback interface by default")
+    parser.add_argument("--port", type=int, default=8090, help="port to listen on")
+    args = parser.parse_args()
+
+    FeedHandler.database = args.database
+    server = HTTPServer((args.bind, args.port), FeedHandler)
+    try:
+        server.serve_forever()
+    except KeyboardInterrupt:
+        pass
+    server.server_close()
+
+
+if __name__ == "__main__":
+    main()
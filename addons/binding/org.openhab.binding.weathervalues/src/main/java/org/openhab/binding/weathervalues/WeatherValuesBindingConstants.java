@@ -25,7 +25,21 @@ public class WeatherValuesBindingConstants {
 
     public static final String DEVICE_PARAMETER_HOST = "DEVICE_HOST";
     public static final String DEVICE_PARAMETER_DB_NAME = "DEVICE_DB_NAME";
+    public static final String DEVICE_PARAMETER_MODE = "DEVICE_MODE";
     public static final String DEVICE_PARAMETER_REFRESH = "REFRESH_INTERVAL";
+    public static final String DEVICE_PARAMETER_PUBLISH_MAX_AGE = "PUBLISH_MAX_AGE";
+    public static final String DEVICE_PARAMETER_ADAPTIVE_POLLING = "ADAPTIVE_POLLING";
+    public static final String DEVICE_PARAMETER_BACKFILL_SERVICE = "BACKFILL_SERVICE";
+
+    public static final String DEVICE_MODE_HTTP = "http";
+    public static final String DEVICE_MODE_FILE = "file";
+    public static final String DEVICE_MODE_FEED = "feed";
+
+    public static final long DEFAULT_PUBLISH_MAX_AGE = 60;
+
+    public static final String CHANNEL_PARAMETER_DEADBAND = "deadband";
+
+    public static final String PROPERTY_BACKFILL = "backfill";
 
     // List of all Channel ids
     public final static String CHANNEL_BAROMETER = "barometer";
@@ -34,14 +48,68 @@ public class WeatherValuesBindingConstants {
     public final static String CHANNEL_OUTSIDE_TEMP_DAY_MIN_TIME = "outsideTemperatureDayMinTime";
     public final static String CHANNEL_OUTSIDE_TEMP_DAY_MAX = "outsideTemperatureDayMax";
     public final static String CHANNEL_OUTSIDE_TEMP_DAY_MAX_TIME = "outsideTemperatureDayMaxTime";
+    public final static String CHANNEL_OUTSIDE_TEMP_MONTH_MIN = "outsideTemperatureMonthMin";
+    public final static String CHANNEL_OUTSIDE_TEMP_MONTH_MAX = "outsideTemperatureMonthMax";
+    public final static String CHANNEL_OUTSIDE_TEMP_YEAR_MIN = "outsideTemperatureYearMin";
+    public final static String CHANNEL_OUTSIDE_TEMP_YEAR_MAX = "outsideTemperatureYearMax";
     public final static String CHANNEL_OUTSIDE_HUMIDITY = "outsideHumidity";
+    public final static String CHANNEL_OUTSIDE_HUMIDITY_DAY_MIN = "outsideHumidityDayMin";
+    public final static String CHANNEL_OUTSIDE_HUMIDITY_DAY_MAX = "outsideHumidityDayMax";
+    public final static String CHANNEL_BAROMETER_MONTH_MIN = "barometerMonthMin";
+    public final static String CHANNEL_BAROMETER_MONTH_MAX = "barometerMonthMax";
     public final static String CHANNEL_WIND_SPEED = "windSpeed";
     public final static String CHANNEL_WIND_DIRECTION = "windDirection";
+    public final static String CHANNEL_WIND_GUST_DAY_MAX = "windGustDayMax";
+    public final static String CHANNEL_WIND_GUST_WEEK_MAX = "windGustWeekMax";
+    public final static String CHANNEL_WIND_GUST_MONTH_MAX = "windGustMonthMax";
+    public final static String CHANNEL_WIND_SPEED_AVERAGE_10_MINUTES = "windSpeedAverage10Minutes";
+    public final static String CHANNEL_WIND_SPEED_AVERAGE_1_HOUR = "windSpeedAverage1Hour";
+    public final static String CHANNEL_WIND_DIRECTION_AVERAGE_10_MINUTES = "windDirectionAverage10Minutes";
+    public final static String CHANNEL_WIND_DIRECTION_AVERAGE_1_HOUR = "windDirectionAverage1Hour";
+    public final static String CHANNEL_WIND_COMPASS_AVERAGE_10_MINUTES = "windCompassAverage10Minutes";
+    public final static String CHANNEL_WIND_COMPASS_AVERAGE_1_HOUR = "windCompassAverage1Hour";
+    public final static String CHANNEL_WIND_DIRECTION_VARIABILITY_10_MINUTES = "windDirectionVariability10Minutes";
+    public final static String CHANNEL_WIND_DIRECTION_VARIABILITY_1_HOUR = "windDirectionVariability1Hour";
+    public final static String CHANNEL_WIND_GUST_MAX_10_MINUTES = "windGustMax10Minutes";
+    public final static String CHANNEL_WIND_GUST_MAX_1_HOUR = "windGustMax1Hour";
+    public final static String CHANNEL_OUTSIDE_TEMP_MIN_1_HOUR = "outsideTemperatureMin1Hour";
+    public final static String CHANNEL_OUTSIDE_TEMP_MAX_1_HOUR = "outsideTemperatureMax1Hour";
+    public final static String CHANNEL_OUTSIDE_TEMP_AVERAGE_1_HOUR = "outsideTemperatureAverage1Hour";
+    public final static String CHANNEL_OUTSIDE_TEMP_MIN_3_HOURS = "outsideTemperatureMin3Hours";
+    public final static String CHANNEL_OUTSIDE_TEMP_MAX_3_HOURS = "outsideTemperatureMax3Hours";
+    public final static String CHANNEL_OUTSIDE_TEMP_AVERAGE_3_HOURS = "outsideTemperatureAverage3Hours";
+    public final static String CHANNEL_OUTSIDE_TEMP_MIN_24_HOURS = "outsideTemperatureMin24Hours";
+    public final static String CHANNEL_OUTSIDE_TEMP_MAX_24_HOURS = "outsideTemperatureMax24Hours";
+    public final static String CHANNEL_OUTSIDE_TEMP_AVERAGE_24_HOURS = "outsideTemperatureAverage24Hours";
+    public final static String CHANNEL_OUTSIDE_HUMIDITY_MIN_1_HOUR = "outsideHumidityMin1Hour";
+    public final static String CHANNEL_OUTSIDE_HUMIDITY_MAX_1_HOUR = "outsideHumidityMax1Hour";
+    public final static String CHANNEL_OUTSIDE_HUMIDITY_AVERAGE_1_HOUR = "outsideHumidityAverage1Hour";
+    public final static String CHANNEL_OUTSIDE_HUMIDITY_MIN_3_HOURS = "outsideHumidityMin3Hours";
+    public final static String CHANNEL_OUTSIDE_HUMIDITY_MAX_3_HOURS = "outsideHumidityMax3Hours";
+    public final static String CHANNEL_OUTSIDE_HUMIDITY_AVERAGE_3_HOURS = "outsideHumidityAverage3Hours";
+    public final static String CHANNEL_OUTSIDE_HUMIDITY_MIN_24_HOURS = "outsideHumidityMin24Hours";
+    public final static String CHANNEL_OUTSIDE_HUMIDITY_MAX_24_HOURS = "outsideHumidityMax24Hours";
+    public final static String CHANNEL_OUTSIDE_HUMIDITY_AVERAGE_24_HOURS = "outsideHumidityAverage24Hours";
+    public final static String CHANNEL_BAROMETER_MIN_1_HOUR = "barometerMin1Hour";
+    public final static String CHANNEL_BAROMETER_MAX_1_HOUR = "barometerMax1Hour";
+    public final static String CHANNEL_BAROMETER_AVERAGE_1_HOUR = "barometerAverage1Hour";
+    public final static String CHANNEL_BAROMETER_MIN_3_HOURS = "barometerMin3Hours";
+    public final static String CHANNEL_BAROMETER_MAX_3_HOURS = "barometerMax3Hours";
+    public final static String CHANNEL_BAROMETER_AVERAGE_3_HOURS = "barometerAverage3Hours";
+    public final static String CHANNEL_BAROMETER_MIN_24_HOURS = "barometerMin24Hours";
+    public final static String CHANNEL_BAROMETER_MAX_24_HOURS = "barometerMax24Hours";
+    public final static String CHANNEL_BAROMETER_AVERAGE_24_HOURS = "barometerAverage24Hours";
+    public final static String CHANNEL_BAROMETER_TENDENCY_3_HOURS = "barometerTendency3Hours";
+    public final static String CHANNEL_BAROMETER_TENDENCY_DESCRIPTION = "barometerTendencyDescription";
     public final static String CHANNEL_RAIN_RATE = "rainRate";
     public final static String CHANNEL_RAIN_CURRENT_DAY = "rainCurrentDay";
     public final static String CHANNEL_RAIN_CURRENT_WEEK = "rainCurrentWeek";
     public final static String CHANNEL_RAIN_CURRENT_MONTH = "rainCurrentMonth";
     public final static String CHANNEL_RAIN_CURRENT_YEAR = "rainCurrentYear";
+    public final static String CHANNEL_RAIN_PREVIOUS_YEAR = "rainPreviousYear";
+    public final static String CHANNEL_RAIN_ROLLING_12_MONTHS = "rainRolling12Months";
+    public final static String CHANNEL_RAIN_ROLLING_30_DAYS = "rainRolling30Days";
+    public final static String CHANNEL_RAIN_SEASON_TO_DATE = "rainSeasonToDate";
     public final static String CHANNEL_RAIN_MONTH1 = "rainJanuary";
     public final static String CHANNEL_RAIN_MONTH2 = "rainFebruary";
     public final static String CHANNEL_RAIN_MONTH3 = "rainMarch";
@@ -54,4 +122,10 @@ public class WeatherValuesBindingConstants {
     public final static String CHANNEL_RAIN_MONTH10 = "rainOctober";
     public final static String CHANNEL_RAIN_MONTH11 = "rainNovember";
     public final static String CHANNEL_RAIN_MONTH12 = "rainDecember";
+    public final static String CHANNEL_DIAGNOSTIC_DOWNLOAD_TIME = "diagnosticDownloadTime";
+    public final static String CHANNEL_DIAGNOSTIC_DOWNLOADED_BYTES = "diagnosticDownloadedBytes";
+    public final static String CHANNEL_DIAGNOSTIC_QUERY_TIME = "diagnosticQueryTime";
+    public final static String CHANNEL_DIAGNOSTIC_DISPATCH_TIME = "diagnosticDispatchTime";
+    public final static String CHANNEL_DIAGNOSTIC_RECORD_AGE = "diagnosticRecordAge";
+    public final static String CHANNEL_BACKFILL = "backfill";
 }
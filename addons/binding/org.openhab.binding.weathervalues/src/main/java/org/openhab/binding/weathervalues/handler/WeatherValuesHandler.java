@@ -10,17 +10,45 @@ package org.openhab.binding.weathervalues.handler;
 
 import static org.openhab.binding.weathervalues.WeatherValuesBindingConstants.*;
 
+import java.io.File;
 import java.math.BigDecimal;
 import java.time.Month;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.persistence.ModifiablePersistenceService;
+import org.eclipse.smarthome.core.thing.Channel;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandler;
 import org.eclipse.smarthome.core.types.Command;
+import org.eclipse.smarthome.core.types.RefreshType;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.openhab.binding.weathervalues.internal.BackfillServices;
+import org.openhab.binding.weathervalues.internal.HistoryBackfill;
+import org.openhab.binding.weathervalues.internal.RefreshStatistics;
+import org.openhab.binding.weathervalues.internal.RefreshStatistics.Metric;
 import org.openhab.binding.weathervalues.internal.SQLReaderListener;
 import org.openhab.binding.weathervalues.internal.SQLiteReader;
+import org.openhab.binding.weathervalues.internal.SQLiteReaderRegistry;
+import org.openhab.binding.weathervalues.internal.StatePublisher;
+import org.openhab.binding.weathervalues.internal.WeatherSnapshot;
+import org.openhab.binding.weathervalues.internal.data.OutdoorClimate;
+import org.openhab.binding.weathervalues.internal.data.Rain;
+import org.openhab.binding.weathervalues.internal.data.RollingValues;
+import org.openhab.binding.weathervalues.internal.data.SummaryValues;
+import org.openhab.binding.weathervalues.internal.data.Wind;
+import org.openhab.binding.weathervalues.internal.data.WindAverages;
+import org.openhab.binding.weathervalues.internal.mapping.RollingStatistic;
+import org.openhab.binding.weathervalues.internal.mapping.RollingWindow;
+import org.openhab.binding.weathervalues.internal.mapping.SummaryStatistic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,12 +60,28 @@ import org.slf4j.LoggerFactory;
  */
 public class WeatherValuesHandler extends BaseThingHandler implements SQLReaderListener {
 
+    // the time for the last batch of a cancelled backfill to be saved before another one is started
+    private static final long BACKFILL_TERMINATION_TIMEOUT = 30000;
+    // every update of the Thing properties stores the Thing, so the statistics are updated at most once a minute
+    private static final long DIAGNOSTIC_PROPERTIES_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
     private Logger logger = LoggerFactory.getLogger(WeatherValuesHandler.class);
 
-    private SQLiteReader sqliteReader;
+    private SQLiteReaderRegistry readerRegistry;
+    // set by initialize and dispose, read by the refreshes and the backfill
+    private volatile SQLiteReader sqliteReader;
+    private StatePublisher statePublisher;
+    private BackfillServices backfillServices;
+    private HistoryBackfill backfill;
+    private volatile boolean backfillChecked;
+    // the diagnostic properties last updated, guards diagnosticPropertiesTime as well
+    private final Map<String, String> diagnosticProperties = new HashMap<>();
+    private long diagnosticPropertiesTime;
 
-    public WeatherValuesHandler(Thing thing) {
+    public WeatherValuesHandler(Thing thing, SQLiteReaderRegistry readerRegistry, BackfillServices backfillServices) {
         super(thing);
+        this.readerRegistry = readerRegistry;
+        this.backfillServices = backfillServices;
     }
 
     /**
@@ -58,61 +102,312 @@ public class WeatherValuesHandler extends BaseThingHandler implements SQLReaderL
         return (String) getThing().getConfiguration().getProperties().get(DEVICE_PARAMETER_DB_NAME);
     }
 
+    /**
+     * Returns how the database is accessed, from the web server of the host, from the weewx-feed exporter on the host
+     * or from the local file system with the host as its directory
+     *
+     * @return one of the DEVICE_MODE_* constants
+     */
+    public String getMode() {
+        Object mode = thing.getConfiguration().get(DEVICE_PARAMETER_MODE);
+        return mode != null ? (String) mode : DEVICE_MODE_HTTP;
+    }
+
     public long getRefreshInterval() {
         long timeInMintues = ((BigDecimal) thing.getConfiguration().get(DEVICE_PARAMETER_REFRESH)).longValue();
         long timeInSeconds = timeInMintues * 60;
         return timeInSeconds;
     }
 
+    /**
+     * Returns true if the database is polled shortly after weewx is expected to write its next archive record
+     *
+     * @return true if the polling adapts to the archive interval
+     */
+    public boolean isAdaptivePolling() {
+        Object adaptive = thing.getConfiguration().get(DEVICE_PARAMETER_ADAPTIVE_POLLING);
+        return adaptive instanceof Boolean ? (Boolean) adaptive : true;
+    }
+
+    /**
+     * Returns the time after which an unchanged value is published again
+     *
+     * @return the time in milliseconds, 0 if every value is published on every refresh
+     */
+    public long getPublishMaxAge() {
+        Object maxAge = thing.getConfiguration().get(DEVICE_PARAMETER_PUBLISH_MAX_AGE);
+        long timeInMinutes = maxAge instanceof BigDecimal ? ((BigDecimal) maxAge).longValue()
+                : DEFAULT_PUBLISH_MAX_AGE;
+        return TimeUnit.MINUTES.toMillis(timeInMinutes);
+    }
+
+    /**
+     * Returns the id of the persistence service the archive is written into
+     *
+     * @return the id of the persistence service, or null if the backfill is disabled
+     */
+    public String getBackfillService() {
+        Object service = thing.getConfiguration().get(DEVICE_PARAMETER_BACKFILL_SERVICE);
+        return service instanceof String && !((String) service).isEmpty() ? (String) service : null;
+    }
+
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
+        if (CHANNEL_BACKFILL.equals(channelUID.getId())) {
+            if (command == OnOffType.ON) {
+                startBackfill();
+            } else if (command == OnOffType.OFF) {
+                cancelBackfill();
+            } else if (command instanceof RefreshType) {
+                HistoryBackfill current = backfill;
+                boolean running = current != null && current.isRunning();
+                updateState(CHANNEL_BACKFILL, running ? OnOffType.ON : OnOffType.OFF);
+            }
+        }
+    }
+
+    @Override
+    public void channelLinked(ChannelUID channelUID) {
+        if (statePublisher != null) {
+            statePublisher.invalidate(channelUID.getId());
+        }
+        super.channelLinked(channelUID);
     }
 
     @Override
     public void initialize() {
+        statePublisher = new StatePublisher(this::updateState, getPublishMaxAge());
+        for (Channel channel : getThing().getChannels()) {
+            Object deadband = channel.getConfiguration().get(CHANNEL_PARAMETER_DEADBAND);
+            if (deadband instanceof BigDecimal) {
+                statePublisher.setDeadband(channel.getUID().getId(), ((BigDecimal) deadband).doubleValue());
+            }
+        }
         try {
-            sqliteReader = new SQLiteReader(getIPAddress(), getDBName());
-            sqliteReader.addListener(this);
-            scheduler.scheduleWithFixedDelay(sqliteReader, 1, getRefreshInterval(), TimeUnit.SECONDS);
+            sqliteReader = readerRegistry.acquire(getIPAddress(), getDBName(), getMode(), this,
+                    getRefreshInterval(), isAdaptivePolling(), scheduler);
             updateStatus(ThingStatus.ONLINE);
+            WeatherSnapshot snapshot = sqliteReader.getSnapshot();
+            if (snapshot != null) {
+                // the reader is shared with another Thing and has already read the database
+                refreshValues(snapshot);
+            }
         } catch (ClassNotFoundException e) {
             logger.error("Error during loading drivers for database");
-            sqliteReader.removeListener(this);
             sqliteReader = null;
             updateStatus(ThingStatus.OFFLINE);
         }
     }
 
     @Override
-    public void refreshValues() {
-        updateState(CHANNEL_BAROMETER, sqliteReader.outdoorClimate.getBarometer());
-        updateState(CHANNEL_OUTSIDE_TEMPERATURE, sqliteReader.outdoorClimate.getTemperature());
-        updateState(CHANNEL_OUTSIDE_TEMP_DAY_MIN, sqliteReader.outdoorClimate.getTemperatureMinimum());
-        updateState(CHANNEL_OUTSIDE_TEMP_DAY_MIN_TIME, sqliteReader.outdoorClimate.getTemperatureMinimumTime());
-        updateState(CHANNEL_OUTSIDE_TEMP_DAY_MAX, sqliteReader.outdoorClimate.getTemperatureMaximum());
-        updateState(CHANNEL_OUTSIDE_TEMP_DAY_MAX_TIME, sqliteReader.outdoorClimate.getTemperatureMaximumTime());
-        updateState(CHANNEL_OUTSIDE_HUMIDITY, sqliteReader.outdoorClimate.getHumidity());
-
-        updateState(CHANNEL_WIND_SPEED, sqliteReader.wind.getSpeed());
-        updateState(CHANNEL_WIND_DIRECTION, sqliteReader.wind.getDirection());
-
-        updateState(CHANNEL_RAIN_RATE, sqliteReader.rain.getRainRateCurrent());
-        updateState(CHANNEL_RAIN_CURRENT_DAY, sqliteReader.rain.getRainCurrentDay());
-        updateState(CHANNEL_RAIN_CURRENT_WEEK, sqliteReader.rain.getRainCurrentWeek());
-        updateState(CHANNEL_RAIN_CURRENT_MONTH, sqliteReader.rain.getRainCurrentMonth());
-        updateState(CHANNEL_RAIN_CURRENT_YEAR, sqliteReader.rain.getRainCurrentYear());
-        updateState(CHANNEL_RAIN_MONTH1, sqliteReader.rain.getRainMonth(Month.JANUARY));
-        updateState(CHANNEL_RAIN_MONTH2, sqliteReader.rain.getRainMonth(Month.FEBRUARY));
-        updateState(CHANNEL_RAIN_MONTH3, sqliteReader.rain.getRainMonth(Month.MARCH));
-        updateState(CHANNEL_RAIN_MONTH4, sqliteReader.rain.getRainMonth(Month.APRIL));
-        updateState(CHANNEL_RAIN_MONTH5, sqliteReader.rain.getRainMonth(Month.MAY));
-        updateState(CHANNEL_RAIN_MONTH6, sqliteReader.rain.getRainMonth(Month.JUNE));
-        updateState(CHANNEL_RAIN_MONTH7, sqliteReader.rain.getRainMonth(Month.JULY));
-        updateState(CHANNEL_RAIN_MONTH8, sqliteReader.rain.getRainMonth(Month.AUGUST));
-        updateState(CHANNEL_RAIN_MONTH9, sqliteReader.rain.getRainMonth(Month.SEPTEMBER));
-        updateState(CHANNEL_RAIN_MONTH10, sqliteReader.rain.getRainMonth(Month.OCTOBER));
-        updateState(CHANNEL_RAIN_MONTH11, sqliteReader.rain.getRainMonth(Month.NOVEMBER));
-        updateState(CHANNEL_RAIN_MONTH12, sqliteReader.rain.getRainMonth(Month.DECEMBER));
+    public void dispose() {
+        cancelBackfill();
+        readerRegistry.release(this);
+        sqliteReader = null;
+    }
+
+    @Override
+    public void refreshValues(WeatherSnapshot snapshot) {
+        SQLiteReader reader = sqliteReader;
+        if (reader == null) {
+            // delivered by a refresh which was running while the handler was disposed
+            return;
+        }
+        OutdoorClimate outdoorClimate = snapshot.getOutdoorClimate();
+        statePublisher.publish(CHANNEL_BAROMETER, outdoorClimate.getBarometer());
+        statePublisher.publish(CHANNEL_OUTSIDE_TEMPERATURE, outdoorClimate.getTemperature());
+        statePublisher.publish(CHANNEL_OUTSIDE_TEMP_DAY_MIN, outdoorClimate.getTemperatureMinimum());
+        statePublisher.publish(CHANNEL_OUTSIDE_TEMP_DAY_MIN_TIME, outdoorClimate.getTemperatureMinimumTime());
+        statePublisher.publish(CHANNEL_OUTSIDE_TEMP_DAY_MAX, outdoorClimate.getTemperatureMaximum());
+        statePublisher.publish(CHANNEL_OUTSIDE_TEMP_DAY_MAX_TIME, outdoorClimate.getTemperatureMaximumTime());
+        statePublisher.publish(CHANNEL_OUTSIDE_HUMIDITY, outdoorClimate.getHumidity());
+
+        Wind wind = snapshot.getWind();
+        statePublisher.publish(CHANNEL_WIND_SPEED, wind.getSpeed());
+        statePublisher.publish(CHANNEL_WIND_DIRECTION, wind.getDirection());
+
+        WindAverages windAverages = snapshot.getWindAverages();
+        statePublisher.publish(CHANNEL_WIND_SPEED_AVERAGE_10_MINUTES, windAverages.getSpeed(RollingWindow.TEN_MINUTES));
+        statePublisher.publish(CHANNEL_WIND_SPEED_AVERAGE_1_HOUR, windAverages.getSpeed(RollingWindow.ONE_HOUR));
+        statePublisher.publish(CHANNEL_WIND_DIRECTION_AVERAGE_10_MINUTES,
+                windAverages.getDirection(RollingWindow.TEN_MINUTES));
+        statePublisher.publish(CHANNEL_WIND_DIRECTION_AVERAGE_1_HOUR,
+                windAverages.getDirection(RollingWindow.ONE_HOUR));
+        statePublisher.publish(CHANNEL_WIND_COMPASS_AVERAGE_10_MINUTES,
+                windAverages.getCompassPoint(RollingWindow.TEN_MINUTES));
+        statePublisher.publish(CHANNEL_WIND_COMPASS_AVERAGE_1_HOUR,
+                windAverages.getCompassPoint(RollingWindow.ONE_HOUR));
+        statePublisher.publish(CHANNEL_WIND_DIRECTION_VARIABILITY_10_MINUTES,
+                windAverages.getDirectionVariability(RollingWindow.TEN_MINUTES));
+        statePublisher.publish(CHANNEL_WIND_DIRECTION_VARIABILITY_1_HOUR,
+                windAverages.getDirectionVariability(RollingWindow.ONE_HOUR));
+        statePublisher.publish(CHANNEL_WIND_GUST_MAX_10_MINUTES,
+                windAverages.getMaximumGust(RollingWindow.TEN_MINUTES));
+        statePublisher.publish(CHANNEL_WIND_GUST_MAX_1_HOUR, windAverages.getMaximumGust(RollingWindow.ONE_HOUR));
+
+        Rain rain = snapshot.getRain();
+        statePublisher.publish(CHANNEL_RAIN_RATE, rain.getRainRateCurrent());
+        statePublisher.publish(CHANNEL_RAIN_CURRENT_DAY, rain.getRainCurrentDay());
+        statePublisher.publish(CHANNEL_RAIN_CURRENT_WEEK, rain.getRainCurrentWeek());
+        statePublisher.publish(CHANNEL_RAIN_CURRENT_MONTH, rain.getRainCurrentMonth());
+        statePublisher.publish(CHANNEL_RAIN_CURRENT_YEAR, rain.getRainCurrentYear());
+        statePublisher.publish(CHANNEL_RAIN_PREVIOUS_YEAR, rain.getRainPreviousYear());
+        statePublisher.publish(CHANNEL_RAIN_ROLLING_12_MONTHS, rain.getRainRolling12Months());
+        statePublisher.publish(CHANNEL_RAIN_ROLLING_30_DAYS, rain.getRainRolling30Days());
+        statePublisher.publish(CHANNEL_RAIN_SEASON_TO_DATE, rain.getRainSeasonToDate());
+        statePublisher.publish(CHANNEL_RAIN_MONTH1, rain.getRainMonth(Month.JANUARY));
+        statePublisher.publish(CHANNEL_RAIN_MONTH2, rain.getRainMonth(Month.FEBRUARY));
+        statePublisher.publish(CHANNEL_RAIN_MONTH3, rain.getRainMonth(Month.MARCH));
+        statePublisher.publish(CHANNEL_RAIN_MONTH4, rain.getRainMonth(Month.APRIL));
+        statePublisher.publish(CHANNEL_RAIN_MONTH5, rain.getRainMonth(Month.MAY));
+        statePublisher.publish(CHANNEL_RAIN_MONTH6, rain.getRainMonth(Month.JUNE));
+        statePublisher.publish(CHANNEL_RAIN_MONTH7, rain.getRainMonth(Month.JULY));
+        statePublisher.publish(CHANNEL_RAIN_MONTH8, rain.getRainMonth(Month.AUGUST));
+        statePublisher.publish(CHANNEL_RAIN_MONTH9, rain.getRainMonth(Month.SEPTEMBER));
+        statePublisher.publish(CHANNEL_RAIN_MONTH10, rain.getRainMonth(Month.OCTOBER));
+        statePublisher.publish(CHANNEL_RAIN_MONTH11, rain.getRainMonth(Month.NOVEMBER));
+        statePublisher.publish(CHANNEL_RAIN_MONTH12, rain.getRainMonth(Month.DECEMBER));
+
+        SummaryValues summaryValues = snapshot.getSummaryValues();
+        for (SummaryStatistic statistic : SummaryStatistic.values()) {
+            statePublisher.publish(statistic.getChannelId(), summaryValues.getValue(statistic));
+        }
+
+        RollingValues rollingValues = snapshot.getRollingValues();
+        for (RollingStatistic statistic : RollingStatistic.values()) {
+            statePublisher.publish(statistic.getChannelId(), rollingValues.getValue(statistic));
+        }
+        statePublisher.publish(CHANNEL_BAROMETER_TENDENCY_3_HOURS, rollingValues.getPressureTendency());
+        statePublisher.publish(CHANNEL_BAROMETER_TENDENCY_DESCRIPTION, rollingValues.getPressureTendencyDescription());
+
+        refreshDiagnostics(reader.getStatistics());
+
+        if (!backfillChecked) {
+            checkBackfill();
+        }
+
+        logger.debug("Published {} and suppressed {} channel updates in total", statePublisher.getPublishedCount(),
+                statePublisher.getSuppressedCount());
+    }
+
+    /**
+     * Updates the statistics of the latest refreshes in the Thing properties and the diagnostic channels. The dispatch
+     * time is the one of the previous refresh, as the current one is still being dispatched. The properties are only
+     * updated once per {@link #DIAGNOSTIC_PROPERTIES_INTERVAL}, and only the ones which have changed.
+     */
+    private void refreshDiagnostics(RefreshStatistics statistics) {
+        long now = System.currentTimeMillis();
+        synchronized (diagnosticProperties) {
+            if (now - diagnosticPropertiesTime >= DIAGNOSTIC_PROPERTIES_INTERVAL) {
+                diagnosticPropertiesTime = now;
+                Map<String, String> changed = new HashMap<>();
+                for (Map.Entry<String, String> property : statistics.toProperties().entrySet()) {
+                    if (!property.getValue().equals(diagnosticProperties.put(property.getKey(), property.getValue()))) {
+                        changed.put(property.getKey(), property.getValue());
+                    }
+                }
+                if (!changed.isEmpty()) {
+                    updateProperties(changed);
+                }
+            }
+        }
+
+        publishDiagnostic(CHANNEL_DIAGNOSTIC_DOWNLOAD_TIME, statistics.getLast(Metric.DOWNLOAD_TIME));
+        publishDiagnostic(CHANNEL_DIAGNOSTIC_DOWNLOADED_BYTES, statistics.getLast(Metric.DOWNLOADED_BYTES));
+        publishDiagnostic(CHANNEL_DIAGNOSTIC_QUERY_TIME,
+                statistics.getLast(Metric.CONNECTION_OPEN_TIME) + statistics.getLast(Metric.ARCHIVE_QUERY_TIME)
+                        + statistics.getLast(Metric.TEMPERATURE_QUERY_TIME)
+                        + statistics.getLast(Metric.RAIN_QUERY_TIME)
+                        + statistics.getLast(Metric.SUMMARY_QUERY_TIME));
+        publishDiagnostic(CHANNEL_DIAGNOSTIC_DISPATCH_TIME, statistics.getLast(Metric.DISPATCH_TIME));
+        publishDiagnostic(CHANNEL_DIAGNOSTIC_RECORD_AGE, statistics.getLast(Metric.RECORD_AGE));
+    }
+
+    /**
+     * Starts the backfill configured for the Thing once the database has been read, unless it has been completed
+     */
+    private synchronized void checkBackfill() {
+        if (backfillChecked) {
+            // checked by a refresh of the initialization and one of the reader at the same time
+            return;
+        }
+        backfillChecked = true;
+        String service = getBackfillService();
+        if (service != null && !HistoryBackfill.isComplete(getBackfillCheckpoint(service))) {
+            scheduler.execute(this::startBackfill);
+        }
+    }
+
+    /**
+     * Starts or resumes the backfill of the archive into the persistence service
+     */
+    private void startBackfill() {
+        HistoryBackfill previous;
+        synchronized (this) {
+            previous = backfill;
+        }
+        try {
+            // the last batch of a cancelled backfill is still saved in the checkpoint the next one starts from
+            if (previous != null && !previous.isRunning() && !previous.awaitTermination(BACKFILL_TERMINATION_TIMEOUT)) {
+                logger.warn("Previous backfill of {} is still running, not starting another one", getThing().getUID());
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        startBackfill(previous);
+    }
+
+    private synchronized void startBackfill(HistoryBackfill previous) {
+        SQLiteReader reader = sqliteReader;
+        String serviceId = getBackfillService();
+        if (reader == null || backfill != previous || (backfill != null && backfill.isRunning())) {
+            return;
+        }
+        ModifiablePersistenceService service = serviceId != null
+                ? backfillServices.getModifiablePersistenceService(serviceId) : null;
+        if (service == null) {
+            logger.warn("Backfill of {} requires a modifiable persistence service, {} is not available",
+                    getThing().getUID(), serviceId);
+            updateState(CHANNEL_BACKFILL, OnOffType.OFF);
+            return;
+        }
+        Map<String, List<Item>> items = new HashMap<>();
+        for (String channelId : HistoryBackfill.CHANNELS) {
+            List<Item> linkedItems = backfillServices.getLinkedItems(new ChannelUID(getThing().getUID(), channelId));
+            if (!linkedItems.isEmpty()) {
+                items.put(channelId, linkedItems);
+            }
+        }
+        backfill = new HistoryBackfill(reader, service, items, getBackfillCheckpoint(serviceId),
+                this::backfillProgress);
+        boolean started = backfill.start();
+        updateState(CHANNEL_BACKFILL, started ? OnOffType.ON : OnOffType.OFF);
+    }
+
+    private synchronized void cancelBackfill() {
+        if (backfill != null) {
+            // kept until its last batch has been saved, see startBackfill
+            backfill.cancel();
+        }
+    }
+
+    private void backfillProgress(String progress, boolean running) {
+        updateProperty(PROPERTY_BACKFILL, progress);
+        updateState(CHANNEL_BACKFILL, running ? OnOffType.ON : OnOffType.OFF);
+    }
+
+    private File getBackfillCheckpoint(String serviceId) {
+        String name = ("backfill_" + getThing().getUID().getAsString() + "_" + serviceId + ".properties")
+                .replaceAll("[^A-Za-z0-9._-]", "_");
+        return new File(new File(ConfigConstants.getUserDataFolder(), BINDING_ID), name);
+    }
+
+    private void publishDiagnostic(String channelId, double value) {
+        if (isLinked(channelId)) {
+            statePublisher.publish(channelId, Double.isNaN(value) ? UnDefType.NULL : new DecimalType(value));
+        }
     }
 
 }
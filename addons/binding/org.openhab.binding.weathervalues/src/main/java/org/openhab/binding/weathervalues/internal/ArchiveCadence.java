@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+/**
+ * The {@link ArchiveCadence} learns when weewx writes its archive records and predicts when the next record is
+ * available. weewx writes a record at the end of every archive interval, aligned to multiples of the interval. The
+ * interval is taken from the interval column of the archive, or from the spacing of the records if that is missing.
+ *
+ * The next fetch is scheduled shortly after the predicted record. If the record has not appeared by then, the fetch is
+ * retried with an exponential backoff. Once the backoff reaches the interval, e.g. while the station is offline, the
+ * fetches are aligned to the following intervals again.
+ *
+ * All times are in seconds.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class ArchiveCadence {
+
+    /** Time between the end of an interval and the availability of its record */
+    private static final long PUBLISH_LATENCY = 15;
+    private static final long RETRY_DELAY = 10;
+    private static final long MIN_DELAY = 5;
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    private long lastRecordTime = Long.MIN_VALUE;
+    private long interval;
+    private int misses;
+
+    /**
+     * Updates the cadence with the latest record of the archive
+     *
+     * @param recordTime the time of the latest record
+     * @param intervalInMinutes the value of the interval column of the latest record, or {@link Double#NaN}
+     * @param now the current time
+     */
+    public synchronized void update(long recordTime, double intervalInMinutes, long now) {
+        if (recordTime == Long.MIN_VALUE || recordTime <= lastRecordTime) {
+            noNewRecord(now);
+            return;
+        }
+        if (intervalInMinutes > 0) {
+            interval = Math.round(intervalInMinutes * 60);
+        } else if (lastRecordTime != Long.MIN_VALUE) {
+            long spacing = recordTime - lastRecordTime;
+            if (interval == 0 || spacing < interval) {
+                interval = spacing;
+            }
+        }
+        lastRecordTime = recordTime;
+        misses = 0;
+    }
+
+    /**
+     * Records a fetch which did not find a new record
+     *
+     * @param now the current time
+     */
+    public synchronized void noNewRecord(long now) {
+        if (interval > 0 && now >= lastRecordTime + interval + PUBLISH_LATENCY) {
+            misses++;
+        }
+    }
+
+    /**
+     * Returns the delay until the next fetch
+     *
+     * @param now the current time
+     * @param defaultDelay the delay if the cadence is not known yet
+     * @return the delay until the next fetch
+     */
+    public synchronized long getNextDelay(long now, long defaultDelay) {
+        if (interval <= 0 || lastRecordTime == Long.MIN_VALUE) {
+            return defaultDelay;
+        }
+        long expected = lastRecordTime + interval + PUBLISH_LATENCY;
+        long delay = expected - now;
+        if (delay < MIN_DELAY && misses > 0) {
+            // the expected record is late
+            delay = RETRY_DELAY << Math.min(misses - 1, MAX_BACKOFF_SHIFT);
+            if (delay >= interval) {
+                // align to the record of the next interval
+                long intervals = (now - lastRecordTime) / interval + 1;
+                delay = lastRecordTime + intervals * interval + PUBLISH_LATENCY - now;
+            }
+        }
+        return Math.max(delay, MIN_DELAY);
+    }
+
+    /**
+     * Returns the learned archive interval
+     *
+     * @return the archive interval, 0 if it is not known yet
+     */
+    public synchronized long getInterval() {
+        return interval;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.ItemNotFoundException;
+import org.eclipse.smarthome.core.items.ItemRegistry;
+import org.eclipse.smarthome.core.persistence.ModifiablePersistenceService;
+import org.eclipse.smarthome.core.persistence.PersistenceService;
+import org.eclipse.smarthome.core.thing.ChannelUID;
+import org.eclipse.smarthome.core.thing.link.ItemChannelLinkRegistry;
+
+/**
+ * The {@link BackfillServices} holds the services of the framework which are needed by the {@link HistoryBackfill},
+ * as they are bound to the {@link WeatherValuesHandlerFactory}.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class BackfillServices {
+
+    private final Map<String, PersistenceService> persistenceServices = new ConcurrentHashMap<>();
+    private volatile ItemRegistry itemRegistry;
+    private volatile ItemChannelLinkRegistry itemChannelLinkRegistry;
+
+    void setItemRegistry(ItemRegistry itemRegistry) {
+        this.itemRegistry = itemRegistry;
+    }
+
+    void setItemChannelLinkRegistry(ItemChannelLinkRegistry itemChannelLinkRegistry) {
+        this.itemChannelLinkRegistry = itemChannelLinkRegistry;
+    }
+
+    void addPersistenceService(PersistenceService persistenceService) {
+        persistenceServices.put(persistenceService.getId(), persistenceService);
+    }
+
+    void removePersistenceService(PersistenceService persistenceService) {
+        persistenceServices.remove(persistenceService.getId());
+    }
+
+    /**
+     * Returns a persistence service which allows to store values with a time
+     *
+     * @param id the id of the persistence service, e.g. influxdb
+     * @return the persistence service, or null if it is not available or cannot store values with a time
+     */
+    public ModifiablePersistenceService getModifiablePersistenceService(String id) {
+        PersistenceService persistenceService = persistenceServices.get(id);
+        return persistenceService instanceof ModifiablePersistenceService
+                ? (ModifiablePersistenceService) persistenceService : null;
+    }
+
+    /**
+     * Returns the items linked to a channel
+     *
+     * @param channelUID the channel
+     * @return the linked items, empty if the registries are not available
+     */
+    public List<Item> getLinkedItems(ChannelUID channelUID) {
+        List<Item> items = new ArrayList<>();
+        ItemRegistry itemRegistry = this.itemRegistry;
+        ItemChannelLinkRegistry itemChannelLinkRegistry = this.itemChannelLinkRegistry;
+        if (itemRegistry != null && itemChannelLinkRegistry != null) {
+            for (String itemName : itemChannelLinkRegistry.getLinkedItemNames(channelUID)) {
+                try {
+                    items.add(itemRegistry.getItem(itemName));
+                } catch (ItemNotFoundException e) {
+                    // link to an item which has been removed
+                }
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openhab.binding.weathervalues.internal.data.RollingValues;
+import org.openhab.binding.weathervalues.internal.mapping.ArchiveColumn;
+import org.openhab.binding.weathervalues.internal.mapping.RollingStatistic;
+import org.openhab.binding.weathervalues.internal.mapping.RollingWindow;
+
+/**
+ * The {@link ClimateEngine} keeps the climate values of the successive archive records of the last day in a ring
+ * buffer and maintains the {@link RollingStatistic}s while samples are added, so a sample costs amortized O(1)
+ * regardless of the number of samples in a window:
+ * <ul>
+ * <li>the average from the running sum of the values</li>
+ * <li>the minimum and the maximum from queues of the samples with increasing and decreasing values, of which the first
+ * is the minimum and the maximum</li>
+ * </ul>
+ * The queues start with room for the samples of their window at the default archive interval of weewx and grow when a
+ * shorter interval or a monotonic series fills them, up to the capacity of the ring buffer.
+ * The pressure tendency is the difference between the latest barometer and the barometer of the sample which is
+ * nearest to 3 hours before, as long as that sample is not more than 15 minutes off. Missing values are skipped.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class ClimateEngine {
+
+    // samples of the longest window with an archive interval of 60 seconds
+    private static final int CAPACITY = 2048;
+    private static final long DEFAULT_ARCHIVE_INTERVAL = 5 * 60;
+    private static final long TENDENCY_SECONDS = 3 * 60 * 60;
+    private static final long TENDENCY_TOLERANCE = 15 * 60;
+
+    private final long[] times = new long[CAPACITY];
+    // values at the ordinal of their column, only for the columns of the statistics
+    private final double[][] values = new double[ArchiveColumn.values().length][];
+
+    // sequence numbers of the oldest sample and of the next sample, a sample is stored at its number modulo capacity
+    private long first;
+    private long next;
+
+    private final Aggregate[][] aggregatesByColumn = new Aggregate[ArchiveColumn.values().length][RollingWindow
+            .values().length];
+    private final Aggregate[] aggregates;
+    private final Aggregate tendency;
+
+    /**
+     * The {@link Aggregate} holds the running sum and the queues of the samples of one column in one window.
+     */
+    private final class Aggregate {
+        private final double[] series;
+        private final long length;
+        private long start;
+
+        private double sum;
+        private int count;
+
+        // sequence numbers of the samples with increasing values
+        private final SequenceQueue minimumQueue;
+        // sequence numbers of the samples with decreasing values
+        private final SequenceQueue maximumQueue;
+
+        private Aggregate(double[] series, long length) {
+            this.series = series;
+            this.length = length;
+            int initialCapacity = Integer.highestOneBit((int) (length / DEFAULT_ARCHIVE_INTERVAL) + 1) << 1;
+            minimumQueue = new SequenceQueue(Math.min(initialCapacity, CAPACITY));
+            maximumQueue = new SequenceQueue(Math.min(initialCapacity, CAPACITY));
+        }
+
+        private void add(long sequence) {
+            double value = series[index(sequence)];
+            if (Double.isNaN(value)) {
+                return;
+            }
+            sum += value;
+            count++;
+            while (!minimumQueue.isEmpty() && series[index(minimumQueue.getLast())] >= value) {
+                minimumQueue.removeLast();
+            }
+            minimumQueue.addLast(sequence);
+            while (!maximumQueue.isEmpty() && series[index(maximumQueue.getLast())] <= value) {
+                maximumQueue.removeLast();
+            }
+            maximumQueue.addLast(sequence);
+        }
+
+        private void removeFirst() {
+            double value = series[index(start)];
+            if (!Double.isNaN(value)) {
+                sum -= value;
+                if (--count == 0) {
+                    // no rounding error of the sum is carried over a gap
+                    sum = 0;
+                }
+                if (!minimumQueue.isEmpty() && minimumQueue.getFirst() == start) {
+                    minimumQueue.removeFirst();
+                }
+                if (!maximumQueue.isEmpty() && maximumQueue.getFirst() == start) {
+                    maximumQueue.removeFirst();
+                }
+            }
+            start++;
+        }
+
+        private void removeBefore(long time) {
+            while (start < next && times[index(start)] <= time - length) {
+                removeFirst();
+            }
+        }
+
+        private void clear() {
+            start = next;
+            sum = 0;
+            count = 0;
+            minimumQueue.clear();
+            maximumQueue.clear();
+        }
+
+        private double getValue(RollingStatistic.Function function) {
+            switch (function) {
+                case MINIMUM:
+                    return minimumQueue.isEmpty() ? Double.NaN : series[index(minimumQueue.getFirst())];
+                case MAXIMUM:
+                    return maximumQueue.isEmpty() ? Double.NaN : series[index(maximumQueue.getFirst())];
+                default:
+                    return count > 0 ? sum / count : Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * The {@link SequenceQueue} is a double ended queue of sequence numbers in a ring buffer, which doubles when it is
+     * full. It never holds more sequence numbers than there are samples in the ring buffer of the engine.
+     */
+    private static final class SequenceQueue {
+        private long[] elements;
+        private int head;
+        private int size;
+
+        private SequenceQueue(int capacity) {
+            elements = new long[capacity];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private long getFirst() {
+            return elements[head];
+        }
+
+        private long getLast() {
+            return elements[(head + size - 1) & (elements.length - 1)];
+        }
+
+        private void addLast(long sequence) {
+            if (size == elements.length) {
+                long[] grown = new long[elements.length << 1];
+                int firstPart = elements.length - head;
+                System.arraycopy(elements, head, grown, 0, firstPart);
+                System.arraycopy(elements, 0, grown, firstPart, head);
+                elements = grown;
+                head = 0;
+            }
+            elements[(head + size++) & (elements.length - 1)] = sequence;
+        }
+
+        private void removeFirst() {
+            head = (head + 1) & (elements.length - 1);
+            size--;
+        }
+
+        private void removeLast() {
+            size--;
+        }
+
+        private void clear() {
+            head = 0;
+            size = 0;
+        }
+    }
+
+    public ClimateEngine() {
+        List<Aggregate> list = new ArrayList<>();
+        for (RollingStatistic statistic : RollingStatistic.values()) {
+            getAggregate(statistic.getColumn(), statistic.getWindow(), list);
+        }
+        tendency = getAggregate(ArchiveColumn.BAROMETER, RollingWindow.THREE_HOURS, list);
+        aggregates = list.toArray(new Aggregate[list.size()]);
+    }
+
+    private Aggregate getAggregate(ArchiveColumn column, RollingWindow window, List<Aggregate> list) {
+        Aggregate aggregate = aggregatesByColumn[column.ordinal()][window.ordinal()];
+        if (aggregate == null) {
+            if (values[column.ordinal()] == null) {
+                values[column.ordinal()] = new double[CAPACITY];
+            }
+            aggregate = new Aggregate(values[column.ordinal()], window.getSeconds());
+            aggregatesByColumn[column.ordinal()][window.ordinal()] = aggregate;
+            list.add(aggregate);
+        }
+        return aggregate;
+    }
+
+    /**
+     * Adds the climate values of an archive record. Records which are not newer than the latest one are ignored.
+     *
+     * @param dateTime the time of the record in seconds
+     * @param row the converted values of the record at the ordinal of their {@link ArchiveColumn}
+     */
+    public void add(long dateTime, double[] row) {
+        if (next > first && dateTime <= times[index(next - 1)]) {
+            return;
+        }
+        if (next - first == CAPACITY) {
+            // more samples than expected in the longest window, the oldest one is dropped
+            for (Aggregate aggregate : aggregates) {
+                if (aggregate.start == first) {
+                    aggregate.removeFirst();
+                }
+            }
+            first++;
+        }
+
+        int index = index(next);
+        times[index] = dateTime;
+        for (int column = 0; column < values.length; column++) {
+            if (values[column] != null) {
+                values[column][index] = row[column];
+            }
+        }
+
+        long sequence = next++;
+        long oldest = sequence;
+        for (Aggregate aggregate : aggregates) {
+            aggregate.add(sequence);
+            aggregate.removeBefore(dateTime);
+            oldest = Math.min(oldest, aggregate.start);
+        }
+        // the sample before the window of the tendency is a candidate for its reference
+        first = Math.max(first, Math.min(oldest, tendency.start - 1));
+    }
+
+    /**
+     * Returns the time of the latest sample
+     *
+     * @return the time in seconds, or {@link Long#MIN_VALUE} if there is no sample
+     */
+    public long getLastDateTime() {
+        return next > first ? times[index(next - 1)] : Long.MIN_VALUE;
+    }
+
+    /**
+     * Removes all samples, e.g. after the database has been replaced
+     */
+    public void clear() {
+        first = next;
+        for (Aggregate aggregate : aggregates) {
+            aggregate.clear();
+        }
+    }
+
+    /**
+     * Returns the values of all statistics and the pressure tendency
+     *
+     * @return the values
+     */
+    public RollingValues getValues() {
+        RollingStatistic[] statistics = RollingStatistic.values();
+        double[] result = new double[statistics.length];
+        for (RollingStatistic statistic : statistics) {
+            Aggregate aggregate = aggregatesByColumn[statistic.getColumn().ordinal()][statistic.getWindow().ordinal()];
+            result[statistic.ordinal()] = aggregate.getValue(statistic.getFunction());
+        }
+        return new RollingValues(result, getPressureTendency());
+    }
+
+    private double getPressureTendency() {
+        if (next == first) {
+            return Double.NaN;
+        }
+        double[] barometer = tendency.series;
+        double reference = Double.NaN;
+        long target = times[index(next - 1)] - TENDENCY_SECONDS;
+        long distance = TENDENCY_TOLERANCE;
+        // the window of the tendency starts after the target, so the nearest sample is its first one or the one before
+        for (long sequence = Math.max(first, tendency.start - 1); sequence <= tendency.start
+                && sequence < next; sequence++) {
+            int index = index(sequence);
+            if (!Double.isNaN(barometer[index]) && Math.abs(times[index] - target) <= distance) {
+                reference = barometer[index];
+                distance = Math.abs(times[index] - target);
+            }
+        }
+        return barometer[index(next - 1)] - reference;
+    }
+
+    private static int index(long sequence) {
+        return (int) (sequence % CAPACITY);
+    }
+}
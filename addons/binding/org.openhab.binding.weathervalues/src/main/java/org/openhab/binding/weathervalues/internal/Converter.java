@@ -27,6 +27,14 @@ public class Converter {
         return inch_to_Millimeter(value);
     }
 
+    public static double centimeter_to_Millimeter(double value) {
+        return value * 10;
+    }
+
+    public static double centimeterPerHour_to_MillimeterPerHour(double value) {
+        return centimeter_to_Millimeter(value);
+    }
+
     public static double fahrenheit_to_Celsius(double value) {
         return (5.0 / 9.0) * (value - 32);
     }
@@ -39,6 +47,14 @@ public class Converter {
         return value * 0.514444;
     }
 
+    public static double milesPerHour_to_kmh(double value) {
+        return value * 1.609344;
+    }
+
+    public static double meterPerSecond_to_kmh(double value) {
+        return value * 3.6;
+    }
+
     public static Time seconds_to_Time(long value) {
         return new Time(value * 1000);
     }
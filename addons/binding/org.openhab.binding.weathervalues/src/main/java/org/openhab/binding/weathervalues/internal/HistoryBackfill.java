@@ -0,0 +1,356 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import static org.openhab.binding.weathervalues.WeatherValuesBindingConstants.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.persistence.ModifiablePersistenceService;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.openhab.binding.weathervalues.internal.data.DailySummary;
+import org.openhab.binding.weathervalues.internal.data.OutdoorClimate;
+import org.openhab.binding.weathervalues.internal.data.Utility;
+import org.openhab.binding.weathervalues.internal.data.Wind;
+import org.openhab.binding.weathervalues.internal.mapping.ArchiveColumn;
+import org.openhab.binding.weathervalues.internal.mapping.UnitGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link HistoryBackfill} writes the archive records of weewx, which are older than the latest refresh, into a
+ * persistence service, so the history of a station is available in openHAB and not only the values published since
+ * the station was added.
+ *
+ * The archive is read in dateTime order in batches of {@link #BATCH_SIZE} records into preallocated arrays, so the
+ * memory does not depend on the length of the history. Every batch is a one-shot job on a dedicated thread of the
+ * backfill, so it never blocks a thread of the shared scheduler, with a pause between the batches to keep the load of
+ * the database and of the persistence service low. A batch is read and stored without holding the lock of the
+ * backfill, so cancelling it never waits for a batch. After every batch the time of its last record is saved as a
+ * checkpoint, from which a cancelled or failed backfill is resumed. Once the backfill has reached the latest refresh,
+ * the checkpoint is marked as complete and the backfill is not started again, as the later records have been
+ * persisted as they were published.
+ *
+ * Only the channels of the archive values are written, for each item linked to them.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class HistoryBackfill implements Runnable {
+
+    /**
+     * The channels written by the backfill
+     */
+    public static final List<String> CHANNELS = Collections.unmodifiableList(
+            Arrays.asList(CHANNEL_BAROMETER, CHANNEL_OUTSIDE_TEMPERATURE, CHANNEL_OUTSIDE_HUMIDITY, CHANNEL_WIND_SPEED,
+                    CHANNEL_WIND_DIRECTION, CHANNEL_RAIN_RATE));
+
+    private static final int BATCH_SIZE = 500;
+    private static final long BATCH_PAUSE = 500;
+    private static final long RETRY_DELAY = 60;
+
+    private static final String CHECKPOINT_DATE_TIME = "dateTime";
+    private static final String CHECKPOINT_STORED = "stored";
+    private static final String CHECKPOINT_COMPLETE = "complete";
+
+    /**
+     * The {@link ProgressListener} is informed about the progress of a backfill.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called after every batch and when the backfill ends
+         *
+         * @param progress the progress as text, e.g. for a Thing property
+         * @param running false if the backfill has ended
+         */
+        void backfillProgress(String progress, boolean running);
+    }
+
+    private Logger logger = LoggerFactory.getLogger(HistoryBackfill.class);
+
+    private final SQLiteReader reader;
+    private final ModifiablePersistenceService service;
+    private final Map<String, List<Item>> items;
+    private final File checkpoint;
+    private final ProgressListener listener;
+
+    private final long[] dateTimes = new long[BATCH_SIZE];
+    private final double[][] rows = new double[BATCH_SIZE][ArchiveColumn.values().length];
+    private final LatestRecord record = new LatestRecord();
+    private final DailySummary noSummary = new DailySummary("outTemp", UnitGroup.TEMPERATURE);
+
+    private long dateTime;
+    private long until;
+    private long stored;
+    private long total;
+    private long read;
+    private long startTime;
+
+    private volatile boolean running;
+    private ScheduledThreadPoolExecutor executor;
+    private ScheduledFuture<?> job;
+
+    /**
+     * Creates a backfill
+     *
+     * @param reader the reader of the database
+     * @param service the persistence service to write into
+     * @param items the items to write, by the id of their channel
+     * @param checkpoint the file of the checkpoint
+     * @param listener the listener to inform about the progress
+     */
+    public HistoryBackfill(SQLiteReader reader, ModifiablePersistenceService service, Map<String, List<Item>> items,
+            File checkpoint, ProgressListener listener) {
+        this.reader = reader;
+        this.service = service;
+        this.items = items;
+        this.checkpoint = checkpoint;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns true if a checkpoint exists and the backfill has reached the latest refresh at the time it was started
+     *
+     * @param checkpoint the file of the checkpoint
+     * @return true if a backfill has been completed
+     */
+    public static boolean isComplete(File checkpoint) {
+        return Boolean.parseBoolean(load(checkpoint).getProperty(CHECKPOINT_COMPLETE));
+    }
+
+    /**
+     * Starts the backfill from its checkpoint up to the latest refresh
+     *
+     * @return false if the reader has not read the database yet, the backfill has been started already or its
+     *         checkpoint is complete
+     */
+    public synchronized boolean start() {
+        WeatherSnapshot snapshot = reader.getSnapshot();
+        if (running || executor != null || snapshot == null) {
+            return false;
+        }
+        Properties properties = load(checkpoint);
+        if (Boolean.parseBoolean(properties.getProperty(CHECKPOINT_COMPLETE))) {
+            logger.info("Backfill of {} into {} has been completed already, delete {} to repeat it", reader,
+                    service.getId(), checkpoint);
+            return false;
+        }
+        dateTime = Long.parseLong(properties.getProperty(CHECKPOINT_DATE_TIME, String.valueOf(Long.MIN_VALUE)));
+        stored = Long.parseLong(properties.getProperty(CHECKPOINT_STORED, "0"));
+        // later records are persisted as they are published
+        until = snapshot.getDateTime();
+        read = 0;
+        try {
+            total = reader.countArchive(dateTime, until);
+        } catch (SQLException e) {
+            total = -1;
+        }
+        logger.info("Starting backfill of {} records of {} into {}", total, reader, service.getId());
+        startTime = System.nanoTime();
+        running = true;
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "weathervalues-backfill-" + service.getId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        job = executor.schedule(this, 0, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Cancels the backfill without waiting for the current batch, which is still stored and saved in the checkpoint.
+     * The backfill is resumed from its checkpoint by the next start.
+     */
+    public synchronized void cancel() {
+        if (running) {
+            running = false;
+            job.cancel(false);
+            executor.shutdown();
+            listener.backfillProgress(getProgress() + ", cancelled", false);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Waits until the current batch of a cancelled or completed backfill has been saved in the checkpoint, e.g.
+     * before another backfill is started from the same checkpoint
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @return true if no batch is left, false if the timeout elapsed
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout) throws InterruptedException {
+        ScheduledThreadPoolExecutor executor;
+        synchronized (this) {
+            executor = this.executor;
+        }
+        return executor == null || executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+        long after;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            after = dateTime;
+        }
+        int count;
+        try {
+            count = reader.readArchive(after, until, dateTimes, rows);
+        } catch (SQLException e) {
+            logger.warn("Error during reading archive for backfill, retrying: {}", e.getMessage());
+            synchronized (this) {
+                if (running) {
+                    job = executor.schedule(this, RETRY_DELAY, TimeUnit.SECONDS);
+                }
+            }
+            return;
+        }
+        // a cancelled batch is stored completely, so its records are not stored again when the backfill is resumed
+        long values = 0;
+        for (int i = 0; i < count; i++) {
+            values += store(dateTimes[i], rows[i]);
+        }
+        boolean complete = count < BATCH_SIZE;
+
+        synchronized (this) {
+            stored += values;
+            if (count > 0) {
+                dateTime = dateTimes[count - 1];
+                read += count;
+            }
+            save(complete);
+            if (!running) {
+                logger.debug("Backfill of {} cancelled: {}", reader, getProgress());
+            } else if (complete) {
+                running = false;
+                executor.shutdown();
+                logger.info("Backfill of {} into {} completed: {}", reader, service.getId(), getProgress());
+                listener.backfillProgress(getProgress() + ", completed", false);
+            } else {
+                logger.debug("Backfill of {}: {}", reader, getProgress());
+                listener.backfillProgress(getProgress(), true);
+                job = executor.schedule(this, BATCH_PAUSE, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stores the values of a record
+     *
+     * @return the number of values stored
+     */
+    private int store(long recordTime, double[] row) {
+        record.set(recordTime, row);
+        OutdoorClimate outdoorClimate = record.getOutdoorClimate(noSummary);
+        Wind wind;
+        try {
+            wind = record.getWind();
+        } catch (IllegalArgumentException e) {
+            wind = null;
+        }
+        Date date = new Date(recordTime * 1000);
+        int values = store(CHANNEL_BAROMETER, date, outdoorClimate.getBarometer());
+        values += store(CHANNEL_OUTSIDE_TEMPERATURE, date, outdoorClimate.getTemperature());
+        values += store(CHANNEL_OUTSIDE_HUMIDITY, date, outdoorClimate.getHumidity());
+        if (wind != null) {
+            values += store(CHANNEL_WIND_SPEED, date, wind.getSpeed());
+            values += store(CHANNEL_WIND_DIRECTION, date, wind.getDirection());
+        }
+        values += store(CHANNEL_RAIN_RATE, date, Utility.toState(record.getRainRate()));
+        return values;
+    }
+
+    private int store(String channelId, Date date, State state) {
+        List<Item> channelItems = items.get(channelId);
+        if (channelItems == null || state == UnDefType.NULL) {
+            return 0;
+        }
+        for (Item item : channelItems) {
+            service.store(item, date, state);
+        }
+        return channelItems.size();
+    }
+
+    private String getProgress() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        StringBuilder progress = new StringBuilder();
+        progress.append(read);
+        if (total >= 0) {
+            progress.append(" of ").append(total);
+        }
+        progress.append(" records");
+        if (dateTime != Long.MIN_VALUE) {
+            progress.append(" up to ").append(Instant.ofEpochSecond(dateTime));
+        }
+        progress.append(", ").append(stored).append(" values stored, ");
+        progress.append(seconds > 0 ? Math.round(read / seconds) : 0).append(" records/s");
+        return progress.toString();
+    }
+
+    private static Properties load(File file) {
+        Properties properties = new Properties();
+        if (file.isFile()) {
+            try (InputStream input = new FileInputStream(file)) {
+                properties.load(input);
+            } catch (IOException e) {
+                // starts from the beginning
+                properties.clear();
+            }
+        }
+        return properties;
+    }
+
+    private void save(boolean complete) {
+        Properties properties = new Properties();
+        properties.setProperty(CHECKPOINT_DATE_TIME, String.valueOf(dateTime));
+        properties.setProperty(CHECKPOINT_STORED, String.valueOf(stored));
+        properties.setProperty(CHECKPOINT_COMPLETE, String.valueOf(complete));
+        File part = new File(checkpoint.getPath() + ".part");
+        try {
+            File directory = checkpoint.getParentFile();
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Directory " + directory.getPath() + " could not be created");
+            }
+            try (OutputStream output = new FileOutputStream(part)) {
+                properties.store(output, "Backfill of " + reader + " into " + service.getId());
+            }
+            Files.move(part.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Error during saving checkpoint of backfill {}: {}", checkpoint, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.openhab.binding.weathervalues.internal.data.DailySummary;
+import org.openhab.binding.weathervalues.internal.data.OutdoorClimate;
+import org.openhab.binding.weathervalues.internal.data.Wind;
+import org.openhab.binding.weathervalues.internal.mapping.ArchiveColumn;
+import org.openhab.binding.weathervalues.internal.mapping.MappingPlan;
+import org.openhab.binding.weathervalues.internal.mapping.UnitSystem;
+
+/**
+ * The {@link LatestRecord} holds the latest archive record. It is read once per refresh with a single query and
+ * shared by all data classes. The values are stored converted at the ordinal of their {@link ArchiveColumn}, missing
+ * values are {@link Double#NaN}. The record is reused for every refresh.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class LatestRecord {
+
+    private final double[] values = new double[ArchiveColumn.values().length];
+    private long dateTime = Long.MIN_VALUE;
+
+    /**
+     * Reads the latest record of the archive. All values are missing if the archive is empty or could not be read.
+     *
+     * @param reader the reader with an open connection
+     * @param plan the plan of the archive table
+     * @param unitSystem the unit system of the record if it has no usUnits value
+     */
+    public void read(SQLReader reader, MappingPlan plan, UnitSystem unitSystem) {
+        Arrays.fill(values, Double.NaN);
+        dateTime = Long.MIN_VALUE;
+
+        try (ResultSet resultSet = reader.prepareStatement(plan.getSelect() + " ORDER BY dateTime DESC LIMIT 1")
+                .executeQuery()) {
+            if (resultSet.next()) {
+                dateTime = plan.read(resultSet, values, unitSystem);
+            }
+        } catch (SQLException e) {
+            // table not available, values stay undefined
+            Arrays.fill(values, Double.NaN);
+        }
+    }
+
+    /**
+     * Sets the record to a row read elsewhere, e.g. by the history backfill
+     *
+     * @param dateTime the time of the row in seconds
+     * @param row the converted values of the row at the ordinal of their {@link ArchiveColumn}
+     */
+    public void set(long dateTime, double[] row) {
+        System.arraycopy(row, 0, values, 0, values.length);
+        this.dateTime = dateTime;
+    }
+
+    /**
+     * Returns the time of the record in seconds
+     *
+     * @return the time of the record, or {@link Long#MIN_VALUE} if there is no record
+     */
+    public long getDateTime() {
+        return dateTime;
+    }
+
+    public double getValue(ArchiveColumn column) {
+        return values[column.ordinal()];
+    }
+
+    public OutdoorClimate getOutdoorClimate(DailySummary dailyTemperature) {
+        return new OutdoorClimate(getValue(ArchiveColumn.OUT_TEMP), getValue(ArchiveColumn.EXTRA_TEMP_1),
+                getValue(ArchiveColumn.OUT_HUMIDITY), getValue(ArchiveColumn.EXTRA_HUMID_1),
+                getValue(ArchiveColumn.BAROMETER), dailyTemperature);
+    }
+
+    public Wind getWind() {
+        return new Wind(getValue(ArchiveColumn.WIND_DIR), getValue(ArchiveColumn.WIND_SPEED));
+    }
+
+    public double getRainRate() {
+        return getValue(ArchiveColumn.RAIN_RATE);
+    }
+}
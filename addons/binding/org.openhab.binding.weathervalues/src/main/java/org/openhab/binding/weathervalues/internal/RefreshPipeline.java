@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link RefreshPipeline} runs the refresh of a {@link SQLiteReader} in its download, extract and publish stages
+ * on a dedicated executor, so a slow or hanging station never blocks a thread of the shared scheduler. Every stage has
+ * a deadline after which it is aborted. The deadline of the download is extended as long as bytes are transferred, so
+ * a full download of a large database is only aborted when it stalls. A refresh is skipped while the previous one is
+ * still running.
+ *
+ * An aborted stage is interrupted as well. The stages only write files with streams, which unlike channels are not
+ * closed by an interrupt, so an interrupt never leaves a file half-written.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class RefreshPipeline implements Runnable {
+
+    private static final long DOWNLOAD_STALL_TIMEOUT = 120;
+    private static final long EXTRACT_TIMEOUT = 60;
+    private static final long PUBLISH_TIMEOUT = 30;
+
+    private static final int MAX_THREADS = 4;
+    private static final int MAX_QUEUED_REFRESHES = 16;
+    private static final long KEEP_ALIVE = 60;
+
+    private static final LongSupplier NO_PROGRESS = () -> 0;
+
+    private Logger logger = LoggerFactory.getLogger(RefreshPipeline.class);
+
+    private final SQLiteReader reader;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final Runnable onDone;
+    private final TimeUnit timeoutUnit;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile boolean cancelled;
+    private volatile Future<?> refresh;
+
+    /**
+     * Creates a pipeline
+     *
+     * @param reader the reader to refresh
+     * @param executor the executor to run the stages on
+     * @param scheduler the scheduler to watch the deadlines of the stages
+     * @param onDone called after every refresh
+     */
+    public RefreshPipeline(SQLiteReader reader, ExecutorService executor, ScheduledExecutorService scheduler,
+            Runnable onDone) {
+        this(reader, executor, scheduler, onDone, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a pipeline whose deadlines are counted in the given unit instead of seconds, e.g. to test them
+     *
+     * @param timeoutUnit the unit of the timeouts of the stages
+     */
+    RefreshPipeline(SQLiteReader reader, ExecutorService executor, ScheduledExecutorService scheduler,
+            Runnable onDone, TimeUnit timeoutUnit) {
+        this.reader = reader;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.onDone = onDone;
+        this.timeoutUnit = timeoutUnit;
+    }
+
+    /**
+     * Starts a refresh, unless the previous one is still running
+     *
+     * @return true if the refresh was started, false if it was skipped
+     */
+    public boolean start() {
+        if (cancelled || !running.compareAndSet(false, true)) {
+            logger.debug("Previous refresh of {} is still running, skipping refresh", reader);
+            return false;
+        }
+        try {
+            refresh = executor.submit(this);
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.warn("Too many refreshes running, skipping refresh of {}", reader);
+            running.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * Starts a refresh, or runs one more refresh after the running one, e.g. for a change of the database which may
+     * not have been seen by the running refresh
+     */
+    public void trigger() {
+        if (!start()) {
+            pending.set(true);
+        }
+    }
+
+    /**
+     * Aborts the running refresh and prevents further ones
+     */
+    public void cancel() {
+        cancelled = true;
+        Future<?> refresh = this.refresh;
+        if (refresh != null) {
+            refresh.cancel(true);
+        }
+        reader.abort();
+    }
+
+    @Override
+    public void run() {
+        try {
+            do {
+                pending.set(false);
+                Boolean changed = runStage("download", DOWNLOAD_STALL_TIMEOUT, reader::getTransferredBytes,
+                        reader::download);
+                if (Boolean.TRUE.equals(changed)) {
+                    WeatherSnapshot snapshot = runStage("extract", EXTRACT_TIMEOUT, NO_PROGRESS, reader::extract);
+                    if (snapshot != null) {
+                        runStage("publish", PUBLISH_TIMEOUT, NO_PROGRESS, () -> {
+                            reader.publish(snapshot);
+                            return null;
+                        });
+                    }
+                }
+            } while (pending.get() && !cancelled);
+        } finally {
+            running.set(false);
+        }
+        if (!cancelled) {
+            if (pending.get()) {
+                // triggered after the last check of the loop
+                trigger();
+            }
+            onDone.run();
+        }
+    }
+
+    /**
+     * Runs a stage on the current thread and aborts it if it makes no progress within its timeout
+     *
+     * @param timeout the timeout in the unit of the pipeline, which starts again whenever the progress of the stage
+     *            changes
+     * @param progress the progress of the stage, e.g. the bytes transferred so far
+     * @return the result of the stage, or null if it failed or was aborted
+     */
+    private <T> T runStage(String name, long timeout, LongSupplier progress, Callable<T> stage) {
+        if (cancelled) {
+            return null;
+        }
+        Thread worker = Thread.currentThread();
+        AtomicLong lastProgress = new AtomicLong(progress.getAsLong());
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> deadline = scheduler.scheduleWithFixedDelay(() -> {
+            long currentProgress = progress.getAsLong();
+            if (lastProgress.getAndSet(currentProgress) != currentProgress || !expired.compareAndSet(false, true)) {
+                return;
+            }
+            logger.warn("Stage {} of refresh of {} made no progress within {} {}, aborting", name, reader, timeout,
+                    timeoutUnit);
+            reader.abort();
+            worker.interrupt();
+        }, timeout, timeout, timeoutUnit);
+        try {
+            return stage.call();
+        } catch (Exception e) {
+            logger.warn("Error during stage {} of refresh of {}: {}", name, reader, e.getMessage());
+            return null;
+        } finally {
+            deadline.cancel(false);
+            // clear an interrupt of the deadline, which must not leak into the next task of the thread
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Creates the executor for the refreshes, which uses virtual threads if the runtime supports them
+     *
+     * @return the executor
+     */
+    public static ExecutorService createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED_REFRESHES), createThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory createThreadFactory() {
+        String name = "weathervalues-refresh-";
+        try {
+            // Thread.ofVirtual().name(name, 0).factory() of Java 21, called by reflection to run on Java 8
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger number = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable, name + number.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
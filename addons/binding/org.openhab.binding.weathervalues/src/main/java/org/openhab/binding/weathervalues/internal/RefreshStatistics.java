@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The {@link RefreshStatistics} keeps the measurements of the latest refreshes of a reader in a rolling window per
+ * metric and calculates percentiles over it.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class RefreshStatistics {
+
+    /**
+     * The {@link Metric} is a measurement taken during a refresh.
+     */
+    public enum Metric {
+        DOWNLOAD_TIME("downloadTime", "ms"),
+        DOWNLOADED_BYTES("downloadedBytes", "B"),
+        CONNECTION_OPEN_TIME("connectionOpenTime", "ms"),
+        ARCHIVE_QUERY_TIME("archiveQueryTime", "ms"),
+        TEMPERATURE_QUERY_TIME("temperatureQueryTime", "ms"),
+        RAIN_QUERY_TIME("rainQueryTime", "ms"),
+        SUMMARY_QUERY_TIME("summaryQueryTime", "ms"),
+        DISPATCH_TIME("dispatchTime", "ms"),
+        RECORD_AGE("recordAge", "s");
+
+        private final String propertyName;
+        private final String unit;
+
+        private Metric(String propertyName, String unit) {
+            this.propertyName = propertyName;
+            this.unit = unit;
+        }
+
+        public String getPropertyName() {
+            return propertyName;
+        }
+    }
+
+    private static final int WINDOW_SIZE = 100;
+
+    private final double[][] samples = new double[Metric.values().length][WINDOW_SIZE];
+    private final int[] counts = new int[Metric.values().length];
+    private final double[] sorted = new double[WINDOW_SIZE];
+
+    /**
+     * Adds a measurement, replacing the oldest one once the window is full
+     *
+     * @param metric the metric
+     * @param value the measured value
+     */
+    public synchronized void record(Metric metric, double value) {
+        int index = metric.ordinal();
+        samples[index][counts[index] % WINDOW_SIZE] = value;
+        counts[index]++;
+    }
+
+    /**
+     * Returns the latest measurement of a metric
+     *
+     * @return the latest measurement, or {@link Double#NaN} if there is none
+     */
+    public synchronized double getLast(Metric metric) {
+        int index = metric.ordinal();
+        return counts[index] > 0 ? samples[index][(counts[index] - 1) % WINDOW_SIZE] : Double.NaN;
+    }
+
+    /**
+     * Returns a percentile of the measurements in the window, by the nearest-rank method
+     *
+     * @param metric the metric
+     * @param percentile the percentile, between 0 and 100
+     * @return the percentile, or {@link Double#NaN} if there are no measurements
+     */
+    public synchronized double getPercentile(Metric metric, double percentile) {
+        int index = metric.ordinal();
+        int size = Math.min(counts[index], WINDOW_SIZE);
+        if (size == 0) {
+            return Double.NaN;
+        }
+        System.arraycopy(samples[index], 0, sorted, 0, size);
+        Arrays.sort(sorted, 0, size);
+        int rank = (int) Math.ceil(percentile / 100 * size);
+        return sorted[Math.min(Math.max(rank, 1), size) - 1];
+    }
+
+    /**
+     * Returns the latest measurement, the median, the 95th percentile and the maximum of all metrics
+     *
+     * @return the statistics by the property name of their metric
+     */
+    public synchronized Map<String, String> toProperties() {
+        Map<String, String> properties = new HashMap<>();
+        for (Metric metric : Metric.values()) {
+            if (counts[metric.ordinal()] > 0) {
+                properties.put(metric.propertyName,
+                        String.format(Locale.ROOT, "last %.1f, p50 %.1f, p95 %.1f, max %.1f %s", getLast(metric),
+                                getPercentile(metric, 50), getPercentile(metric, 95), getPercentile(metric, 100),
+                                metric.unit));
+            }
+        }
+        return properties;
+    }
+}
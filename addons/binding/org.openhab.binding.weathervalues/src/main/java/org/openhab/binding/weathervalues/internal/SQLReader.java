@@ -1,11 +1,21 @@
 package org.openhab.binding.weathervalues.internal;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public interface SQLReader {
+    /**
+     * Executes a query once. The statement of the query is closed together with the returned result set.
+     */
     public ResultSet getResultSet(String sql) throws SQLException;
 
+    /**
+     * Returns the prepared statement of a recurring query. The statement is kept by the reader and reused by the next
+     * calls with the same SQL, so only its result sets are closed by the caller.
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException;
+
     public void removeListener(SQLReaderListener listener);
 
     public void addListener(SQLReaderListener listener);
@@ -15,6 +15,11 @@ package org.openhab.binding.weathervalues.internal;
  */
 public interface SQLReaderListener {
 
-    void refreshValues();
+    /**
+     * Refreshes the values from the snapshot of the latest refresh
+     *
+     * @param snapshot the snapshot of the latest refresh
+     */
+    void refreshValues(WeatherSnapshot snapshot);
 
 }
@@ -8,48 +8,117 @@
  */
 package org.openhab.binding.weathervalues.internal;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.Month;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-
-import org.openhab.binding.weathervalues.internal.data.OutdoorClimate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.openhab.binding.weathervalues.WeatherValuesBindingConstants;
+import org.openhab.binding.weathervalues.internal.RefreshStatistics.Metric;
+import org.openhab.binding.weathervalues.internal.data.DailySummary;
 import org.openhab.binding.weathervalues.internal.data.Rain;
-import org.openhab.binding.weathervalues.internal.data.Wind;
+import org.openhab.binding.weathervalues.internal.data.SummaryValues;
+import org.openhab.binding.weathervalues.internal.mapping.ArchiveColumn;
+import org.openhab.binding.weathervalues.internal.mapping.DaySummaryColumn;
+import org.openhab.binding.weathervalues.internal.mapping.MappingPlan;
+import org.openhab.binding.weathervalues.internal.mapping.RollingWindow;
+import org.openhab.binding.weathervalues.internal.mapping.SummaryStatistic;
+import org.openhab.binding.weathervalues.internal.mapping.UnitGroup;
+import org.openhab.binding.weathervalues.internal.mapping.UnitSystem;
+import org.openhab.binding.weathervalues.internal.source.DatabaseMirror;
+import org.openhab.binding.weathervalues.internal.source.DatabaseSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteErrorCode;
 
 /**
  * The {@link SQLiteReader}
  *
+ * The connection to the local database stays open across refreshes and is only reopened when the
+ * {@link DatabaseSource} has replaced the file. The statements of the recurring queries are prepared once per
+ * connection and schema and reused by every refresh.
+ *
  * @author Thomas Traunbauer - Initial contribution
  */
 public class SQLiteReader implements Runnable, SQLReader {
 
+    private static final String TEMPERATURE_OBSERVATION = "outTemp";
+    private static final String RAIN_OBSERVATION = "rain";
+    private static final int MAX_EXTRACT_ATTEMPTS = 2;
+
     private Logger logger = LoggerFactory.getLogger(SQLiteReader.class);
 
-    private String host;
-    private String dbName;
     private List<SQLReaderListener> listOfListener;
 
+    private DatabaseSource source;
+    private ArchiveCadence cadence = new ArchiveCadence();
+    private RefreshStatistics statistics = new RefreshStatistics();
+    private LatestRecord record = new LatestRecord();
+    private DailySummary dailyTemperature = new DailySummary(TEMPERATURE_OBSERVATION, UnitGroup.TEMPERATURE);
+    private DailySummary dailyRain = new DailySummary(RAIN_OBSERVATION, UnitGroup.RAIN);
+    private double[] dailyRow = new double[DaySummaryColumn.values().length];
+    private SummaryStatistics summaryStatistics = new SummaryStatistics();
+    private WindEngine windEngine = new WindEngine();
+    private ClimateEngine climateEngine = new ClimateEngine();
+    private double[] recentRow = new double[ArchiveColumn.values().length];
+
+    private UnitSystem unitSystem = UnitSystem.US;
+    private int schemaVersion = -1;
+    private MappingPlan archivePlan;
+    private MappingPlan dailyTemperaturePlan;
+    private MappingPlan dailyRainPlan;
+
     private Connection connection;
+    private long generation;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private volatile Statement activeStatement;
+    private volatile boolean aborted;
 
-    public OutdoorClimate outdoorClimate;
-    public Wind wind;
-    public Rain rain;
+    private final AtomicReference<WeatherSnapshot> snapshot = new AtomicReference<>();
 
     // Rain Data
     public SQLiteReader(String host, String dbName) throws ClassNotFoundException {
-        this.host = host;
-        this.dbName = dbName;
-        this.listOfListener = new ArrayList<>();
+        this(new DatabaseMirror(host, dbName,
+                new File(ConfigConstants.getUserDataFolder(), WeatherValuesBindingConstants.BINDING_ID)));
+    }
+
+    public SQLiteReader(DatabaseSource source) throws ClassNotFoundException {
+        this.listOfListener = new CopyOnWriteArrayList<>();
+        this.source = source;
 
         Class.forName("org.sqlite.JDBC");
     }
 
+    /**
+     * Returns the daily summary tables which are read next to the archive table, including the ones of the
+     * {@link SummaryStatistic}s
+     *
+     * @return the names of the daily summary tables
+     */
+    public static List<String> getDailySummaryTables() {
+        Set<String> tables = new LinkedHashSet<>();
+        tables.add(DailySummary.getTableName(TEMPERATURE_OBSERVATION));
+        tables.add(DailySummary.getTableName(RAIN_OBSERVATION));
+        for (SummaryStatistic statistic : SummaryStatistic.values()) {
+            tables.add(statistic.getTableName());
+        }
+        return new ArrayList<>(tables);
+    }
+
     @Override
     public void run() {
         callAllListener();
@@ -57,17 +126,31 @@ public class SQLiteReader implements Runnable, SQLReader {
 
     @Override
     public ResultSet getResultSet(String sql) throws SQLException {
-        return connection.createStatement().executeQuery(sql);
+        Statement statement = connection.createStatement();
+        try {
+            statement.closeOnCompletion();
+            activeStatement = statement;
+            return statement.executeQuery(sql);
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
     }
 
     @Override
-    public void removeListener(SQLReaderListener listener) {
-        for (int i = 0; i < listOfListener.size(); i++) {
-            if (listOfListener.get(i) == listener) {
-                listOfListener.remove(i);
-            }
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
         }
-        listOfListener.add(listener);
+        activeStatement = statement;
+        return statement;
+    }
+
+    @Override
+    public void removeListener(SQLReaderListener listener) {
+        listOfListener.remove(listener);
     }
 
     @Override
@@ -76,361 +159,399 @@ public class SQLiteReader implements Runnable, SQLReader {
     }
 
     @Override
-    public void callAllListener() {
+    public synchronized void callAllListener() {
         logger.debug("callAllListener()");
-        try {
-            open();
-
-            pullOutdoorClimate();
-            pullWind();
-            pullRain();
-
-            close();
-            for (SQLReaderListener listener : listOfListener) {
-                listener.refreshValues();
+        if (download()) {
+            WeatherSnapshot current = extract();
+            if (current != null) {
+                publish(current);
             }
-        } catch (SQLException e) {
-            logger.warn("Error during opening/closing database");
         }
     }
 
-    private void pullOutdoorClimate() {
-        Double outTemp = null;
-        Double outTempExtra = null;
-        Double outHumidity = null;
-        Double outHumidityExtra = null;
-        Double barometer = null;
-
-        Double outTempDayMin = null;
-        Double outTempDayMax = null;
-        Time outTempDayMinTime = null;
-        Time outTempDayMaxTime = null;
-
-        ResultSet resultSet;
-
+    /**
+     * Brings the local database up to date, the first stage of a refresh
+     *
+     * @return true if the database has changed and has to be read
+     */
+    public synchronized boolean download() {
+        aborted = false;
+        long start = System.nanoTime();
         try {
-            resultSet = getResultSet(
-                    "SELECT barometer, outTemp, outHumidity, ExtraTemp1, extraHumid1 FROM archive ORDER BY dateTime DESC LIMIT 1");
-        } catch (SQLException e) {
-            resultSet = null;
+            boolean changed = source.sync();
+            statistics.record(Metric.DOWNLOAD_TIME, getMillisSince(start));
+            statistics.record(Metric.DOWNLOADED_BYTES, source.getLastTransferredBytes());
+            if (!changed && snapshot.get() != null) {
+                logger.debug("Database {} is unchanged, skipping refresh", source);
+                cadence.noNewRecord(getNow());
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Error during synchronizing database {}: {}", source, e.getMessage());
+            cadence.noNewRecord(getNow());
+            return false;
         }
+    }
 
-        if (resultSet != null) {
-            String sOutTemp;
-            try {
-                sOutTemp = resultSet.getString("outTemp");
-            } catch (SQLException e1) {
-                sOutTemp = null;
-            }
-            if (sOutTemp != null) {
-                outTemp = Converter.fahrenheit_to_Celsius(Double.parseDouble(sOutTemp));
-            } else {
-                outTemp = null;
-            }
-
-            String sOutTempExtra;
-            try {
-                sOutTempExtra = resultSet.getString("extraTemp1");
-            } catch (SQLException e1) {
-                sOutTempExtra = null;
-            }
-            if (sOutTempExtra != null) {
-                outTempExtra = Converter.fahrenheit_to_Celsius(Double.parseDouble(sOutTempExtra));
-            } else {
-                outTempExtra = null;
-            }
-
-            String sOutHumidity;
+    /**
+     * Reads the values from the local database, the second stage of a refresh
+     *
+     * @return the snapshot of the values, or null if the database could not be read
+     */
+    public synchronized WeatherSnapshot extract() {
+        aborted = false;
+        for (int attempt = 1;; attempt++) {
             try {
-                sOutHumidity = resultSet.getString("outHumidity");
-            } catch (SQLException e1) {
-                sOutHumidity = null;
-            }
-            if (sOutHumidity != null) {
-                outHumidity = Double.parseDouble(sOutHumidity);
-            } else {
-                outHumidity = null;
+                return readSnapshot();
+            } catch (SQLException e) {
+                close();
+                if (aborted) {
+                    // the daily summaries are complete up to their last row and are continued by the next refresh
+                    logger.warn("Reading database {} was aborted", source);
+                } else if (isCorrupt(e)) {
+                    logger.warn("Database {} is corrupt, replacing it: {}", source, e.getMessage());
+                    source.invalidate();
+                    schemaVersion = -1;
+                    dailyTemperature.clear();
+                    dailyRain.clear();
+                    windEngine.clear();
+                    climateEngine.clear();
+                } else if (attempt < MAX_EXTRACT_ATTEMPTS) {
+                    // e.g. a busy or vanished file, the values read so far are still valid
+                    logger.debug("Error during reading database {}, reopening it: {}", source, e.getMessage());
+                    continue;
+                } else {
+                    logger.warn("Error during reading database {}: {}", source, e.getMessage());
+                }
+                cadence.noNewRecord(getNow());
+                return null;
+            } finally {
+                activeStatement = null;
             }
+        }
+    }
 
-            String sOutHumidityExtra;
-            try {
-                sOutHumidityExtra = resultSet.getString("extraHumid1");
-            } catch (SQLException e1) {
-                sOutHumidityExtra = null;
-            }
-            if (sOutHumidityExtra != null) {
-                outHumidityExtra = Double.parseDouble(sOutHumidityExtra);
-            } else {
-                outHumidityExtra = null;
-            }
+    private WeatherSnapshot readSnapshot() throws SQLException {
+        long start = System.nanoTime();
+        open();
+        preparePlans();
+        statistics.record(Metric.CONNECTION_OPEN_TIME, getMillisSince(start));
+
+        start = System.nanoTime();
+        record.read(this, archivePlan, unitSystem);
+        // weewx stores all records and the daily summaries of a database in the same unit system
+        unitSystem = UnitSystem.valueOf(record.getValue(ArchiveColumn.US_UNITS), unitSystem);
+        pullRecentRecords();
+        statistics.record(Metric.ARCHIVE_QUERY_TIME, getMillisSince(start));
+        start = System.nanoTime();
+        pullDailySummary(dailyTemperature, dailyTemperaturePlan);
+        statistics.record(Metric.TEMPERATURE_QUERY_TIME, getMillisSince(start));
+        start = System.nanoTime();
+        pullDailySummary(dailyRain, dailyRainPlan);
+        statistics.record(Metric.RAIN_QUERY_TIME, getMillisSince(start));
+        start = System.nanoTime();
+        SummaryValues summaryValues = summaryStatistics.read(this,
+                record.getDateTime() != Long.MIN_VALUE ? record.getDateTime() : getNow(), unitSystem);
+        statistics.record(Metric.SUMMARY_QUERY_TIME, getMillisSince(start));
+        if (record.getDateTime() != Long.MIN_VALUE) {
+            statistics.record(Metric.RECORD_AGE, getNow() - record.getDateTime());
+        }
+        if (aborted) {
+            throw new SQLException("aborted");
+        }
+        cadence.update(record.getDateTime(), record.getValue(ArchiveColumn.INTERVAL), getNow());
+
+        WeatherSnapshot current = new WeatherSnapshot(record.getDateTime(),
+                record.getOutdoorClimate(dailyTemperature), record.getWind(),
+                new Rain(record.getRainRate(), dailyRain, new Time()), summaryValues,
+                windEngine.getAverages(), climateEngine.getValues());
+        snapshot.set(current);
+        return current;
+    }
 
-            String sBarometer;
-            try {
-                sBarometer = resultSet.getString("barometer");
-            } catch (SQLException e1) {
-                sBarometer = null;
-            }
-            if (sBarometer != null) {
-                barometer = Converter.inchOfHG_to_Millibar(Double.parseDouble(sBarometer));
-            } else {
-                barometer = null;
-            }
+    /**
+     * Returns true if an error means that the local database is corrupt, which is only repaired by replacing it
+     */
+    private static boolean isCorrupt(SQLException e) {
+        // the extended result codes carry the primary result code in their lowest byte
+        int resultCode = e.getErrorCode() & 0xFF;
+        return resultCode == SQLiteErrorCode.SQLITE_CORRUPT.code || resultCode == SQLiteErrorCode.SQLITE_NOTADB.code;
+    }
 
-            try {
-                resultSet.close();
-            } catch (SQLException e1) {
-                resultSet = null;
+    /**
+     * Reads the archive records following a given record in dateTime order, e.g. for the history backfill. Every call
+     * seeks past the last record of the previous call on the primary key, so no cursor is kept open while the
+     * database is synchronized between two calls.
+     *
+     * @param after the time of the last record already read in seconds
+     * @param until the time of the last record to read in seconds
+     * @param dateTimes receives the times of the records
+     * @param rows receives the converted values of the records, at the ordinal of their {@link ArchiveColumn}
+     * @return the number of records read, less than the length of the arrays if there are no more records
+     * @throws SQLException if the database could not be read
+     */
+    public synchronized int readArchive(long after, long until, long[] dateTimes, double[][] rows)
+            throws SQLException {
+        try {
+            open();
+            preparePlans();
+            int count = 0;
+            PreparedStatement statement = prepareStatement(
+                    archivePlan.getSelect() + " WHERE dateTime > ? AND dateTime <= ? ORDER BY dateTime LIMIT ?");
+            statement.setLong(1, after);
+            statement.setLong(2, until);
+            statement.setInt(3, Math.min(dateTimes.length, rows.length));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    dateTimes[count] = archivePlan.readRaw(resultSet, rows[count]);
+                    count++;
+                }
             }
+            archivePlan.convert(rows, count, unitSystem);
+            return count;
+        } catch (SQLException e) {
+            close();
+            throw e;
+        } finally {
+            activeStatement = null;
         }
+    }
 
+    /**
+     * Returns the number of archive records in a range, e.g. to report the progress of the history backfill
+     *
+     * @param after the time of the last record not to count in seconds
+     * @param until the time of the last record to count in seconds
+     * @return the number of records
+     * @throws SQLException if the database could not be read
+     */
+    public synchronized long countArchive(long after, long until) throws SQLException {
         try {
-            resultSet = getResultSet(
-                    "SELECT min, minTime, max, maxTime FROM archive_day_outTemp ORDER BY dateTime DESC LIMIT 1");
+            open();
+            PreparedStatement statement = prepareStatement(
+                    "SELECT COUNT(*) FROM " + ArchiveColumn.TABLE_NAME + " WHERE dateTime > ? AND dateTime <= ?");
+            statement.setLong(1, after);
+            statement.setLong(2, until);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
         } catch (SQLException e) {
-            resultSet = null;
+            close();
+            throw e;
+        } finally {
+            activeStatement = null;
         }
+    }
 
-        if (resultSet != null) {
-            String sMinOutTemp;
-            try {
-                sMinOutTemp = resultSet.getString("min");
-            } catch (SQLException e1) {
-                sMinOutTemp = null;
-            }
-            try {
-                outTempDayMin = Converter.fahrenheit_to_Celsius(Double.parseDouble(sMinOutTemp));
-            } catch (NumberFormatException e) {
-                outTempDayMin = null;
-            }
-
-            String sMaxOutTemp;
-            try {
-                sMaxOutTemp = resultSet.getString("max");
-            } catch (SQLException e1) {
-                sMaxOutTemp = null;
-            }
-            try {
-                outTempDayMax = Converter.fahrenheit_to_Celsius(Double.parseDouble(sMaxOutTemp));
-            } catch (NumberFormatException e) {
-                outTempDayMax = null;
-            }
-
-            String sMinOutTempTime;
-            try {
-                sMinOutTempTime = resultSet.getString("minTime");
-            } catch (SQLException e1) {
-                sMinOutTempTime = null;
-            }
-            try {
-                outTempDayMinTime = Converter.seconds_to_Time(Long.parseLong(sMinOutTempTime));
-            } catch (NumberFormatException e) {
-                outTempDayMinTime = null;
-            }
-
-            String sMaxOutTempTime;
-            try {
-                sMaxOutTempTime = resultSet.getString("maxTime");
-            } catch (SQLException e1) {
-                sMaxOutTempTime = null;
-            }
-            try {
-                outTempDayMaxTime = Converter.seconds_to_Time(Long.parseLong(sMaxOutTempTime));
-            } catch (NumberFormatException e) {
-                outTempDayMaxTime = null;
-            }
-
-            try {
-                resultSet.close();
-            } catch (SQLException e1) {
-                resultSet = null;
-            }
+    /**
+     * Refreshes all listeners with a snapshot, the last stage of a refresh
+     *
+     * @param current the snapshot to publish
+     */
+    public void publish(WeatherSnapshot current) {
+        long start = System.nanoTime();
+        for (SQLReaderListener listener : listOfListener) {
+            listener.refreshValues(current);
         }
-        outdoorClimate = new OutdoorClimate(outTemp, outTempExtra, outHumidity, outHumidityExtra, barometer,
-                outTempDayMin, outTempDayMax, outTempDayMinTime, outTempDayMaxTime);
+        statistics.record(Metric.DISPATCH_TIME, getMillisSince(start));
     }
 
-    private void pullWind() {
-        Integer windDir = null;
-        Double windSpeed = null;
-
-        ResultSet resultSet;
-
-        try {
-            resultSet = getResultSet("SELECT windSpeed, windDir FROM archive ORDER BY dateTime DESC LIMIT 1");
-        } catch (SQLException e) {
-            resultSet = null;
-        }
+    /**
+     * Returns the number of bytes transferred so far by the running download stage, to watch its progress
+     *
+     * @return the number of bytes transferred
+     */
+    public long getTransferredBytes() {
+        return source.getTransferredBytes();
+    }
 
-        if (resultSet != null) {
-            String sWindDir;
+    /**
+     * Aborts the running stage of a refresh, e.g. when it exceeds its deadline. This does not wait for the stage.
+     */
+    public void abort() {
+        aborted = true;
+        source.abort();
+        Statement statement = activeStatement;
+        if (statement != null) {
             try {
-                sWindDir = resultSet.getString("windDir");
+                statement.cancel();
             } catch (SQLException e) {
-                sWindDir = null;
-            }
-            if (sWindDir != null) {
-                windDir = (int) Double.parseDouble(sWindDir);
-            } else {
-                windDir = null;
+                logger.debug("Error during cancelling query: {}", e.getMessage());
             }
+        }
+    }
 
-            String sWindSpeed;
-            try {
-                sWindSpeed = resultSet.getString("windSpeed");
-            } catch (SQLException e) {
-                sWindSpeed = null;
-            }
-            if (sWindSpeed != null) {
-                windSpeed = Converter.knoten_to_kmh(Double.parseDouble(sWindSpeed));
-            } else {
-                windSpeed = null;
-            }
+    @Override
+    public String toString() {
+        return source.toString();
+    }
 
-            try {
-                resultSet.close();
-            } catch (SQLException e1) {
-                resultSet = null;
-            }
-        }
-        wind = new Wind(windDir, windSpeed);
+    /**
+     * Returns the snapshot of the latest refresh
+     *
+     * @return the snapshot of the latest refresh, or null if the database has not been read yet
+     */
+    public WeatherSnapshot getSnapshot() {
+        return snapshot.get();
     }
 
-    private void pullRain() {
-        Double rainRate = null;
-        Double rainCurrentDay = null;
-        Double rainCurrentWeek = null;
-        List<Double> listOfRainPerMonth = new ArrayList<>();
+    /**
+     * Returns the delay until the next refresh, shortly after weewx is expected to write its next archive record
+     *
+     * @param defaultDelay the delay in seconds if the archive interval is not known yet
+     * @return the delay in seconds
+     */
+    public long getNextRefreshDelay(long defaultDelay) {
+        return cadence.getNextDelay(getNow(), defaultDelay);
+    }
 
-        ResultSet resultSet;
+    /**
+     * Returns the statistics of the latest refreshes
+     *
+     * @return the statistics of the latest refreshes
+     */
+    public RefreshStatistics getStatistics() {
+        return statistics;
+    }
 
-        try {
-            resultSet = getResultSet("SELECT rainRate FROM archive ORDER BY dateTime DESC LIMIT 1");
-        } catch (SQLException e) {
-            resultSet = null;
-        }
+    private static long getNow() {
+        return System.currentTimeMillis() / 1000;
+    }
 
-        if (resultSet != null) {
-            String sRainRate;
-            try {
-                sRainRate = resultSet.getString("rainRate");
-            } catch (SQLException e) {
-                sRainRate = null;
-            }
-            if (sRainRate != null) {
-                rainRate = Converter.inchPerHour_to_MillimeterPerHour(Double.parseDouble(sRainRate));
-            } else {
-                rainRate = null;
-            }
+    private static double getMillisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
 
-            try {
-                resultSet.close();
-            } catch (SQLException e1) {
-                resultSet = null;
-            }
+    /**
+     * Creates the mapping plans of all tables if the schema of the database has changed since they were created. The
+     * prepared statements of the previous schema are closed then.
+     */
+    private void preparePlans() throws SQLException {
+        int version;
+        try (ResultSet resultSet = prepareStatement("PRAGMA schema_version").executeQuery()) {
+            version = resultSet.next() ? resultSet.getInt(1) : 0;
         }
-
-        try {
-            resultSet = getResultSet("SELECT sum FROM archive_day_rain ORDER BY dateTime DESC LIMIT 1");
-        } catch (SQLException e) {
-            resultSet = null;
+        if (version != schemaVersion || archivePlan == null) {
+            closeStatements();
+            archivePlan = ArchiveColumn.createPlan(MappingPlan.getColumns(this, ArchiveColumn.TABLE_NAME));
+            dailyTemperaturePlan = createPlan(dailyTemperature);
+            dailyRainPlan = createPlan(dailyRain);
+            summaryStatistics.prepare(this);
+            schemaVersion = version;
         }
-        if (resultSet != null) {
-            String sSumRain;
-            try {
-                sSumRain = resultSet.getString("sum");
-            } catch (SQLException e1) {
-                sSumRain = null;
-            }
-            try {
-                rainCurrentDay = Converter.inch_to_Millimeter(Double.parseDouble(sSumRain));
-            } catch (NumberFormatException e) {
-                rainCurrentDay = null;
-            }
+    }
 
-            try {
-                resultSet.close();
-            } catch (SQLException e1) {
-                resultSet = null;
-            }
-        }
+    private MappingPlan createPlan(DailySummary summary) throws SQLException {
+        return DaySummaryColumn.createPlan(summary.getTableName(), summary.getUnitGroup(),
+                MappingPlan.getColumns(this, summary.getTableName()));
+    }
 
+    /**
+     * Appends the rows of a daily summary table which are newer than the last row of the summary. The last row is
+     * read again, as the summary of the current day is updated with every archive record.
+     *
+     * @param summary the daily summary to complete
+     * @param plan the plan of the daily summary table
+     */
+    private void pullDailySummary(DailySummary summary, MappingPlan plan) {
         try {
-            resultSet = getResultSet("SELECT dateTime, sum FROM archive_day_rain ORDER BY dateTime");
+            PreparedStatement statement = prepareStatement(plan.getSelect() + " WHERE dateTime >= ? ORDER BY dateTime");
+            statement.setLong(1, summary.isEmpty() ? Long.MIN_VALUE : summary.getLastKey());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long key = plan.read(resultSet, dailyRow, unitSystem);
+                    summary.setRow(summary.appendRow(key), dailyRow);
+                }
+            }
         } catch (SQLException e) {
-            resultSet = null;
+            logger.debug("Error during reading {}: {}", summary.getTableName(), e.getMessage());
         }
+    }
 
-        List<Time> listOfTime = new ArrayList<>();
-        List<Double> listOfRain = new ArrayList<>();
-        if (resultSet != null) {
-            try {
+    /**
+     * Feeds the archive records of the longest {@link RollingWindow} which are newer than the last record fed to the
+     * engines, which is usually only the latest record.
+     */
+    private void pullRecentRecords() {
+        long latest = record.getDateTime();
+        long last = Math.min(windEngine.getLastDateTime(), climateEngine.getLastDateTime());
+        if (latest < Math.max(windEngine.getLastDateTime(), climateEngine.getLastDateTime())) {
+            // the database has been replaced with an older one
+            windEngine.clear();
+            climateEngine.clear();
+            last = Long.MIN_VALUE;
+        }
+        if (latest == Long.MIN_VALUE || latest == last) {
+            return;
+        }
+        try {
+            PreparedStatement statement = prepareStatement(
+                    archivePlan.getSelect() + " WHERE dateTime > ? ORDER BY dateTime");
+            statement.setLong(1, Math.max(last, latest - RollingWindow.getMaximumSeconds()));
+            try (ResultSet resultSet = statement.executeQuery()) {
                 while (resultSet.next()) {
-                    String sTimeInSeconds = resultSet.getString("dateTime");
-                    String sRain = resultSet.getString("sum");
-
-                    try {
-                        listOfTime.add(0, Converter.seconds_to_Time(Long.parseLong(sTimeInSeconds)));
-                    } catch (NumberFormatException e) {
-                    }
-                    try {
-                        listOfRain.add(0, Converter.inch_to_Millimeter(Double.parseDouble(sRain)));
-                    } catch (NumberFormatException e) {
-                        if (listOfTime.size() != listOfRain.size()) {
-                            listOfTime.remove(0);
-                        }
-                    }
+                    long dateTime = archivePlan.read(resultSet, recentRow, unitSystem);
+                    windEngine.add(dateTime, recentRow);
+                    climateEngine.add(dateTime, recentRow);
                 }
-            } catch (SQLException e) {
-                listOfTime.clear();
-                listOfRain.clear();
-            }
-
-            try {
-                resultSet.close();
-            } catch (SQLException e1) {
-                resultSet = null;
             }
+        } catch (SQLException e) {
+            logger.debug("Error during reading recent records: {}", e.getMessage());
         }
+    }
 
-        if (listOfTime.size() > 0) {
-            for (int i = 0; i < listOfTime.get(0).getDayOfWeek(); i++) {
-                if (rainCurrentWeek == null) {
-                    rainCurrentWeek = listOfRain.get(i);
-                } else {
-                    rainCurrentWeek += listOfRain.get(i);
-                }
-            }
+    /**
+     * Closes the connection to the database
+     */
+    public synchronized void dispose() {
+        close();
+    }
 
-            for (int i = 1; i <= 12; i++) {
-                Month month = Month.of(i);
-                double rainMonthTemp = 0;
-                for (int j = 0; j < listOfTime.size(); j++) {
-                    if (listOfTime.get(j).getYear() == new Time().getYear()) {
-                        if (listOfTime.get(j).getMonth() == month) {
-                            rainMonthTemp += listOfRain.get(j);
-                        }
-                    }
-                }
-                if (month.getValue() > new Time().getMonth().getValue()) {
-                    listOfRainPerMonth.add(null);
-                } else {
-                    listOfRainPerMonth.add(rainMonthTemp);
-                }
-            }
-        } else {
-            for (int i = 1; i <= 12; i++) {
-                listOfRainPerMonth.add(null);
+    /**
+     * Opens the connection to the database, or reopens it if the file has been replaced since it was opened
+     */
+    private void open() throws SQLException {
+        long currentGeneration = source.getGeneration();
+        if (connection != null && currentGeneration != generation) {
+            logger.debug("Database {} has been replaced, reopening it", source);
+            close();
+        }
+        if (connection == null) {
+            SQLiteConfig config = new SQLiteConfig();
+            config.setReadOnly(true);
+            connection = DriverManager.getConnection("jdbc:sqlite:" + source.getFile().getPath(),
+                    config.toProperties());
+            generation = currentGeneration;
+            // the driver reports a file which is not a database as a finalized statement when a PRAGMA is the first
+            // statement, reading the schema first makes it report the result code
+            try (Statement statement = connection.createStatement();
+                    ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM sqlite_master")) {
+                resultSet.next();
             }
         }
-
-        rain = new Rain(rainRate, rainCurrentDay, rainCurrentWeek, listOfRainPerMonth);
     }
 
-    private void open() throws SQLException {
-        connection = DriverManager.getConnection("jdbc:sqlite::resource:http://" + host + "/" + dbName);
+    private void closeStatements() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.debug("Error during closing statement: {}", e.getMessage());
+            }
+        }
+        statements.clear();
     }
 
-    private void close() throws SQLException {
-        connection.close();
+    private void close() {
+        closeStatements();
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.debug("Error during closing database: {}", e.getMessage());
+            }
+            connection = null;
+        }
     }
 }
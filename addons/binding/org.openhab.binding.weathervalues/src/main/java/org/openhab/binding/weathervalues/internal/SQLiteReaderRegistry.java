@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.openhab.binding.weathervalues.WeatherValuesBindingConstants;
+import org.openhab.binding.weathervalues.internal.source.DatabaseWatcher;
+import org.openhab.binding.weathervalues.internal.source.FeedDatabase;
+import org.openhab.binding.weathervalues.internal.source.LocalDatabase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link SQLiteReaderRegistry} shares one {@link SQLiteReader} between all Things reading the same database of
+ * the same host, so the database is fetched once per cycle and every listener is refreshed from the same data. The
+ * reader is released when its last listener is released.
+ *
+ * The reader is scheduled with one-shot jobs, which start a refresh on the {@link RefreshPipeline} of the reader.
+ * The next job is scheduled when the refresh is done, or right away if it is skipped. With adaptive polling,
+ * the next job runs shortly after weewx is expected to write its next archive record, otherwise after the shortest
+ * refresh interval of the listeners. Adaptive polling is only used if all listeners of a reader requested it.
+ *
+ * A database in the local file system is read directly. It is watched for changes and refreshed as soon as weewx
+ * commits, the scheduled jobs only remain as a fallback. In feed mode, the rows newer than the last refresh are
+ * requested from the weewx-feed exporter on the host instead of the database.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class SQLiteReaderRegistry {
+
+    private static final long INITIAL_DELAY = 1;
+
+    /**
+     * The {@link Registration} is the polling configuration of a listener.
+     */
+    private static class Registration {
+        private final long refreshInterval;
+        private final boolean adaptive;
+
+        private Registration(long refreshInterval, boolean adaptive) {
+            this.refreshInterval = refreshInterval;
+            this.adaptive = adaptive;
+        }
+    }
+
+    /**
+     * The {@link SharedReader} is a reader together with its listeners and its scheduled job.
+     */
+    private class SharedReader implements Runnable {
+        private final SQLiteReader reader;
+        private final ScheduledExecutorService scheduler;
+        private final RefreshPipeline pipeline;
+        private final Map<SQLReaderListener, Registration> registrations = new HashMap<>();
+        private DatabaseWatcher watcher;
+        private ScheduledFuture<?> job;
+
+        private SharedReader(SQLiteReader reader, ScheduledExecutorService scheduler) {
+            this.reader = reader;
+            this.scheduler = scheduler;
+            this.pipeline = new RefreshPipeline(reader, executor, scheduler, this::scheduleNext);
+            this.job = scheduler.schedule(this, INITIAL_DELAY, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void run() {
+            if (!pipeline.start()) {
+                scheduleNext();
+            }
+        }
+
+        private void scheduleNext() {
+            synchronized (SQLiteReaderRegistry.this) {
+                if (job != null) {
+                    job.cancel(false);
+                    job = scheduler.schedule(this, getNextDelay(), TimeUnit.SECONDS);
+                }
+            }
+        }
+
+        private void stop() {
+            job.cancel(false);
+            job = null;
+            if (watcher != null) {
+                watcher.stop();
+            }
+            pipeline.cancel();
+            try {
+                // the reader may still be busy with the aborted refresh
+                executor.execute(reader::dispose);
+            } catch (RejectedExecutionException e) {
+                reader.dispose();
+            }
+        }
+
+        private long getNextDelay() {
+            long refreshInterval = Long.MAX_VALUE;
+            boolean adaptive = true;
+            for (Registration registration : registrations.values()) {
+                refreshInterval = Math.min(refreshInterval, registration.refreshInterval);
+                adaptive &= registration.adaptive;
+            }
+            return adaptive ? reader.getNextRefreshDelay(refreshInterval) : refreshInterval;
+        }
+    }
+
+    private Logger logger = LoggerFactory.getLogger(SQLiteReaderRegistry.class);
+
+    private final Map<String, SharedReader> sharedReaders = new HashMap<>();
+    private final ExecutorService executor = RefreshPipeline.createExecutor();
+
+    /**
+     * Returns the reader of a database and registers a listener to it
+     *
+     * @param host the host of the database or the exporter, or the directory of a local database
+     * @param dbName the name of the database
+     * @param mode the mode to access the database, one of the DEVICE_MODE_* constants of
+     *            {@link WeatherValuesBindingConstants}
+     * @param listener the listener to refresh
+     * @param refreshInterval the refresh interval of the listener in seconds
+     * @param adaptive true to poll shortly after weewx is expected to write the next archive record, with the
+     *            refresh interval as long as the archive interval is not known
+     * @param scheduler the scheduler to run the reader, if it is not running yet
+     * @return the shared reader
+     * @throws ClassNotFoundException if the driver of the database could not be loaded
+     */
+    public synchronized SQLiteReader acquire(String host, String dbName, String mode, SQLReaderListener listener,
+            long refreshInterval, boolean adaptive, ScheduledExecutorService scheduler) throws ClassNotFoundException {
+        String key = mode + ":" + host + "/" + dbName;
+        SharedReader sharedReader = sharedReaders.get(key);
+        if (sharedReader == null) {
+            if (WeatherValuesBindingConstants.DEVICE_MODE_FILE.equals(mode)) {
+                File file = new File(host, dbName);
+                sharedReader = new SharedReader(new SQLiteReader(new LocalDatabase(file)), scheduler);
+                watch(sharedReader, file, scheduler);
+            } else if (WeatherValuesBindingConstants.DEVICE_MODE_FEED.equals(mode)) {
+                File directory = new File(ConfigConstants.getUserDataFolder(),
+                        WeatherValuesBindingConstants.BINDING_ID);
+                sharedReader = new SharedReader(new SQLiteReader(
+                        new FeedDatabase(host, dbName, directory, SQLiteReader.getDailySummaryTables())), scheduler);
+            } else {
+                sharedReader = new SharedReader(new SQLiteReader(host, dbName), scheduler);
+            }
+            sharedReaders.put(key, sharedReader);
+            logger.debug("Created reader for database {} on {}", dbName, host);
+        }
+        sharedReader.reader.addListener(listener);
+        sharedReader.registrations.put(listener, new Registration(refreshInterval, adaptive));
+        return sharedReader.reader;
+    }
+
+    /**
+     * Unregisters a listener from its reader. The reader is stopped if this was its last listener.
+     *
+     * @param listener the listener to unregister
+     */
+    public synchronized void release(SQLReaderListener listener) {
+        for (Iterator<SharedReader> iterator = sharedReaders.values().iterator(); iterator.hasNext();) {
+            SharedReader sharedReader = iterator.next();
+            if (sharedReader.registrations.remove(listener) != null) {
+                sharedReader.reader.removeListener(listener);
+                if (sharedReader.registrations.isEmpty()) {
+                    sharedReader.stop();
+                    iterator.remove();
+                    logger.debug("Released reader of last listener");
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops all readers and the executor of their refreshes, e.g. when the binding is stopped
+     */
+    public synchronized void dispose() {
+        for (SharedReader sharedReader : sharedReaders.values()) {
+            sharedReader.stop();
+        }
+        sharedReaders.clear();
+        // the readers which are still busy with an aborted refresh are disposed before the threads end
+        executor.shutdown();
+    }
+
+    private void watch(SharedReader sharedReader, File file, ScheduledExecutorService scheduler) {
+        DatabaseWatcher watcher = new DatabaseWatcher(file, scheduler, sharedReader.pipeline::trigger);
+        try {
+            watcher.start();
+            sharedReader.watcher = watcher;
+        } catch (IOException e) {
+            logger.warn("Error during watching database {}, falling back to polling: {}", file, e.getMessage());
+        }
+    }
+}
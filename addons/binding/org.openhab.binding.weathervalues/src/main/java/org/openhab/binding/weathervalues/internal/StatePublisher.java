@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * The {@link StatePublisher} suppresses state updates of channels whose value has not changed since it was last
+ * published. A numeric value is regarded as unchanged while it stays within the deadband of its channel around the
+ * last published value. A value is published anyway once the last publication is older than the maximum age.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class StatePublisher {
+
+    /**
+     * The {@link PublishedState} is the last state published to a channel.
+     */
+    private static class PublishedState {
+        private State state;
+        private long time;
+    }
+
+    private final BiConsumer<String, State> updater;
+    private final Map<String, PublishedState> publishedStates = new HashMap<>();
+    private final Map<String, Double> deadbands = new HashMap<>();
+
+    private long maxAge;
+    private long publishedCount;
+    private long suppressedCount;
+
+    /**
+     * Creates a publisher
+     *
+     * @param updater the function which publishes the state of a channel
+     * @param maxAge the maximum age of a published state in milliseconds, 0 publishes every update
+     */
+    public StatePublisher(BiConsumer<String, State> updater, long maxAge) {
+        this.updater = updater;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Sets the deadband of a channel
+     *
+     * @param channelId the id of the channel
+     * @param deadband the largest difference of a numeric value to the last published value which is suppressed, 0
+     *            to suppress only equal values
+     */
+    public synchronized void setDeadband(String channelId, double deadband) {
+        if (deadband > 0) {
+            deadbands.put(channelId, deadband);
+        } else {
+            deadbands.remove(channelId);
+        }
+    }
+
+    /**
+     * Publishes the state of a channel, unless it is unchanged
+     *
+     * @param channelId the id of the channel
+     * @param state the new state
+     * @return true if the state was published
+     */
+    public boolean publish(String channelId, State state) {
+        return publish(channelId, state, System.currentTimeMillis());
+    }
+
+    /**
+     * Publishes the state of a channel at the given time, unless it is unchanged
+     *
+     * @param channelId the id of the channel
+     * @param state the new state
+     * @param now the current time in milliseconds
+     * @return true if the state was published
+     */
+    synchronized boolean publish(String channelId, State state, long now) {
+        PublishedState published = publishedStates.get(channelId);
+        if (published == null) {
+            published = new PublishedState();
+            publishedStates.put(channelId, published);
+        } else if (maxAge > 0 && now - published.time < maxAge && isUnchanged(channelId, published.state, state)) {
+            suppressedCount++;
+            return false;
+        }
+        published.state = state;
+        published.time = now;
+        publishedCount++;
+        updater.accept(channelId, state);
+        return true;
+    }
+
+    /**
+     * Forgets the last published state of a channel, so the next update is published, e.g. when an item is linked
+     *
+     * @param channelId the id of the channel
+     */
+    public synchronized void invalidate(String channelId) {
+        publishedStates.remove(channelId);
+    }
+
+    /**
+     * Forgets the last published state of all channels
+     */
+    public synchronized void invalidateAll() {
+        publishedStates.clear();
+    }
+
+    public synchronized long getPublishedCount() {
+        return publishedCount;
+    }
+
+    public synchronized long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    private boolean isUnchanged(String channelId, State published, State state) {
+        if (state.equals(published)) {
+            return true;
+        }
+        Double deadband = deadbands.get(channelId);
+        if (deadband != null && state instanceof DecimalType && published instanceof DecimalType) {
+            double difference = ((DecimalType) state).doubleValue() - ((DecimalType) published).doubleValue();
+            return Math.abs(difference) <= deadband;
+        }
+        return false;
+    }
+}
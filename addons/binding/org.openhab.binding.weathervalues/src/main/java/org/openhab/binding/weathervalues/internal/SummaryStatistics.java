@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.openhab.binding.weathervalues.internal.data.SummaryValues;
+import org.openhab.binding.weathervalues.internal.mapping.MappingPlan;
+import org.openhab.binding.weathervalues.internal.mapping.SummaryStatistic;
+import org.openhab.binding.weathervalues.internal.mapping.UnitGroup;
+import org.openhab.binding.weathervalues.internal.mapping.UnitSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link SummaryStatistics} computes the {@link SummaryStatistic}s in the database, each with one aggregate over
+ * a dateTime range of a daily summary table, so no rows are transferred into Java.
+ *
+ * The queries are prepared whenever the schema of the database changes. A statistic is left out if its table or
+ * column does not exist, and the query plan of every other one is checked to search the dateTime primary key instead
+ * of scanning the table.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class SummaryStatistics {
+
+    private Logger logger = LoggerFactory.getLogger(SummaryStatistics.class);
+
+    private final boolean[] available = new boolean[SummaryStatistic.values().length];
+    private final double[] values = new double[SummaryStatistic.values().length];
+
+    /**
+     * Checks the tables, columns and query plans of all statistics
+     *
+     * @param reader the reader with an open connection
+     */
+    public void prepare(SQLReader reader) {
+        for (SummaryStatistic statistic : SummaryStatistic.values()) {
+            boolean exists;
+            try {
+                Set<String> columns = MappingPlan.getColumns(reader, statistic.getTableName());
+                exists = columns.contains(statistic.getColumn().getColumnName());
+            } catch (SQLException e) {
+                exists = false;
+            }
+            available[statistic.ordinal()] = exists && statistic.getUnitGroup() != null;
+            if (available[statistic.ordinal()]) {
+                checkQueryPlan(reader, statistic);
+            } else {
+                logger.debug("Statistic {} is not available in the database", statistic);
+            }
+        }
+    }
+
+    /**
+     * Computes all statistics for the windows which contain a time
+     *
+     * @param reader the reader with an open connection
+     * @param epochSecond the time in seconds since the epoch, usually the one of the latest archive record
+     * @param unitSystem the unit system of the database
+     * @return the values of all statistics
+     * @throws SQLException if the database could not be read
+     */
+    public SummaryValues read(SQLReader reader, long epochSecond, UnitSystem unitSystem) throws SQLException {
+        Arrays.fill(values, Double.NaN);
+        long lastDay = Time.startOfDay(epochSecond);
+        for (SummaryStatistic statistic : SummaryStatistic.values()) {
+            if (!available[statistic.ordinal()]) {
+                continue;
+            }
+            PreparedStatement statement = reader.prepareStatement(statistic.getQuery());
+            statement.setLong(1, statistic.getWindow().getStart(epochSecond));
+            statement.setLong(2, lastDay);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    double value = resultSet.getDouble(1);
+                    if (!resultSet.wasNull()) {
+                        UnitGroup unitGroup = statistic.getUnitGroup();
+                        values[statistic.ordinal()] = unitGroup.convert(value, unitSystem);
+                    }
+                }
+            }
+        }
+        return new SummaryValues(values);
+    }
+
+    private void checkQueryPlan(SQLReader reader, SummaryStatistic statistic) {
+        String plan;
+        try {
+            plan = getQueryPlan(reader, statistic);
+        } catch (SQLException e) {
+            logger.debug("Error during explaining query of {}: {}", statistic, e.getMessage());
+            return;
+        }
+        if (!usesIndex(plan)) {
+            logger.warn("Query of {} does not use the dateTime index of {}: {}", statistic, statistic.getTableName(),
+                    plan);
+        } else {
+            logger.debug("Query plan of {}: {}", statistic, plan);
+        }
+    }
+
+    /**
+     * Returns the query plan of a statistic
+     *
+     * @return the details of the steps of the plan, each followed by a semicolon
+     * @throws SQLException if the query could not be explained, e.g. because its table does not exist
+     */
+    static String getQueryPlan(SQLReader reader, SummaryStatistic statistic) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        PreparedStatement statement = reader.prepareStatement("EXPLAIN QUERY PLAN " + statistic.getQuery());
+        statement.setLong(1, 0);
+        statement.setLong(2, 0);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                plan.append(resultSet.getString("detail")).append(';');
+            }
+        }
+        return plan.toString();
+    }
+
+    /**
+     * Returns whether a query plan searches the primary key or an index instead of scanning the table
+     */
+    static boolean usesIndex(String plan) {
+        return plan.contains("USING INTEGER PRIMARY KEY") || plan.contains("USING INDEX")
+                || plan.contains("USING COVERING INDEX");
+    }
+}
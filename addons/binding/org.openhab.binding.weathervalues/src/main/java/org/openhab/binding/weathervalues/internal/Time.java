@@ -8,108 +8,149 @@
  */
 package org.openhab.binding.weathervalues.internal;
 
+import java.time.Instant;
 import java.time.Month;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
 import java.util.Calendar;
 
 import org.eclipse.smarthome.core.library.types.DateTimeType;
 
 /**
- * The {@link Time}
+ * The {@link Time} is a point in time in the default time zone, stored as milliseconds since the epoch.
+ *
+ * The date and time fields are calculated with plain arithmetic on the epoch day. The offset of the time zone is
+ * taken from a cached window between two transitions of the zone rules, so none of the getters and none of the
+ * static epoch second helpers allocate objects, apart from a lookup of the zone rules on every transition. Only
+ * {@link #getDateTimeType()} creates a {@link Calendar}, which the state requires.
  *
  * @author Thomas Traunbauer - Initial contribution
  */
 public class Time {
-    private long timeInMilliseconds;
+
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final long MILLIS_PER_SECOND = 1000;
+
+    // days from 0000-03-01 to 1970-01-01 in the proleptic Gregorian calendar
+    private static final long DAYS_0000_TO_1970 = 719468;
+    private static final int DAYS_PER_ERA = 146097;
+
+    private static final ZoneRules RULES = ZoneId.systemDefault().getRules();
+    private static final int OFFSET_WINDOW_CACHE_SIZE = 4;
+    private static final OffsetWindow[] OFFSET_WINDOWS = new OffsetWindow[OFFSET_WINDOW_CACHE_SIZE];
+    private static int nextOffsetWindow;
+
+    private final long timeInMilliseconds;
+
+    /**
+     * The {@link OffsetWindow} is the offset of the time zone between two transitions. It is immutable, so the
+     * cached windows can be shared between threads without synchronization.
+     */
+    private static final class OffsetWindow {
+        private final long from;
+        private final long until;
+        private final int offset;
+
+        private OffsetWindow(long from, long until, int offset) {
+            this.from = from;
+            this.until = until;
+            this.offset = offset;
+        }
+    }
 
     public Time() {
-        this.timeInMilliseconds = Calendar.getInstance().getTimeInMillis();
+        this.timeInMilliseconds = System.currentTimeMillis();
     }
 
     public Time(long timeInMilliseconds) {
         this.timeInMilliseconds = timeInMilliseconds;
     }
 
-    public Time(String dateAndTime) {
-        StringBuilder temp = new StringBuilder();
-        temp.append(dateAndTime);
-        while (temp.indexOf("\"") >= 0) {
-            temp.delete(temp.indexOf("\""), temp.indexOf("\"") + 1);
+    /**
+     * Parses a date and time in the format "yyyy-MM-dd HH:mm:ss", optionally enclosed in quotes
+     *
+     * @param dateAndTime the date and time
+     * @throws IllegalArgumentException if the date and time does not contain six fields
+     */
+    public Time(String dateAndTime) throws IllegalArgumentException {
+        int[] fields = new int[6];
+        int field = -1;
+        boolean inNumber = false;
+        for (int i = 0; i < dateAndTime.length(); i++) {
+            char c = dateAndTime.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (!inNumber) {
+                    field++;
+                    if (field >= fields.length) {
+                        throw new IllegalArgumentException("Invalid date and time: " + dateAndTime);
+                    }
+                    inNumber = true;
+                }
+                fields[field] = fields[field] * 10 + (c - '0');
+            } else {
+                inNumber = false;
+            }
         }
-
-        String[] temp1 = temp.toString().split(" ");
-        String[] dateString = temp1[0].split("-");
-        String[] timeString = temp1[1].split(":");
-
-        int year = Integer.parseInt(dateString[0]);
-        int month = Integer.parseInt(dateString[1]) - 1;
-        int day = Integer.parseInt(dateString[2]);
-        int hour = Integer.parseInt(timeString[0]);
-        int min = Integer.parseInt(timeString[1]);
-        int sec = Integer.parseInt(timeString[2]);
-
-        Calendar date = Calendar.getInstance();
-        date.set(year, month, day, hour, min, sec);
-        this.timeInMilliseconds = date.getTimeInMillis();
+        if (field != fields.length - 1) {
+            throw new IllegalArgumentException("Invalid date and time: " + dateAndTime);
+        }
+        this.timeInMilliseconds = toEpochSecond(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5])
+                * MILLIS_PER_SECOND;
     }
 
     public Time(int year, int month, int day, int hour, int min, int sec) {
-        month = month - 1;
-
-        Calendar date = Calendar.getInstance();
-        date.set(year, month, day, hour, min, sec);
-        this.timeInMilliseconds = date.getTimeInMillis();
+        this.timeInMilliseconds = toEpochSecond(year, month, day, hour, min, sec) * MILLIS_PER_SECOND;
     }
 
     public int getYear() {
-        Calendar date = Calendar.getInstance();
-        date.setTimeInMillis(this.timeInMilliseconds);
-        return date.get(Calendar.YEAR);
+        return year(getEpochSecond());
     }
 
     public Month getMonth() {
-        Calendar date = Calendar.getInstance();
-        date.setTimeInMillis(this.timeInMilliseconds);
-        return Month.of(date.get(Calendar.MONTH) + 1);
+        return Month.of(month(getEpochSecond()));
     }
 
     public int getDay() {
-        Calendar date = Calendar.getInstance();
-        date.setTimeInMillis(this.timeInMilliseconds);
-        return date.get(Calendar.DAY_OF_MONTH);
+        return dayOfMonth(getEpochSecond());
     }
 
     public int getHour() {
-        Calendar date = Calendar.getInstance();
-        date.setTimeInMillis(this.timeInMilliseconds);
-        return date.get(Calendar.HOUR_OF_DAY);
+        return secondOfDay(getEpochSecond()) / 3600;
     }
 
     public int getMinute() {
-        Calendar date = Calendar.getInstance();
-        date.setTimeInMillis(this.timeInMilliseconds);
-        return date.get(Calendar.MINUTE);
+        return secondOfDay(getEpochSecond()) / 60 % 60;
     }
 
     public int getSecond() {
-        Calendar date = Calendar.getInstance();
-        date.setTimeInMillis(this.timeInMilliseconds);
-        return date.get(Calendar.SECOND);
+        return secondOfDay(getEpochSecond()) % 60;
     }
 
     public int getDayOfWeek() {
-        Calendar date = Calendar.getInstance();
-        date.setTimeInMillis(this.timeInMilliseconds);
-        int day = date.get(Calendar.DAY_OF_WEEK) - 1;
-        if (day == 0) {
-            day = 7;
-        }
-        return day;
+        return dayOfWeek(getEpochSecond());
     }
 
     public long getTimeInMillis() {
         return this.timeInMilliseconds;
     }
 
+    /**
+     * Returns the start of the week of this time, the week starts on Monday at midnight
+     *
+     * @return the start of the week
+     */
+    public Time getStartOfWeek() {
+        return new Time(startOfWeek(getEpochSecond()) * MILLIS_PER_SECOND);
+    }
+
+    /**
+     * Returns this time as state. The {@link DateTimeType} of the framework is built from a {@link Calendar} and keeps
+     * it, so every state needs a calendar of its own. This is the only allocation of a calendar left, and it is made
+     * once per state, e.g. for the times of the daily minimum and maximum of a refresh.
+     *
+     * @return the state
+     */
     public DateTimeType getDateTimeType() {
         Calendar date = Calendar.getInstance();
         date.setTimeInMillis(timeInMilliseconds);
@@ -118,69 +159,257 @@ public class Time {
 
     @Override
     public String toString() {
-        StringBuilder buffer = new StringBuilder();
-
-        buffer.append("\"");
+        long epochSecond = getEpochSecond();
+        long epochDay = localEpochDay(epochSecond);
+        int secondOfDay = secondOfDay(epochSecond);
+
+        StringBuilder buffer = new StringBuilder(21);
+        buffer.append('"');
+        buffer.append(yearOfEpochDay(epochDay));
+        buffer.append('-');
+        appendTwoDigits(buffer, monthOfEpochDay(epochDay));
+        buffer.append('-');
+        appendTwoDigits(buffer, dayOfEpochDay(epochDay));
+        buffer.append(' ');
+        appendTwoDigits(buffer, secondOfDay / 3600);
+        buffer.append(':');
+        appendTwoDigits(buffer, secondOfDay / 60 % 60);
+        buffer.append(':');
+        appendTwoDigits(buffer, secondOfDay % 60);
+        buffer.append('"');
+        return buffer.toString();
+    }
 
-        buffer.append(getYear());
-        buffer.append("-");
+    public static Time getFirstOfMonth(int month) {
+        return new Time(startOfMonth(new Time().getYear(), month) * MILLIS_PER_SECOND);
+    }
 
-        if (getMonth().getValue() < 10) {
-            buffer.append("0");
+    public static Time getLastOfMonth(int month) {
+        if (month < 1 || month > 12) {
+            return null;
         }
-        buffer.append(getMonth().getValue());
+        int year = new Time().getYear();
+        int day = month == 2 ? 28 : Month.of(month).maxLength();
+        return new Time(year, month, day, 23, 59, 59);
+    }
 
-        buffer.append("-");
+    /**
+     * Returns the first of January of the given year at midnight
+     *
+     * @param year the year
+     * @return the start of the year
+     */
+    public static Time getStartOfYear(int year) {
+        return getStartOfMonth(year, 1);
+    }
 
-        if (getDay() < 10) {
-            buffer.append("0");
-        }
-        buffer.append(getDay());
+    /**
+     * Returns the first day of the given month at midnight
+     *
+     * @param year the year
+     * @param month the month, 1 for January
+     * @return the start of the month
+     */
+    public static Time getStartOfMonth(int year, int month) {
+        return new Time(startOfMonth(year, month) * MILLIS_PER_SECOND);
+    }
 
-        buffer.append(" ");
+    /**
+     * Returns the year of a time in seconds since the epoch
+     */
+    public static int year(long epochSecond) {
+        return yearOfEpochDay(localEpochDay(epochSecond));
+    }
 
-        if (getHour() < 10) {
-            buffer.append("0");
-        }
-        buffer.append(getHour());
+    /**
+     * Returns the month of a time in seconds since the epoch, 1 for January
+     */
+    public static int month(long epochSecond) {
+        return monthOfEpochDay(localEpochDay(epochSecond));
+    }
 
-        buffer.append(":");
+    /**
+     * Returns the day of month of a time in seconds since the epoch
+     */
+    public static int dayOfMonth(long epochSecond) {
+        return dayOfEpochDay(localEpochDay(epochSecond));
+    }
 
-        if (getMinute() < 10) {
-            buffer.append("0");
-        }
-        buffer.append(getMinute());
+    /**
+     * Returns the day of week of a time in seconds since the epoch, 1 for Monday and 7 for Sunday
+     */
+    public static int dayOfWeek(long epochSecond) {
+        // 1970-01-01 was a Thursday
+        return (int) Math.floorMod(localEpochDay(epochSecond) + 3, 7) + 1;
+    }
+
+    /**
+     * Returns the start of the day of a time in seconds since the epoch
+     */
+    public static long startOfDay(long epochSecond) {
+        return fromLocalSecond(localEpochDay(epochSecond) * SECONDS_PER_DAY);
+    }
 
-        buffer.append(":");
+    /**
+     * Returns the start of the day a number of days after the day of a time in seconds since the epoch
+     *
+     * @param days the number of days, negative for days before
+     */
+    public static long startOfDay(long epochSecond, int days) {
+        return fromLocalSecond((localEpochDay(epochSecond) + days) * SECONDS_PER_DAY);
+    }
 
-        if (getSecond() < 10) {
-            buffer.append("0");
-        }
-        buffer.append(getSecond());
+    /**
+     * Returns the start of the week of a time in seconds since the epoch, the week starts on Monday
+     */
+    public static long startOfWeek(long epochSecond) {
+        long epochDay = localEpochDay(epochSecond);
+        return fromLocalSecond((epochDay - Math.floorMod(epochDay + 3, 7)) * SECONDS_PER_DAY);
+    }
+
+    /**
+     * Returns the start of a month in seconds since the epoch
+     *
+     * @param year the year
+     * @param month the month, 1 for January, months after December continue in the next year
+     */
+    public static long startOfMonth(int year, int month) {
+        return fromLocalSecond(epochDay(year, month, 1) * SECONDS_PER_DAY);
+    }
 
-        buffer.append("\"");
+    /**
+     * Returns the start of the meteorological season of a time in seconds since the epoch, the seasons start on the
+     * first of March, June, September and December
+     */
+    public static long startOfSeason(long epochSecond) {
+        long epochDay = localEpochDay(epochSecond);
+        int month = monthOfEpochDay(epochDay);
+        // January and February belong to the season starting in December of the previous year
+        return startOfMonth(yearOfEpochDay(epochDay), month - month % 3);
+    }
 
-        return buffer.toString();
+    /**
+     * Converts a local date and time to seconds since the epoch
+     */
+    public static long toEpochSecond(int year, int month, int day, int hour, int min, int sec) {
+        return fromLocalSecond(epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + min * 60 + sec);
     }
 
-    public static Time getFirstOfMonth(int month) {
-        Time time = new Time(new Time().getYear(), month, 1, 0, 0, 0);
-        return time;
+    private long getEpochSecond() {
+        return Math.floorDiv(timeInMilliseconds, MILLIS_PER_SECOND);
     }
 
-    public static Time getLastOfMonth(int month) {
-        Time time = null;
-        if (month == 2) {
-            time = new Time(new Time().getYear(), month, 28, 23, 59, 59);
+    private static long localEpochDay(long epochSecond) {
+        return Math.floorDiv(epochSecond + getOffset(epochSecond), SECONDS_PER_DAY);
+    }
+
+    private static int secondOfDay(long epochSecond) {
+        return (int) Math.floorMod(epochSecond + getOffset(epochSecond), SECONDS_PER_DAY);
+    }
+
+    /**
+     * Converts seconds since the epoch in local time to seconds since the epoch the same way as {@link Calendar}
+     * does: local times in a gap of the time zone are moved forward by the length of the gap, ambiguous local times
+     * in an overlap resolve to the later offset.
+     */
+    private static long fromLocalSecond(long localSecond) {
+        int offsetBefore = getOffset(localSecond - SECONDS_PER_DAY);
+        int offsetAfter = getOffset(localSecond + SECONDS_PER_DAY);
+        if (offsetBefore == offsetAfter) {
+            return localSecond - offsetBefore;
+        }
+        if (getOffset(localSecond - offsetAfter) == offsetAfter) {
+            return localSecond - offsetAfter;
+        }
+        return localSecond - offsetBefore;
+    }
+
+    private static int getOffset(long epochSecond) {
+        for (int i = 0; i < OFFSET_WINDOW_CACHE_SIZE; i++) {
+            OffsetWindow window = OFFSET_WINDOWS[i];
+            if (window != null && epochSecond >= window.from && epochSecond < window.until) {
+                return window.offset;
+            }
+        }
+        // several windows are kept, as conversions close to a transition look at both sides of it
+        OffsetWindow window = createOffsetWindow(epochSecond);
+        synchronized (OFFSET_WINDOWS) {
+            OFFSET_WINDOWS[nextOffsetWindow] = window;
+            nextOffsetWindow = (nextOffsetWindow + 1) % OFFSET_WINDOW_CACHE_SIZE;
         }
-        if ((month == 1) || (month == 3) || (month == 5) || (month == 7) || (month == 8) || (month == 10)
-                || (month == 12)) {
-            time = new Time(new Time().getYear(), month, 31, 23, 59, 59);
+        return window.offset;
+    }
+
+    private static OffsetWindow createOffsetWindow(long epochSecond) {
+        Instant instant = Instant.ofEpochSecond(epochSecond);
+        int offset = RULES.getOffset(instant).getTotalSeconds();
+        if (RULES.isFixedOffset()) {
+            return new OffsetWindow(Long.MIN_VALUE, Long.MAX_VALUE, offset);
         }
+        ZoneOffsetTransition previous = RULES.previousTransition(instant.plusSeconds(1));
+        ZoneOffsetTransition next = RULES.nextTransition(instant);
+        return new OffsetWindow(previous != null ? previous.toEpochSecond() : Long.MIN_VALUE,
+                next != null ? next.toEpochSecond() : Long.MAX_VALUE, offset);
+    }
+
+    /**
+     * Returns the days since 1970-01-01 of a date in the proleptic Gregorian calendar
+     */
+    private static long epochDay(long year, int month, int day) {
+        year += Math.floorDiv(month - 1, 12);
+        month = Math.floorMod(month - 1, 12) + 1;
+
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    private static int yearOfEpochDay(long epochDay) {
+        long dayOfEra = dayOfEra(epochDay);
+        long yearOfEra = yearOfEra(dayOfEra);
+        long year = yearOfEra + Math.floorDiv(epochDay + DAYS_0000_TO_1970, DAYS_PER_ERA) * 400;
+        return (int) (marchBasedMonth(dayOfEra, yearOfEra) >= 10 ? year + 1 : year);
+    }
+
+    private static int monthOfEpochDay(long epochDay) {
+        long dayOfEra = dayOfEra(epochDay);
+        long month = marchBasedMonth(dayOfEra, yearOfEra(dayOfEra));
+        return (int) (month < 10 ? month + 3 : month - 9);
+    }
+
+    private static int dayOfEpochDay(long epochDay) {
+        long dayOfEra = dayOfEra(epochDay);
+        long dayOfYear = dayOfYear(dayOfEra, yearOfEra(dayOfEra));
+        long month = (5 * dayOfYear + 2) / 153;
+        return (int) (dayOfYear - (153 * month + 2) / 5 + 1);
+    }
+
+    private static long dayOfEra(long epochDay) {
+        return Math.floorMod(epochDay + DAYS_0000_TO_1970, DAYS_PER_ERA);
+    }
+
+    private static long yearOfEra(long dayOfEra) {
+        return (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    }
+
+    private static long dayOfYear(long dayOfEra, long yearOfEra) {
+        return dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    }
+
+    /**
+     * Returns the month of a year starting in March, 0 for March and 11 for February
+     */
+    private static long marchBasedMonth(long dayOfEra, long yearOfEra) {
+        return (5 * dayOfYear(dayOfEra, yearOfEra) + 2) / 153;
+    }
 
-        if ((month == 4) || (month == 6) || (month == 9) || (month == 11)) {
-            time = new Time(new Time().getYear(), month, 30, 23, 59, 59);
+    private static void appendTwoDigits(StringBuilder buffer, int value) {
+        if (value < 10) {
+            buffer.append('0');
         }
-        return time;
+        buffer.append(value);
     }
 }
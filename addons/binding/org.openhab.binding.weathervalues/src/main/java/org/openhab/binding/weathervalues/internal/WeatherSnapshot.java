@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import org.openhab.binding.weathervalues.internal.data.OutdoorClimate;
+import org.openhab.binding.weathervalues.internal.data.Rain;
+import org.openhab.binding.weathervalues.internal.data.RollingValues;
+import org.openhab.binding.weathervalues.internal.data.SummaryValues;
+import org.openhab.binding.weathervalues.internal.data.Wind;
+import org.openhab.binding.weathervalues.internal.data.WindAverages;
+
+/**
+ * The {@link WeatherSnapshot} holds all values of one refresh. It is immutable and replaced as a whole by the next
+ * refresh, so a listener never sees values of two different refreshes.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public final class WeatherSnapshot {
+
+    private final long dateTime;
+    private final OutdoorClimate outdoorClimate;
+    private final Wind wind;
+    private final Rain rain;
+    private final SummaryValues summaryValues;
+    private final WindAverages windAverages;
+    private final RollingValues rollingValues;
+
+    /**
+     * Creates a snapshot
+     *
+     * @param dateTime the time of the latest archive record in seconds, or {@link Long#MIN_VALUE} if there is none
+     */
+    public WeatherSnapshot(long dateTime, OutdoorClimate outdoorClimate, Wind wind, Rain rain,
+            SummaryValues summaryValues, WindAverages windAverages, RollingValues rollingValues) {
+        this.dateTime = dateTime;
+        this.outdoorClimate = outdoorClimate;
+        this.wind = wind;
+        this.rain = rain;
+        this.summaryValues = summaryValues;
+        this.windAverages = windAverages;
+        this.rollingValues = rollingValues;
+    }
+
+    public long getDateTime() {
+        return dateTime;
+    }
+
+    public OutdoorClimate getOutdoorClimate() {
+        return outdoorClimate;
+    }
+
+    public Wind getWind() {
+        return wind;
+    }
+
+    public Rain getRain() {
+        return rain;
+    }
+
+    public SummaryValues getSummaryValues() {
+        return summaryValues;
+    }
+
+    public WindAverages getWindAverages() {
+        return windAverages;
+    }
+
+    public RollingValues getRollingValues() {
+        return rollingValues;
+    }
+}
@@ -13,11 +13,15 @@ import static org.openhab.binding.weathervalues.WeatherValuesBindingConstants.TH
 import java.util.Collections;
 import java.util.Set;
 
+import org.eclipse.smarthome.core.items.ItemRegistry;
+import org.eclipse.smarthome.core.persistence.PersistenceService;
 import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandlerFactory;
 import org.eclipse.smarthome.core.thing.binding.ThingHandler;
+import org.eclipse.smarthome.core.thing.link.ItemChannelLinkRegistry;
 import org.openhab.binding.weathervalues.handler.WeatherValuesHandler;
+import org.osgi.service.component.ComponentContext;
 
 /**
  * The {@link WeatherValuesHandlerFactory} is responsible for creating things and thing
@@ -29,6 +33,9 @@ public class WeatherValuesHandlerFactory extends BaseThingHandlerFactory {
 
     private final static Set<ThingTypeUID> SUPPORTED_THING_TYPES_UIDS = Collections.singleton(THING_TYPE_DEVICE);
 
+    private final SQLiteReaderRegistry readerRegistry = new SQLiteReaderRegistry();
+    private final BackfillServices backfillServices = new BackfillServices();
+
     @Override
     public boolean supportsThingType(ThingTypeUID thingTypeUID) {
         return SUPPORTED_THING_TYPES_UIDS.contains(thingTypeUID);
@@ -40,9 +47,39 @@ public class WeatherValuesHandlerFactory extends BaseThingHandlerFactory {
         ThingTypeUID thingTypeUID = thing.getThingTypeUID();
 
         if (thingTypeUID.equals(THING_TYPE_DEVICE)) {
-            return new WeatherValuesHandler(thing);
+            return new WeatherValuesHandler(thing, readerRegistry, backfillServices);
         }
 
         return null;
     }
+
+    @Override
+    protected void deactivate(ComponentContext componentContext) {
+        super.deactivate(componentContext);
+        readerRegistry.dispose();
+    }
+
+    protected void setItemRegistry(ItemRegistry itemRegistry) {
+        backfillServices.setItemRegistry(itemRegistry);
+    }
+
+    protected void unsetItemRegistry(ItemRegistry itemRegistry) {
+        backfillServices.setItemRegistry(null);
+    }
+
+    protected void setItemChannelLinkRegistry(ItemChannelLinkRegistry itemChannelLinkRegistry) {
+        backfillServices.setItemChannelLinkRegistry(itemChannelLinkRegistry);
+    }
+
+    protected void unsetItemChannelLinkRegistry(ItemChannelLinkRegistry itemChannelLinkRegistry) {
+        backfillServices.setItemChannelLinkRegistry(null);
+    }
+
+    protected void addPersistenceService(PersistenceService persistenceService) {
+        backfillServices.addPersistenceService(persistenceService);
+    }
+
+    protected void removePersistenceService(PersistenceService persistenceService) {
+        backfillServices.removePersistenceService(persistenceService);
+    }
 }
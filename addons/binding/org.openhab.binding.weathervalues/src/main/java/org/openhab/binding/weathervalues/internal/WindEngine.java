@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal;
+
+import java.util.Arrays;
+
+import org.openhab.binding.weathervalues.internal.data.WindAverages;
+import org.openhab.binding.weathervalues.internal.mapping.ArchiveColumn;
+import org.openhab.binding.weathervalues.internal.mapping.RollingWindow;
+
+/**
+ * The {@link WindEngine} keeps the wind samples of the successive archive records of the last hour in a ring buffer
+ * and maintains the averages over the windows of 10 minutes and 1 hour while samples are added, so a sample costs O(1)
+ * regardless of the number of samples in a window:
+ * <ul>
+ * <li>the mean speed from the running sum of the speeds</li>
+ * <li>the vector mean direction from the running sums of the speed weighted direction vectors</li>
+ * <li>the standard deviation of the direction by the Yamartino method from the running sums of the unit vectors</li>
+ * <li>the maximum gust from a queue of the samples with decreasing gusts, of which the first is the maximum</li>
+ * </ul>
+ * A window ends with the latest sample, samples without wind have no direction.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class WindEngine {
+
+    private static final RollingWindow[] WINDOWS = { RollingWindow.TEN_MINUTES, RollingWindow.ONE_HOUR };
+    // samples of the longest window with an archive interval of 15 seconds
+    private static final int CAPACITY = 256;
+    private static final double YAMARTINO_FACTOR = 2 / Math.sqrt(3) - 1;
+
+    private final long[] times = new long[CAPACITY];
+    private final double[] speeds = new double[CAPACITY];
+    private final double[] sines = new double[CAPACITY];
+    private final double[] cosines = new double[CAPACITY];
+    private final double[] gusts = new double[CAPACITY];
+
+    // sequence numbers of the oldest sample and of the next sample, a sample is stored at its number modulo capacity
+    private long first;
+    private long next;
+
+    private final Aggregate[] aggregates = new Aggregate[WINDOWS.length];
+
+    /**
+     * The {@link Aggregate} holds the running sums of the samples in one window.
+     */
+    private final class Aggregate {
+        private final long length;
+        private long start;
+
+        private double speedSum;
+        private int speedCount;
+        private double sineSum;
+        private double cosineSum;
+        private double vectorSineSum;
+        private double vectorCosineSum;
+        private int directionCount;
+
+        // sequence numbers of the samples with decreasing gusts
+        private final long[] gustQueue = new long[CAPACITY];
+        private long gustHead;
+        private long gustTail;
+
+        private Aggregate(long length) {
+            this.length = length;
+        }
+
+        private void add(long sequence) {
+            int index = index(sequence);
+            if (!Double.isNaN(speeds[index])) {
+                speedSum += speeds[index];
+                speedCount++;
+            }
+            if (!Double.isNaN(sines[index])) {
+                sineSum += sines[index];
+                cosineSum += cosines[index];
+                vectorSineSum += speeds[index] * sines[index];
+                vectorCosineSum += speeds[index] * cosines[index];
+                directionCount++;
+            }
+            if (!Double.isNaN(gusts[index])) {
+                while (gustTail > gustHead && gusts[index(gustQueue[index(gustTail - 1)])] <= gusts[index]) {
+                    gustTail--;
+                }
+                gustQueue[index(gustTail++)] = sequence;
+            }
+        }
+
+        private void removeFirst() {
+            int index = index(start);
+            if (!Double.isNaN(speeds[index])) {
+                speedSum -= speeds[index];
+                if (--speedCount == 0) {
+                    // no rounding error of the sums is carried over a gap
+                    speedSum = 0;
+                }
+            }
+            if (!Double.isNaN(sines[index])) {
+                sineSum -= sines[index];
+                cosineSum -= cosines[index];
+                vectorSineSum -= speeds[index] * sines[index];
+                vectorCosineSum -= speeds[index] * cosines[index];
+                if (--directionCount == 0) {
+                    sineSum = 0;
+                    cosineSum = 0;
+                    vectorSineSum = 0;
+                    vectorCosineSum = 0;
+                }
+            }
+            if (gustTail > gustHead && gustQueue[index(gustHead)] == start) {
+                gustHead++;
+            }
+            start++;
+        }
+
+        private void removeBefore(long time) {
+            while (start < next && times[index(start)] <= time - length) {
+                removeFirst();
+            }
+        }
+
+        private void clear() {
+            start = next;
+            speedSum = 0;
+            speedCount = 0;
+            sineSum = 0;
+            cosineSum = 0;
+            vectorSineSum = 0;
+            vectorCosineSum = 0;
+            directionCount = 0;
+            gustHead = 0;
+            gustTail = 0;
+        }
+
+        private double getSpeed() {
+            return speedCount > 0 ? speedSum / speedCount : Double.NaN;
+        }
+
+        private double getDirection() {
+            if (directionCount == 0 || vectorSineSum == 0 && vectorCosineSum == 0) {
+                return Double.NaN;
+            }
+            double direction = Math.toDegrees(Math.atan2(vectorSineSum, vectorCosineSum));
+            return direction < 0 ? direction + 360 : direction;
+        }
+
+        private double getDirectionVariability() {
+            if (directionCount == 0) {
+                return Double.NaN;
+            }
+            double sine = sineSum / directionCount;
+            double cosine = cosineSum / directionCount;
+            double epsilon = Math.sqrt(Math.max(0, 1 - (sine * sine + cosine * cosine)));
+            double sigma = Math.asin(Math.min(epsilon, 1)) * (1 + YAMARTINO_FACTOR * epsilon * epsilon * epsilon);
+            return Math.toDegrees(sigma);
+        }
+
+        private double getMaximumGust() {
+            return gustTail > gustHead ? gusts[index(gustQueue[index(gustHead)])] : Double.NaN;
+        }
+    }
+
+    public WindEngine() {
+        for (int i = 0; i < WINDOWS.length; i++) {
+            aggregates[i] = new Aggregate(WINDOWS[i].getSeconds());
+        }
+    }
+
+    /**
+     * Adds the wind of an archive record. Records which are not newer than the latest one are ignored.
+     *
+     * @param dateTime the time of the record in seconds
+     * @param row the converted values of the record at the ordinal of their {@link ArchiveColumn}
+     */
+    public void add(long dateTime, double[] row) {
+        if (next > first && dateTime <= times[index(next - 1)]) {
+            return;
+        }
+        if (next - first == CAPACITY) {
+            // more samples than expected in the longest window, the oldest one is dropped
+            for (Aggregate aggregate : aggregates) {
+                if (aggregate.start == first) {
+                    aggregate.removeFirst();
+                }
+            }
+            first++;
+        }
+
+        int index = index(next);
+        double speed = row[ArchiveColumn.WIND_SPEED.ordinal()];
+        double direction = row[ArchiveColumn.WIND_DIR.ordinal()];
+        times[index] = dateTime;
+        speeds[index] = speed;
+        gusts[index] = row[ArchiveColumn.WIND_GUST.ordinal()];
+        if (speed > 0 && !Double.isNaN(direction)) {
+            double radians = Math.toRadians(direction);
+            sines[index] = Math.sin(radians);
+            cosines[index] = Math.cos(radians);
+        } else {
+            sines[index] = Double.NaN;
+            cosines[index] = Double.NaN;
+        }
+
+        long sequence = next++;
+        long oldest = sequence;
+        for (Aggregate aggregate : aggregates) {
+            aggregate.add(sequence);
+            aggregate.removeBefore(dateTime);
+            oldest = Math.min(oldest, aggregate.start);
+        }
+        first = oldest;
+    }
+
+    /**
+     * Returns the time of the latest sample
+     *
+     * @return the time in seconds, or {@link Long#MIN_VALUE} if there is no sample
+     */
+    public long getLastDateTime() {
+        return next > first ? times[index(next - 1)] : Long.MIN_VALUE;
+    }
+
+    /**
+     * Removes all samples, e.g. after the database has been replaced
+     */
+    public void clear() {
+        first = next;
+        for (Aggregate aggregate : aggregates) {
+            aggregate.clear();
+        }
+    }
+
+    /**
+     * Returns the averages of the windows of the engine, the averages of the other windows are missing
+     *
+     * @return the averages
+     */
+    public WindAverages getAverages() {
+        int length = RollingWindow.values().length;
+        double[] speed = new double[length];
+        double[] direction = new double[length];
+        double[] directionVariability = new double[length];
+        double[] maximumGust = new double[length];
+        Arrays.fill(speed, Double.NaN);
+        Arrays.fill(direction, Double.NaN);
+        Arrays.fill(directionVariability, Double.NaN);
+        Arrays.fill(maximumGust, Double.NaN);
+        for (int i = 0; i < WINDOWS.length; i++) {
+            RollingWindow window = WINDOWS[i];
+            Aggregate aggregate = aggregates[i];
+            speed[window.ordinal()] = aggregate.getSpeed();
+            direction[window.ordinal()] = aggregate.getDirection();
+            directionVariability[window.ordinal()] = aggregate.getDirectionVariability();
+            maximumGust[window.ordinal()] = aggregate.getMaximumGust();
+        }
+        return new WindAverages(speed, direction, directionVariability, maximumGust);
+    }
+
+    private static int index(long sequence) {
+        return (int) (sequence % CAPACITY);
+    }
+}
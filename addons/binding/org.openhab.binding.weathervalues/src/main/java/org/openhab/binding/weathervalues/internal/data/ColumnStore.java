@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.data;
+
+import java.util.Arrays;
+
+/**
+ * The {@link ColumnStore} is an append-only in-memory time series with sorted primitive keys and one primitive
+ * array per value column. Missing values are stored as {@link Double#NaN}. Ranges are located by binary search and
+ * are half-open, from inclusive to exclusive.
+ *
+ * Sums are answered from a prefix sum index per column, so any range costs two binary searches. The index is
+ * extended up to the last row when a sum is requested, and only rebuilt from the first row which has been written
+ * since, which is the last one as long as rows are appended or the last row is updated.
+ *
+ * Only the sums have an index. The minimum and the maximum scan the rows of their range, so they grow linearly with
+ * it, which is about 3 microseconds for 20 years of daily rows. The binding reads the daily minimum and maximum from
+ * the last row, so it does not keep an index for them.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class ColumnStore {
+
+    private static final int INITIAL_CAPACITY = 512;
+
+    private long[] keys;
+    private double[][] columns;
+    private int size;
+
+    // prefixSums[column][i] is the sum of the rows before i, valid up to i == prefixValid[column]
+    private double[][] prefixSums;
+    private int[] prefixValid;
+
+    public ColumnStore(int numberOfColumns) {
+        this.keys = new long[INITIAL_CAPACITY];
+        this.columns = new double[numberOfColumns][INITIAL_CAPACITY];
+        this.prefixSums = new double[numberOfColumns][];
+        this.prefixValid = new int[numberOfColumns];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    public double getValue(int column, int index) {
+        return columns[column][index];
+    }
+
+    /**
+     * Returns the last key
+     *
+     * @return the last key, or {@link Long#MIN_VALUE} if the store is empty
+     */
+    public long getLastKey() {
+        return size > 0 ? keys[size - 1] : Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns the value of the given column in the last row
+     *
+     * @return the last value, or {@link Double#NaN} if the store is empty
+     */
+    public double getLastValue(int column) {
+        return size > 0 ? columns[column][size - 1] : Double.NaN;
+    }
+
+    /**
+     * Appends a row with all values missing. Appending the last key again clears and returns the last row.
+     *
+     * @param key the key of the row, not lower than the last key
+     * @return the index of the row
+     * @throws IllegalArgumentException if the key is lower than the last key
+     */
+    public int appendRow(long key) throws IllegalArgumentException {
+        if (size > 0 && key < keys[size - 1]) {
+            throw new IllegalArgumentException("key " + key + " is lower than the last key " + keys[size - 1]);
+        }
+        if (size == 0 || key != keys[size - 1]) {
+            if (size == keys.length) {
+                grow();
+            }
+            keys[size++] = key;
+        }
+        int index = size - 1;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i][index] = Double.NaN;
+            invalidatePrefix(i, index);
+        }
+        return index;
+    }
+
+    public void setValue(int column, int index, double value) {
+        columns[column][index] = value;
+        invalidatePrefix(column, index);
+    }
+
+    /**
+     * Sets all values of a row
+     *
+     * @param index the index of the row
+     * @param values the values, one for each column
+     */
+    public void setRow(int index, double[] values) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i][index] = values[i];
+            invalidatePrefix(i, index);
+        }
+    }
+
+    public void clear() {
+        size = 0;
+        Arrays.fill(prefixValid, 0);
+    }
+
+    /**
+     * Returns the index of the first row with a key greater than or equal to the given key
+     *
+     * @param key the key to search
+     * @return the index of the row, or {@link #size()} if all keys are lower
+     */
+    public int indexOf(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the sum of a column over a range of keys, missing values are skipped
+     *
+     * @return the sum, 0 if the range contains no values
+     */
+    public double sum(int column, long from, long to) {
+        int start = indexOf(from);
+        int end = indexOf(to);
+        if (start >= end) {
+            return 0;
+        }
+        double[] sums = updatePrefix(column);
+        return sums[end] - sums[start];
+    }
+
+    /**
+     * Returns the minimum of a column over a range of keys, missing values are skipped. Unlike the sum, this scans
+     * every row of the range.
+     *
+     * @return the minimum, or {@link Double#NaN} if the range contains no values
+     */
+    public double min(int column, long from, long to) {
+        double[] values = columns[column];
+        double min = Double.NaN;
+        for (int i = indexOf(from), end = indexOf(to); i < end; i++) {
+            if (values[i] < min || Double.isNaN(min)) {
+                min = values[i];
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Returns the maximum of a column over a range of keys, missing values are skipped. Unlike the sum, this scans
+     * every row of the range.
+     *
+     * @return the maximum, or {@link Double#NaN} if the range contains no values
+     */
+    public double max(int column, long from, long to) {
+        double[] values = columns[column];
+        double max = Double.NaN;
+        for (int i = indexOf(from), end = indexOf(to); i < end; i++) {
+            if (values[i] > max || Double.isNaN(max)) {
+                max = values[i];
+            }
+        }
+        return max;
+    }
+
+    private void invalidatePrefix(int column, int index) {
+        if (prefixValid[column] > index) {
+            prefixValid[column] = index;
+        }
+    }
+
+    /**
+     * Extends the prefix sums of a column up to the last row
+     *
+     * @return the prefix sums, with {@link #size()} + 1 valid elements
+     */
+    private double[] updatePrefix(int column) {
+        double[] sums = prefixSums[column];
+        if (sums == null || sums.length < size + 1) {
+            sums = sums == null ? new double[keys.length + 1] : Arrays.copyOf(sums, keys.length + 1);
+            prefixSums[column] = sums;
+        }
+        double[] values = columns[column];
+        for (int i = prefixValid[column]; i < size; i++) {
+            sums[i + 1] = Double.isNaN(values[i]) ? sums[i] : sums[i] + values[i];
+        }
+        prefixValid[column] = size;
+        return sums;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Arrays.copyOf(columns[i], capacity);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.data;
+
+import org.openhab.binding.weathervalues.internal.mapping.DaySummaryColumn;
+import org.openhab.binding.weathervalues.internal.mapping.UnitGroup;
+
+/**
+ * The {@link DailySummary} holds the rows of one archive_day_* table of weewx, keyed by the start of the day in
+ * seconds. The columns are the ones of {@link DaySummaryColumn}, converted with the unit group of the observation.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class DailySummary extends ColumnStore {
+
+    public static final int MIN = DaySummaryColumn.MIN.ordinal();
+    public static final int MIN_TIME = DaySummaryColumn.MIN_TIME.ordinal();
+    public static final int MAX = DaySummaryColumn.MAX.ordinal();
+    public static final int MAX_TIME = DaySummaryColumn.MAX_TIME.ordinal();
+    public static final int SUM = DaySummaryColumn.SUM.ordinal();
+
+    private String observation;
+    private UnitGroup unitGroup;
+
+    public DailySummary(String observation, UnitGroup unitGroup) {
+        super(DaySummaryColumn.values().length);
+        this.observation = observation;
+        this.unitGroup = unitGroup;
+    }
+
+    public String getTableName() {
+        return getTableName(observation);
+    }
+
+    /**
+     * Returns the name of the daily summary table of an observation
+     *
+     * @param observation the observation, e.g. outTemp
+     * @return the name of the table, e.g. archive_day_outTemp
+     */
+    public static String getTableName(String observation) {
+        return "archive_day_" + observation;
+    }
+
+    public UnitGroup getUnitGroup() {
+        return unitGroup;
+    }
+}
@@ -8,104 +8,74 @@
  */
 package org.openhab.binding.weathervalues.internal.data;
 
-import org.eclipse.smarthome.core.library.types.DecimalType;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.UnDefType;
-import org.openhab.binding.weathervalues.internal.Time;
+import org.openhab.binding.weathervalues.internal.Converter;
 
 /**
  * The {@link OutdoorClimate}
  *
+ * The states are created once with the snapshot, so all things sharing it publish the same instances.
+ *
  * @author Thomas Traunbauer - Initial contribution
  */
 public class OutdoorClimate {
 
-    private Double temperature;
-    private Double temperatureExtra;
-    private Double humidity;
-    private Double humidityExtra;
-    private Double barometer;
+    private final State temperature;
+    private final State humidity;
+    private final State barometer;
+
+    private final State temperatureDayMin;
+    private final State temperatureDayMax;
+    private final State temperatureDayMinTime;
+    private final State temperatureDayMaxTime;
 
-    private Double temperatureDayMin;
-    private Double temperatureDayMax;
-    private Time temperatureDayMinTime;
-    private Time temperatureDayMaxTime;
+    /**
+     * Creates the outdoor climate from the current values and the daily temperature summary. Missing values are
+     * {@link Double#NaN}, the extra sensor is used if the outside sensor is missing.
+     *
+     * @param dailyTemperature the daily summary of the outside temperature in degree Celsius
+     */
+    public OutdoorClimate(double temperature, double temperatureExtra, double humidity, double humidityExtra,
+            double barometer, DailySummary dailyTemperature) {
+        this.temperature = Utility.toState(Double.isNaN(temperature) ? temperatureExtra : temperature);
+        this.humidity = Utility.toState(Double.isNaN(humidity) ? humidityExtra : humidity);
+        this.barometer = Utility.toState(barometer);
+        this.temperatureDayMin = Utility.toState(dailyTemperature.getLastValue(DailySummary.MIN));
+        this.temperatureDayMax = Utility.toState(dailyTemperature.getLastValue(DailySummary.MAX));
+        this.temperatureDayMinTime = toTimeState(dailyTemperature.getLastValue(DailySummary.MIN_TIME));
+        this.temperatureDayMaxTime = toTimeState(dailyTemperature.getLastValue(DailySummary.MAX_TIME));
+    }
 
-    public OutdoorClimate(Double temperature, Double temperatureExtra, Double humidity, Double humidityExtra,
-            Double barometer, Double temperatureDayMin, Double temperatureDayMax, Time temperatureDayMinTime,
-            Time temperatureDayMaxTime) {
-        this.temperature = temperature;
-        this.humidity = humidity;
-        this.temperatureExtra = temperatureExtra;
-        this.humidityExtra = humidityExtra;
-        this.barometer = barometer;
-        this.temperatureDayMin = temperatureDayMin;
-        this.temperatureDayMax = temperatureDayMax;
-        this.temperatureDayMinTime = temperatureDayMinTime;
-        this.temperatureDayMaxTime = temperatureDayMaxTime;
+    private static State toTimeState(double seconds) {
+        return Double.isNaN(seconds) ? UnDefType.NULL : Converter.seconds_to_Time((long) seconds).getDateTimeType();
     }
 
     public State getTemperature() {
-        if (temperature != null) {
-            double value = Utility.round(temperature);
-            return new DecimalType(value);
-        } else {
-            if (temperatureExtra != null) {
-                double value = Utility.round(temperatureExtra);
-                return new DecimalType(value);
-            }
-        }
-        return UnDefType.NULL;
+        return temperature;
     }
 
     public State getHumidity() {
-        if (humidity != null) {
-            double value = Utility.round(humidity);
-            return new DecimalType(value);
-        } else {
-            if (humidityExtra != null) {
-                double value = Utility.round(humidityExtra);
-                return new DecimalType(value);
-            }
-        }
-        return UnDefType.NULL;
+        return humidity;
     }
 
     public State getBarometer() {
-        if (barometer != null) {
-            double value = Utility.round(barometer);
-            return new DecimalType(value);
-        }
-        return UnDefType.NULL;
+        return barometer;
     }
 
     public State getTemperatureMinimum() {
-        if (temperatureDayMin != null) {
-            double value = Utility.round(temperatureDayMin);
-            return new DecimalType(value);
-        }
-        return UnDefType.NULL;
+        return temperatureDayMin;
     }
 
     public State getTemperatureMaximum() {
-        if (temperatureDayMax != null) {
-            double value = Utility.round(temperatureDayMax);
-            return new DecimalType(value);
-        }
-        return UnDefType.NULL;
+        return temperatureDayMax;
     }
 
     public State getTemperatureMinimumTime() {
-        if (temperatureDayMinTime != null) {
-            return temperatureDayMinTime.getDateTimeType();
-        }
-        return UnDefType.NULL;
+        return temperatureDayMinTime;
     }
 
     public State getTemperatureMaximumTime() {
-        if (temperatureDayMaxTime != null) {
-            return temperatureDayMaxTime.getDateTimeType();
-        }
-        return UnDefType.NULL;
+        return temperatureDayMaxTime;
     }
 }
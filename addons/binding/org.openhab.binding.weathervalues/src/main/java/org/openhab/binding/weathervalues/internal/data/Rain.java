@@ -9,87 +9,141 @@
 package org.openhab.binding.weathervalues.internal.data;
 
 import java.time.Month;
-import java.util.List;
+import java.time.Year;
+import java.util.Arrays;
 
-import org.eclipse.smarthome.core.library.types.DecimalType;
 import org.eclipse.smarthome.core.types.State;
-import org.eclipse.smarthome.core.types.UnDefType;
 import org.openhab.binding.weathervalues.internal.Time;
 
 /**
  * The {@link Rain}
  *
+ * The sums are calculated and converted into states once with the snapshot. Missing sums are {@link Double#NaN}.
+ *
  * @author Thomas Traunbauer - Initial contribution
  */
 public class Rain {
 
     // current
-    private Double rainRateCurrent;
-    private Double rainCurrentDay;
-    private Double rainCurrentWeek;
-    private List<Double> listOfRainPerMonth;
-
-    public Rain(Double rainRateCurrent, Double rainCurrentDay, Double rainCurrentWeek,
-            List<Double> listOfRainPerMonth) {
-        this.rainRateCurrent = rainRateCurrent;
-        this.rainCurrentDay = rainCurrentDay;
-        this.rainCurrentWeek = rainCurrentWeek;
-        this.listOfRainPerMonth = listOfRainPerMonth;
+    private final State rainRateCurrent;
+    private final State rainCurrentDay;
+    private final State rainCurrentWeek;
+    private final State rainCurrentMonth;
+    private final State rainCurrentYear;
+    private final State[] rainPerMonth = new State[12];
+
+    // ranges
+    private final State rainPreviousYear;
+    private final State rainRolling12Months;
+    private final State rainRolling30Days;
+    private final State rainSeasonToDate;
+
+    /**
+     * Creates the rain values from the daily rain sums
+     *
+     * @param rainRateCurrent the current rain rate, {@link Double#NaN} if missing
+     * @param dailyRain the daily summary of the rain in millimeter
+     * @param now the current time, the monthly sums are the ones of its year
+     */
+    public Rain(double rainRateCurrent, DailySummary dailyRain, Time now) {
+        this.rainRateCurrent = Utility.toState(rainRateCurrent);
+        int year = now.getYear();
+        int currentMonth = now.getMonth().getValue();
+
+        double rainDay = Double.NaN;
+        double rainWeek = Double.NaN;
+        double rainYear = Double.NaN;
+        double previousYear = Double.NaN;
+        double rolling12Months = Double.NaN;
+        double rolling30Days = Double.NaN;
+        double seasonToDate = Double.NaN;
+        double[] rainMonths = new double[12];
+        Arrays.fill(rainMonths, Double.NaN);
+
+        if (!dailyRain.isEmpty()) {
+            rainDay = dailyRain.getLastValue(DailySummary.SUM);
+            rainWeek = dailyRain.sum(DailySummary.SUM, Time.startOfWeek(dailyRain.getLastKey()), Long.MAX_VALUE);
+
+            rainYear = 0;
+            for (int month = 1; month <= currentMonth; month++) {
+                rainMonths[month - 1] = dailyRain.sum(DailySummary.SUM, Time.startOfMonth(year, month),
+                        Time.startOfMonth(year, month + 1));
+                rainYear += rainMonths[month - 1];
+            }
+
+            long today = Math.floorDiv(now.getTimeInMillis(), 1000);
+            previousYear = dailyRain.sum(DailySummary.SUM, Time.startOfMonth(year - 1, 1), Time.startOfMonth(year, 1));
+            // the same day of the previous year is the 28th of February for the 29th
+            int sameDay = Math.min(now.getDay(), now.getMonth().length(Year.isLeap(year - 1)));
+            rolling12Months = dailyRain.sum(DailySummary.SUM,
+                    Time.toEpochSecond(year - 1, currentMonth, sameDay + 1, 0, 0, 0), Long.MAX_VALUE);
+            rolling30Days = dailyRain.sum(DailySummary.SUM, Time.startOfDay(today, -29), Long.MAX_VALUE);
+            seasonToDate = dailyRain.sum(DailySummary.SUM, Time.startOfSeason(today), Long.MAX_VALUE);
+        }
+
+        this.rainCurrentDay = Utility.toState(rainDay);
+        this.rainCurrentWeek = Utility.toState(rainWeek);
+        for (int month = 0; month < 12; month++) {
+            rainPerMonth[month] = Utility.toState(rainMonths[month]);
+        }
+        this.rainCurrentMonth = rainPerMonth[currentMonth - 1];
+        this.rainCurrentYear = Utility.toState(rainYear);
+        this.rainPreviousYear = Utility.toState(previousYear);
+        this.rainRolling12Months = Utility.toState(rolling12Months);
+        this.rainRolling30Days = Utility.toState(rolling30Days);
+        this.rainSeasonToDate = Utility.toState(seasonToDate);
     }
 
     public State getRainRateCurrent() {
-        if (rainRateCurrent != null) {
-            double value = Utility.round(rainRateCurrent);
-            return new DecimalType(value);
-        }
-        return UnDefType.NULL;
+        return rainRateCurrent;
     }
 
     public State getRainCurrentDay() {
-        if (rainCurrentDay != null) {
-            double value = Utility.round(rainCurrentDay);
-            return new DecimalType(value);
-        }
-        return UnDefType.NULL;
+        return rainCurrentDay;
     }
 
     public State getRainCurrentWeek() {
-        if (rainCurrentWeek != null) {
-            double value = Utility.round(rainCurrentWeek);
-            return new DecimalType(value);
-        }
-        return UnDefType.NULL;
+        return rainCurrentWeek;
     }
 
+    /**
+     * Returns the rain of the month of the snapshot
+     */
     public State getRainCurrentMonth() {
-        return getRainMonth(new Time().getMonth());
+        return rainCurrentMonth;
     }
 
     public State getRainCurrentYear() {
-        boolean checker = false;
+        return rainCurrentYear;
+    }
 
-        double rainCurrentYear = 0.0;
-        for (int month = 0; month < 12; month++) {
-            Double rainMonth = listOfRainPerMonth.get(month);
-            if (rainMonth != null) {
-                rainCurrentYear += listOfRainPerMonth.get(month);
-                checker = true;
-            }
-        }
-        if (checker) {
-            double value = Utility.round(rainCurrentYear);
-            return new DecimalType(value);
-        } else {
-            return UnDefType.NULL;
-        }
+    public State getRainPreviousYear() {
+        return rainPreviousYear;
+    }
+
+    /**
+     * Returns the rain since the same day of the previous year, excluding that day
+     */
+    public State getRainRolling12Months() {
+        return rainRolling12Months;
+    }
+
+    /**
+     * Returns the rain of the last 30 days, including the current day
+     */
+    public State getRainRolling30Days() {
+        return rainRolling30Days;
+    }
+
+    /**
+     * Returns the rain since the start of the meteorological season, which starts on the first of March, June,
+     * September and December
+     */
+    public State getRainSeasonToDate() {
+        return rainSeasonToDate;
     }
 
     public State getRainMonth(Month month) {
-        int index = month.getValue() - 1;
-        if (listOfRainPerMonth.get(index) != null) {
-            double value = Utility.round(listOfRainPerMonth.get(index));
-            return new DecimalType(value);
-        }
-        return UnDefType.NULL;
+        return rainPerMonth[month.getValue() - 1];
     }
 }
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.data;
+
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.openhab.binding.weathervalues.internal.mapping.RollingStatistic;
+
+/**
+ * The {@link RollingValues} holds the states of all {@link RollingStatistic}s and of the pressure tendency of one
+ * refresh.
+ *
+ * The pressure tendency is the change of the barometer over the last 3 hours, it is described by the terms of the
+ * Met Office: steady below 0.1 mbar, slowly up to 1.5 mbar, rising or falling up to 3.5 mbar, quickly up to 6.0 mbar
+ * and very rapidly above.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class RollingValues {
+
+    private static final double[] TENDENCY_LIMITS = { 0.1, 1.5, 3.5, 6.0 };
+    private static final State STEADY = new StringType("Steady");
+    private static final State[] RISING = { STEADY, new StringType("RisingSlowly"), new StringType("Rising"),
+            new StringType("RisingQuickly"), new StringType("RisingVeryRapidly") };
+    private static final State[] FALLING = { STEADY, new StringType("FallingSlowly"), new StringType("Falling"),
+            new StringType("FallingQuickly"), new StringType("FallingVeryRapidly") };
+
+    private final State[] states;
+    private final State pressureTendency;
+    private final State pressureTendencyDescription;
+
+    /**
+     * Creates the values
+     *
+     * @param values the converted values at the ordinal of their statistic, {@link Double#NaN} if missing
+     * @param pressureTendency the change of the barometer over the last 3 hours in mbar, {@link Double#NaN} if missing
+     */
+    public RollingValues(double[] values, double pressureTendency) {
+        this.states = new State[values.length];
+        for (int i = 0; i < values.length; i++) {
+            states[i] = Utility.toState(values[i]);
+        }
+        this.pressureTendency = Utility.toState(pressureTendency);
+        this.pressureTendencyDescription = getPressureTendencyDescription(pressureTendency);
+    }
+
+    public State getValue(RollingStatistic statistic) {
+        return states[statistic.ordinal()];
+    }
+
+    public State getPressureTendency() {
+        return pressureTendency;
+    }
+
+    public State getPressureTendencyDescription() {
+        return pressureTendencyDescription;
+    }
+
+    /**
+     * Returns the description of a pressure tendency
+     *
+     * @param pressureTendency the change of the barometer over the last 3 hours in mbar
+     * @return the description, {@link UnDefType#NULL} if the tendency is missing
+     */
+    public static State getPressureTendencyDescription(double pressureTendency) {
+        if (Double.isNaN(pressureTendency)) {
+            return UnDefType.NULL;
+        }
+        // the limits apply to the change as it is reported, in tenths of a millibar
+        double change = Utility.round(Math.abs(pressureTendency), 1);
+        int level = change < TENDENCY_LIMITS[0] ? 0 : 1;
+        while (level > 0 && level < TENDENCY_LIMITS.length && change > TENDENCY_LIMITS[level]) {
+            level++;
+        }
+        return pressureTendency > 0 ? RISING[level] : FALLING[level];
+    }
+}
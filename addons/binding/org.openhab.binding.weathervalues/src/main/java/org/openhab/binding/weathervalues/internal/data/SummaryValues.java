@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.data;
+
+import org.eclipse.smarthome.core.types.State;
+import org.openhab.binding.weathervalues.internal.mapping.SummaryStatistic;
+
+/**
+ * The {@link SummaryValues} holds the states of all {@link SummaryStatistic}s of one refresh.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class SummaryValues {
+
+    private final State[] states;
+
+    /**
+     * Creates the values
+     *
+     * @param values the converted values at the ordinal of their statistic, {@link Double#NaN} if missing
+     */
+    public SummaryValues(double[] values) {
+        this.states = new State[values.length];
+        for (int i = 0; i < values.length; i++) {
+            states[i] = Utility.toState(values[i]);
+        }
+    }
+
+    public State getValue(SummaryStatistic statistic) {
+        return states[statistic.ordinal()];
+    }
+}
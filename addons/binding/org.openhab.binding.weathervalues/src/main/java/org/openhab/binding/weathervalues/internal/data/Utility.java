@@ -1,18 +1,36 @@
 package org.openhab.binding.weathervalues.internal.data;
 
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+
 public class Utility {
+    private static final long[] FACTORS = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L,
+            1000000000L, 10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+            1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L };
+
     public static double round(double value) {
         return round(value, 2);
     }
 
     public static double round(double value, int numberOfFractionDigits) {
-        if (numberOfFractionDigits < 0) {
+        if (numberOfFractionDigits < 0 || numberOfFractionDigits >= FACTORS.length) {
             throw new IllegalArgumentException();
         }
 
-        long factor = (long) Math.pow(10, numberOfFractionDigits);
+        long factor = FACTORS[numberOfFractionDigits];
         value *= factor;
         long tmp = Math.round(value);
         return (double) tmp / factor;
     }
+
+    /**
+     * Returns the rounded value as state
+     *
+     * @param value the value, {@link Double#NaN} if it is missing
+     * @return the state, {@link UnDefType#NULL} if the value is missing
+     */
+    public static State toState(double value) {
+        return Double.isNaN(value) ? UnDefType.NULL : new DecimalType(round(value));
+    }
 }
@@ -8,7 +8,6 @@
  */
 package org.openhab.binding.weathervalues.internal.data;
 
-import org.eclipse.smarthome.core.library.types.DecimalType;
 import org.eclipse.smarthome.core.library.types.StringType;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.UnDefType;
@@ -20,52 +19,61 @@ import org.eclipse.smarthome.core.types.UnDefType;
  */
 public class Wind {
 
-    private String value;
-    private Double speed;
+    // sectors of 45 degree starting at North
+    private static final State[] DIRECTIONS = { new StringType("North"), new StringType("NorthEast"),
+            new StringType("East"), new StringType("SouthEast"), new StringType("South"), new StringType("SouthWest"),
+            new StringType("West"), new StringType("NorthWest") };
 
-    public Wind(Integer directionInDeg, Double speedInKmh) throws IllegalArgumentException {
-        if (directionInDeg != null) {
-            if (directionInDeg < 0 || directionInDeg > 360) {
+    // points of 22.5 degree centered on North
+    private static final State[] COMPASS_POINTS = { new StringType("North"), new StringType("NorthNorthEast"),
+            new StringType("NorthEast"), new StringType("EastNorthEast"), new StringType("East"),
+            new StringType("EastSouthEast"), new StringType("SouthEast"), new StringType("SouthSouthEast"),
+            new StringType("South"), new StringType("SouthSouthWest"), new StringType("SouthWest"),
+            new StringType("WestSouthWest"), new StringType("West"), new StringType("WestNorthWest"),
+            new StringType("NorthWest"), new StringType("NorthNorthWest") };
+
+    private final State direction;
+    private final State speed;
+
+    /**
+     * Creates the wind, missing values are {@link Double#NaN}
+     *
+     * @param directionInDeg the direction in degree, the fraction is ignored
+     * @param speedInKmh the speed in km/h
+     * @throws IllegalArgumentException if the direction is not between 0 and 360 degree
+     */
+    public Wind(double directionInDeg, double speedInKmh) throws IllegalArgumentException {
+        if (!Double.isNaN(directionInDeg)) {
+            int degree = (int) directionInDeg;
+            if (degree < 0 || degree > 360) {
                 throw new IllegalArgumentException("directionInDeg is not in degree");
             }
-            if (directionInDeg == 360) {
-                directionInDeg = 0;
-            }
-            if (directionInDeg >= 0 && directionInDeg < 45) {
-                this.value = "North";
-            } else if (directionInDeg >= 45 && directionInDeg < 90) {
-                this.value = "NorthEast";
-            } else if (directionInDeg >= 90 && directionInDeg < 135) {
-                this.value = "East";
-            } else if (directionInDeg >= 135 && directionInDeg < 180) {
-                this.value = "SouthEast";
-            } else if (directionInDeg >= 180 && directionInDeg < 225) {
-                this.value = "South";
-            } else if (directionInDeg >= 225 && directionInDeg < 270) {
-                this.value = "SouthWest";
-            } else if (directionInDeg >= 270 && directionInDeg < 315) {
-                this.value = "West";
-            } else if (directionInDeg >= 315 && directionInDeg < 360) {
-                this.value = "NorthWest";
-            }
+            this.direction = DIRECTIONS[degree % 360 / 45];
         } else {
-            this.value = null;
+            this.direction = UnDefType.NULL;
         }
-        this.speed = speedInKmh;
+        this.speed = Utility.toState(speedInKmh);
     }
 
     public State getDirection() {
-        if (value != null) {
-            return new StringType(value);
-        }
-        return UnDefType.NULL;
+        return direction;
     }
 
     public State getSpeed() {
-        if (speed != null) {
-            double value = Utility.round(speed);
-            return new DecimalType(value);
+        return speed;
+    }
+
+    /**
+     * Returns the nearest point of the 16-point compass of a direction
+     *
+     * @param directionInDeg the direction in degree, {@link Double#NaN} if missing
+     * @return the name of the compass point, {@link UnDefType#NULL} if the direction is missing
+     */
+    public static State getCompassPoint(double directionInDeg) {
+        if (Double.isNaN(directionInDeg)) {
+            return UnDefType.NULL;
         }
-        return UnDefType.NULL;
+        int point = (int) Math.floor(directionInDeg / 22.5 + 0.5);
+        return COMPASS_POINTS[Math.floorMod(point, COMPASS_POINTS.length)];
     }
 }
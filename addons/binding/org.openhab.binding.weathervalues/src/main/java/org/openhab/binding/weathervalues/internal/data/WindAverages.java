@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.data;
+
+import org.eclipse.smarthome.core.types.State;
+import org.openhab.binding.weathervalues.internal.mapping.RollingWindow;
+
+/**
+ * The {@link WindAverages} holds the states of the wind averaged over every {@link RollingWindow} of one refresh.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class WindAverages {
+
+    private final State[] speeds;
+    private final State[] directions;
+    private final State[] compassPoints;
+    private final State[] directionVariabilities;
+    private final State[] maximumGusts;
+
+    /**
+     * Creates the averages, all values are at the ordinal of their window and {@link Double#NaN} if missing
+     *
+     * @param speeds the mean speeds in km/h
+     * @param directions the vector mean directions in degree
+     * @param directionVariabilities the standard deviations of the direction in degree
+     * @param maximumGusts the maximum gusts in km/h
+     */
+    public WindAverages(double[] speeds, double[] directions, double[] directionVariabilities,
+            double[] maximumGusts) {
+        int length = RollingWindow.values().length;
+        this.speeds = new State[length];
+        this.directions = new State[length];
+        this.compassPoints = new State[length];
+        this.directionVariabilities = new State[length];
+        this.maximumGusts = new State[length];
+        for (int i = 0; i < length; i++) {
+            this.speeds[i] = Utility.toState(speeds[i]);
+            this.directions[i] = Utility.toState(directions[i]);
+            this.compassPoints[i] = Wind.getCompassPoint(directions[i]);
+            this.directionVariabilities[i] = Utility.toState(directionVariabilities[i]);
+            this.maximumGusts[i] = Utility.toState(maximumGusts[i]);
+        }
+    }
+
+    public State getSpeed(RollingWindow window) {
+        return speeds[window.ordinal()];
+    }
+
+    public State getDirection(RollingWindow window) {
+        return directions[window.ordinal()];
+    }
+
+    /**
+     * Returns the point of the 16-point compass of the vector mean direction
+     */
+    public State getCompassPoint(RollingWindow window) {
+        return compassPoints[window.ordinal()];
+    }
+
+    public State getDirectionVariability(RollingWindow window) {
+        return directionVariabilities[window.ordinal()];
+    }
+
+    public State getMaximumGust(RollingWindow window) {
+        return maximumGusts[window.ordinal()];
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.mapping;
+
+import java.util.Set;
+
+/**
+ * The {@link ArchiveColumn} maps the columns of the weewx archive table used by the binding. The values of a
+ * record are stored at the ordinal of the column.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public enum ArchiveColumn {
+
+    BAROMETER("barometer", UnitGroup.PRESSURE),
+    OUT_TEMP("outTemp", UnitGroup.TEMPERATURE),
+    OUT_HUMIDITY("outHumidity", UnitGroup.NONE),
+    EXTRA_TEMP_1("extraTemp1", UnitGroup.TEMPERATURE),
+    EXTRA_HUMID_1("extraHumid1", UnitGroup.NONE),
+    WIND_SPEED("windSpeed", UnitGroup.SPEED),
+    WIND_DIR("windDir", UnitGroup.NONE),
+    WIND_GUST("windGust", UnitGroup.SPEED),
+    RAIN_RATE("rainRate", UnitGroup.RAIN_RATE),
+    INTERVAL("interval", UnitGroup.NONE),
+    US_UNITS("usUnits", UnitGroup.NONE);
+
+    public static final String TABLE_NAME = "archive";
+
+    private final String columnName;
+    private final UnitGroup unitGroup;
+
+    private ArchiveColumn(String columnName, UnitGroup unitGroup) {
+        this.columnName = columnName;
+        this.unitGroup = unitGroup;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public UnitGroup getUnitGroup() {
+        return unitGroup;
+    }
+
+    /**
+     * Creates the plan to read all columns of the archive table
+     *
+     * @param availableColumns the columns of the archive table
+     * @return the plan
+     */
+    public static MappingPlan createPlan(Set<String> availableColumns) {
+        ArchiveColumn[] columns = values();
+        String[] columnNames = new String[columns.length];
+        UnitGroup[] unitGroups = new UnitGroup[columns.length];
+        for (ArchiveColumn column : columns) {
+            columnNames[column.ordinal()] = column.columnName;
+            unitGroups[column.ordinal()] = column.unitGroup;
+        }
+        return new MappingPlan(TABLE_NAME, columnNames, unitGroups, US_UNITS.ordinal(), availableColumns);
+    }
+}
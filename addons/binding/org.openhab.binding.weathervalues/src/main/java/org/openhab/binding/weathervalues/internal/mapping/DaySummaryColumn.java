@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.mapping;
+
+import java.util.Set;
+
+/**
+ * The {@link DaySummaryColumn} maps the columns of the weewx archive_day_* tables used by the binding. The values of
+ * a row are stored at the ordinal of the column.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public enum DaySummaryColumn {
+
+    MIN("min", Kind.VALUE),
+    MIN_TIME("mintime", Kind.TIME),
+    MAX("max", Kind.VALUE),
+    MAX_TIME("maxtime", Kind.TIME),
+    SUM("sum", Kind.SUM);
+
+    private enum Kind {
+        VALUE,
+        TIME,
+        SUM
+    }
+
+    private final String columnName;
+    private final Kind kind;
+
+    private DaySummaryColumn(String columnName, Kind kind) {
+        this.columnName = columnName;
+        this.kind = kind;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * Returns the conversion of the column for an observation
+     *
+     * @param observation the unit group of the observation
+     * @return the unit group, or null if the column can not be converted
+     */
+    public UnitGroup getUnitGroup(UnitGroup observation) {
+        switch (kind) {
+            case VALUE:
+                return observation;
+            case SUM:
+                return observation.isAdditive() ? observation : null;
+            default:
+                return UnitGroup.NONE;
+        }
+    }
+
+    /**
+     * Creates the plan to read all columns of a daily summary table
+     *
+     * @param tableName the name of the table
+     * @param observation the unit group of the observation
+     * @param availableColumns the columns of the table
+     * @return the plan
+     */
+    public static MappingPlan createPlan(String tableName, UnitGroup observation, Set<String> availableColumns) {
+        DaySummaryColumn[] columns = values();
+        String[] columnNames = new String[columns.length];
+        UnitGroup[] unitGroups = new UnitGroup[columns.length];
+        for (DaySummaryColumn column : columns) {
+            columnNames[column.ordinal()] = column.columnName;
+            unitGroups[column.ordinal()] = column.getUnitGroup(observation);
+        }
+        return new MappingPlan(tableName, columnNames, unitGroups, -1, availableColumns);
+    }
+}
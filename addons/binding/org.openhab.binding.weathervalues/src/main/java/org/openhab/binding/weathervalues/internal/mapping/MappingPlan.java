@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.openhab.binding.weathervalues.internal.SQLReader;
+
+/**
+ * The {@link MappingPlan} reads the rows of a weewx table into primitive records. The select statement and the
+ * conversion of each column are resolved once when the plan is created, so reading a row needs neither a lookup by
+ * column name nor a String per value. The key column dateTime is always selected first.
+ *
+ * Columns which do not exist in the table or which can not be converted are selected as NULL and read as
+ * {@link Double#NaN}.
+ *
+ * The conversion is a separate pass over the raw values of a row, which applies a scale and an offset per column. Both
+ * are precomputed for every {@link UnitSystem}, and the unit system of a row is taken from its usUnits column if the
+ * plan has one. A row in a unit system which needs no conversion is left as it is read.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class MappingPlan {
+
+    private static final String KEY_COLUMN = "dateTime";
+
+    private final String tableName;
+    private final String select;
+    private final UnitGroup[] unitGroups;
+    private final int unitSystemColumn;
+    private final double[][] scales;
+    private final double[][] offsets;
+    private final boolean[] identities;
+
+    /**
+     * Creates a plan
+     *
+     * @param tableName the name of the table
+     * @param columnNames the names of the columns, at the index of their value in a record
+     * @param unitGroups the conversion of each column, null if a column can not be converted
+     * @param unitSystemColumn the index of the usUnits column, -1 if the table has the unit system of the database
+     * @param availableColumns the columns of the table
+     */
+    public MappingPlan(String tableName, String[] columnNames, UnitGroup[] unitGroups, int unitSystemColumn,
+            Set<String> availableColumns) {
+        this.tableName = tableName;
+        this.unitGroups = new UnitGroup[columnNames.length];
+        this.unitSystemColumn = unitSystemColumn;
+
+        StringBuilder select = new StringBuilder("SELECT ").append(KEY_COLUMN);
+        for (int i = 0; i < columnNames.length; i++) {
+            if (unitGroups[i] != null && availableColumns.contains(columnNames[i])) {
+                this.unitGroups[i] = unitGroups[i];
+                select.append(", ").append(columnNames[i]);
+            } else {
+                select.append(", NULL");
+            }
+        }
+        this.select = select.append(" FROM ").append(tableName).toString();
+
+        UnitSystem[] unitSystems = UnitSystem.values();
+        scales = new double[unitSystems.length][columnNames.length];
+        offsets = new double[unitSystems.length][columnNames.length];
+        identities = new boolean[unitSystems.length];
+        for (UnitSystem unitSystem : unitSystems) {
+            double[] scale = scales[unitSystem.ordinal()];
+            double[] offset = offsets[unitSystem.ordinal()];
+            boolean identity = true;
+            for (int i = 0; i < columnNames.length; i++) {
+                // missing columns are NaN in any unit system
+                UnitGroup unitGroup = this.unitGroups[i];
+                scale[i] = unitGroup != null ? unitGroup.getScale(unitSystem) : 1;
+                offset[i] = unitGroup != null ? unitGroup.getOffset(unitSystem) : 0;
+                identity &= scale[i] == 1 && offset[i] == 0;
+            }
+            identities[unitSystem.ordinal()] = identity;
+        }
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Returns the select statement of all columns of the plan, without any condition or order
+     */
+    public String getSelect() {
+        return select;
+    }
+
+    public int getNumberOfColumns() {
+        return unitGroups.length;
+    }
+
+    /**
+     * Reads and converts the current row of a result set of {@link #getSelect()}
+     *
+     * @param resultSet the result set positioned on a row
+     * @param record the record to fill, with at least {@link #getNumberOfColumns()} elements
+     * @param unitSystem the unit system of the row if the plan has no usUnits column or its value is missing
+     * @return the key of the row
+     * @throws SQLException if the row could not be read
+     */
+    public long read(ResultSet resultSet, double[] record, UnitSystem unitSystem) throws SQLException {
+        long key = readRaw(resultSet, record);
+        convert(record, unitSystem);
+        return key;
+    }
+
+    /**
+     * Reads the current row of a result set of {@link #getSelect()} without converting it, e.g. to convert a batch of
+     * rows with {@link #convert(double[][], int, UnitSystem)} afterwards
+     *
+     * @param resultSet the result set positioned on a row
+     * @param record the record to fill, with at least {@link #getNumberOfColumns()} elements
+     * @return the key of the row
+     * @throws SQLException if the row could not be read
+     */
+    public long readRaw(ResultSet resultSet, double[] record) throws SQLException {
+        long key = resultSet.getLong(1);
+        for (int i = 0; i < unitGroups.length; i++) {
+            if (unitGroups[i] == null) {
+                record[i] = Double.NaN;
+                continue;
+            }
+            double value = resultSet.getDouble(i + 2);
+            record[i] = resultSet.wasNull() ? Double.NaN : value;
+        }
+        return key;
+    }
+
+    /**
+     * Returns the unit system of a raw record
+     *
+     * @param record the raw record
+     * @param unitSystem the unit system if the plan has no usUnits column or its value is missing or unknown
+     * @return the unit system of the record
+     */
+    public UnitSystem getUnitSystem(double[] record, UnitSystem unitSystem) {
+        return unitSystemColumn >= 0 ? UnitSystem.valueOf(record[unitSystemColumn], unitSystem) : unitSystem;
+    }
+
+    /**
+     * Converts a raw record in place
+     *
+     * @param record the raw record
+     * @param unitSystem the unit system if the plan has no usUnits column or its value is missing or unknown
+     */
+    public void convert(double[] record, UnitSystem unitSystem) {
+        int index = getUnitSystem(record, unitSystem).ordinal();
+        if (identities[index]) {
+            return;
+        }
+        double[] scale = scales[index];
+        double[] offset = offsets[index];
+        for (int i = 0; i < scale.length; i++) {
+            record[i] = record[i] * scale[i] + offset[i];
+        }
+    }
+
+    /**
+     * Converts a batch of raw records in place, each in its own unit system
+     *
+     * @param records the raw records
+     * @param count the number of records to convert
+     * @param unitSystem the unit system if the plan has no usUnits column or its value is missing or unknown
+     */
+    public void convert(double[][] records, int count, UnitSystem unitSystem) {
+        for (int i = 0; i < count; i++) {
+            convert(records[i], unitSystem);
+        }
+    }
+
+    /**
+     * Returns the names of the columns of a table
+     *
+     * @param reader the reader with an open connection
+     * @param tableName the name of the table
+     * @return the names of the columns, case insensitive, empty if the table does not exist
+     * @throws SQLException if the columns could not be read
+     */
+    public static Set<String> getColumns(SQLReader reader, String tableName) throws SQLException {
+        Set<String> columns = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        try (ResultSet resultSet = reader.getResultSet("PRAGMA table_info(" + tableName + ")")) {
+            while (resultSet.next()) {
+                columns.add(resultSet.getString("name"));
+            }
+        }
+        return columns;
+    }
+}
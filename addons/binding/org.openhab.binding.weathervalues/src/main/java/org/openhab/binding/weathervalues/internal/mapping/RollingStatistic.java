@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.mapping;
+
+import static org.openhab.binding.weathervalues.WeatherValuesBindingConstants.*;
+
+/**
+ * The {@link RollingStatistic} maps a channel to an aggregate of a column of the weewx archive table over a
+ * {@link RollingWindow}. In contrast to a {@link SummaryStatistic} the aggregate is not computed by the database, but
+ * maintained from the recent archive records while they are read.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public enum RollingStatistic {
+
+    OUTSIDE_TEMP_MIN_1_HOUR(CHANNEL_OUTSIDE_TEMP_MIN_1_HOUR, ArchiveColumn.OUT_TEMP, RollingWindow.ONE_HOUR,
+            Function.MINIMUM),
+    OUTSIDE_TEMP_MAX_1_HOUR(CHANNEL_OUTSIDE_TEMP_MAX_1_HOUR, ArchiveColumn.OUT_TEMP, RollingWindow.ONE_HOUR,
+            Function.MAXIMUM),
+    OUTSIDE_TEMP_AVERAGE_1_HOUR(CHANNEL_OUTSIDE_TEMP_AVERAGE_1_HOUR, ArchiveColumn.OUT_TEMP, RollingWindow.ONE_HOUR,
+            Function.AVERAGE),
+    OUTSIDE_TEMP_MIN_3_HOURS(CHANNEL_OUTSIDE_TEMP_MIN_3_HOURS, ArchiveColumn.OUT_TEMP, RollingWindow.THREE_HOURS,
+            Function.MINIMUM),
+    OUTSIDE_TEMP_MAX_3_HOURS(CHANNEL_OUTSIDE_TEMP_MAX_3_HOURS, ArchiveColumn.OUT_TEMP, RollingWindow.THREE_HOURS,
+            Function.MAXIMUM),
+    OUTSIDE_TEMP_AVERAGE_3_HOURS(CHANNEL_OUTSIDE_TEMP_AVERAGE_3_HOURS, ArchiveColumn.OUT_TEMP,
+            RollingWindow.THREE_HOURS, Function.AVERAGE),
+    OUTSIDE_TEMP_MIN_24_HOURS(CHANNEL_OUTSIDE_TEMP_MIN_24_HOURS, ArchiveColumn.OUT_TEMP, RollingWindow.ONE_DAY,
+            Function.MINIMUM),
+    OUTSIDE_TEMP_MAX_24_HOURS(CHANNEL_OUTSIDE_TEMP_MAX_24_HOURS, ArchiveColumn.OUT_TEMP, RollingWindow.ONE_DAY,
+            Function.MAXIMUM),
+    OUTSIDE_TEMP_AVERAGE_24_HOURS(CHANNEL_OUTSIDE_TEMP_AVERAGE_24_HOURS, ArchiveColumn.OUT_TEMP, RollingWindow.ONE_DAY,
+            Function.AVERAGE),
+    OUTSIDE_HUMIDITY_MIN_1_HOUR(CHANNEL_OUTSIDE_HUMIDITY_MIN_1_HOUR, ArchiveColumn.OUT_HUMIDITY, RollingWindow.ONE_HOUR,
+            Function.MINIMUM),
+    OUTSIDE_HUMIDITY_MAX_1_HOUR(CHANNEL_OUTSIDE_HUMIDITY_MAX_1_HOUR, ArchiveColumn.OUT_HUMIDITY, RollingWindow.ONE_HOUR,
+            Function.MAXIMUM),
+    OUTSIDE_HUMIDITY_AVERAGE_1_HOUR(CHANNEL_OUTSIDE_HUMIDITY_AVERAGE_1_HOUR, ArchiveColumn.OUT_HUMIDITY,
+            RollingWindow.ONE_HOUR, Function.AVERAGE),
+    OUTSIDE_HUMIDITY_MIN_3_HOURS(CHANNEL_OUTSIDE_HUMIDITY_MIN_3_HOURS, ArchiveColumn.OUT_HUMIDITY,
+            RollingWindow.THREE_HOURS, Function.MINIMUM),
+    OUTSIDE_HUMIDITY_MAX_3_HOURS(CHANNEL_OUTSIDE_HUMIDITY_MAX_3_HOURS, ArchiveColumn.OUT_HUMIDITY,
+            RollingWindow.THREE_HOURS, Function.MAXIMUM),
+    OUTSIDE_HUMIDITY_AVERAGE_3_HOURS(CHANNEL_OUTSIDE_HUMIDITY_AVERAGE_3_HOURS, ArchiveColumn.OUT_HUMIDITY,
+            RollingWindow.THREE_HOURS, Function.AVERAGE),
+    OUTSIDE_HUMIDITY_MIN_24_HOURS(CHANNEL_OUTSIDE_HUMIDITY_MIN_24_HOURS, ArchiveColumn.OUT_HUMIDITY,
+            RollingWindow.ONE_DAY, Function.MINIMUM),
+    OUTSIDE_HUMIDITY_MAX_24_HOURS(CHANNEL_OUTSIDE_HUMIDITY_MAX_24_HOURS, ArchiveColumn.OUT_HUMIDITY,
+            RollingWindow.ONE_DAY, Function.MAXIMUM),
+    OUTSIDE_HUMIDITY_AVERAGE_24_HOURS(CHANNEL_OUTSIDE_HUMIDITY_AVERAGE_24_HOURS, ArchiveColumn.OUT_HUMIDITY,
+            RollingWindow.ONE_DAY, Function.AVERAGE),
+    BAROMETER_MIN_1_HOUR(CHANNEL_BAROMETER_MIN_1_HOUR, ArchiveColumn.BAROMETER, RollingWindow.ONE_HOUR,
+            Function.MINIMUM),
+    BAROMETER_MAX_1_HOUR(CHANNEL_BAROMETER_MAX_1_HOUR, ArchiveColumn.BAROMETER, RollingWindow.ONE_HOUR,
+            Function.MAXIMUM),
+    BAROMETER_AVERAGE_1_HOUR(CHANNEL_BAROMETER_AVERAGE_1_HOUR, ArchiveColumn.BAROMETER, RollingWindow.ONE_HOUR,
+            Function.AVERAGE),
+    BAROMETER_MIN_3_HOURS(CHANNEL_BAROMETER_MIN_3_HOURS, ArchiveColumn.BAROMETER, RollingWindow.THREE_HOURS,
+            Function.MINIMUM),
+    BAROMETER_MAX_3_HOURS(CHANNEL_BAROMETER_MAX_3_HOURS, ArchiveColumn.BAROMETER, RollingWindow.THREE_HOURS,
+            Function.MAXIMUM),
+    BAROMETER_AVERAGE_3_HOURS(CHANNEL_BAROMETER_AVERAGE_3_HOURS, ArchiveColumn.BAROMETER, RollingWindow.THREE_HOURS,
+            Function.AVERAGE),
+    BAROMETER_MIN_24_HOURS(CHANNEL_BAROMETER_MIN_24_HOURS, ArchiveColumn.BAROMETER, RollingWindow.ONE_DAY,
+            Function.MINIMUM),
+    BAROMETER_MAX_24_HOURS(CHANNEL_BAROMETER_MAX_24_HOURS, ArchiveColumn.BAROMETER, RollingWindow.ONE_DAY,
+            Function.MAXIMUM),
+    BAROMETER_AVERAGE_24_HOURS(CHANNEL_BAROMETER_AVERAGE_24_HOURS, ArchiveColumn.BAROMETER, RollingWindow.ONE_DAY,
+            Function.AVERAGE);
+
+    /**
+     * The {@link Function} is the aggregate function of a statistic.
+     */
+    public enum Function {
+        MINIMUM,
+        MAXIMUM,
+        AVERAGE
+    }
+
+    private final String channelId;
+    private final ArchiveColumn column;
+    private final RollingWindow window;
+    private final Function function;
+
+    private RollingStatistic(String channelId, ArchiveColumn column, RollingWindow window, Function function) {
+        this.channelId = channelId;
+        this.column = column;
+        this.window = window;
+        this.function = function;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public ArchiveColumn getColumn() {
+        return column;
+    }
+
+    public RollingWindow getWindow() {
+        return window;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+}
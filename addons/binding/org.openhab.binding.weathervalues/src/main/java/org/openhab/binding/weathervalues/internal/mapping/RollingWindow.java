@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.mapping;
+
+/**
+ * The {@link RollingWindow} is a window of fixed length which ends with the latest archive record, in contrast to the
+ * calendar windows of a {@link SummaryWindow}.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public enum RollingWindow {
+
+    TEN_MINUTES(10 * 60),
+    ONE_HOUR(60 * 60),
+    THREE_HOURS(3 * 60 * 60),
+    ONE_DAY(24 * 60 * 60);
+
+    private final long seconds;
+
+    private RollingWindow(long seconds) {
+        this.seconds = seconds;
+    }
+
+    /**
+     * Returns the length of the window
+     *
+     * @return the length in seconds
+     */
+    public long getSeconds() {
+        return seconds;
+    }
+
+    /**
+     * Returns the length of the longest window, which is the age of the oldest archive record needed
+     *
+     * @return the length in seconds
+     */
+    public static long getMaximumSeconds() {
+        long maximum = 0;
+        for (RollingWindow window : values()) {
+            maximum = Math.max(maximum, window.seconds);
+        }
+        return maximum;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.mapping;
+
+import static org.openhab.binding.weathervalues.WeatherValuesBindingConstants.*;
+
+import org.openhab.binding.weathervalues.internal.data.DailySummary;
+
+/**
+ * The {@link SummaryStatistic} maps a channel to an aggregate of a column of a weewx archive_day_* table over a
+ * {@link SummaryWindow}. The aggregate is computed by the database with a range query on the dateTime primary key:
+ * the minimum of the min column, the maximum of the max column or the sum of the sum column.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public enum SummaryStatistic {
+
+    OUTSIDE_HUMIDITY_DAY_MIN(CHANNEL_OUTSIDE_HUMIDITY_DAY_MIN, "outHumidity", UnitGroup.NONE, DaySummaryColumn.MIN,
+            SummaryWindow.DAY),
+    OUTSIDE_HUMIDITY_DAY_MAX(CHANNEL_OUTSIDE_HUMIDITY_DAY_MAX, "outHumidity", UnitGroup.NONE, DaySummaryColumn.MAX,
+            SummaryWindow.DAY),
+    OUTSIDE_TEMP_MONTH_MIN(CHANNEL_OUTSIDE_TEMP_MONTH_MIN, "outTemp", UnitGroup.TEMPERATURE, DaySummaryColumn.MIN,
+            SummaryWindow.MONTH),
+    OUTSIDE_TEMP_MONTH_MAX(CHANNEL_OUTSIDE_TEMP_MONTH_MAX, "outTemp", UnitGroup.TEMPERATURE, DaySummaryColumn.MAX,
+            SummaryWindow.MONTH),
+    OUTSIDE_TEMP_YEAR_MIN(CHANNEL_OUTSIDE_TEMP_YEAR_MIN, "outTemp", UnitGroup.TEMPERATURE, DaySummaryColumn.MIN,
+            SummaryWindow.YEAR),
+    OUTSIDE_TEMP_YEAR_MAX(CHANNEL_OUTSIDE_TEMP_YEAR_MAX, "outTemp", UnitGroup.TEMPERATURE, DaySummaryColumn.MAX,
+            SummaryWindow.YEAR),
+    BAROMETER_MONTH_MIN(CHANNEL_BAROMETER_MONTH_MIN, "barometer", UnitGroup.PRESSURE, DaySummaryColumn.MIN,
+            SummaryWindow.MONTH),
+    BAROMETER_MONTH_MAX(CHANNEL_BAROMETER_MONTH_MAX, "barometer", UnitGroup.PRESSURE, DaySummaryColumn.MAX,
+            SummaryWindow.MONTH),
+    WIND_GUST_DAY_MAX(CHANNEL_WIND_GUST_DAY_MAX, "windGust", UnitGroup.SPEED, DaySummaryColumn.MAX, SummaryWindow.DAY),
+    WIND_GUST_WEEK_MAX(CHANNEL_WIND_GUST_WEEK_MAX, "windGust", UnitGroup.SPEED, DaySummaryColumn.MAX,
+            SummaryWindow.WEEK),
+    WIND_GUST_MONTH_MAX(CHANNEL_WIND_GUST_MONTH_MAX, "windGust", UnitGroup.SPEED, DaySummaryColumn.MAX,
+            SummaryWindow.MONTH);
+
+    private final String channelId;
+    private final String observation;
+    private final UnitGroup unitGroup;
+    private final DaySummaryColumn column;
+    private final SummaryWindow window;
+
+    private SummaryStatistic(String channelId, String observation, UnitGroup unitGroup, DaySummaryColumn column,
+            SummaryWindow window) {
+        this.channelId = channelId;
+        this.observation = observation;
+        this.unitGroup = unitGroup;
+        this.column = column;
+        this.window = window;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public String getTableName() {
+        return DailySummary.getTableName(observation);
+    }
+
+    public DaySummaryColumn getColumn() {
+        return column;
+    }
+
+    public SummaryWindow getWindow() {
+        return window;
+    }
+
+    /**
+     * Returns the conversion of the aggregate
+     *
+     * @return the unit group, or null if the aggregate can not be converted
+     */
+    public UnitGroup getUnitGroup() {
+        return column.getUnitGroup(unitGroup);
+    }
+
+    /**
+     * Returns the query of the aggregate, with the first and the last day of the window as parameters
+     *
+     * @return the query
+     */
+    public String getQuery() {
+        String aggregate = column == DaySummaryColumn.MIN ? "MIN" : column == DaySummaryColumn.MAX ? "MAX" : "SUM";
+        return "SELECT " + aggregate + "(" + column.getColumnName() + ") FROM " + getTableName()
+                + " WHERE dateTime BETWEEN ? AND ?";
+    }
+}
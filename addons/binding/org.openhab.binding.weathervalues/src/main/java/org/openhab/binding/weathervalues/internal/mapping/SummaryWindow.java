@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.mapping;
+
+import org.openhab.binding.weathervalues.internal.Time;
+
+/**
+ * The {@link SummaryWindow} is a calendar period of daily summary rows, which ends with the current day.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public enum SummaryWindow {
+
+    DAY,
+    WEEK,
+    MONTH,
+    YEAR;
+
+    /**
+     * Returns the start of the period containing a time
+     *
+     * @param epochSecond the time in seconds since the epoch
+     * @return the start of the first day of the period in seconds since the epoch
+     */
+    public long getStart(long epochSecond) {
+        switch (this) {
+            case DAY:
+                return Time.startOfDay(epochSecond);
+            case WEEK:
+                return Time.startOfWeek(epochSecond);
+            case MONTH:
+                return Time.startOfMonth(Time.year(epochSecond), Time.month(epochSecond));
+            default:
+                return Time.startOfMonth(Time.year(epochSecond), 1);
+        }
+    }
+}
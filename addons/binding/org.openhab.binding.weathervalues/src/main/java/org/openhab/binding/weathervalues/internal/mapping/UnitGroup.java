@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.mapping;
+
+import java.util.function.DoubleUnaryOperator;
+
+import org.openhab.binding.weathervalues.internal.Converter;
+
+/**
+ * The {@link UnitGroup} defines the conversion of a weewx observation from the unit stored in the database to the
+ * unit of the channels, for each {@link UnitSystem}. All conversions are affine, so they are resolved once into a
+ * scale and an offset per unit system.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public enum UnitGroup {
+
+    NONE(value -> value, value -> value, value -> value),
+    TEMPERATURE(Converter::fahrenheit_to_Celsius, value -> value, value -> value),
+    PRESSURE(Converter::inchOfHG_to_Millibar, value -> value, value -> value),
+    SPEED(Converter::milesPerHour_to_kmh, value -> value, Converter::meterPerSecond_to_kmh),
+    RAIN(Converter::inch_to_Millimeter, Converter::centimeter_to_Millimeter, value -> value),
+    RAIN_RATE(Converter::inchPerHour_to_MillimeterPerHour, Converter::centimeterPerHour_to_MillimeterPerHour,
+            value -> value);
+
+    private final double[] scales = new double[UnitSystem.values().length];
+    private final double[] offsets = new double[UnitSystem.values().length];
+    private final boolean additive;
+
+    private UnitGroup(DoubleUnaryOperator us, DoubleUnaryOperator metric, DoubleUnaryOperator metricWx) {
+        setTransform(UnitSystem.US, us);
+        setTransform(UnitSystem.METRIC, metric);
+        setTransform(UnitSystem.METRICWX, metricWx);
+        boolean additive = true;
+        for (double offset : offsets) {
+            additive &= offset == 0;
+        }
+        this.additive = additive;
+    }
+
+    private void setTransform(UnitSystem unitSystem, DoubleUnaryOperator converter) {
+        offsets[unitSystem.ordinal()] = converter.applyAsDouble(0);
+        scales[unitSystem.ordinal()] = converter.applyAsDouble(1) - offsets[unitSystem.ordinal()];
+    }
+
+    public double getScale(UnitSystem unitSystem) {
+        return scales[unitSystem.ordinal()];
+    }
+
+    public double getOffset(UnitSystem unitSystem) {
+        return offsets[unitSystem.ordinal()];
+    }
+
+    public double convert(double value, UnitSystem unitSystem) {
+        return value * scales[unitSystem.ordinal()] + offsets[unitSystem.ordinal()];
+    }
+
+    /**
+     * Returns true if a sum of values can be converted like a single value, which is not the case for conversions
+     * with an offset
+     */
+    public boolean isAdditive() {
+        return additive;
+    }
+}
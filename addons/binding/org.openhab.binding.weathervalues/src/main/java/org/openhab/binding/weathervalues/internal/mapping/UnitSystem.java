@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.mapping;
+
+/**
+ * The {@link UnitSystem} is the unit system in which weewx stores a record, given by the usUnits column of the
+ * archive table. The daily summaries are stored in the unit system of the database.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public enum UnitSystem {
+
+    /**
+     * degree Fahrenheit, inHg, mile per hour, inch, inch per hour
+     */
+    US(0x01),
+    /**
+     * degree Celsius, mbar, km/h, cm, cm per hour
+     */
+    METRIC(0x10),
+    /**
+     * degree Celsius, mbar, m/s, mm, mm per hour
+     */
+    METRICWX(0x11);
+
+    private final int code;
+
+    private UnitSystem(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the unit system of a usUnits value
+     *
+     * @param code the value of the usUnits column, {@link Double#NaN} if it is missing
+     * @param defaultUnitSystem the unit system if the value is missing or unknown
+     * @return the unit system
+     */
+    public static UnitSystem valueOf(double code, UnitSystem defaultUnitSystem) {
+        for (UnitSystem unitSystem : values()) {
+            if (unitSystem.code == code) {
+                return unitSystem;
+            }
+        }
+        return defaultUnitSystem;
+    }
+}
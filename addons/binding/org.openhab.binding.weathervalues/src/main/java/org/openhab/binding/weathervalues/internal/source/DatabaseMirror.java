@@ -0,0 +1,873 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.source;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DatabaseMirror} keeps a local copy of a remote SQLite database, which stays on disk across refreshes.
+ *
+ * The copy is synchronized page by page with HTTP Range requests. Every page of the local copy is tracked by its
+ * checksum. A synchronization walks each b-tree from its root: it follows the right-most path of an unchanged interior
+ * page, the children a balance may have changed below a changed interior page and the overflow chains of the cells of a
+ * changed page. Only the header, the visited pages and the pages appended since the last synchronization are
+ * transferred.
+ *
+ * This matches the way weewx writes its database, which appends an archive record and updates the summaries of the
+ * current day in one transaction. A row updated in place does not change the parent of its page though, so the walk
+ * has to account for every change: every appended page has to be reached, the freelist has to be unchanged and every
+ * transaction has to have added an archive record. Otherwise, as after a schema change, the database is downloaded.
+ * A full download is also done for the first synchronization and whenever the server does not support Range requests.
+ *
+ * The ETag and Last-Modified validators of the last synchronization are sent with the first request of the next one,
+ * so an unchanged database costs a single conditional request.
+ *
+ * A full download prefers a gzip compressed copy of the database next to it, e.g. weewx.sdb.gz, and otherwise asks the
+ * server for a gzip Content-Encoding. The response is decompressed while it is streamed into the local copy. The
+ * compressed copy may lag behind the database, so it is only used when the local copy has to be replaced anyway. If it
+ * has not been modified since it was downloaded last, or it could not be synchronized with the database afterwards,
+ * the database itself is downloaded. A conditional download, as done for servers without Range support, always asks
+ * for the database itself.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class DatabaseMirror implements DatabaseSource {
+
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 30000;
+    private static final int MAX_SYNC_ATTEMPTS = 3;
+    private static final int MAX_PAGES_PER_REQUEST = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String GZIP_ENCODING = "gzip";
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private static final String ARCHIVE_TABLE = "archive";
+
+    private static final byte[] NOT_MODIFIED = new byte[0];
+
+    private enum SyncResult {
+        UNCHANGED,
+        DONE,
+        RETRY,
+        DOWNLOAD
+    }
+
+    private Logger logger = LoggerFactory.getLogger(DatabaseMirror.class);
+
+    private final String url;
+    private final File file;
+
+    private boolean valid;
+    private boolean downloadRequired;
+    private boolean rangeSupported = true;
+    private boolean gzipVariantAvailable = true;
+    private String gzipETag;
+    private String gzipLastModified;
+    private boolean gzipVariantDownloaded;
+    private boolean gzipVariantLagging;
+    private int pageSize;
+    private int usableSize;
+    private long pageCount;
+    private int schemaCookie;
+    private int changeCounter;
+    private int freelistTrunk;
+    private int freelistCount;
+    private int[] pageChecksums;
+    private List<Integer> rootPages;
+
+    private long remoteLength;
+    private String remoteETag;
+    private String remoteLastModified;
+
+    private String eTag;
+    private String lastModified;
+    private long contentLength = -1;
+    private volatile long transferredBytes;
+    private long lastTransferredBytes;
+    private volatile long generation;
+
+    private final CRC32 crc = new CRC32();
+
+    private volatile HttpURLConnection activeConnection;
+    private volatile boolean aborted;
+
+    public DatabaseMirror(String host, String dbName, File directory) {
+        this.url = "http://" + host + "/" + dbName;
+        this.file = new File(directory, (host + "_" + dbName).replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    /**
+     * Returns the local copy of the database
+     *
+     * @return the local copy of the database
+     */
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public long getGeneration() {
+        // the local copy is replaced by a full download, a delta download updates it in place
+        return generation;
+    }
+
+    @Override
+    public long getLastTransferredBytes() {
+        return lastTransferredBytes;
+    }
+
+    @Override
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    /**
+     * Aborts a running synchronization by closing its connection. The local copy is left unchanged, as pages are only
+     * written once all of them have been transferred.
+     */
+    @Override
+    public void abort() {
+        aborted = true;
+        HttpURLConnection connection = activeConnection;
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Forces a full download on the next synchronization, e.g. after the local copy turned out to be corrupt.
+     */
+    @Override
+    public synchronized void invalidate() {
+        valid = false;
+        downloadRequired = true;
+    }
+
+    /**
+     * Brings the local copy up to date with the remote database.
+     *
+     * @return true if the local copy has changed, false if the remote database was not modified
+     * @throws IOException if the remote database could not be transferred
+     */
+    @Override
+    public synchronized boolean sync() throws IOException {
+        transferredBytes = 0;
+        aborted = false;
+        try {
+            if (!valid) {
+                load();
+                eTag = null;
+                lastModified = null;
+                contentLength = -1;
+            }
+            if (!valid || downloadRequired || !rangeSupported) {
+                return download();
+            }
+            for (int attempt = 0; attempt < MAX_SYNC_ATTEMPTS; attempt++) {
+                SyncResult result = syncPages();
+                if (result == SyncResult.UNCHANGED || result == SyncResult.DONE) {
+                    gzipVariantDownloaded = false;
+                    return result == SyncResult.DONE;
+                }
+                if (result == SyncResult.DOWNLOAD) {
+                    break;
+                }
+                logger.debug("Database {} changed during synchronization, retrying", url);
+            }
+            // the local copy can not be synchronized, so the validators of the last synchronization must not be sent
+            downloadRequired = true;
+            // a compressed copy which can not be synchronized either is not used for the next download
+            gzipVariantLagging = gzipVariantDownloaded;
+            return download();
+        } finally {
+            activeConnection = null;
+            lastTransferredBytes = transferredBytes;
+            logger.debug("Synchronized {} with {} bytes transferred", url, transferredBytes);
+        }
+    }
+
+    private SyncResult syncPages() throws IOException {
+        byte[] firstPage = fetchRange(0, pageSize, true);
+        if (firstPage == NOT_MODIFIED || isUnmodified()) {
+            return SyncResult.UNCHANGED;
+        }
+        if (firstPage == null) {
+            return SyncResult.DOWNLOAD;
+        }
+        if (!SQLitePages.isDatabaseHeader(firstPage)) {
+            throw new IOException(url + " is not a SQLite database");
+        }
+        if (SQLitePages.getPageSize(firstPage) != pageSize || SQLitePages.getSchemaCookie(firstPage) != schemaCookie
+                || SQLitePages.isAutoVacuum(firstPage)) {
+            return SyncResult.DOWNLOAD;
+        }
+
+        long remotePageCount = SQLitePages.getPageCount(firstPage);
+        if (remotePageCount < 0) {
+            remotePageCount = remoteLength / pageSize;
+        }
+        if (remotePageCount < pageCount || remotePageCount > Integer.MAX_VALUE) {
+            return SyncResult.DOWNLOAD;
+        }
+        if (remotePageCount == pageCount && checksum(firstPage) == pageChecksums[1]) {
+            updateValidators();
+            return SyncResult.UNCHANGED;
+        }
+        String firstETag = remoteETag;
+        String firstLastModified = remoteLastModified;
+
+        Map<Integer, byte[]> fetchedPages = new HashMap<>();
+        fetchedPages.put(1, firstPage);
+        // the appended pages are fetched at once, the walk through the b-trees has to reach each of them
+        List<Integer> appendedPages = new ArrayList<>();
+        for (long page = pageCount + 1; page <= remotePageCount; page++) {
+            appendedPages.add((int) page);
+        }
+        if (!fetchPages(appendedPages, fetchedPages)) {
+            return SyncResult.DOWNLOAD;
+        }
+        if (!isFreelistUnchanged(firstPage, remotePageCount, fetchedPages)) {
+            logger.debug("Freelist of {} changed, downloading it", url);
+            return SyncResult.DOWNLOAD;
+        }
+
+        Map<Integer, byte[]> changedPages = new TreeMap<>();
+        Set<Integer> visitedPages = new HashSet<>();
+        Set<Integer> overflowPages = new HashSet<>();
+        List<Integer> level = new ArrayList<>(rootPages);
+        try (RandomAccessFile local = new RandomAccessFile(file, "r")) {
+            while (!level.isEmpty()) {
+                for (Integer page : level) {
+                    if (page < 1 || page > remotePageCount) {
+                        return SyncResult.DOWNLOAD;
+                    }
+                }
+                if (!fetchPages(level, fetchedPages)) {
+                    return SyncResult.DOWNLOAD;
+                }
+                List<Integer> nextLevel = new ArrayList<>();
+                for (Integer page : level) {
+                    if (!visitedPages.add(page)) {
+                        continue;
+                    }
+                    byte[] remote = fetchedPages.get(page);
+                    boolean unchanged = page <= pageCount && checksum(remote) == pageChecksums[page];
+                    if (!unchanged) {
+                        changedPages.put(page, remote);
+                    }
+                    if (overflowPages.contains(page)) {
+                        // the whole chain of a changed cell is followed, as it may be rewritten only in parts
+                        int next = SQLitePages.getNextOverflowPage(remote);
+                        if (next != 0) {
+                            overflowPages.add(next);
+                            nextLevel.add(next);
+                        }
+                        continue;
+                    }
+                    if (SQLitePages.isInteriorPage(remote, page)) {
+                        // rows are appended and the latest rows are updated on the right-most path
+                        nextLevel.add(SQLitePages.getRightMostPointer(remote, page));
+                        if (!unchanged) {
+                            nextLevel.addAll(getBalancedChildren(local, page, remote));
+                        }
+                    }
+                    if (!unchanged) {
+                        for (Integer overflowPage : SQLitePages.getOverflowPages(remote, page, usableSize)) {
+                            overflowPages.add(overflowPage);
+                            nextLevel.add(overflowPage);
+                        }
+                    }
+                }
+                nextLevel.removeAll(visitedPages);
+                level = nextLevel;
+            }
+        }
+
+        long lockBytePage = SQLitePages.getLockBytePage(pageSize);
+        for (Integer page : appendedPages) {
+            if (page != lockBytePage && !visitedPages.contains(page)) {
+                logger.debug("Page {} of {} is not reachable from the changed pages, downloading it", page, url);
+                return SyncResult.DOWNLOAD;
+            }
+        }
+
+        byte[] header = fetchRange(0, SQLitePages.HEADER_SIZE, false);
+        if (header == null) {
+            return SyncResult.DOWNLOAD;
+        }
+        if (SQLitePages.getChangeCounter(header) != SQLitePages.getChangeCounter(firstPage)) {
+            return SyncResult.RETRY;
+        }
+
+        int transactions = SQLitePages.getChangeCounter(firstPage) - changeCounter;
+        long lastRecord;
+        try {
+            lastRecord = queryLastRecord();
+        } catch (SQLException e) {
+            logger.debug("Error during reading archive of {}: {}", file, e.getMessage());
+            return SyncResult.DOWNLOAD;
+        }
+        try (RandomAccessFile local = new RandomAccessFile(file, "rw")) {
+            writePages(local, changedPages, remotePageCount);
+        }
+        changeCounter = SQLitePages.getChangeCounter(firstPage);
+        if (!isAccountedFor(transactions, lastRecord)) {
+            // the local copy has been written already
+            downloadRequired = true;
+            logger.debug("Not every transaction on {} added an archive record, downloading it", url);
+            return SyncResult.DOWNLOAD;
+        }
+        remoteETag = firstETag;
+        remoteLastModified = firstLastModified;
+        updateValidators();
+        return SyncResult.DONE;
+    }
+
+    /**
+     * Returns the children of a changed interior page which may have changed. SQLite balances a page together with at
+     * most two of its siblings and changes the cells of the balanced pages in their parent, so every child within two
+     * positions of a changed cell is followed. The other children are unchanged unless a row was updated in place,
+     * which {@link #isAccountedFor(int, long)} detects.
+     *
+     * @param local the local copy
+     * @param page the number of the interior page
+     * @param remote the interior page of the remote database
+     */
+    private List<Integer> getBalancedChildren(RandomAccessFile local, int page, byte[] remote) throws IOException {
+        // the right-most pointer is the child after the last cell
+        List<Integer> children = SQLitePages.getChildren(remote, page);
+        children.add(SQLitePages.getRightMostPointer(remote, page));
+        if (page > pageCount) {
+            return children;
+        }
+        byte[] localPage = readPage(local, page);
+        if (!SQLitePages.isSamePageType(localPage, remote, page)) {
+            // e.g. a leaf which became the root of a deeper b-tree
+            return children;
+        }
+
+        List<ByteBuffer> remoteCells = SQLitePages.getCells(remote, page, usableSize);
+        List<ByteBuffer> localCells = SQLitePages.getCells(localPage, page, usableSize);
+        Map<ByteBuffer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < remoteCells.size(); i++) {
+            positions.put(remoteCells.get(i), i);
+        }
+        boolean[] changed = new boolean[children.size()];
+        Set<ByteBuffer> unchangedCells = new HashSet<>(localCells);
+        for (int i = 0; i < remoteCells.size(); i++) {
+            changed[i] = !unchangedCells.contains(remoteCells.get(i));
+        }
+        // a removed cell changed the children next to its former position
+        int position = 0;
+        for (ByteBuffer cell : localCells) {
+            Integer remotePosition = positions.get(cell);
+            if (remotePosition == null) {
+                changed[position] = true;
+            } else {
+                position = remotePosition + 1;
+            }
+        }
+        if (SQLitePages.getRightMostPointer(localPage, page) != SQLitePages.getRightMostPointer(remote, page)) {
+            changed[children.size() - 1] = true;
+        }
+
+        List<Integer> balancedChildren = new ArrayList<>();
+        for (int i = 0; i < children.size(); i++) {
+            for (int j = Math.max(0, i - 2); j <= Math.min(children.size() - 1, i + 2); j++) {
+                if (changed[j]) {
+                    balancedChildren.add(children.get(i));
+                    break;
+                }
+            }
+        }
+        return balancedChildren;
+    }
+
+    /**
+     * Compares the freelist with the local copy. The walk through the b-trees does not follow the freelist, so pages
+     * moved between a b-tree and the freelist can not be accounted for by it.
+     *
+     * @return false if the freelist changed or the server does not support Range requests
+     */
+    private boolean isFreelistUnchanged(byte[] firstPage, long remotePageCount, Map<Integer, byte[]> fetchedPages)
+            throws IOException {
+        if (SQLitePages.getFreelistTrunk(firstPage) != freelistTrunk
+                || SQLitePages.getFreelistCount(firstPage) != freelistCount) {
+            return false;
+        }
+        Set<Integer> trunkPages = new HashSet<>();
+        int trunk = freelistTrunk;
+        while (trunk != 0) {
+            if (trunk > pageCount || trunk > remotePageCount || !trunkPages.add(trunk)
+                    || !fetchPages(Collections.singletonList(trunk), fetchedPages)) {
+                return false;
+            }
+            byte[] remote = fetchedPages.get(trunk);
+            if (checksum(remote) != pageChecksums[trunk]) {
+                return false;
+            }
+            trunk = SQLitePages.getNextFreelistTrunk(remote);
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the transactions since the last synchronization are explained by the archive records they added.
+     * weewx adds each archive record in a transaction, which also updates the daily summaries of the latest day on the
+     * right-most paths of their b-trees. Any other transaction, e.g. a rebuild of the daily summaries, may update rows
+     * in place on pages the walk does not visit, as their parent pages are unchanged.
+     *
+     * @param transactions the increase of the change counter
+     * @param lastRecord the time of the latest archive record before the synchronization
+     */
+    private boolean isAccountedFor(int transactions, long lastRecord) {
+        if (transactions <= 0) {
+            return false;
+        }
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+                PreparedStatement statement = connection
+                        .prepareStatement("SELECT COUNT(*) FROM " + ARCHIVE_TABLE + " WHERE dateTime > ?")) {
+            statement.setLong(1, lastRecord);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getLong(1) >= transactions;
+            }
+        } catch (SQLException e) {
+            logger.debug("Error during reading archive of {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private long queryLastRecord() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT MAX(dateTime) FROM " + ARCHIVE_TABLE)) {
+            // an empty archive has no maximum, all records are new
+            return resultSet.next() && resultSet.getObject(1) != null ? resultSet.getLong(1) : Long.MIN_VALUE;
+        }
+    }
+
+    private void writePages(RandomAccessFile local, Map<Integer, byte[]> changedPages, long remotePageCount)
+            throws IOException {
+        if (remotePageCount + 1 > pageChecksums.length) {
+            int[] checksums = new int[(int) remotePageCount + 1];
+            System.arraycopy(pageChecksums, 0, checksums, 0, pageChecksums.length);
+            pageChecksums = checksums;
+        }
+        local.setLength(remotePageCount * pageSize);
+
+        // the header is written last, it carries the change counter SQLite uses to detect the modification
+        byte[] firstPage = changedPages.remove(1);
+        for (Map.Entry<Integer, byte[]> page : changedPages.entrySet()) {
+            writePage(local, page.getKey(), page.getValue());
+        }
+        if (firstPage != null) {
+            writePage(local, 1, firstPage);
+        }
+        pageCount = remotePageCount;
+    }
+
+    private void writePage(RandomAccessFile local, int page, byte[] data) throws IOException {
+        local.seek((long) (page - 1) * pageSize);
+        local.write(data);
+        pageChecksums[page] = checksum(data);
+    }
+
+    private byte[] readPage(RandomAccessFile local, int page) throws IOException {
+        byte[] data = new byte[pageSize];
+        local.seek((long) (page - 1) * pageSize);
+        local.readFully(data);
+        return data;
+    }
+
+    /**
+     * Fetches all given pages not fetched yet, contiguous pages are fetched with a single request.
+     *
+     * @return false if the server does not support Range requests
+     */
+    private boolean fetchPages(List<Integer> pages, Map<Integer, byte[]> fetchedPages) throws IOException {
+        List<Integer> missingPages = new ArrayList<>();
+        for (Integer page : pages) {
+            if (!fetchedPages.containsKey(page)) {
+                missingPages.add(page);
+            }
+        }
+        Collections.sort(missingPages);
+
+        int i = 0;
+        while (i < missingPages.size()) {
+            int first = missingPages.get(i);
+            int count = 1;
+            while (i + count < missingPages.size() && missingPages.get(i + count) == first + count
+                    && count < MAX_PAGES_PER_REQUEST) {
+                count++;
+            }
+            byte[] data = fetchRange((long) (first - 1) * pageSize, count * pageSize, false);
+            if (data == null) {
+                return false;
+            }
+            for (int page = 0; page < count; page++) {
+                byte[] pageData = new byte[pageSize];
+                System.arraycopy(data, page * pageSize, pageData, 0, pageSize);
+                fetchedPages.put(first + page, pageData);
+            }
+            i += count;
+        }
+        return true;
+    }
+
+    /**
+     * Fetches a byte range of the remote database
+     *
+     * @param conditional true to send the validators of the last synchronization
+     * @return the requested bytes, {@link #NOT_MODIFIED} if the remote database was not modified or null if the
+     *         server does not support Range requests
+     */
+    private byte[] fetchRange(long start, int length, boolean conditional) throws IOException {
+        HttpURLConnection connection = openConnection();
+        // a completely consumed response keeps the connection open for the next request of the synchronization
+        boolean consumed = false;
+        try {
+            connection.setRequestProperty("Range", "bytes=" + start + "-" + (start + length - 1));
+            if (conditional) {
+                setConditionalHeaders(connection);
+            }
+            int responseCode = connection.getResponseCode();
+            readValidators(connection);
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                consumed = true;
+                return NOT_MODIFIED;
+            }
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                logger.debug("Server of {} does not support Range requests", url);
+                rangeSupported = false;
+                return null;
+            }
+            if (responseCode != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException("Unexpected response " + responseCode + " for " + url);
+            }
+            remoteLength = parseContentRangeLength(connection.getHeaderField("Content-Range"));
+
+            byte[] data = new byte[length];
+            try (DataInputStream in = new DataInputStream(connection.getInputStream())) {
+                in.readFully(data);
+            }
+            transferredBytes += length;
+            consumed = true;
+            return data;
+        } finally {
+            if (!consumed) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Downloads the whole database. The download is conditional unless the local copy has to be replaced.
+     *
+     * @return true if the database was downloaded, false if it was not modified
+     */
+    private boolean download() throws IOException {
+        boolean required = !valid || downloadRequired;
+        if (required && gzipVariantAvailable && !gzipVariantLagging && downloadGzipVariant()) {
+            return true;
+        }
+        HttpURLConnection connection = openConnection(url);
+        try {
+            connection.setRequestProperty("Accept-Encoding", GZIP_ENCODING);
+            if (!required) {
+                setConditionalHeaders(connection);
+            }
+            int responseCode = connection.getResponseCode();
+            readValidators(connection);
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return false;
+            }
+            boolean compressed = GZIP_ENCODING.equalsIgnoreCase(connection.getContentEncoding());
+            // the length of a compressed response is not the length of the database
+            remoteLength = compressed ? -1 : connection.getContentLengthLong();
+            if (!required && isUnmodified()) {
+                return false;
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected response " + responseCode + " for " + url);
+            }
+            receive(connection, compressed);
+        } finally {
+            connection.disconnect();
+        }
+        load();
+        if (!valid) {
+            throw new IOException(url + " is not a valid SQLite database");
+        }
+        downloadRequired = false;
+        gzipVariantDownloaded = false;
+        gzipVariantLagging = false;
+        updateValidators();
+        return true;
+    }
+
+    /**
+     * Downloads the gzip compressed copy of the database, which may be provided next to the database
+     *
+     * @return true if the database was downloaded, false if there is no compressed copy or it is unchanged since it
+     *         was downloaded last, so it can not replace the local copy
+     */
+    private boolean downloadGzipVariant() throws IOException {
+        String gzipUrl = url + GZIP_SUFFIX;
+        HttpURLConnection connection = openConnection(gzipUrl);
+        try {
+            if (gzipETag != null) {
+                connection.setRequestProperty("If-None-Match", gzipETag);
+            }
+            if (gzipLastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", gzipLastModified);
+            }
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                logger.debug("Compressed copy of {} is unchanged, downloading the database", url);
+                return false;
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                logger.debug("No compressed copy of {} available, response {}", url, responseCode);
+                gzipVariantAvailable = false;
+                return false;
+            }
+            try {
+                receive(connection, true);
+            } catch (ZipException e) {
+                logger.debug("Compressed copy of {} is not gzip compressed: {}", url, e.getMessage());
+                gzipVariantAvailable = false;
+                return false;
+            }
+            gzipETag = connection.getHeaderField("ETag");
+            gzipLastModified = connection.getHeaderField("Last-Modified");
+        } finally {
+            connection.disconnect();
+        }
+        load();
+        if (!valid) {
+            throw new IOException(gzipUrl + " is not a valid SQLite database");
+        }
+        downloadRequired = false;
+        gzipVariantDownloaded = true;
+        // the compressed copy may lag behind, the next synchronization compares the pages of the database itself
+        eTag = null;
+        lastModified = null;
+        contentLength = -1;
+        return true;
+    }
+
+    /**
+     * Streams the body of a response into the local copy through a fixed-size buffer, decompressing it if needed. The
+     * local copy is replaced atomically once the body is complete.
+     */
+    private void receive(HttpURLConnection connection, boolean compressed) throws IOException {
+        File temp = new File(file.getPath() + ".part");
+        file.getParentFile().mkdirs();
+        try {
+            try (CountingInputStream counter = new CountingInputStream(connection.getInputStream());
+                    InputStream in = compressed ? new GZIPInputStream(counter, BUFFER_SIZE) : counter;
+                    OutputStream out = new FileOutputStream(temp)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long start = transferredBytes;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    transferredBytes = start + counter.getCount();
+                }
+                transferredBytes = start + counter.getCount();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileSystemException e) {
+                // the local copy is held open by a reader, which prevents replacing it e.g. on Windows
+                // until it has been overwritten completely, the local copy can only be replaced by a full download
+                downloadRequired = true;
+                overwrite(temp, file);
+            }
+            generation++;
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Copies a file over the content of another file in place. Streams are used instead of channels, as an interrupt,
+     * e.g. by the deadline of a refresh, closes a channel in the middle of the copy.
+     */
+    private static void overwrite(File source, File target) throws IOException {
+        try (InputStream in = new FileInputStream(source); RandomAccessFile out = new RandomAccessFile(target, "rw")) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            out.setLength(source.length());
+        }
+    }
+
+    private void setConditionalHeaders(HttpURLConnection connection) {
+        if (eTag != null) {
+            connection.setRequestProperty("If-None-Match", eTag);
+        }
+        if (lastModified != null) {
+            connection.setRequestProperty("If-Modified-Since", lastModified);
+        }
+    }
+
+    private void readValidators(HttpURLConnection connection) {
+        remoteETag = connection.getHeaderField("ETag");
+        remoteLastModified = connection.getHeaderField("Last-Modified");
+    }
+
+    /**
+     * Returns true if the validators of the last response are identical to the ones of the last synchronization,
+     * for servers which do not answer conditional requests with 304 Not Modified.
+     */
+    private boolean isUnmodified() {
+        if (eTag != null && remoteETag != null) {
+            return eTag.equals(remoteETag) && (contentLength < 0 || contentLength == remoteLength);
+        }
+        return lastModified != null && lastModified.equals(remoteLastModified) && contentLength >= 0
+                && contentLength == remoteLength;
+    }
+
+    private void updateValidators() {
+        eTag = remoteETag;
+        lastModified = remoteLastModified;
+        contentLength = remoteLength;
+    }
+
+    /**
+     * Reads the page layout of the local copy and calculates the checksum of each page.
+     */
+    private void load() throws IOException {
+        valid = false;
+        if (!file.isFile() || file.length() < SQLitePages.HEADER_SIZE) {
+            return;
+        }
+        try (RandomAccessFile local = new RandomAccessFile(file, "r")) {
+            byte[] header = new byte[SQLitePages.HEADER_SIZE];
+            local.readFully(header);
+            if (!SQLitePages.isDatabaseHeader(header)) {
+                return;
+            }
+            pageSize = SQLitePages.getPageSize(header);
+            usableSize = SQLitePages.getUsableSize(header);
+            schemaCookie = SQLitePages.getSchemaCookie(header);
+            changeCounter = SQLitePages.getChangeCounter(header);
+            freelistTrunk = SQLitePages.getFreelistTrunk(header);
+            freelistCount = SQLitePages.getFreelistCount(header);
+            pageCount = local.length() / pageSize;
+            if (pageCount < 1 || pageCount > Integer.MAX_VALUE) {
+                return;
+            }
+
+            pageChecksums = new int[(int) pageCount + 1];
+            for (int page = 1; page <= pageCount; page++) {
+                pageChecksums[page] = checksum(readPage(local, page));
+            }
+        }
+        try {
+            rootPages = readRootPages();
+        } catch (SQLException e) {
+            logger.debug("Error during reading schema of {}: {}", file, e.getMessage());
+            return;
+        }
+        valid = true;
+    }
+
+    private List<Integer> readRootPages() throws SQLException {
+        List<Integer> pages = new ArrayList<>();
+        pages.add(1);
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT rootpage FROM sqlite_master WHERE rootpage > 1")) {
+            while (resultSet.next()) {
+                pages.add(resultSet.getInt(1));
+            }
+        }
+        return pages;
+    }
+
+    private HttpURLConnection openConnection() throws IOException {
+        return openConnection(url);
+    }
+
+    private HttpURLConnection openConnection(String url) throws IOException {
+        if (aborted) {
+            throw new IOException("Synchronization of " + url + " was aborted");
+        }
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        activeConnection = connection;
+        return connection;
+    }
+
+    private int checksum(byte[] data) {
+        crc.reset();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    private static long parseContentRangeLength(String contentRange) {
+        if (contentRange != null) {
+            int index = contentRange.lastIndexOf('/');
+            if (index >= 0) {
+                try {
+                    return Long.parseLong(contentRange.substring(index + 1).trim());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
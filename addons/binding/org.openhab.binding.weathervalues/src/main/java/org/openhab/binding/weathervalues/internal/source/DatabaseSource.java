@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.source;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The {@link DatabaseSource} provides the weewx database as a local SQLite file, which is read by the
+ * {@link org.openhab.binding.weathervalues.internal.SQLiteReader}.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public interface DatabaseSource {
+
+    /**
+     * Brings the local file up to date with the database.
+     *
+     * @return true if the local file has changed since the last call, false if it is unchanged
+     * @throws IOException if the database could not be accessed
+     */
+    public boolean sync() throws IOException;
+
+    /**
+     * Returns the local file of the database
+     *
+     * @return the local file of the database
+     */
+    public File getFile();
+
+    /**
+     * Returns the generation of the local file, which changes whenever the file is replaced instead of being updated
+     * in place. A connection to the local file is kept open as long as its generation is unchanged.
+     *
+     * @return the generation of the local file
+     */
+    public long getGeneration();
+
+    /**
+     * Returns the number of bytes transferred by the last call of {@link #sync()}
+     *
+     * @return the number of bytes transferred, 0 if the file is read in place
+     */
+    public long getLastTransferredBytes();
+
+    /**
+     * Returns the number of bytes transferred so far by the running call of {@link #sync()}, which tells a slow
+     * transfer from a stalled one
+     *
+     * @return the number of bytes transferred, 0 if the file is read in place
+     */
+    public long getTransferredBytes();
+
+    /**
+     * Forces the next call of {@link #sync()} to report a change, e.g. after the local file turned out to be corrupt.
+     */
+    public void invalidate();
+
+    /**
+     * Aborts a running {@link #sync()} from another thread, which then fails with an {@link IOException}
+     */
+    public void abort();
+}
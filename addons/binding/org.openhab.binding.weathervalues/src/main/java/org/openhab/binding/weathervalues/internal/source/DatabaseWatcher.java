@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.source;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DatabaseWatcher} watches a local SQLite database, its write-ahead log and its rollback journal for
+ * changes. A burst of changes, as written by a single commit, is coalesced into one notification, which is sent once
+ * no further change has been seen for the debounce delay.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class DatabaseWatcher implements Runnable {
+
+    private static final long DEBOUNCE_DELAY = 200;
+
+    private Logger logger = LoggerFactory.getLogger(DatabaseWatcher.class);
+
+    private final Path directory;
+    private final String fileName;
+    private final ScheduledExecutorService scheduler;
+    private final Runnable listener;
+
+    private WatchService watchService;
+    private Thread thread;
+    private ScheduledFuture<?> notification;
+
+    /**
+     * Creates a watcher
+     *
+     * @param file the database to watch
+     * @param scheduler the scheduler to notify the listener on
+     * @param listener the listener to notify about changes
+     */
+    public DatabaseWatcher(File file, ScheduledExecutorService scheduler, Runnable listener) {
+        File absoluteFile = file.getAbsoluteFile();
+        this.directory = absoluteFile.getParentFile().toPath();
+        this.fileName = absoluteFile.getName();
+        this.scheduler = scheduler;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts watching the database
+     *
+     * @throws IOException if the directory of the database can not be watched
+     */
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        thread = new Thread(this, "weathervalues-watcher-" + fileName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the database
+     */
+    public synchronized void stop() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.debug("Error during closing watch service of {}: {}", directory, e.getMessage());
+        }
+        watchService = null;
+        thread = null;
+        if (notification != null) {
+            notification.cancel(false);
+            notification = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        WatchService watchService;
+        synchronized (this) {
+            watchService = this.watchService;
+        }
+        try {
+            while (watchService != null) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() != OVERFLOW) {
+                        changed |= isDatabaseFile((Path) event.context());
+                    } else {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    scheduleNotification();
+                }
+                if (!key.reset()) {
+                    logger.warn("Directory {} of the database can no longer be watched", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private boolean isDatabaseFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.equals(fileName) || name.equals(fileName + "-wal") || name.equals(fileName + "-journal");
+    }
+
+    private synchronized void scheduleNotification() {
+        if (watchService == null) {
+            return;
+        }
+        if (notification != null) {
+            notification.cancel(false);
+        }
+        notification = scheduler.schedule(listener, DEBOUNCE_DELAY, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,396 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.source;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * The {@link FeedDatabase} keeps a local replica of the weewx database, which is filled from the row feed of the
+ * weewx-feed exporter in the contrib directory of this binding. Instead of the database file, only the rows which
+ * are newer than the last row of the replica are transferred, which are a few hundred bytes per archive record.
+ *
+ * The feed is requested with the last dateTime of the archive table and of each daily summary table in the replica,
+ * so a daily summary table which is missing or empty in the replica is filled from its start without resending the
+ * other tables. The feed answers with no content if the replica has archive records and there is no newer one.
+ * Otherwise it answers with newline delimited JSON, a header object with the table and its columns, followed by one
+ * array of values per row:
+ *
+ * <pre>
+ * {"table":"archive","columns":["dateTime","usUnits","interval","outTemp"]}
+ * [1500000300,1,5,68.2]
+ * {"table":"archive_day_rain","columns":["dateTime","min","mintime","max","maxtime","sum","count"]}
+ * [1499983200,0.0,1499983200,0.02,1499990400,0.03,48]
+ * </pre>
+ *
+ * The rows are stored in tables with the same names and columns as in weewx, so the replica is read like the
+ * database itself. It is updated in place and survives restarts, while archive records older than two days before
+ * the last record are removed from it.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class FeedDatabase implements DatabaseSource {
+
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 30000;
+    private static final String ARCHIVE_TABLE = "archive";
+    private static final long ARCHIVE_RETENTION = 2 * 24 * 60 * 60;
+    private static final int MAX_ROWS = 2000;
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private Logger logger = LoggerFactory.getLogger(FeedDatabase.class);
+
+    private final String url;
+    private final File file;
+    private final List<String> dailyTables;
+    private final JsonParser parser = new JsonParser();
+
+    private boolean valid = true;
+    private long lastTransferredBytes;
+    private volatile long generation;
+
+    private volatile HttpURLConnection activeConnection;
+    private volatile CountingInputStream activeInput;
+    private volatile boolean aborted;
+
+    /**
+     * Creates the replica of a database
+     *
+     * @param host the host and port of the exporter
+     * @param dbName the name of the database, which names the replica
+     * @param directory the directory of the replica
+     * @param dailyTables the daily summary tables to replicate next to the archive table
+     */
+    public FeedDatabase(String host, String dbName, File directory, List<String> dailyTables) {
+        this.url = "http://" + host + "/feed";
+        this.file = new File(directory, (host + "_" + dbName + ".feed").replaceAll("[^A-Za-z0-9._-]", "_"));
+        this.dailyTables = new ArrayList<>(dailyTables);
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public long getGeneration() {
+        // rows are written into the replica, which is only replaced after it has been discarded
+        return generation;
+    }
+
+    @Override
+    public long getLastTransferredBytes() {
+        return lastTransferredBytes;
+    }
+
+    @Override
+    public long getTransferredBytes() {
+        CountingInputStream input = activeInput;
+        return input != null ? input.getCount() : lastTransferredBytes;
+    }
+
+    /**
+     * Aborts a running synchronization by closing its connection. The rows of a synchronization are written in a
+     * single transaction, which is rolled back.
+     */
+    @Override
+    public void abort() {
+        aborted = true;
+        HttpURLConnection connection = activeConnection;
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Discards the replica, so it is filled again from scratch on the next synchronization
+     */
+    @Override
+    public synchronized void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Appends the rows of the feed which are newer than the last rows of the replica.
+     *
+     * @return true if rows have been written to the replica, false if the feed has no newer archive record
+     * @throws IOException if the feed could not be transferred or the replica could not be written
+     */
+    @Override
+    public synchronized boolean sync() throws IOException {
+        aborted = false;
+        lastTransferredBytes = 0;
+        if (!valid) {
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Replica " + file.getPath() + " could not be deleted");
+            }
+            generation++;
+            valid = true;
+        }
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Directory " + directory.getPath() + " could not be created");
+        }
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath())) {
+            // an empty replica starts with the newest archive records, however old they are
+            long since = Math.max(getLastDateTime(connection, ARCHIVE_TABLE), 0);
+            List<String> tables = new ArrayList<>(dailyTables.size());
+            for (String table : dailyTables) {
+                // the row of the last day is requested again, as the summary of the current day is updated
+                tables.add(table + ":" + Math.max(getLastDateTime(connection, table), 0));
+            }
+
+            HttpURLConnection httpConnection = openConnection(since, tables);
+            try {
+                int responseCode = httpConnection.getResponseCode();
+                if (responseCode == HttpURLConnection.HTTP_NO_CONTENT) {
+                    return false;
+                }
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("Unexpected response " + responseCode + " of " + url);
+                }
+                connection.setAutoCommit(false);
+                int rows;
+                try (CountingInputStream input = new CountingInputStream(httpConnection.getInputStream())) {
+                    activeInput = input;
+                    try {
+                        rows = store(connection,
+                                new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+                    } finally {
+                        lastTransferredBytes = input.getCount();
+                        activeInput = null;
+                    }
+                }
+                if (aborted) {
+                    throw new IOException("Synchronization of " + url + " was aborted");
+                }
+                long last = getLastDateTime(connection, ARCHIVE_TABLE);
+                if (last != Long.MIN_VALUE) {
+                    try (PreparedStatement statement = connection
+                            .prepareStatement("DELETE FROM " + ARCHIVE_TABLE + " WHERE dateTime < ?")) {
+                        statement.setLong(1, last - ARCHIVE_RETENTION);
+                        statement.executeUpdate();
+                    }
+                }
+                connection.commit();
+                logger.debug("Synchronized {} rows of {} with {} bytes transferred", rows, url,
+                        lastTransferredBytes);
+                return rows > 0;
+            } finally {
+                activeConnection = null;
+            }
+        } catch (SQLException | JsonParseException | IllegalStateException e) {
+            throw new IOException("Error during writing feed of " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the rows of the feed into the replica, creating tables and columns as announced by the headers
+     *
+     * @return the number of rows written
+     */
+    private int store(Connection connection, BufferedReader reader) throws IOException, SQLException {
+        int rows = 0;
+        int columns = 0;
+        PreparedStatement statement = null;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                JsonElement element = parser.parse(line);
+                if (element.isJsonObject()) {
+                    if (statement != null) {
+                        statement.close();
+                    }
+                    JsonObject header = element.getAsJsonObject();
+                    List<String> names = new ArrayList<>();
+                    for (JsonElement column : header.getAsJsonArray("columns")) {
+                        names.add(checkIdentifier(column.getAsString()));
+                    }
+                    String table = checkIdentifier(header.get("table").getAsString());
+                    prepareTable(connection, table, names);
+                    statement = connection.prepareStatement(createInsert(table, names));
+                    columns = names.size();
+                } else if (statement != null) {
+                    JsonArray row = element.getAsJsonArray();
+                    if (row.size() != columns) {
+                        throw new IOException(
+                                "Row of " + row.size() + " values does not match " + columns + " columns");
+                    }
+                    for (int i = 0; i < columns; i++) {
+                        bind(statement, i + 1, row.get(i));
+                    }
+                    statement.executeUpdate();
+                    rows++;
+                } else {
+                    throw new IOException("Row without table header");
+                }
+            }
+        } finally {
+            if (statement != null) {
+                statement.close();
+            }
+        }
+        return rows;
+    }
+
+    private static void bind(PreparedStatement statement, int index, JsonElement value) throws SQLException {
+        if (value.isJsonNull()) {
+            statement.setNull(index, Types.NULL);
+            return;
+        }
+        JsonPrimitive primitive = value.getAsJsonPrimitive();
+        if (primitive.isNumber()) {
+            String number = primitive.getAsString();
+            if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                statement.setLong(index, primitive.getAsLong());
+            } else {
+                statement.setDouble(index, primitive.getAsDouble());
+            }
+        } else {
+            statement.setString(index, primitive.getAsString());
+        }
+    }
+
+    /**
+     * Creates a table of the replica, or adds the columns the table is missing
+     */
+    private static void prepareTable(Connection connection, String table, List<String> names) throws SQLException {
+        Set<String> existing = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (exists(connection, table)) {
+            try (Statement statement = connection.createStatement();
+                    ResultSet resultSet = statement.executeQuery("PRAGMA table_info(" + table + ")")) {
+                while (resultSet.next()) {
+                    existing.add(resultSet.getString("name"));
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            if (existing.isEmpty()) {
+                StringBuilder sql = new StringBuilder("CREATE TABLE ").append(table)
+                        .append(" (dateTime INTEGER NOT NULL UNIQUE PRIMARY KEY");
+                for (String name : names) {
+                    if (!"dateTime".equalsIgnoreCase(name)) {
+                        sql.append(", ").append(name);
+                    }
+                }
+                statement.executeUpdate(sql.append(')').toString());
+            } else {
+                for (String name : names) {
+                    if (!existing.contains(name)) {
+                        statement.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + name);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String createInsert(String table, List<String> names) {
+        StringBuilder sql = new StringBuilder("INSERT OR REPLACE INTO ").append(table).append(" (");
+        StringBuilder values = new StringBuilder(") VALUES (");
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+                values.append(", ");
+            }
+            sql.append(names.get(i));
+            values.append('?');
+        }
+        return sql.append(values).append(')').toString();
+    }
+
+    private static String checkIdentifier(String name) throws IOException {
+        if (!IDENTIFIER.matcher(name).matches()) {
+            throw new IOException("Invalid identifier " + name);
+        }
+        return name;
+    }
+
+    /**
+     * Returns the last dateTime of a table of the replica
+     *
+     * @return the last dateTime, or {@link Long#MIN_VALUE} if the table does not exist or is empty
+     */
+    private static long getLastDateTime(Connection connection, String table) throws SQLException {
+        if (!exists(connection, table)) {
+            return Long.MIN_VALUE;
+        }
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT MAX(dateTime) FROM " + table)) {
+            long dateTime = resultSet.next() ? resultSet.getLong(1) : 0;
+            return resultSet.wasNull() ? Long.MIN_VALUE : dateTime;
+        }
+    }
+
+    private static boolean exists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement("SELECT name FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    /**
+     * Opens the connection to the feed
+     *
+     * @param since the last dateTime of the archive table
+     * @param tables the daily summary tables, each followed by a colon and its last dateTime
+     */
+    private HttpURLConnection openConnection(long since, List<String> tables) throws IOException {
+        if (aborted) {
+            throw new IOException("Synchronization of " + url + " was aborted");
+        }
+        StringBuilder query = new StringBuilder(url).append("?since=").append(since).append("&limit=")
+                .append(MAX_ROWS).append("&tables=");
+        query.append(URLEncoder.encode(String.join(",", tables), StandardCharsets.UTF_8.name()));
+        HttpURLConnection connection = (HttpURLConnection) new URL(query.toString()).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        activeConnection = connection;
+        return connection;
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.source;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The {@link LocalDatabase} reads a SQLite database directly from the file system, e.g. when weewx runs on the same
+ * host or for running the refresh pipeline offline against a fixture database. A change is detected by the
+ * modification time and the length of the database and its write-ahead log, a replacement of the database, e.g. by a
+ * restore, by the file key.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+public class LocalDatabase implements DatabaseSource {
+
+    private final File file;
+    private final File walFile;
+
+    private boolean valid;
+    private long lastModified;
+    private long length;
+    private long walLastModified;
+    private long walLength;
+    private Object fileKey;
+    private volatile long generation;
+
+    public LocalDatabase(File file) {
+        this.file = file;
+        this.walFile = new File(file.getPath() + "-wal");
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public long getLastTransferredBytes() {
+        return 0;
+    }
+
+    @Override
+    public long getTransferredBytes() {
+        return 0;
+    }
+
+    @Override
+    public void abort() {
+        // reading the file attributes does not block
+    }
+
+    @Override
+    public synchronized void invalidate() {
+        valid = false;
+    }
+
+    @Override
+    public synchronized boolean sync() throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getPath() + " does not exist");
+        }
+        long currentLastModified = file.lastModified();
+        long currentLength = file.length();
+        long currentWalLastModified = walFile.lastModified();
+        long currentWalLength = walFile.length();
+        // null if the file system has no file keys, then the database is expected to be updated in place
+        Object currentFileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+        if (currentFileKey != null && fileKey != null && !currentFileKey.equals(fileKey)) {
+            generation++;
+            valid = false;
+        }
+        fileKey = currentFileKey;
+
+        if (valid && currentLastModified == lastModified && currentLength == length
+                && currentWalLastModified == walLastModified && currentWalLength == walLength) {
+            return false;
+        }
+        lastModified = currentLastModified;
+        length = currentLength;
+        walLastModified = currentWalLastModified;
+        walLength = currentWalLength;
+        valid = true;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return file.getPath();
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.weathervalues.internal.source;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link SQLitePages} contains helpers to read the header and the b-tree pages of a SQLite database file.
+ *
+ * @author Thomas Traunbauer - Initial contribution
+ */
+class SQLitePages {
+
+    static final int HEADER_SIZE = 100;
+
+    private static final byte INTERIOR_INDEX = 0x02;
+    private static final byte INTERIOR_TABLE = 0x05;
+    private static final byte LEAF_INDEX = 0x0A;
+    private static final byte LEAF_TABLE = 0x0D;
+
+    // the page which contains the lock bytes at offset 2^30 is never used by SQLite
+    private static final long LOCK_BYTE_OFFSET = 0x40000000L;
+
+    private static final int OFFSET_PAGE_SIZE = 16;
+    private static final int OFFSET_RESERVED_SPACE = 20;
+    private static final int OFFSET_CHANGE_COUNTER = 24;
+    private static final int OFFSET_PAGE_COUNT = 28;
+    private static final int OFFSET_FREELIST_TRUNK = 32;
+    private static final int OFFSET_FREELIST_COUNT = 36;
+    private static final int OFFSET_SCHEMA_COOKIE = 40;
+    private static final int OFFSET_AUTO_VACUUM = 52;
+    private static final int OFFSET_VERSION_VALID_FOR = 92;
+
+    private SQLitePages() {
+    }
+
+    static boolean isDatabaseHeader(byte[] header) {
+        return header.length >= HEADER_SIZE && header[0] == 'S' && header[1] == 'Q' && header[2] == 'L'
+                && header[3] == 'i' && header[4] == 't' && header[5] == 'e';
+    }
+
+    static int getPageSize(byte[] header) {
+        int pageSize = readUnsignedShort(header, OFFSET_PAGE_SIZE);
+        return pageSize == 1 ? 65536 : pageSize;
+    }
+
+    /**
+     * Returns the usable size of a page, without the space reserved at its end e.g. for encryption
+     */
+    static int getUsableSize(byte[] header) {
+        return getPageSize(header) - (header[OFFSET_RESERVED_SPACE] & 0xFF);
+    }
+
+    static long getLockBytePage(int pageSize) {
+        return LOCK_BYTE_OFFSET / pageSize + 1;
+    }
+
+    static int getChangeCounter(byte[] header) {
+        return readInt(header, OFFSET_CHANGE_COUNTER);
+    }
+
+    static int getSchemaCookie(byte[] header) {
+        return readInt(header, OFFSET_SCHEMA_COOKIE);
+    }
+
+    static int getFreelistTrunk(byte[] header) {
+        return readInt(header, OFFSET_FREELIST_TRUNK);
+    }
+
+    static int getFreelistCount(byte[] header) {
+        return readInt(header, OFFSET_FREELIST_COUNT);
+    }
+
+    static boolean isAutoVacuum(byte[] header) {
+        return readInt(header, OFFSET_AUTO_VACUUM) != 0;
+    }
+
+    /**
+     * Returns the database size in pages stored in the header, or -1 if the header value is not valid.
+     */
+    static long getPageCount(byte[] header) {
+        if (readInt(header, OFFSET_VERSION_VALID_FOR) != getChangeCounter(header)) {
+            return -1;
+        }
+        return readInt(header, OFFSET_PAGE_COUNT) & 0xFFFFFFFFL;
+    }
+
+    static boolean isInteriorPage(byte[] page, int pageNumber) {
+        byte type = page[headerOffset(pageNumber)];
+        return type == INTERIOR_TABLE || type == INTERIOR_INDEX;
+    }
+
+    static boolean isSamePageType(byte[] page, byte[] otherPage, int pageNumber) {
+        return page[headerOffset(pageNumber)] == otherPage[headerOffset(pageNumber)];
+    }
+
+    static int getRightMostPointer(byte[] page, int pageNumber) {
+        return readInt(page, headerOffset(pageNumber) + 8);
+    }
+
+    /**
+     * Returns the child pointers of the cells of an interior page, without the right-most pointer
+     */
+    static List<Integer> getChildren(byte[] page, int pageNumber) {
+        int offset = headerOffset(pageNumber);
+        int numberOfCells = readUnsignedShort(page, offset + 3);
+
+        List<Integer> children = new ArrayList<>(numberOfCells);
+        for (int i = 0; i < numberOfCells; i++) {
+            int cell = readUnsignedShort(page, offset + 12 + 2 * i);
+            children.add(readInt(page, cell));
+        }
+        return children;
+    }
+
+    /**
+     * Returns the cells of an interior page, each with its child pointer and its key as stored in the page
+     *
+     * @param usableSize the usable size of a page
+     */
+    static List<ByteBuffer> getCells(byte[] page, int pageNumber, int usableSize) {
+        int offset = headerOffset(pageNumber);
+        boolean table = page[offset] == INTERIOR_TABLE;
+        int numberOfCells = readUnsignedShort(page, offset + 3);
+
+        List<ByteBuffer> cells = new ArrayList<>(numberOfCells);
+        for (int i = 0; i < numberOfCells; i++) {
+            int cell = readUnsignedShort(page, offset + 12 + 2 * i);
+            int position = cell + 4;
+            long payloadSize = readVarint(page, position);
+            position += getVarintLength(page, position);
+            if (!table) {
+                // the key of an index cell is its payload, which may continue on overflow pages
+                int localSize = getLocalSize(payloadSize, usableSize, false);
+                position += localSize < payloadSize ? localSize + 4 : localSize;
+            }
+            cells.add(ByteBuffer.wrap(page, cell, position - cell));
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the first overflow page of each cell of a b-tree page whose payload does not fit into the page
+     *
+     * @param usableSize the usable size of a page
+     */
+    static List<Integer> getOverflowPages(byte[] page, int pageNumber, int usableSize) {
+        int offset = headerOffset(pageNumber);
+        byte type = page[offset];
+        boolean leaf = type == LEAF_TABLE || type == LEAF_INDEX;
+        List<Integer> overflowPages = new ArrayList<>();
+        if (!leaf && type != INTERIOR_INDEX) {
+            // the cells of interior table pages have no payload
+            return overflowPages;
+        }
+        boolean table = type == LEAF_TABLE;
+
+        int numberOfCells = readUnsignedShort(page, offset + 3);
+        int cellPointers = offset + (leaf ? 8 : 12);
+        for (int i = 0; i < numberOfCells; i++) {
+            int position = readUnsignedShort(page, cellPointers + 2 * i) + (leaf ? 0 : 4);
+            long payloadSize = readVarint(page, position);
+            position += getVarintLength(page, position);
+            if (table) {
+                // the rowid
+                position += getVarintLength(page, position);
+            }
+            int localSize = getLocalSize(payloadSize, usableSize, table);
+            if (localSize < payloadSize) {
+                overflowPages.add(readInt(page, position + localSize));
+            }
+        }
+        return overflowPages;
+    }
+
+    /**
+     * Returns the part of the payload of a cell which is stored in the page itself
+     */
+    private static int getLocalSize(long payloadSize, int usableSize, boolean table) {
+        int maxLocal = table ? usableSize - 35 : (usableSize - 12) * 64 / 255 - 23;
+        if (payloadSize <= maxLocal) {
+            return (int) payloadSize;
+        }
+        int minLocal = (usableSize - 12) * 32 / 255 - 23;
+        long surplus = minLocal + (payloadSize - minLocal) % (usableSize - 4);
+        return (int) (surplus <= maxLocal ? surplus : minLocal);
+    }
+
+    /**
+     * Returns the next page of an overflow chain, or 0 if it is the last page
+     */
+    static int getNextOverflowPage(byte[] page) {
+        return readInt(page, 0);
+    }
+
+    /**
+     * Returns the next trunk page of the freelist, or 0 if it is the last trunk page
+     */
+    static int getNextFreelistTrunk(byte[] page) {
+        return readInt(page, 0);
+    }
+
+    private static int headerOffset(int pageNumber) {
+        return pageNumber == 1 ? HEADER_SIZE : 0;
+    }
+
+    private static int readUnsignedShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16) | ((data[offset + 2] & 0xFF) << 8)
+                | (data[offset + 3] & 0xFF);
+    }
+
+    private static int getVarintLength(byte[] data, int offset) {
+        for (int i = 0; i < 8; i++) {
+            if ((data[offset + i] & 0x80) == 0) {
+                return i + 1;
+            }
+        }
+        return 9;
+    }
+
+    private static long readVarint(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            int b = data[offset + i] & 0xFF;
+            value = (value << 7) | (b & 0x7F);
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return (value << 8) | (data[offset + 8] & 0xFF);
+    }
+}